@@ -2,7 +2,9 @@ package net.jangaroo.jooc.mvnplugin;
 
 import com.google.common.collect.Lists;
 import net.jangaroo.jooc.AbstractCompileLog;
+import net.jangaroo.jooc.IncrementalBuildState;
 import net.jangaroo.jooc.Jooc;
+import net.jangaroo.jooc.JoocDaemon;
 import net.jangaroo.jooc.api.CompilationResult;
 import net.jangaroo.jooc.config.DebugMode;
 import net.jangaroo.jooc.config.JoocConfiguration;
@@ -42,6 +44,7 @@ public abstract class AbstractCompilerMojo extends AbstractJangarooMojo {
   private static final String JANGAROO_GROUP_ID = "net.jangaroo";
   private static final String EXML_CONFIG_URI_PREFIX = "exml:";
   private static final String EXML_MAVEN_PLUGIN_ARTIFACT_ID = "exml-maven-plugin";
+  private static final int SLOWEST_UNITS_TO_LOG = 10;
 
   protected static final String USED_UNDECLARED_DEPENDENCIES_WARNING = "Used undeclared %sdependencies found:";
   protected static final String UNUSED_DEPENDENCIES_KEY = "unusedDependencies";
@@ -118,6 +121,46 @@ public abstract class AbstractCompilerMojo extends AbstractJangarooMojo {
   @Parameter(property = "maven.compiler.verbose")
   private boolean verbose;
 
+  /**
+   * Number of threads the compiler uses to parse source files and generate output concurrently.
+   * The default, 1, compiles sequentially. Set to 0 to use one thread per available processor.
+   * Output is identical regardless of the number of threads.
+   */
+  @Parameter(property = "maven.compiler.threads")
+  private int threads = 1;
+
+  /**
+   * Directory where the compiler caches compact API stubs of all ActionScript classes it imports from
+   * dependency archives. The cache is keyed by archive path, size and modification time and can be shared
+   * by all modules of a build. If not set, API stubs are parsed from the dependency archives on every build.
+   */
+  @Parameter(property = "maven.compiler.apiCacheDirectory")
+  private File apiCacheDirectory;
+
+  /**
+   * If set to "true", the compiler records the dependencies and API fingerprints of all compiled classes
+   * and, when the API of a recompiled class changes or its source is deleted, also recompiles all classes that
+   * depend on it, even if their sources are not stale. If set to "false" (default), only stale sources are recompiled.
+   */
+  @Parameter(property = "maven.compiler.incremental", defaultValue = "false")
+  private boolean incremental;
+
+  /**
+   * If set to "true", compilation is delegated to a resident compiler that is shared by all executions in the
+   * same Maven JVM and keeps the compilation units of unchanged dependencies parsed, so that repeated builds,
+   * e.g. in a long-running Maven daemon, only parse this module's sources.
+   */
+  @Parameter(property = "maven.compiler.useDaemon")
+  private boolean useDaemon;
+
+  /**
+   * If set to "true", the compiler discards the method bodies of each class, compiled or only referenced, as soon as
+   * its output (if any) has been generated and no class waiting for code generation depends on it. This bounds the
+   * heap needed to compile very large modules. Output is identical either way.
+   */
+  @Parameter(property = "maven.compiler.releaseGeneratedAsts")
+  private boolean releaseGeneratedAsts;
+
   /**
    * Sets the granularity in milliseconds of the last modification
    * date for testing whether a source needs recompilation.
@@ -237,6 +280,14 @@ public abstract class AbstractCompilerMojo extends AbstractJangarooMojo {
   @Parameter(property = "maven.compiler.dependencyWarningsOutputFile")
   private String dependencyWarningsOutputFile = "target/dependencyReports/dependencyWarnings.txt";
 
+  /**
+   * The path to a file where the compiler writes a JSON report of the time spent in each compiler phase and for each
+   * compilation unit, e.g. "target/dependencyReports/compilePerformance.json". The slowest phases and units are
+   * also logged. If not set (default), compile times are not measured.
+   */
+  @Parameter(property = "maven.compiler.performanceReportOutputFile")
+  private String performanceReportOutputFile;
+
   protected abstract List<File> getCompileSourceRoots();
 
   protected abstract File getOutputDirectory();
@@ -264,6 +315,11 @@ public abstract class AbstractCompilerMojo extends AbstractJangarooMojo {
   @Nullable
   protected abstract File getApiOutputDirectory();
 
+  /**
+   * The file where the compiler keeps track of class dependencies and API fingerprints between builds.
+   */
+  protected abstract File getIncrementalBuildStateFile();
+
   public boolean isMigrateToTypeScript() {
     return migrateToTypeScript;
   }
@@ -327,6 +383,10 @@ public abstract class AbstractCompilerMojo extends AbstractJangarooMojo {
       }
     });
 
+    if (configuration.getPerformanceReportOutputFile() != null) {
+      // do not print the report of a previous build if this compiler run does not get to write one:
+      new File(configuration.getPerformanceReportOutputFile()).delete();
+    }
     int result = compile(jooc);
 
     if (configuration.getDependencyReportOutputFile() == null && !failOnDependencyError) {
@@ -349,6 +409,17 @@ public abstract class AbstractCompilerMojo extends AbstractJangarooMojo {
         }
       }
     }
+    if (configuration.getPerformanceReportOutputFile() != null) {
+      File performanceReportFile = new File(configuration.getPerformanceReportOutputFile());
+      if (performanceReportFile.exists()) {
+        try {
+          Map<String, Object> performanceReport = SenchaUtils.getObjectMapper().readValue(performanceReportFile, Map.class);
+          printPerformanceReport(performanceReportFile, performanceReport);
+        } catch (IOException e) {
+          getLog().error(String.format("There was an error while reading file %s", performanceReportFile.getPath()));
+        }
+      }
+    }
     if ((result != CompilationResult.RESULT_CODE_OK) && failOnError) {
       log.info("-------------------------------------------------------------");
       if (result == CompilationResult.RESULT_CODE_COMPILATION_FAILED) {
@@ -361,12 +432,35 @@ public abstract class AbstractCompilerMojo extends AbstractJangarooMojo {
     }
   }
 
+  /**
+   * Whether the previous incremental build compiled sources that have been deleted since, so that the classes
+   * depending on them have to be recompiled although no source is stale.
+   */
+  private boolean hasDeletedSources(Log log) {
+    File incrementalBuildStateFile = getIncrementalBuildStateFile();
+    if (!incremental || !incrementalBuildStateFile.exists()) {
+      return false;
+    }
+    try {
+      return new IncrementalBuildState(incrementalBuildStateFile).hasDeletedSources();
+    } catch (IOException e) {
+      log.warn("Could not read incremental build state from " + incrementalBuildStateFile + ": " + e.getMessage());
+      return false;
+    }
+  }
+
   protected JoocConfiguration createJoocConfiguration(Log log) throws MojoExecutionException, MojoFailureException {
     JoocConfiguration configuration = new JoocConfiguration();
 
     configuration.setEnableAssertions(enableAssertions);
     configuration.setAllowDuplicateLocalVariables(allowDuplicateLocalVariables);
     configuration.setVerbose(verbose);
+    configuration.setThreads(threads);
+    configuration.setApiCacheDirectory(apiCacheDirectory);
+    configuration.setReleaseGeneratedAsts(releaseGeneratedAsts);
+    if (incremental) {
+      configuration.setIncrementalBuildStateFile(getIncrementalBuildStateFile());
+    }
     configuration.setExcludeClassByDefault(excludeClassByDefault);
     configuration.setGenerateSourceMaps(generateSourceMaps);
     configuration.setKeepGeneratedActionScriptDirectory(keepGeneratedActionScriptDirectory);
@@ -427,7 +521,8 @@ public abstract class AbstractCompilerMojo extends AbstractJangarooMojo {
       sassOutputDirectoryByType.put(sassType, getOutputDirectory().toPath().resolve("sass").resolve(sassType).toFile());
     }
 
-    if (sources.isEmpty() && sassSourceFilesByType.values().stream().mapToInt(List::size).sum() == 0) {
+    if (sources.isEmpty() && sassSourceFilesByType.values().stream().mapToInt(List::size).sum() == 0
+            && !hasDeletedSources(log)) {
       log.info("Nothing to compile - all classes are up to date");
       return null;
     }
@@ -447,6 +542,7 @@ public abstract class AbstractCompilerMojo extends AbstractJangarooMojo {
     configuration.setApiOutputDirectory(getApiOutputDirectory());
     configuration.setFindUnusedDependencies(findUnusedDependencies(staleMillis));
     configuration.setDependencyReportOutputFile(dependencyWarningsOutputFile);
+    configuration.setPerformanceReportOutputFile(performanceReportOutputFile);
 
     configuration.setSassSourceFilesByType(sassSourceFilesByType);
     try {
@@ -485,7 +581,9 @@ public abstract class AbstractCompilerMojo extends AbstractJangarooMojo {
   }
 
   protected boolean findUnusedDependencies(int staleMillis) {
-    return staleMillis < 0 || !getClassesOutputDirectory().exists();
+    // an existing incremental build state knows the dependencies of the classes that are not recompiled:
+    return incremental && getIncrementalBuildStateFile().exists()
+            || staleMillis < 0 || !getClassesOutputDirectory().exists();
   }
 
   private String findConfigClassPackageInExmlPluginConfiguration() {
@@ -518,6 +616,25 @@ public abstract class AbstractCompilerMojo extends AbstractJangarooMojo {
 
   protected abstract void printDependencyWarnings(JoocConfiguration joocConfiguration, Map<String, Object> dependencyWarnings);
 
+  private void printPerformanceReport(File performanceReportFile, Map<String, Object> performanceReport) {
+    getLog().info("Compile performance report written to " + performanceReportFile.getPath());
+    for (Map<String, Object> phase : (List<Map<String, Object>>) performanceReport.get("phases")) {
+      getLog().info(String.format("  %-16s %10.0f ms wall, %10.0f ms CPU", phase.get("name"),
+              ((Number) phase.get("wallMillis")).doubleValue(), ((Number) phase.get("cpuMillis")).doubleValue()));
+    }
+    getLog().info(String.format("  %d bytes read, %d bytes written, %d class path lookups",
+            ((Number) performanceReport.get("bytesRead")).longValue(),
+            ((Number) performanceReport.get("bytesWritten")).longValue(),
+            ((Number) performanceReport.get("classPathLookups")).longValue()));
+    List<Map<String, Object>> units = (List<Map<String, Object>>) performanceReport.get("units");
+    if (!units.isEmpty()) {
+      getLog().info("  Slowest compilation units:");
+      for (Map<String, Object> unit : units.subList(0, Math.min(units.size(), SLOWEST_UNITS_TO_LOG))) {
+        getLog().info(String.format("  %10.0f ms  %s", ((Number) unit.get("wallMillis")).doubleValue(), unit.get("source")));
+      }
+    }
+  }
+
   protected void printUnusedDependencyWarnings(JoocConfiguration joocConfiguration, List<String> unusedDependencies) {
     if (joocConfiguration.isFindUnusedDependencies() && !unusedDependencies.isEmpty()) {
       getLog().warn(UNUSED_DECLARED_DEPENDENCIES_WARNING);
@@ -572,7 +689,10 @@ public abstract class AbstractCompilerMojo extends AbstractJangarooMojo {
             + (sources.size() == 1 ? "" : "s")
             + " to " + outputDirectory);
 
-    return jooc.run().getResultCode();
+    CompilationResult result = useDaemon
+            ? JoocDaemon.getSharedInstance().compile(jooc.getConfig(), jooc.getLog())
+            : jooc.run();
+    return result.getResultCode();
   }
 
   private List<File> computeStaleSources(int staleMillis) throws MojoExecutionException {
@@ -98,6 +98,11 @@ public class CompilerMojo extends AbstractCompilerMojo {
     return reportOutputDirectory;
   }
 
+  @Override
+  protected File getIncrementalBuildStateFile() {
+    return new File(reportOutputDirectory, "jooc-build-state.txt");
+  }
+
   @Override
   protected Set<String> getIncludes() {
     return includes;
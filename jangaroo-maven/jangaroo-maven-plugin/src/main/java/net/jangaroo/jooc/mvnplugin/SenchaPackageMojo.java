@@ -50,6 +50,15 @@ public class SenchaPackageMojo extends AbstractSenchaPackageOrAppMojo<SenchaPack
 
   private File senchaPackageDirectory;
 
+  /**
+   * If set to "true", JavaScript bundles are only re-packed when the contents of their input files have changed,
+   * not already when the input files have just been touched. Also, only changed input files are compressed
+   * again. The content hashes of the inputs of each bundle and the compressed code of each input file
+   * are kept in <code>${project.build.directory}/packager</code>.
+   */
+  @Parameter(property = "detectPackageChangesByContent")
+  private boolean detectChangesByContent;
+
   /**
    * Defines a map of global resources (files or directories) which can be accessed in your application
    * by the entry's key. For example, the resource ...
@@ -132,7 +141,14 @@ public class SenchaPackageMojo extends AbstractSenchaPackageOrAppMojo<SenchaPack
 
   private void compileJavaScriptSources(File dir) throws MojoExecutionException {
     try {
-      new PackagerImpl().doPackage2(
+      PackagerImpl packager = new PackagerImpl();
+      packager.setVerbose(getLog().isDebugEnabled());
+      if (detectChangesByContent) {
+        File packagerDirectory = new File(buildDirectoryPath, "packager");
+        packager.setInputHashesDirectory(packagerDirectory);
+        packager.setCompressionCacheDirectory(new File(packagerDirectory, "compressed"));
+      }
+      packager.doPackage2(
               getExtNamespace(),
               new File(dir, "src"),
               new File(dir, "overrides"),
@@ -89,6 +89,11 @@ public class TestCompilerMojo extends AbstractCompilerMojo {
     return testOutputDirectory;
   }
 
+  @Override
+  protected File getIncrementalBuildStateFile() {
+    return new File(tempTestClassesOutputDirectory.getParentFile(), "jooc-build-state.txt");
+  }
+
   @Override
   protected Set<String> getIncludes() {
     return testIncludes;
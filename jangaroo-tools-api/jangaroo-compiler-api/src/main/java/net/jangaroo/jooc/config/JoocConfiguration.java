@@ -48,6 +48,14 @@ public class JoocConfiguration extends FileLocations implements JoocOptions, Par
   private boolean findUnusedDependencies;
   private String dependencyReportOutputFile;
 
+  private String performanceReportOutputFile;
+
+  private int threads = 1;
+
+  private File apiCacheDirectory;
+  private File incrementalBuildStateFile;
+  private boolean releaseGeneratedAsts = false;
+
   public SemicolonInsertionMode getSemicolonInsertionMode() {
     return semicolonInsertionMode;
   }
@@ -319,4 +327,49 @@ public class JoocConfiguration extends FileLocations implements JoocOptions, Par
   public void setDependencyReportOutputFile(String dependencyReportOutputFile) {
     this.dependencyReportOutputFile = dependencyReportOutputFile;
   }
+
+  public String getPerformanceReportOutputFile() {
+    return performanceReportOutputFile;
+  }
+
+  @Option(name = "--performanceReportOutputFile", usage = "the file to write a JSON report of the time spent in each compiler phase and for each compilation unit to")
+  public void setPerformanceReportOutputFile(String performanceReportOutputFile) {
+    this.performanceReportOutputFile = performanceReportOutputFile;
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  @Option(name = "-threads", aliases = "--threads", usage = "number of threads to parse source files and generate output concurrently; 1 (default) compiles sequentially, 0 uses one thread per available processor")
+  public void setThreads(int threads) {
+    this.threads = threads;
+  }
+
+  public File getApiCacheDirectory() {
+    return apiCacheDirectory;
+  }
+
+  @Option(name = "-apicache", aliases = "--apiCacheDir", usage = "directory where to cache compact API stubs of class path archives, so that they are not parsed completely on every build")
+  public void setApiCacheDirectory(File apiCacheDirectory) {
+    this.apiCacheDirectory = apiCacheDirectory;
+  }
+
+  public File getIncrementalBuildStateFile() {
+    return incrementalBuildStateFile;
+  }
+
+  @Option(name = "-buildstate", aliases = "--buildStateFile", usage = "file where to keep the dependencies and API fingerprints of compiled classes, so that dependent classes are recompiled when an API changes")
+  public void setIncrementalBuildStateFile(File incrementalBuildStateFile) {
+    this.incrementalBuildStateFile = incrementalBuildStateFile;
+  }
+
+  public boolean isReleaseGeneratedAsts() {
+    return releaseGeneratedAsts;
+  }
+
+  @Option(name = "-releaseasts", aliases = "--releaseGeneratedAsts", usage = "discard the method bodies of classes as soon as no class whose output is still to be generated depends on them, to bound the heap needed to compile large modules")
+  public void setReleaseGeneratedAsts(boolean releaseGeneratedAsts) {
+    this.releaseGeneratedAsts = releaseGeneratedAsts;
+  }
 }
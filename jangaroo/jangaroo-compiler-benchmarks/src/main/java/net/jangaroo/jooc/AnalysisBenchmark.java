@@ -0,0 +1,76 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.ast.CompilationUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the compilation steps between parsing and code generation of the synthetic large class:
+ * scoping, analysis and type checking. Each step starts from a fresh result of the preceding steps,
+ * which is prepared outside of the measurement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalysisBenchmark {
+
+  @State(Scope.Thread)
+  public static class ParsedUnit {
+    CompilationUnit unit;
+
+    @Setup(Level.Invocation)
+    public void setUp(LargeClassCompiler compiler) {
+      unit = compiler.parse();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ScopedUnit {
+    CompilationUnit unit;
+
+    @Setup(Level.Invocation)
+    public void setUp(LargeClassCompiler compiler) {
+      unit = compiler.scope(compiler.parse());
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class AnalyzedUnit {
+    CompilationUnit unit;
+
+    @Setup(Level.Invocation)
+    public void setUp(LargeClassCompiler compiler) {
+      unit = compiler.analyze();
+    }
+  }
+
+  @Benchmark
+  public CompilationUnit scope(LargeClassCompiler compiler, ParsedUnit parsedUnit) {
+    return compiler.scope(parsedUnit.unit);
+  }
+
+  @Benchmark
+  public CompilationUnit analyze(ScopedUnit scopedUnit) {
+    scopedUnit.unit.analyze(null);
+    return scopedUnit.unit;
+  }
+
+  @Benchmark
+  public CompilationUnit typeCheck(LargeClassCompiler compiler, AnalyzedUnit analyzedUnit) throws IOException {
+    return compiler.typeCheck(analyzedUnit.unit);
+  }
+}
@@ -0,0 +1,174 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.config.DebugMode;
+import net.jangaroo.jooc.config.JoocConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Input of the compiler benchmarks: the test sources of the compiler, which provide the (native) top level
+ * classes, and synthetic sources of configurable size.
+ */
+public final class BenchmarkFixtures {
+
+  /**
+   * System property to compile the benchmarks against another source directory than the compiler test sources.
+   */
+  public static final String FIXTURES_DIRECTORY_PROPERTY = "jangaroo.benchmark.fixtures";
+
+  public static final String LARGE_CLASS_PACKAGE = "benchmark";
+  public static final String LARGE_CLASS_NAME = "LargeClass";
+
+  /**
+   * Fixture classes that compile without errors and together cover most language features.
+   */
+  public static final List<String> FIXTURE_CLASSES = Arrays.asList(
+          "package1.AuxVarConfusion",
+          "package1.ChainedConstants",
+          "package1.ConfigClass",
+          "package1.ConfigSubclass",
+          "package1.FieldInitializer",
+          "package1.ImplementsInterface",
+          "package1.Interface",
+          "package1.NoPrimitiveInit",
+          "package1.ParameterInitializers",
+          "package1.PrivateMemberAccess",
+          "package1.StaticAndNonStatic",
+          "package1.SuperCallParameters",
+          "package1.TestArrayForIn",
+          "package1.TestBind",
+          "package1.TestHelperClasses",
+          "package1.TestMethodCall",
+          "package1.TestResolveMembers",
+          "package1.TestTypeCast",
+          "package1.WithStaticReference",
+          "package2.TestArrowFunctions",
+          "package2.TestEventListener",
+          "package2.TestStaticAccess"
+  );
+
+  private BenchmarkFixtures() {
+  }
+
+  public static File getFixturesDirectory() {
+    String fixturesDirectory = System.getProperty(FIXTURES_DIRECTORY_PROPERTY);
+    if (fixturesDirectory == null) {
+      Properties properties = new Properties();
+      try (InputStream inputStream = BenchmarkFixtures.class.getResourceAsStream("benchmarks.properties")) {
+        properties.load(inputStream);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      fixturesDirectory = properties.getProperty("fixtures.directory");
+    }
+    File result = new File(fixturesDirectory);
+    if (!result.isDirectory()) {
+      throw new IllegalStateException("Benchmark fixtures directory " + result.getAbsolutePath() + " not found, set "
+              + FIXTURES_DIRECTORY_PROPERTY + " to the directory containing the compiler test sources.");
+    }
+    return result;
+  }
+
+  public static List<File> getFixtureSourceFiles(File fixturesDirectory) {
+    List<File> result = new ArrayList<>();
+    for (String fixtureClass : FIXTURE_CLASSES) {
+      result.add(new File(fixturesDirectory, fixtureClass.replace('.', File.separatorChar) + Jooc.AS_SUFFIX));
+    }
+    return result;
+  }
+
+  /**
+   * Create a compiler configuration like the one of the compiler tests.
+   */
+  public static JoocConfiguration createConfiguration(List<File> sourcePath, File outputDirectory, boolean migrateToTypeScript)
+          throws IOException {
+    JoocConfiguration config = new JoocConfiguration();
+    config.setSourcePath(sourcePath);
+    config.setDebugMode(DebugMode.SOURCE);
+    config.setOutputDirectory(outputDirectory);
+    config.setApiOutputDirectory(new File(outputDirectory, "api"));
+    config.setSuppressCommentedActionScriptCode(false);
+    config.setMigrateToTypeScript(migrateToTypeScript);
+    config.setUseEcmaParameterInitializerSemantics(false);
+    return config;
+  }
+
+  /**
+   * Write an ActionScript class with the given number of fields and methods into the given source directory.
+   * The methods contain the usual mix of local variables, loops, arithmetic, string concatenation, array and
+   * object literals, type casts, closures and calls of other members, using only top level classes and members
+   * declared by the fixtures.
+   *
+   * @return the source file
+   */
+  public static File writeLargeClass(File sourceDirectory, int methodCount) throws IOException {
+    File packageDirectory = new File(sourceDirectory, LARGE_CLASS_PACKAGE);
+    if (!packageDirectory.isDirectory() && !packageDirectory.mkdirs()) {
+      throw new IOException("cannot create directory " + packageDirectory.getAbsolutePath());
+    }
+    File sourceFile = new File(packageDirectory, LARGE_CLASS_NAME + Jooc.AS_SUFFIX);
+    try (Writer out = Files.newBufferedWriter(sourceFile.toPath(), StandardCharsets.UTF_8)) {
+      out.write(createLargeClassCode(methodCount));
+    }
+    return sourceFile;
+  }
+
+  private static String createLargeClassCode(int methodCount) {
+    StringBuilder code = new StringBuilder();
+    code.append("package ").append(LARGE_CLASS_PACKAGE).append(" {\n\n");
+    code.append("/**\n * A synthetic class with ").append(methodCount).append(" methods.\n */\n");
+    code.append("public class ").append(LARGE_CLASS_NAME).append(" {\n\n");
+    code.append("  public static const PREFIX:String = \"large\";\n\n");
+    for (int i = 0; i < methodCount; i++) {
+      code.append("  private var field").append(i).append(":int = ").append(i).append(";\n");
+    }
+    code.append("\n  public function ").append(LARGE_CLASS_NAME).append("() {\n");
+    code.append("    super();\n");
+    code.append("  }\n");
+    for (int i = 0; i < methodCount; i++) {
+      String field = "field" + i;
+      code.append("\n  /**\n   * Method number ").append(i).append(".\n   */\n");
+      code.append("  public function method").append(i).append("(count:int, label:String = null):String {\n");
+      code.append("    var values:Array = [").append(field).append(", count, ").append(i).append("];\n");
+      code.append("    var sum:Number = 0;\n");
+      code.append("    for (var j:int = 0; j < count; j++) {\n");
+      code.append("      sum += j * ").append(field).append(" - (j % 3);\n");
+      code.append("      values.push(j);\n");
+      code.append("    }\n");
+      code.append("    values.forEach(function(value:*):void {\n");
+      code.append("      sum += Number(value);\n");
+      code.append("    });\n");
+      code.append("    var result:Object = { label: label || PREFIX, sum: sum, size: values.length };\n");
+      code.append("    if (sum > 100 && label && label.length > 0) {\n");
+      code.append("      return label.substr(0, 3) + \":\" + String(result.sum);\n");
+      code.append("    }\n");
+      if (i == 0) {
+        code.append("    return String(result.size);\n");
+      } else {
+        code.append("    return method").append(i - 1).append("(count - 1, PREFIX + ").append(i).append(") as String;\n");
+      }
+      code.append("  }\n");
+    }
+    code.append("}\n}\n");
+    return code.toString();
+  }
+
+  /**
+   * Fail the benchmark if compiling the fixtures reported errors, because it would then not measure what it claims.
+   */
+  public static void checkNoErrors(Jooc jooc) {
+    if (jooc.getLog().hasErrors()) {
+      throw new IllegalStateException("Compiling the benchmark fixtures reported errors.");
+    }
+  }
+}
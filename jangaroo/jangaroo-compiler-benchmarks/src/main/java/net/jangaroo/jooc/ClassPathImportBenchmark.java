@@ -0,0 +1,95 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.ast.CompilationUnit;
+import net.jangaroo.jooc.config.JoocConfiguration;
+import net.jangaroo.jooc.input.PathInputSource;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures importing the {@link BenchmarkFixtures#FIXTURE_CLASSES fixture classes} from the class path into a new
+ * compiler, except for those that {@link #NOT_IMPORTABLE_FIXTURE_CLASSES cannot be parsed from the class path}, as happens for the dependencies of every compiled module. Besides the time, the number of units
+ * imported in total is reported, which shows how far resolving the fixtures' declarations cascades through the
+ * class path, for example through function signatures.
+ * Run with <code>-prof gc</code> to also see the allocations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ClassPathImportBenchmark {
+
+  /**
+   * Fixtures that rely on semicolon insertion at line breaks, which only works for source path units,
+   * because the scanner drops the white-space of class path units.
+   */
+  static final List<String> NOT_IMPORTABLE_FIXTURE_CLASSES = Collections.singletonList("package2.TestArrowFunctions");
+
+  /**
+   * The number of units imported per iteration; divide by the number of operations for the units per import.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class ImportCounters {
+    public long importedUnits;
+  }
+
+  private File fixturesDirectory;
+  private File outputDirectory;
+  private JoocConfiguration config;
+
+  @Setup
+  public void setUp() throws IOException {
+    fixturesDirectory = BenchmarkFixtures.getFixturesDirectory();
+    outputDirectory = Files.createTempDirectory("jangaroo-benchmark").toFile();
+    config = BenchmarkFixtures.createConfiguration(Collections.<File>emptyList(), outputDirectory, false);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(outputDirectory);
+  }
+
+  @Benchmark
+  public Collection<CompilationUnit> importFixtures(ImportCounters counters) throws Exception {
+    Jooc jooc = new Jooc(config, new StdOutCompileLog());
+    jooc.setUp(PathInputSource.fromFiles(Collections.<File>emptyList(), new String[]{""}, true),
+            PathInputSource.fromFiles(Collections.singletonList(fixturesDirectory), new String[]{""}, false));
+    try {
+      Collection<CompilationUnit> units = jooc.withDefaultLog(() -> {
+        for (String fixtureClass : BenchmarkFixtures.FIXTURE_CLASSES) {
+          if (!NOT_IMPORTABLE_FIXTURE_CLASSES.contains(fixtureClass)) {
+            jooc.getCompilationUnit(fixtureClass);
+          }
+        }
+        return jooc.getCompilationUnits();
+      }).call();
+      BenchmarkFixtures.checkNoErrors(jooc);
+      counters.importedUnits += units.size();
+      return units;
+    } finally {
+      jooc.tearDown();
+    }
+  }
+}
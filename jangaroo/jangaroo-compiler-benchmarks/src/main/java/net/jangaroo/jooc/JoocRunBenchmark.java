@@ -0,0 +1,66 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.api.CompilationResult;
+import net.jangaroo.jooc.config.JoocConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures complete compiler runs over the {@link BenchmarkFixtures#FIXTURE_CLASSES fixture classes}, from
+ * setting up the source and class path to writing all output files, like a build invoking the compiler does.
+ * Every invocation uses a new compiler, so nothing is reused from a previous run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JoocRunBenchmark {
+
+  @Param({"false", "true"})
+  public boolean migrateToTypeScript;
+
+  private File outputDirectory;
+  private JoocConfiguration config;
+
+  @Setup
+  public void setUp() throws IOException {
+    File fixturesDirectory = BenchmarkFixtures.getFixturesDirectory();
+    outputDirectory = Files.createTempDirectory("jangaroo-benchmark").toFile();
+    config = BenchmarkFixtures.createConfiguration(Collections.singletonList(fixturesDirectory), outputDirectory,
+            migrateToTypeScript);
+    config.setSourceFiles(BenchmarkFixtures.getFixtureSourceFiles(fixturesDirectory));
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(outputDirectory);
+  }
+
+  @Benchmark
+  public CompilationResult run() {
+    CompilationResult result = new Jooc(config, new StdOutCompileLog()).run();
+    if (result.getResultCode() != CompilationResult.RESULT_CODE_OK) {
+      throw new IllegalStateException("Compiling the benchmark fixtures failed with result code " + result.getResultCode() + ".");
+    }
+    return result;
+  }
+}
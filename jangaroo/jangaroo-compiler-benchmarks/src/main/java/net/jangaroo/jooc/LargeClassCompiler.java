@@ -0,0 +1,120 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.ast.CompilationUnit;
+import net.jangaroo.jooc.ast.TransitiveAstVisitor;
+import net.jangaroo.jooc.config.JoocConfiguration;
+import net.jangaroo.jooc.input.InputSource;
+import net.jangaroo.jooc.input.PathInputSource;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+/**
+ * Benchmark state: a compiler set up to compile the synthetic {@link BenchmarkFixtures#writeLargeClass large class}
+ * against the fixtures, one step at a time.
+ * The fixtures are in the class path, so that they are parsed and scoped once per trial and do not distort the
+ * measurements, while the large class is in the source path and can be compiled again and again.
+ * <p>The state is per thread, because the compiler keeps its log in a thread local.</p>
+ */
+@State(Scope.Thread)
+public class LargeClassCompiler {
+
+  @Param("500")
+  public int methodCount;
+
+  private final boolean migrateToTypeScript;
+  private File workDirectory;
+  private Jooc jooc;
+  private InputSource source;
+  private String code;
+
+  public LargeClassCompiler() {
+    this(false);
+  }
+
+  protected LargeClassCompiler(boolean migrateToTypeScript) {
+    this.migrateToTypeScript = migrateToTypeScript;
+  }
+
+  @Setup
+  public void setUp() throws IOException {
+    workDirectory = Files.createTempDirectory("jangaroo-benchmark").toFile();
+    File sourceDirectory = new File(workDirectory, "src");
+    File sourceFile = BenchmarkFixtures.writeLargeClass(sourceDirectory, methodCount);
+    code = new String(Files.readAllBytes(sourceFile.toPath()), StandardCharsets.UTF_8);
+    File fixturesDirectory = BenchmarkFixtures.getFixturesDirectory();
+
+    JoocConfiguration config = BenchmarkFixtures.createConfiguration(Collections.singletonList(sourceDirectory),
+            new File(workDirectory, "out"), migrateToTypeScript);
+    jooc = new Jooc(config, new StdOutCompileLog());
+    InputSource sourcePathInputSource = PathInputSource.fromFiles(config.getSourcePath(), new String[]{""}, true);
+    InputSource classPathInputSource = PathInputSource.fromFiles(Collections.singletonList(fixturesDirectory), new String[]{""}, false);
+    jooc.setUp(sourcePathInputSource, classPathInputSource);
+    source = sourcePathInputSource.getChild(BenchmarkFixtures.LARGE_CLASS_PACKAGE + "/" + BenchmarkFixtures.LARGE_CLASS_NAME + Jooc.AS_SUFFIX);
+
+    // compile once, which imports all needed class path units and checks that the large class is valid:
+    typeCheck(analyze());
+    BenchmarkFixtures.checkNoErrors(jooc);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    jooc.tearDown();
+    FileUtils.deleteDirectory(workDirectory);
+  }
+
+  public Jooc getJooc() {
+    return jooc;
+  }
+
+  public InputSource getSource() {
+    return source;
+  }
+
+  public String getCode() {
+    return code;
+  }
+
+  /**
+   * Parse the large class, without scoping it.
+   */
+  public CompilationUnit parse() {
+    jooc.removeSourcePathUnits();
+    return jooc.parse(source);
+  }
+
+  /**
+   * Scope the given, freshly parsed unit of the large class.
+   */
+  public CompilationUnit scope(CompilationUnit unit) {
+    return jooc.importSource(source, unit);
+  }
+
+  /**
+   * Parse, scope and analyze the large class.
+   */
+  public CompilationUnit analyze() {
+    CompilationUnit unit = scope(parse());
+    unit.analyze(null);
+    return unit;
+  }
+
+  /**
+   * Type check the given analyzed unit of the large class and determine its implemented members, completing
+   * all compilation steps that precede code generation.
+   */
+  public CompilationUnit typeCheck(CompilationUnit unit) throws IOException {
+    new ImplementedMembersAnalyzer(jooc).analyzeImplementedMembers(unit);
+    unit.visit(new TransitiveAstVisitor(new TypeChecker(jooc.getLog())));
+    return unit;
+  }
+}
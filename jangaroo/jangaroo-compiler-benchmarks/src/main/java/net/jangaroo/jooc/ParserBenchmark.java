@@ -0,0 +1,45 @@
+package net.jangaroo.jooc;
+
+import java_cup.runtime.Symbol;
+import net.jangaroo.jooc.ast.CompilationUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures lexing and parsing of the synthetic large class, which, unlike all later compilation steps,
+ * does not depend on any other compilation unit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+  @Benchmark
+  public int lex(LargeClassCompiler compiler) throws IOException {
+    Scanner scanner = new Scanner(new StringReader(compiler.getCode()));
+    scanner.yybegin(Scanner.YYINITIAL);
+    scanner.setInputSource(compiler.getSource());
+    int tokenCount = 0;
+    for (Symbol token = scanner.next_token(); token.sym != sym.EOF; token = scanner.next_token()) {
+      ++tokenCount;
+    }
+    return tokenCount;
+  }
+
+  @Benchmark
+  public CompilationUnit parse(LargeClassCompiler compiler) {
+    Jooc jooc = compiler.getJooc();
+    return jooc.doParse(compiler.getSource(), jooc.getLog(), jooc.getConfig().getSemicolonInsertionMode());
+  }
+}
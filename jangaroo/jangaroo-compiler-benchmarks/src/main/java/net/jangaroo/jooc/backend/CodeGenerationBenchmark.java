@@ -0,0 +1,89 @@
+package net.jangaroo.jooc.backend;
+
+import net.jangaroo.jooc.Jooc;
+import net.jangaroo.jooc.JsWriter;
+import net.jangaroo.jooc.LargeClassCompiler;
+import net.jangaroo.jooc.ast.CompilationUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures generating JavaScript and TypeScript code for the synthetic large class into memory, so that
+ * file system performance does not interfere. Code generation annotates the AST, so each invocation
+ * starts from a freshly compiled unit, which is prepared outside of the measurement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodeGenerationBenchmark {
+
+  @State(Scope.Thread)
+  public static class TypeScriptCompiler extends LargeClassCompiler {
+    public TypeScriptCompiler() {
+      super(true);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class JsUnit {
+    CompilationUnit unit;
+
+    @Setup(Level.Invocation)
+    public void setUp(LargeClassCompiler compiler) throws IOException {
+      unit = compiler.typeCheck(compiler.analyze());
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class TypeScriptUnit {
+    CompilationUnit unit;
+
+    @Setup(Level.Invocation)
+    public void setUp(TypeScriptCompiler compiler) throws IOException {
+      unit = compiler.typeCheck(compiler.analyze());
+    }
+  }
+
+  @Benchmark
+  public String generateJs(LargeClassCompiler compiler, JsUnit jsUnit) throws IOException {
+    Jooc jooc = compiler.getJooc();
+    StringWriter code = new StringWriter();
+    JsWriter out = new JsWriter(code);
+    try {
+      out.setOptions(jooc.getConfig());
+      jsUnit.unit.visit(new JsCodeGenerator(out, jooc, new JsModuleResolver(jooc)));
+    } finally {
+      out.close();
+    }
+    return code.toString();
+  }
+
+  @Benchmark
+  public String generateTypeScript(TypeScriptCompiler compiler, TypeScriptUnit typeScriptUnit) throws IOException {
+    Jooc jooc = compiler.getJooc();
+    StringWriter code = new StringWriter();
+    JsWriter out = new JsWriter(code);
+    try {
+      out.setOptions(jooc.getConfig());
+      typeScriptUnit.unit.visit(new TypeScriptCodeGenerator(new TypeScriptModuleResolver(jooc), out, jooc));
+    } finally {
+      out.close();
+    }
+    return code.toString();
+  }
+}
@@ -0,0 +1,51 @@
+package net.jangaroo.properties;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures compiling a synthetic properties file with the given number of documented keys into the
+ * ActionScript class the compiler parses in its place.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PropcBenchmark {
+
+  @Param("1000")
+  public int keyCount;
+
+  private byte[] properties;
+
+  @Setup
+  public void setUp() {
+    StringBuilder content = new StringBuilder("# Synthetic properties with ").append(keyCount).append(" keys.\n");
+    for (int i = 0; i < keyCount; i++) {
+      content.append("\n# Documentation for 'key").append(i).append("'.\n");
+      content.append("key").append(i).append("=Value ").append(i).append(" of \"{0}\" contains {1}.\n");
+    }
+    properties = content.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public String generateApi() throws IOException {
+    return new Propc().generateApi("benchmark.LargeProperties", new ByteArrayInputStream(properties));
+  }
+}
@@ -4,7 +4,7 @@ import net.jangaroo.jooc.api.CompileLog;
 import net.jangaroo.jooc.api.FilePosition;
 
 public abstract class AbstractCompileLog implements CompileLog {
-  protected boolean errors = false;
+  protected volatile boolean errors = false;
 
   String formatError(String fileName, int line, int column, String debugLevel, String message) {
     StringBuilder m = new StringBuilder();
@@ -0,0 +1,341 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.api.CompileLog;
+import net.jangaroo.jooc.ast.Annotation;
+import net.jangaroo.jooc.ast.AnnotationParameter;
+import net.jangaroo.jooc.ast.AnnotationsAndModifiers;
+import net.jangaroo.jooc.ast.AstNode;
+import net.jangaroo.jooc.ast.BlockStatement;
+import net.jangaroo.jooc.ast.ClassBody;
+import net.jangaroo.jooc.ast.ClassDeclaration;
+import net.jangaroo.jooc.ast.CommaSeparatedList;
+import net.jangaroo.jooc.ast.CompilationUnit;
+import net.jangaroo.jooc.ast.Directive;
+import net.jangaroo.jooc.ast.Expr;
+import net.jangaroo.jooc.ast.Extends;
+import net.jangaroo.jooc.ast.FunctionDeclaration;
+import net.jangaroo.jooc.ast.Ide;
+import net.jangaroo.jooc.ast.IdeDeclaration;
+import net.jangaroo.jooc.ast.IdeWithTypeParam;
+import net.jangaroo.jooc.ast.Implements;
+import net.jangaroo.jooc.ast.ImportDirective;
+import net.jangaroo.jooc.ast.Initializer;
+import net.jangaroo.jooc.ast.LiteralExpr;
+import net.jangaroo.jooc.ast.NamespaceDeclaration;
+import net.jangaroo.jooc.ast.PackageDeclaration;
+import net.jangaroo.jooc.ast.Parameter;
+import net.jangaroo.jooc.ast.Parameters;
+import net.jangaroo.jooc.ast.QualifiedIde;
+import net.jangaroo.jooc.ast.Type;
+import net.jangaroo.jooc.ast.TypeRelation;
+import net.jangaroo.jooc.ast.VariableDeclaration;
+import net.jangaroo.jooc.input.InputSource;
+import net.jangaroo.jooc.model.AnnotatedModel;
+import net.jangaroo.jooc.model.AnnotationModel;
+import net.jangaroo.jooc.model.AnnotationPropertyModel;
+import net.jangaroo.jooc.model.ClassModel;
+import net.jangaroo.jooc.model.CompilationUnitModel;
+import net.jangaroo.jooc.model.FieldModel;
+import net.jangaroo.jooc.model.MemberModel;
+import net.jangaroo.jooc.model.MethodModel;
+import net.jangaroo.jooc.model.NamedModel;
+import net.jangaroo.jooc.model.NamespaceModel;
+import net.jangaroo.jooc.model.NamespacedModel;
+import net.jangaroo.jooc.model.ParamModel;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the AST of a class path compilation unit directly from its cached API model, see {@link ApiStubCache}.
+ * The resulting AST is the one the parser would produce for the declaration-only ActionScript code that
+ * {@link net.jangaroo.jooc.backend.ActionScriptCodeGeneratingModelVisitor} renders for the same model:
+ * methods without body are <code>native</code>, constructor bodies are empty, and only those field and parameter
+ * initializers are present that the model records as code.
+ * Literal initializers are built directly; only the rare compound constant expression (like <code>-1</code>
+ * or <code>Foo.BAR</code>) is handed to the parser as an expression fragment.
+ */
+class ApiStubAstBuilder {
+
+  private static final Pattern DECIMAL_INTEGER_PATTERN = Pattern.compile("[0-9]+");
+  private static final Pattern HEX_INTEGER_PATTERN = Pattern.compile("0[xX][0-9a-fA-F]+");
+  private static final Pattern DOUBLE_PATTERN = Pattern.compile("([0-9]+\\.[0-9]*|\\.[0-9]+)([eE][+-]?[0-9]+)?|[0-9]+[eE][+-]?[0-9]+");
+  private static final Pattern QUALIFIED_IDENTIFIER_PATTERN = Pattern.compile("[\\p{L}_$][\\p{L}\\p{N}_$]*(\\.[\\p{L}_$][\\p{L}\\p{N}_$]*)*");
+  private static final String VECTOR_TYPE_PARAMETER_START = ".<";
+
+  private final InputSource inputSource;
+  private final CompileLog log;
+  private final String fileName;
+  private JooParser expressionParser;
+
+  ApiStubAstBuilder(InputSource inputSource, CompileLog log) {
+    this.inputSource = inputSource;
+    this.log = log;
+    this.fileName = inputSource.getPath();
+  }
+
+  CompilationUnit build(CompilationUnitModel compilationUnitModel) {
+    String packageName = compilationUnitModel.getPackage();
+    PackageDeclaration packageDeclaration = new PackageDeclaration(symbol(sym.PACKAGE, "package"),
+            packageName == null || packageName.isEmpty() ? null : createQualifiedIde(packageName));
+    List<Directive> directives = new ArrayList<>();
+    for (String anImport : compilationUnitModel.getImports()) {
+      directives.add(new ImportDirective(symbol(sym.IMPORT, "import"), createQualifiedIde(anImport), symbol(sym.SEMICOLON, ";")));
+    }
+    return new CompilationUnit(packageDeclaration, symbol(sym.LBRACE, "{"), directives,
+            createDeclaration(compilationUnitModel.getPrimaryDeclaration(), false),
+            symbol(sym.RBRACE, "}"), new ArrayList<>());
+  }
+
+  private IdeDeclaration createDeclaration(NamedModel declaration, boolean inInterface) {
+    if (declaration instanceof ClassModel) {
+      return createClassDeclaration((ClassModel) declaration);
+    }
+    if (declaration instanceof MethodModel) {
+      return createFunctionDeclaration((MethodModel) declaration, inInterface);
+    }
+    if (declaration instanceof FieldModel) {
+      return createVariableDeclaration((FieldModel) declaration);
+    }
+    if (declaration instanceof NamespaceModel) {
+      return createNamespaceDeclaration((NamespaceModel) declaration);
+    }
+    throw new IllegalArgumentException("unsupported API declaration " + declaration);
+  }
+
+  private ClassDeclaration createClassDeclaration(ClassModel classModel) {
+    List<JooSymbol> modifiers = new ArrayList<>();
+    addNamespace(modifiers, classModel);
+    addModifierIf(modifiers, classModel.isFinal(), SyntacticKeywords.FINAL);
+    addModifierIf(modifiers, classModel.isDynamic(), SyntacticKeywords.DYNAMIC);
+    List<Directive> members = new ArrayList<>();
+    for (MemberModel member : classModel.getMembers()) {
+      members.add(createDeclaration(member, classModel.isInterface()));
+    }
+    ClassBody classBody = new ClassBody(symbol(sym.LBRACE, "{"), members, symbol(sym.RBRACE, "}"));
+    Implements implementsOrExtends = classModel.getInterfaces().isEmpty() ? null
+            : new Implements(classModel.isInterface() ? symbol(sym.EXTENDS, "extends") : symbol(sym.IMPLEMENTS, "implements"),
+            createIdeList(classModel.getInterfaces()));
+    if (classModel.isInterface()) {
+      return new ClassDeclaration(createAnnotationsAndModifiers(classModel, modifiers), symbol(sym.INTERFACE, "interface"),
+              new Ide(symbol(sym.IDE, classModel.getName())), null, implementsOrExtends, classBody);
+    }
+    String superclass = classModel.getSuperclass();
+    Extends optExtends = superclass == null || superclass.trim().isEmpty() ? null
+            : new Extends(symbol(sym.EXTENDS, "extends"), createQualifiedIde(superclass));
+    return new ClassDeclaration(createAnnotationsAndModifiers(classModel, modifiers), symbol(sym.CLASS, "class"),
+            new Ide(symbol(sym.IDE, classModel.getName())), optExtends, implementsOrExtends, classBody);
+  }
+
+  private FunctionDeclaration createFunctionDeclaration(MethodModel methodModel, boolean inInterface) {
+    List<JooSymbol> modifiers = new ArrayList<>();
+    addModifierIf(modifiers, methodModel.isOverride(), SyntacticKeywords.OVERRIDE);
+    if (!inInterface) {
+      addNamespace(modifiers, methodModel);
+      addModifierIf(modifiers, methodModel.isStatic(), SyntacticKeywords.STATIC);
+      addModifierIf(modifiers, methodModel.isFinal(), SyntacticKeywords.FINAL);
+      addModifierIf(modifiers, methodModel.getBody() == null, SyntacticKeywords.NATIVE);
+    }
+    Parameters params = null;
+    List<ParamModel> paramModels = methodModel.getParams();
+    for (int i = paramModels.size() - 1; i >= 0; i--) {
+      Parameter param = createParameter(paramModels.get(i));
+      params = params == null ? new Parameters(param) : new Parameters(param, symbol(sym.COMMA, ","), params);
+    }
+    // the API model only keeps super constructor calls (for ASDoc), which are irrelevant for class path units:
+    BlockStatement optBody = methodModel.getBody() == null ? null
+            : new BlockStatement(symbol(sym.LBRACE, "{"), new ArrayList<>(), symbol(sym.RBRACE, "}"));
+    return new FunctionDeclaration(createAnnotationsAndModifiers(methodModel, modifiers), symbol(sym.FUNCTION, "function"),
+            methodModel.getMethodType() == null ? null : symbol(sym.IDE, methodModel.getMethodType().toString()),
+            new Ide(symbol(sym.IDE, methodModel.getName())),
+            symbol(sym.LPAREN, "("), params, symbol(sym.RPAREN, ")"),
+            createOptTypeRelation(methodModel.getType()),
+            optBody, optBody == null ? symbol(sym.SEMICOLON, ";") : null);
+  }
+
+  private Parameter createParameter(ParamModel paramModel) {
+    Ide ide = new Ide(symbol(sym.IDE, paramModel.getName()));
+    if (paramModel.isRest()) {
+      // the API stub does not declare the type of rest parameters:
+      return new Parameter(symbol(sym.REST, "..."), ide, null, null);
+    }
+    return new Parameter(null, ide, createOptTypeRelation(paramModel.getType()), createOptInitializer(paramModel.getValue()));
+  }
+
+  private VariableDeclaration createVariableDeclaration(FieldModel fieldModel) {
+    List<JooSymbol> modifiers = new ArrayList<>();
+    addNamespace(modifiers, fieldModel);
+    addModifierIf(modifiers, fieldModel.isStatic(), SyntacticKeywords.STATIC);
+    return new VariableDeclaration(createAnnotationsAndModifiers(fieldModel, modifiers),
+            fieldModel.isConst() ? symbol(sym.CONST, "const") : symbol(sym.VAR, "var"),
+            new Ide(symbol(sym.IDE, fieldModel.getName())),
+            createOptTypeRelation(fieldModel.getType()), createOptInitializer(fieldModel.getValue()),
+            null, symbol(sym.SEMICOLON, ";"));
+  }
+
+  private NamespaceDeclaration createNamespaceDeclaration(NamespaceModel namespaceModel) {
+    List<JooSymbol> modifiers = new ArrayList<>();
+    addNamespace(modifiers, namespaceModel);
+    return new NamespaceDeclaration(createAnnotationsAndModifiers(namespaceModel, modifiers),
+            symbol(sym.IDE, SyntacticKeywords.NAMESPACE), new Ide(symbol(sym.IDE, namespaceModel.getName())),
+            createOptInitializer(namespaceModel.getValue()), symbol(sym.SEMICOLON, ";"));
+  }
+
+  private AnnotationsAndModifiers createAnnotationsAndModifiers(AnnotatedModel annotatedModel, List<JooSymbol> modifiers) {
+    List<Annotation> annotations = new ArrayList<>();
+    for (AnnotationModel annotationModel : annotatedModel.getAnnotations()) {
+      annotations.add(createAnnotation(annotationModel));
+    }
+    return new AnnotationsAndModifiers(annotations, modifiers);
+  }
+
+  private Annotation createAnnotation(AnnotationModel annotationModel) {
+    Ide ide = new Ide(symbol(sym.IDE, annotationModel.getName()));
+    List<AnnotationPropertyModel> properties = annotationModel.getProperties();
+    if (properties.isEmpty()) {
+      return new Annotation(symbol(sym.LBRACK, "["), ide, symbol(sym.RBRACK, "]"));
+    }
+    CommaSeparatedList<AnnotationParameter> annotationParameters = null;
+    for (int i = properties.size() - 1; i >= 0; i--) {
+      AnnotationParameter annotationParameter = createAnnotationParameter(properties.get(i));
+      annotationParameters = annotationParameters == null ? new CommaSeparatedList<>(annotationParameter)
+              : new CommaSeparatedList<>(annotationParameter, symbol(sym.COMMA, ","), annotationParameters);
+    }
+    return new Annotation(symbol(sym.LBRACK, "["), ide, symbol(sym.LPAREN, "("), annotationParameters,
+            symbol(sym.RPAREN, ")"), symbol(sym.RBRACK, "]"));
+  }
+
+  private AnnotationParameter createAnnotationParameter(AnnotationPropertyModel annotationPropertyModel) {
+    String name = annotationPropertyModel.getName();
+    String value = annotationPropertyModel.getValue();
+    Ide optName = isEmpty(name) ? null : new Ide(symbol(sym.IDE, name));
+    if (isEmpty(value)) {
+      return new AnnotationParameter(optName, null, null);
+    }
+    AstNode annotationValue = QUALIFIED_IDENTIFIER_PATTERN.matcher(value).matches() && createLiteral(value) == null
+            ? createQualifiedIde(value) : createExpr(value);
+    return new AnnotationParameter(optName, optName == null ? null : symbol(sym.EQ, "="), annotationValue);
+  }
+
+  private void addNamespace(List<JooSymbol> modifiers, NamespacedModel namespacedModel) {
+    String namespace = namespacedModel.getNamespace();
+    if (NamespacedModel.PUBLIC.equals(namespace)) {
+      modifiers.add(symbol(sym.PUBLIC, namespace));
+    } else if (NamespacedModel.PROTECTED.equals(namespace)) {
+      modifiers.add(symbol(sym.PROTECTED, namespace));
+    } else if (NamespacedModel.PRIVATE.equals(namespace)) {
+      modifiers.add(symbol(sym.PRIVATE, namespace));
+    } else if (NamespacedModel.INTERNAL.equals(namespace)) {
+      modifiers.add(symbol(sym.INTERNAL, namespace));
+    } else if (!isEmpty(namespace)) {
+      modifiers.add(symbol(sym.IDE, namespace));
+    }
+  }
+
+  private void addModifierIf(List<JooSymbol> modifiers, boolean flag, String syntacticKeyword) {
+    if (flag) {
+      modifiers.add(symbol(sym.IDE, syntacticKeyword));
+    }
+  }
+
+  private CommaSeparatedList<Ide> createIdeList(List<String> qNames) {
+    CommaSeparatedList<Ide> result = null;
+    for (int i = qNames.size() - 1; i >= 0; i--) {
+      Ide ide = createQualifiedIde(qNames.get(i));
+      result = result == null ? new CommaSeparatedList<>(ide) : new CommaSeparatedList<>(ide, symbol(sym.COMMA, ","), result);
+    }
+    return result;
+  }
+
+  private TypeRelation createOptTypeRelation(String type) {
+    return isEmpty(type) ? null : new TypeRelation(symbol(sym.COLON, ":"), createType(type));
+  }
+
+  private Type createType(String type) {
+    if ("*".equals(type)) {
+      return new Type(symbol(sym.MUL, type));
+    }
+    if ("void".equals(type)) {
+      return new Type(symbol(sym.VOID, type));
+    }
+    int typeParameterStart = type.indexOf(VECTOR_TYPE_PARAMETER_START);
+    if (typeParameterStart != -1 && type.endsWith(">")) {
+      return new Type(new IdeWithTypeParam(symbol(sym.IDE, type.substring(0, typeParameterStart)),
+              symbol(sym.DOTLT, VECTOR_TYPE_PARAMETER_START),
+              createType(type.substring(typeParameterStart + VECTOR_TYPE_PARAMETER_START.length(), type.length() - 1)),
+              symbol(sym.GT, ">")));
+    }
+    return new Type(createQualifiedIde(type));
+  }
+
+  private Ide createQualifiedIde(String qName) {
+    String[] parts = qName.split("\\.");
+    Ide ide = new Ide(symbol(sym.IDE, parts[0]));
+    for (int i = 1; i < parts.length; i++) {
+      ide = new QualifiedIde(ide, symbol(sym.DOT, "."), symbol(sym.IDE, parts[i]));
+    }
+    return ide;
+  }
+
+  private Initializer createOptInitializer(String value) {
+    return isEmpty(value) ? null : new Initializer(symbol(sym.EQ, "="), createExpr(value));
+  }
+
+  private Expr createExpr(String code) {
+    LiteralExpr literal = createLiteral(code);
+    if (literal != null) {
+      return literal;
+    }
+    if (expressionParser == null) {
+      Scanner scanner = new Scanner(new StringReader(""));
+      scanner.setInputSource(inputSource);
+      expressionParser = new JooParser(scanner);
+      expressionParser.setCompileLog(log);
+    }
+    return (Expr) expressionParser.parseFragment(sym.EXPRESSION_FRAGMENT, "", code, 0, 0).value;
+  }
+
+  /**
+   * Create the literal the scanner would create for the given code, or return null if the code is not a simple
+   * literal, e.g. a string literal containing escape sequences, which are left to the scanner.
+   */
+  private LiteralExpr createLiteral(String code) {
+    if ("null".equals(code)) {
+      return new LiteralExpr(symbol(sym.NULL_LITERAL, code, null));
+    }
+    if ("true".equals(code) || "false".equals(code)) {
+      return new LiteralExpr(symbol(sym.BOOL_LITERAL, code, Boolean.valueOf(code)));
+    }
+    if (DECIMAL_INTEGER_PATTERN.matcher(code).matches()) {
+      return new LiteralExpr(symbol(sym.INT_LITERAL, code, Long.valueOf(code)));
+    }
+    if (HEX_INTEGER_PATTERN.matcher(code).matches()) {
+      return new LiteralExpr(symbol(sym.INT_LITERAL, code, Long.parseLong(code.substring(2), 16)));
+    }
+    if (DOUBLE_PATTERN.matcher(code).matches()) {
+      return new LiteralExpr(symbol(sym.FLOAT_LITERAL, code, Double.valueOf(code)));
+    }
+    if (code.length() >= 2 && (code.charAt(0) == '"' || code.charAt(0) == '\'')) {
+      char quote = code.charAt(0);
+      String value = code.substring(1, code.length() - 1);
+      if (code.charAt(code.length() - 1) == quote && value.indexOf(quote) == -1 && value.indexOf('\\') == -1) {
+        return new LiteralExpr(symbol(sym.STRING_LITERAL, code, value));
+      }
+    }
+    return null;
+  }
+
+  private JooSymbol symbol(int sym, String text) {
+    return symbol(sym, text, text);
+  }
+
+  private JooSymbol symbol(int sym, String text, Object jooValue) {
+    return new JooSymbol(sym, fileName, -1, -1, "", text, jooValue);
+  }
+
+  private static boolean isEmpty(String string) {
+    return string == null || string.trim().isEmpty();
+  }
+}
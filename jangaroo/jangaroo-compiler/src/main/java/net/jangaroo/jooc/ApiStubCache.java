@@ -0,0 +1,444 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.ast.CompilationUnit;
+import net.jangaroo.jooc.backend.ActionScriptCodeGeneratingModelVisitor;
+import net.jangaroo.jooc.backend.ApiModelGenerator;
+import net.jangaroo.jooc.input.InputSource;
+import net.jangaroo.jooc.input.ZipEntryInputSource;
+import net.jangaroo.jooc.model.AnnotatedModel;
+import net.jangaroo.jooc.model.AnnotationModel;
+import net.jangaroo.jooc.model.AnnotationPropertyModel;
+import net.jangaroo.jooc.model.ClassModel;
+import net.jangaroo.jooc.model.CompilationUnitModel;
+import net.jangaroo.jooc.model.FieldModel;
+import net.jangaroo.jooc.model.MemberModel;
+import net.jangaroo.jooc.model.MethodModel;
+import net.jangaroo.jooc.model.MethodType;
+import net.jangaroo.jooc.model.NamedModel;
+import net.jangaroo.jooc.model.NamespaceModel;
+import net.jangaroo.jooc.model.ParamModel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A persistent cache of the API of ActionScript compilation units found in class path archives.
+ * <p>The first time a class path unit is imported, its {@link CompilationUnitModel}, reduced to declarations without
+ * ASDoc, is serialized to a compact binary form, which is stored in a cache file per archive.
+ * Subsequent compilations read the model from the cache and build the declarations' AST directly through an
+ * {@link ApiStubAstBuilder}, so that the original archive entry is neither read nor lexed nor parsed again.
+ * A cache file is keyed by the compiler version and the archive's path, size and last modification time,
+ * so it is discarded as soon as the archive changes.</p>
+ */
+public class ApiStubCache {
+
+  private static final int FORMAT_VERSION = 3;
+  private static final String CACHE_FILE_SUFFIX = ".joo-api-cache";
+
+  private static final byte KIND_CLASS = 0;
+  private static final byte KIND_METHOD = 1;
+  private static final byte KIND_FIELD = 2;
+  private static final byte KIND_NAMESPACE = 3;
+
+  private final File cacheDirectory;
+  private final ConcurrentMap<File, ArchiveApiStubs> apiStubsByArchive = new ConcurrentHashMap<>();
+
+  public ApiStubCache(File cacheDirectory) {
+    this.cacheDirectory = cacheDirectory;
+  }
+
+  public File getCacheDirectory() {
+    return cacheDirectory;
+  }
+
+  /**
+   * Return the cached API model of the given input source, if any.
+   *
+   * @param source the input source to look up
+   * @return the API model or null if the source is not cached
+   * @throws IOException if the cached model cannot be decoded
+   */
+  public CompilationUnitModel getApiModel(InputSource source) throws IOException {
+    ArchiveApiStubs archiveApiStubs = getArchiveApiStubs(source);
+    byte[] apiModel = archiveApiStubs == null ? null : archiveApiStubs.modelsByRelativePath.get(source.getRelativePath());
+    return apiModel == null ? null : readModel(new DataInputStream(new ByteArrayInputStream(apiModel)));
+  }
+
+  /**
+   * Store the API model of the given scoped compilation unit, unless it is already cached.
+   * Units that are not imported from a class path archive are ignored.
+   *
+   * @param source the input source the compilation unit has been parsed from
+   * @param unit the scoped compilation unit
+   * @throws IOException if the unit's API model cannot be serialized
+   */
+  public void update(InputSource source, CompilationUnit unit) throws IOException {
+    ArchiveApiStubs archiveApiStubs = getArchiveApiStubs(source);
+    if (archiveApiStubs == null || archiveApiStubs.modelsByRelativePath.containsKey(source.getRelativePath())) {
+      return;
+    }
+    ByteArrayOutputStream apiModel = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(apiModel)) {
+      CompilationUnitModel compilationUnitModel = new ApiModelGenerator(false).generateModel(unit);
+      // class path units are not analyzed, so their public API dependencies are unknown; import all referenced types:
+      compilationUnitModel.addImplicitImports();
+      writeModel(out, compilationUnitModel);
+    }
+    archiveApiStubs.modelsByRelativePath.put(source.getRelativePath(), apiModel.toByteArray());
+    archiveApiStubs.dirty = true;
+  }
+
+  /**
+   * Render the API of the given scoped compilation unit as declaration-only ActionScript code without ASDoc.
+   *
+   * @param unit the scoped compilation unit
+   * @return the API stub code
+   */
+  static String generateApiStub(CompilationUnit unit) {
+    return generateApiStub(unit, false);
+  }
+
+  /**
+   * Render the declarations of the given scoped compilation unit as declaration-only ActionScript code without ASDoc.
+   *
+   * @param unit the scoped compilation unit
+   * @param includeInternalMembers whether to render package-internal members, too, not only the public API
+   * @return the API stub code
+   */
+  static String generateApiStub(CompilationUnit unit, boolean includeInternalMembers) {
+    StringWriter apiStub = new StringWriter();
+    ApiModelGenerator apiModelGenerator = new ApiModelGenerator(false);
+    apiModelGenerator.setIncludeInternalMembers(includeInternalMembers);
+    try {
+      apiModelGenerator.generateModel(unit)
+              .visit(new ActionScriptCodeGeneratingModelVisitor(apiStub, true));
+    } catch (IOException e) {
+      // cannot happen when writing to a StringWriter:
+      throw new IllegalStateException(e);
+    }
+    return apiStub.toString();
+  }
+
+  /**
+   * Write all cache files that have been updated during this compilation and release the cached models,
+   * so that a long-running compiler process does not keep them in memory.
+   *
+   * @throws IOException if a cache file cannot be written
+   */
+  public void flush() throws IOException {
+    try {
+      for (ArchiveApiStubs archiveApiStubs : apiStubsByArchive.values()) {
+        if (archiveApiStubs.dirty) {
+          archiveApiStubs.write();
+          archiveApiStubs.dirty = false;
+        }
+      }
+    } finally {
+      apiStubsByArchive.clear();
+    }
+  }
+
+  private ArchiveApiStubs getArchiveApiStubs(InputSource source) {
+    if (!(source instanceof ZipEntryInputSource) || source.isInSourcePath()
+            || !source.getName().endsWith(Jooc.AS_SUFFIX)) {
+      return null;
+    }
+    File archive = ((ZipEntryInputSource) source).getZipFileInputSource().getFile();
+    return apiStubsByArchive.computeIfAbsent(archive, this::readArchiveApiStubs);
+  }
+
+  File getCacheFile(File archive) {
+    String path = archive.getAbsolutePath();
+    return new File(cacheDirectory, archive.getName() + "-" + Integer.toHexString(path.hashCode()) + CACHE_FILE_SUFFIX);
+  }
+
+  private ArchiveApiStubs readArchiveApiStubs(File archive) {
+    ArchiveApiStubs archiveApiStubs = new ArchiveApiStubs(archive);
+    File cacheFile = getCacheFile(archive);
+    if (cacheFile.exists()) {
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(cacheFile))))) {
+        if (archiveApiStubs.readHeader(in)) {
+          for (int count = in.readInt(); count > 0; count--) {
+            String relativePath = readString(in);
+            byte[] apiModel = new byte[in.readInt()];
+            in.readFully(apiModel);
+            archiveApiStubs.modelsByRelativePath.put(relativePath, apiModel);
+          }
+        }
+      } catch (IOException e) {
+        // corrupt or incompatible cache file: start over
+        archiveApiStubs.modelsByRelativePath.clear();
+      }
+    }
+    return archiveApiStubs;
+  }
+
+  static void writeModel(DataOutputStream out, CompilationUnitModel compilationUnitModel) throws IOException {
+    writeOptionalString(out, compilationUnitModel.getPackage());
+    writeStrings(out, compilationUnitModel.getImports());
+    writeDeclaration(out, compilationUnitModel.getPrimaryDeclaration());
+  }
+
+  static CompilationUnitModel readModel(DataInputStream in) throws IOException {
+    CompilationUnitModel compilationUnitModel = new CompilationUnitModel(readOptionalString(in));
+    for (String anImport : readStrings(in)) {
+      compilationUnitModel.addImport(anImport);
+    }
+    compilationUnitModel.setPrimaryDeclaration(readDeclaration(in));
+    return compilationUnitModel;
+  }
+
+  private static void writeDeclaration(DataOutputStream out, NamedModel declaration) throws IOException {
+    if (declaration instanceof ClassModel) {
+      ClassModel classModel = (ClassModel) declaration;
+      out.writeByte(KIND_CLASS);
+      writeAnnotations(out, classModel);
+      writeString(out, classModel.getName());
+      writeOptionalString(out, classModel.getNamespace());
+      out.writeBoolean(classModel.isInterface());
+      out.writeBoolean(classModel.isFinal());
+      out.writeBoolean(classModel.isDynamic());
+      writeOptionalString(out, classModel.getSuperclass());
+      writeStrings(out, classModel.getInterfaces());
+      out.writeInt(classModel.getMembers().size());
+      for (MemberModel member : classModel.getMembers()) {
+        writeDeclaration(out, member);
+      }
+    } else if (declaration instanceof MethodModel) {
+      MethodModel methodModel = (MethodModel) declaration;
+      out.writeByte(KIND_METHOD);
+      writeAnnotations(out, methodModel);
+      writeString(out, methodModel.getName());
+      writeOptionalString(out, methodModel.getNamespace());
+      out.writeBoolean(methodModel.isStatic());
+      out.writeBoolean(methodModel.isFinal());
+      out.writeBoolean(methodModel.isOverride());
+      out.writeByte(methodModel.getMethodType() == null ? -1 : methodModel.getMethodType().ordinal());
+      writeOptionalString(out, methodModel.getType());
+      out.writeInt(methodModel.getParams().size());
+      for (ParamModel paramModel : methodModel.getParams()) {
+        writeString(out, paramModel.getName());
+        writeOptionalString(out, paramModel.getType());
+        writeOptionalString(out, paramModel.getValue());
+        out.writeBoolean(paramModel.isRest());
+      }
+      writeOptionalString(out, methodModel.getBody());
+    } else if (declaration instanceof FieldModel) {
+      FieldModel fieldModel = (FieldModel) declaration;
+      out.writeByte(KIND_FIELD);
+      writeAnnotations(out, fieldModel);
+      writeString(out, fieldModel.getName());
+      writeOptionalString(out, fieldModel.getNamespace());
+      out.writeBoolean(fieldModel.isStatic());
+      out.writeBoolean(fieldModel.isConst());
+      writeOptionalString(out, fieldModel.getType());
+      writeOptionalString(out, fieldModel.getValue());
+    } else if (declaration instanceof NamespaceModel) {
+      NamespaceModel namespaceModel = (NamespaceModel) declaration;
+      out.writeByte(KIND_NAMESPACE);
+      writeAnnotations(out, namespaceModel);
+      writeString(out, namespaceModel.getName());
+      writeOptionalString(out, namespaceModel.getNamespace());
+      writeOptionalString(out, namespaceModel.getValue());
+    } else {
+      throw new IllegalArgumentException("unsupported API declaration " + declaration);
+    }
+  }
+
+  private static NamedModel readDeclaration(DataInputStream in) throws IOException {
+    byte kind = in.readByte();
+    List<AnnotationModel> annotations = readAnnotations(in);
+    switch (kind) {
+      case KIND_CLASS:
+        ClassModel classModel = new ClassModel(readString(in));
+        classModel.setAnnotations(annotations);
+        classModel.setNamespace(readOptionalString(in));
+        classModel.setInterface(in.readBoolean());
+        classModel.setFinal(in.readBoolean());
+        classModel.setDynamic(in.readBoolean());
+        classModel.setSuperclass(readOptionalString(in));
+        classModel.setInterfaces(readStrings(in));
+        List<MemberModel> members = new ArrayList<>();
+        for (int count = in.readInt(); count > 0; count--) {
+          members.add((MemberModel) readDeclaration(in));
+        }
+        // do not use addMember(), which would merge getters and setters into properties:
+        classModel.setMembers(members);
+        return classModel;
+      case KIND_METHOD:
+        MethodModel methodModel = new MethodModel();
+        methodModel.setAnnotations(annotations);
+        methodModel.setName(readString(in));
+        methodModel.setNamespace(readOptionalString(in));
+        methodModel.setStatic(in.readBoolean());
+        methodModel.setFinal(in.readBoolean());
+        methodModel.setOverride(in.readBoolean());
+        byte methodType = in.readByte();
+        methodModel.setMethodType(methodType < 0 ? null : MethodType.values()[methodType]);
+        methodModel.setType(readOptionalString(in));
+        for (int count = in.readInt(); count > 0; count--) {
+          methodModel.addParam(new ParamModel(readString(in), readOptionalString(in), readOptionalString(in), in.readBoolean()));
+        }
+        methodModel.setBody(readOptionalString(in));
+        return methodModel;
+      case KIND_FIELD:
+        FieldModel fieldModel = new FieldModel(readString(in));
+        fieldModel.setAnnotations(annotations);
+        fieldModel.setNamespace(readOptionalString(in));
+        fieldModel.setStatic(in.readBoolean());
+        fieldModel.setConst(in.readBoolean());
+        fieldModel.setType(readOptionalString(in));
+        fieldModel.setValue(readOptionalString(in));
+        return fieldModel;
+      case KIND_NAMESPACE:
+        NamespaceModel namespaceModel = new NamespaceModel(readString(in));
+        namespaceModel.setAnnotations(annotations);
+        namespaceModel.setNamespace(readOptionalString(in));
+        namespaceModel.setValue(readOptionalString(in));
+        return namespaceModel;
+      default:
+        throw new IOException("unknown API declaration kind " + kind);
+    }
+  }
+
+  private static void writeAnnotations(DataOutputStream out, AnnotatedModel annotatedModel) throws IOException {
+    out.writeInt(annotatedModel.getAnnotations().size());
+    for (AnnotationModel annotationModel : annotatedModel.getAnnotations()) {
+      writeString(out, annotationModel.getName());
+      out.writeInt(annotationModel.getProperties().size());
+      for (AnnotationPropertyModel annotationPropertyModel : annotationModel.getProperties()) {
+        writeOptionalString(out, annotationPropertyModel.getName());
+        writeOptionalString(out, annotationPropertyModel.getValue());
+      }
+    }
+  }
+
+  private static List<AnnotationModel> readAnnotations(DataInputStream in) throws IOException {
+    List<AnnotationModel> annotations = new ArrayList<>();
+    for (int count = in.readInt(); count > 0; count--) {
+      AnnotationModel annotationModel = new AnnotationModel(readString(in));
+      for (int propertyCount = in.readInt(); propertyCount > 0; propertyCount--) {
+        annotationModel.addProperty(new AnnotationPropertyModel(readOptionalString(in), readOptionalString(in)));
+      }
+      annotations.add(annotationModel);
+    }
+    return annotations;
+  }
+
+  private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+    out.writeInt(strings.size());
+    for (String string : strings) {
+      writeString(out, string);
+    }
+  }
+
+  private static List<String> readStrings(DataInputStream in) throws IOException {
+    List<String> strings = new ArrayList<>();
+    for (int count = in.readInt(); count > 0; count--) {
+      strings.add(readString(in));
+    }
+    return strings;
+  }
+
+  /**
+   * Write a string as length-prefixed UTF-8. Unlike {@link DataOutputStream#writeUTF(String)}, this is not limited
+   * to 64 KB, which long string constants or annotation values may exceed.
+   */
+  static void writeString(DataOutputStream out, String string) throws IOException {
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      throw new IOException("invalid string length " + length);
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeOptionalString(DataOutputStream out, String string) throws IOException {
+    out.writeBoolean(string != null);
+    if (string != null) {
+      writeString(out, string);
+    }
+  }
+
+  private static String readOptionalString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? readString(in) : null;
+  }
+
+  private class ArchiveApiStubs {
+    private final File archive;
+    private final long size;
+    private final long lastModified;
+    private final Map<String, byte[]> modelsByRelativePath = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    ArchiveApiStubs(File archive) {
+      this.archive = archive;
+      this.size = archive.length();
+      this.lastModified = archive.lastModified();
+    }
+
+    boolean readHeader(DataInputStream in) throws IOException {
+      return in.readInt() == FORMAT_VERSION
+              && JoocProperties.getVersion().equals(readString(in))
+              && archive.getAbsolutePath().equals(readString(in))
+              && in.readLong() == size
+              && in.readLong() == lastModified;
+    }
+
+    void write() throws IOException {
+      File cacheFile = getCacheFile(archive);
+      if (!cacheDirectory.exists() && !cacheDirectory.mkdirs()) {
+        throw new IOException("cannot create API stub cache directory " + cacheDirectory.getAbsolutePath());
+      }
+      // write to a temporary file first, so that concurrent builds never read a partially written cache file:
+      File tempFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheDirectory);
+      try {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tempFile))))) {
+          out.writeInt(FORMAT_VERSION);
+          writeString(out, JoocProperties.getVersion());
+          writeString(out, archive.getAbsolutePath());
+          out.writeLong(size);
+          out.writeLong(lastModified);
+          Map<String, byte[]> entries = new TreeMap<>(modelsByRelativePath);
+          out.writeInt(entries.size());
+          for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeInt(entry.getValue().length);
+            out.write(entry.getValue());
+          }
+        }
+        Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      } finally {
+        //noinspection ResultOfMethodCallIgnored
+        tempFile.delete();
+      }
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.api.CompileLog;
+import net.jangaroo.jooc.api.FilePosition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Keeps all messages until they are {@link #flushTo(CompileLog) passed on} to another log, so that the messages
+ * of an attempt that turns out to be wrong can be dropped.
+ */
+class BufferedCompileLog implements CompileLog {
+
+  private final List<Consumer<CompileLog>> messages = new ArrayList<>();
+  private boolean errors = false;
+
+  @Override
+  public void error(FilePosition position, String msg) {
+    errors = true;
+    messages.add(log -> log.error(position, msg));
+  }
+
+  @Override
+  public void error(String msg) {
+    errors = true;
+    messages.add(log -> log.error(msg));
+  }
+
+  @Override
+  public void warning(FilePosition position, String msg) {
+    messages.add(log -> log.warning(position, msg));
+  }
+
+  @Override
+  public void warning(String msg) {
+    messages.add(log -> log.warning(msg));
+  }
+
+  @Override
+  public boolean hasErrors() {
+    return errors;
+  }
+
+  void flushTo(CompileLog log) {
+    for (Consumer<CompileLog> message : messages) {
+      message.accept(log);
+    }
+    messages.clear();
+  }
+}
@@ -0,0 +1,269 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.input.InputSource;
+import net.jangaroo.jooc.json.JsonArray;
+import net.jangaroo.jooc.json.JsonObject;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects where the time of a compiler run goes and writes it as a JSON report.
+ * <p>Phases are the consecutive steps of a compiler run, measured by the thread running the compiler,
+ * including all work done on behalf of the phase. Activities are what the compiler does with single
+ * compilation units, possibly on worker threads. Activity times exclude nested activities, e.g. the time to
+ * scope a unit excludes parsing class path units imported while scoping, so that the times of all activities
+ * add up. Activities of units in the source path are also reported per unit, those of class path units only
+ * in total.</p>
+ * <p>A report that is not enabled does not measure anything and costs next to nothing.</p>
+ */
+public class CompilePerformanceReport {
+
+  public enum Activity {
+    PARSE("parse"),
+    SCOPE("scope"),
+    ANALYZE("analyze"),
+    IMPLEMENTED_MEMBERS("implementedMembers"),
+    TYPE_CHECK("typeCheck"),
+    CODE_GENERATION("codeGeneration"),
+    API_GENERATION("apiGeneration");
+
+    private final String jsonName;
+
+    Activity(String jsonName) {
+      this.jsonName = jsonName;
+    }
+  }
+
+  /**
+   * A running measurement, to be closed when the measured work is done.
+   */
+  public interface Measurement extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  private static final Measurement NO_MEASUREMENT = () -> { };
+
+  private final boolean enabled;
+  private final ThreadMXBean threadMXBean;
+  private final Map<String, Timing> phaseTimings = new LinkedHashMap<>();
+  private final Map<Activity, Timing> activityTimings = new EnumMap<>(Activity.class);
+  private final Map<String, Map<Activity, Timing>> activityTimingsBySourcePath = new HashMap<>();
+  private final ThreadLocal<ActivityMeasurement> currentActivityMeasurement = new ThreadLocal<>();
+  private final AtomicLong bytesRead = new AtomicLong();
+  private final AtomicLong bytesWritten = new AtomicLong();
+  private final AtomicLong classPathLookups = new AtomicLong();
+
+  public CompilePerformanceReport(boolean enabled) {
+    this.enabled = enabled;
+    ThreadMXBean mxBean = enabled ? ManagementFactory.getThreadMXBean() : null;
+    this.threadMXBean = mxBean != null && mxBean.isCurrentThreadCpuTimeSupported() ? mxBean : null;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Start measuring a phase of the compiler run. Measurements of the same phase add up.
+   */
+  public Measurement measurePhase(String phase) {
+    if (!enabled) {
+      return NO_MEASUREMENT;
+    }
+    long startWallTime = System.nanoTime();
+    long startCpuTime = getCurrentThreadCpuTime();
+    return () -> {
+      synchronized (this) {
+        phaseTimings.computeIfAbsent(phase, key -> new Timing())
+                .add(System.nanoTime() - startWallTime, getCurrentThreadCpuTime() - startCpuTime);
+      }
+    };
+  }
+
+  /**
+   * Start measuring an activity on the compilation unit read from the given source.
+   */
+  public Measurement measure(Activity activity, InputSource source) {
+    if (!enabled) {
+      return NO_MEASUREMENT;
+    }
+    ActivityMeasurement measurement = new ActivityMeasurement(activity,
+            source.isInSourcePath() ? source.getPath() : null, currentActivityMeasurement.get());
+    currentActivityMeasurement.set(measurement);
+    return measurement;
+  }
+
+  /**
+   * Count the bytes read from the given input stream.
+   */
+  public InputStream countBytesRead(InputStream inputStream) {
+    if (!enabled) {
+      return inputStream;
+    }
+    return new FilterInputStream(inputStream) {
+      @Override
+      public int read() throws IOException {
+        int result = super.read();
+        if (result >= 0) {
+          bytesRead.incrementAndGet();
+        }
+        return result;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        int result = super.read(b, off, len);
+        if (result > 0) {
+          bytesRead.addAndGet(result);
+        }
+        return result;
+      }
+    };
+  }
+
+  /**
+   * Count the size of the given generated files.
+   */
+  public void countBytesWritten(Collection<File> files) {
+    if (enabled) {
+      for (File file : files) {
+        bytesWritten.addAndGet(file.length());
+      }
+    }
+  }
+
+  public void countClassPathLookup() {
+    if (enabled) {
+      classPathLookups.incrementAndGet();
+    }
+  }
+
+  private long getCurrentThreadCpuTime() {
+    return threadMXBean == null ? 0 : threadMXBean.getCurrentThreadCpuTime();
+  }
+
+  private synchronized void addActivityTiming(Activity activity, String sourcePath, long wallTime, long cpuTime) {
+    activityTimings.computeIfAbsent(activity, key -> new Timing()).add(wallTime, cpuTime);
+    if (sourcePath != null) {
+      activityTimingsBySourcePath.computeIfAbsent(sourcePath, key -> new EnumMap<>(Activity.class))
+              .computeIfAbsent(activity, key -> new Timing()).add(wallTime, cpuTime);
+    }
+  }
+
+  public synchronized void write(File reportFile) throws IOException {
+    List<Object> phases = new ArrayList<>();
+    for (Map.Entry<String, Timing> entry : phaseTimings.entrySet()) {
+      phases.add(entry.getValue().toJson("name", entry.getKey()));
+    }
+    List<Object> activities = new ArrayList<>();
+    for (Map.Entry<Activity, Timing> entry : activityTimings.entrySet()) {
+      activities.add(entry.getValue().toJson("name", entry.getKey().jsonName));
+    }
+    // the units that took longest come first:
+    List<Map.Entry<String, Map<Activity, Timing>>> unitEntries = new ArrayList<>(activityTimingsBySourcePath.entrySet());
+    unitEntries.sort((entry1, entry2) -> Long.compare(getTotalWallTime(entry2.getValue()), getTotalWallTime(entry1.getValue())));
+    List<Object> units = new ArrayList<>();
+    for (Map.Entry<String, Map<Activity, Timing>> entry : unitEntries) {
+      JsonObject unit = new JsonObject("source", entry.getKey(), "wallMillis", toMillis(getTotalWallTime(entry.getValue())));
+      for (Map.Entry<Activity, Timing> activityEntry : entry.getValue().entrySet()) {
+        unit.set(activityEntry.getKey().jsonName + "WallMillis", toMillis(activityEntry.getValue().wallTime));
+      }
+      units.add(unit);
+    }
+
+    JsonObject report = new JsonObject(
+            "cpuTimeMeasured", threadMXBean != null,
+            "phases", new JsonArray(phases.toArray()),
+            "activities", new JsonArray(activities.toArray()),
+            "bytesRead", bytesRead.get(),
+            "bytesWritten", bytesWritten.get(),
+            "classPathLookups", classPathLookups.get(),
+            "units", new JsonArray(units.toArray()));
+
+    File parentDir = reportFile.getAbsoluteFile().getParentFile();
+    if (!parentDir.exists() && !parentDir.mkdirs()) {
+      throw new IOException("cannot create directory " + parentDir.getAbsolutePath());
+    }
+    try (Writer writer = Files.newBufferedWriter(reportFile.toPath(), StandardCharsets.UTF_8)) {
+      writer.write(report.stringify());
+    }
+  }
+
+  private static long getTotalWallTime(Map<Activity, Timing> timings) {
+    long result = 0;
+    for (Timing timing : timings.values()) {
+      result += timing.wallTime;
+    }
+    return result;
+  }
+
+  private static double toMillis(long nanos) {
+    return Math.round(nanos / 1000.0) / 1000.0;
+  }
+
+  private class ActivityMeasurement implements Measurement {
+    private final Activity activity;
+    private final String sourcePath;
+    private final ActivityMeasurement parent;
+    private final long startWallTime;
+    private final long startCpuTime;
+    // time spent in nested activities, to be excluded from this activity:
+    private long nestedWallTime;
+    private long nestedCpuTime;
+
+    ActivityMeasurement(Activity activity, String sourcePath, ActivityMeasurement parent) {
+      this.activity = activity;
+      this.sourcePath = sourcePath;
+      this.parent = parent;
+      this.startWallTime = System.nanoTime();
+      this.startCpuTime = getCurrentThreadCpuTime();
+    }
+
+    @Override
+    public void close() {
+      long wallTime = System.nanoTime() - startWallTime;
+      long cpuTime = getCurrentThreadCpuTime() - startCpuTime;
+      if (parent == null) {
+        currentActivityMeasurement.remove();
+      } else {
+        parent.nestedWallTime += wallTime;
+        parent.nestedCpuTime += cpuTime;
+        currentActivityMeasurement.set(parent);
+      }
+      addActivityTiming(activity, sourcePath, wallTime - nestedWallTime, cpuTime - nestedCpuTime);
+    }
+  }
+
+  private static class Timing {
+    private int count;
+    private long wallTime;
+    private long cpuTime;
+
+    void add(long wallTime, long cpuTime) {
+      ++count;
+      this.wallTime += wallTime;
+      this.cpuTime += cpuTime;
+    }
+
+    JsonObject toJson(String key, String name) {
+      return new JsonObject(key, name, "count", count, "wallMillis", toMillis(wallTime), "cpuMillis", toMillis(cpuTime));
+    }
+  }
+}
@@ -1,6 +1,9 @@
 package net.jangaroo.jooc;
 
+import com.google.common.hash.Hashing;
 import com.google.common.io.LineReader;
+import com.google.debugging.sourcemap.SourceMapGeneratorV3;
+import com.google.debugging.sourcemap.SourceMapParseException;
 import com.google.javascript.jscomp.CompilationLevel;
 import com.google.javascript.jscomp.Compiler;
 import com.google.javascript.jscomp.CompilerOptions;
@@ -14,27 +17,52 @@ import net.jangaroo.jooc.api.Compressor;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.Writer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
- * A facade to call the Google Closure compiler
+ * A facade to call the Google Closure compiler.
+ * <p>If a cache directory is given, each source file is compressed separately and the result is cached
+ * under the hash of the file's content, so that later builds only run the Closure compiler on changed files.
+ * The cached snippets are concatenated into the output file and their source maps are merged.</p>
  */
 public class CompressorImpl implements Compressor {
 
   private static final String OUTPUT_CHARSET = "UTF-8";
   private static final String SOURCE_MAP_EXTENSION = ".map";
+  private static final String CACHED_CODE_EXTENSION = ".js";
+  private static final CompilationLevel COMPILATION_LEVEL = CompilationLevel.WHITESPACE_ONLY;
+  private static final WarningLevel WARNING_LEVEL = WarningLevel.QUIET;
+  private static final SourceMap.Format SOURCE_MAP_FORMAT = SourceMap.Format.V3;
+
+  private final File cacheDirectory;
+
+  public CompressorImpl() {
+    this(null);
+  }
+
+  /**
+   * @param cacheDirectory the directory where to cache compressed source files, or null to compress all
+   *                       source files of an output file in one go, without caching
+   */
+  public CompressorImpl(File cacheDirectory) {
+    this.cacheDirectory = cacheDirectory;
+  }
 
   /**
    * Calls the Google Closure compiler with
@@ -46,13 +74,35 @@ public class CompressorImpl implements Compressor {
    */
   @Override
   public void compress(Collection<File> sources, File output) throws IOException {
+    CompilerOptions options = createOptions(output);
+    File sourceMap = new File(output.getPath() + SOURCE_MAP_EXTENSION);
+    List<File> sourceFiles = toOutputRelativeFiles(sources, output);
+    if (cacheDirectory != null) {
+      compressCached(sourceFiles, options, output, sourceMap);
+      return;
+    }
+
+    List<SourceFile> closureSourceFiles = new ArrayList<>();
+    for (File file : sourceFiles) {
+      closureSourceFiles.add(SourceFile.fromFile(file));
+    }
 
+    Compiler compiler = new Compiler();
+    Result result = compile(compiler, closureSourceFiles, options);
+    // the source map is only filled while the code is printed:
+    String code = compiler.toSource();
+    StringBuffer sourceMapContent = new StringBuffer();
+    result.sourceMap.appendTo(sourceMapContent, output.getName());
+    writeOutput(code, sourceMapContent, output, sourceMap);
+  }
+
+  private static CompilerOptions createOptions(File output) {
     CompilerOptions options = new CompilerOptions();
-    CompilationLevel.WHITESPACE_ONLY.setOptionsForCompilationLevel(options);
+    COMPILATION_LEVEL.setOptionsForCompilationLevel(options);
     options.setOutputCharset(OUTPUT_CHARSET);
 
     File sourceMap = new File(output.getPath() + SOURCE_MAP_EXTENSION);
-    options.setSourceMapFormat(SourceMap.Format.V3);
+    options.setSourceMapFormat(SOURCE_MAP_FORMAT);
     options.setSourceMapOutputPath(sourceMap.getPath());
 
     String outputFilePath = output.getPath();
@@ -62,35 +112,159 @@ public class CompressorImpl implements Compressor {
     }
     options.setSourceMapLocationMappings(Collections.singletonList(new SourceMap.LocationMapping(prefix, "")));
 
-    Path outputDirPath = output.getParentFile().toPath();
-
-    WarningLevel level = WarningLevel.QUIET;
-    level.setOptionsForWarningLevel(options);
+    WARNING_LEVEL.setOptionsForWarningLevel(options);
+    return options;
+  }
 
-    List<SourceFile> sourceFiles = new ArrayList<>();
+  private static List<File> toOutputRelativeFiles(Collection<File> sources, File output) {
+    Path outputDirPath = output.getParentFile().toPath();
+    List<File> files = new ArrayList<>();
     for (File source : sources) {
       Path sourcePath = source.toPath();
       Path relativeSourcePath = outputDirPath.relativize(sourcePath);
-      final File file = new File(outputDirPath.toString(), relativeSourcePath.toString());
-      SourceFile sourceFile = SourceFile.fromFile(file);
-      sourceFiles.add(sourceFile);
+      files.add(new File(outputDirPath.toString(), relativeSourcePath.toString()));
     }
+    return files;
+  }
 
-    Compiler compiler = new Compiler();
-    Result result = compiler.compile(Collections.emptyList(), sourceFiles, options);
+  private static Result compile(Compiler compiler, List<SourceFile> sourceFiles, CompilerOptions options) {
+    Result result = compiler.compile(Collections.<SourceFile>emptyList(), sourceFiles, options);
     if (compiler.hasErrors()) {
       throw new IllegalArgumentException(compiler.getErrors()[0].description);
     }
+    return result;
+  }
+
+  /**
+   * Compress each source file separately, taking the compressed code and source map from the cache if the
+   * same file content has been compressed before. Cache entries of the output file that are no longer used
+   * are removed afterwards.
+   */
+  private void compressCached(List<File> sourceFiles, CompilerOptions options, File output, File sourceMap)
+          throws IOException {
+    // output files of the same name in different directories must not share (and clean up) cache entries:
+    String outputKey = Hashing.sha256().hashString(output.getAbsolutePath(), StandardCharsets.UTF_8).toString();
+    File outputCacheDirectory = new File(cacheDirectory, output.getName() + "-" + outputKey.substring(0, 16));
+    if (!outputCacheDirectory.exists() && !outputCacheDirectory.mkdirs()) {
+      throw new IOException("cannot create directory " + outputCacheDirectory.getAbsolutePath());
+    }
+    Charset charset = Charset.forName(OUTPUT_CHARSET);
+    StringBuilder code = new StringBuilder();
+    SourceMapGeneratorV3 sourceMapGenerator = new SourceMapGeneratorV3();
+    Set<String> usedCacheFileNames = new HashSet<>();
+    int lineCount = 0;
+    for (File sourceFile : sourceFiles) {
+      String content = com.google.common.io.Files.asCharSource(sourceFile, StandardCharsets.UTF_8).read();
+      // the source path appears in the source map, so it is part of the cache key, too, as well as everything
+      // else that determines the Closure compiler output (the output path is already part of the directory):
+      String key = Hashing.sha256().newHasher()
+              .putString(Compiler.getReleaseVersion(), StandardCharsets.UTF_8)
+              .putByte((byte) 0)
+              .putString(COMPILATION_LEVEL.name(), StandardCharsets.UTF_8)
+              .putByte((byte) 0)
+              .putString(WARNING_LEVEL.name(), StandardCharsets.UTF_8)
+              .putByte((byte) 0)
+              .putString(SOURCE_MAP_FORMAT.name(), StandardCharsets.UTF_8)
+              .putByte((byte) 0)
+              .putString(OUTPUT_CHARSET, StandardCharsets.UTF_8)
+              .putByte((byte) 0)
+              .putString(sourceFile.getPath(), StandardCharsets.UTF_8)
+              .putByte((byte) 0)
+              .putString(content, StandardCharsets.UTF_8)
+              .hash().toString();
+      File cachedCode = new File(outputCacheDirectory, key + CACHED_CODE_EXTENSION);
+      File cachedSourceMap = new File(outputCacheDirectory, key + CACHED_CODE_EXTENSION + SOURCE_MAP_EXTENSION);
+      usedCacheFileNames.add(cachedCode.getName());
+      usedCacheFileNames.add(cachedSourceMap.getName());
+      String compressedCode = null;
+      if (cachedCode.exists() && cachedSourceMap.exists()) {
+        try {
+          compressedCode = com.google.common.io.Files.asCharSource(cachedCode, charset).read();
+          if (!compressedCode.isEmpty()) {
+            sourceMapGenerator.mergeMapSection(lineCount, 0,
+                    com.google.common.io.Files.asCharSource(cachedSourceMap, charset).read());
+          }
+        } catch (IOException | SourceMapParseException e) {
+          // an unreadable or corrupt cache entry is treated like a missing one:
+          compressedCode = null;
+        }
+      }
+      if (compressedCode == null) {
+        Compiler compiler = new Compiler();
+        Result result = compile(compiler, Collections.singletonList(SourceFile.fromCode(sourceFile.getPath(), content)), options);
+        compressedCode = compiler.toSource();
+        StringBuilder sourceMapContent = new StringBuilder();
+        result.sourceMap.appendTo(sourceMapContent, cachedCode.getName());
+        String compressedSourceMap = sourceMapContent.toString();
+        writeCacheFile(cachedCode, compressedCode, charset);
+        writeCacheFile(cachedSourceMap, compressedSourceMap, charset);
+        if (!compressedCode.isEmpty()) {
+          try {
+            sourceMapGenerator.mergeMapSection(lineCount, 0, compressedSourceMap);
+          } catch (SourceMapParseException e) {
+            throw new IOException("invalid source map generated for " + sourceFile.getPath(), e);
+          }
+        }
+      }
+      if (compressedCode.isEmpty()) {
+        continue;
+      }
+      code.append(compressedCode);
+      if (!compressedCode.endsWith("\n")) {
+        code.append('\n');
+      }
+      lineCount += countLines(compressedCode);
+    }
+
+    StringBuilder sourceMapContent = new StringBuilder();
+    sourceMapGenerator.appendTo(sourceMapContent, output.getName());
+    writeOutput(code, sourceMapContent, output, sourceMap);
 
+    File[] cacheFiles = outputCacheDirectory.listFiles();
+    if (cacheFiles != null) {
+      for (File cacheFile : cacheFiles) {
+        if (!usedCacheFileNames.contains(cacheFile.getName())) {
+          //noinspection ResultOfMethodCallIgnored
+          cacheFile.delete(); // NOSONAR an outdated cache entry that cannot be deleted does not do any harm
+        }
+      }
+    }
+  }
+
+  /**
+   * Write the cache file through a temporary file, so that concurrent or aborted builds never leave
+   * a partially written cache entry behind.
+   */
+  private static void writeCacheFile(File cacheFile, String content, Charset charset) throws IOException {
+    File tempFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheFile.getParentFile());
+    try {
+      com.google.common.io.Files.asCharSink(tempFile, charset).write(content);
+      Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      //noinspection ResultOfMethodCallIgnored
+      tempFile.delete();
+    }
+  }
+
+  private static int countLines(String code) {
+    int lines = 1;
+    for (int i = 0; i < code.length() - 1; i++) {
+      if (code.charAt(i) == '\n') {
+        ++lines;
+      }
+    }
+    return lines;
+  }
+
+  private static void writeOutput(CharSequence code, CharSequence sourceMapContent, File output, File sourceMap)
+          throws IOException {
     try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(output),
             Charset.forName(OUTPUT_CHARSET)))) {
-      writer.append(compiler.toSource());
+      writer.append(code);
       writer.printf("\n//# sourceMappingURL=%s\n", sourceMap.getName());
     }
-    StringBuffer sourceMapContent = new StringBuffer();
-    result.sourceMap.appendTo(sourceMapContent, output.getName());
-    try (Writer writer = new FileWriter(sourceMap)) {
-      writer.append(sourceMapContent.toString());
+    try (Writer writer = new OutputStreamWriter(new FileOutputStream(sourceMap), Charset.forName(OUTPUT_CHARSET))) {
+      writer.append(sourceMapContent);
     }
   }
 
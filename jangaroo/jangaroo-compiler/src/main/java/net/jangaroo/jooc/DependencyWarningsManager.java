@@ -6,25 +6,34 @@ import net.jangaroo.jooc.json.JsonArray;
 import net.jangaroo.jooc.json.JsonObject;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 public class DependencyWarningsManager {
-  private final List<DependencyWarning> dependencyWarnings;
-  private final Map<String, Boolean> compileDependencies;
+  private final Map<String, DependencyWarning> dependencyWarningsByDependency;
+  // used paths per compile path entry, initialized once from the class path:
+  private final Map<String, Set<String>> usagesByCompileDependency;
+  // cache of the compile path entry a used path belongs to:
+  private final Map<String, String> compileDependencyByPath;
+  private InputSource loadedInputSource;
 
   public DependencyWarningsManager() {
-    this.dependencyWarnings = new ArrayList<>();
-    this.compileDependencies = new HashMap<>();
+    this.dependencyWarningsByDependency = new LinkedHashMap<>();
+    this.usagesByCompileDependency = new LinkedHashMap<>();
+    this.compileDependencyByPath = new HashMap<>();
   }
 
   public void loadInputSource(InputSource inputSource) {
-    getCompileDependencies((PathInputSource) inputSource);
+    if (inputSource != loadedInputSource) {
+      loadedInputSource = inputSource;
+      getCompileDependencies((PathInputSource) inputSource);
+    }
   }
 
   private void getCompileDependencies(PathInputSource classPathInputSource) {
@@ -32,52 +41,66 @@ public class DependencyWarningsManager {
       if (child.isInCompilePath()) {
         String key = child.getPath().split("!")[0];
         if (key != null) {
-          compileDependencies.putIfAbsent(key, false);
+          usagesByCompileDependency.putIfAbsent(key, new HashSet<>());
         }
       }
     }
   }
 
   public List<DependencyWarning> getDependencyWarnings() {
-    return dependencyWarnings;
+    return new ArrayList<>(dependencyWarningsByDependency.values());
   }
 
   public String createFileString() {
-    List<String> undeclaredDependencies = dependencyWarnings.stream().map(DependencyWarning::getDependency).collect(Collectors.toList());
+    List<String> undeclaredDependencies = new ArrayList<>(dependencyWarningsByDependency.keySet());
     return new JsonObject("undeclaredDependencies", new JsonArray(undeclaredDependencies.toArray()),
             "unusedDependencies", new JsonArray(getUnusedDeclaredDependencies().toArray())).toString(2, 0, true);
   }
 
   public void addDependencyWarning(String compileDependency, String usageName) {
-    Optional<DependencyWarning> warning = this.dependencyWarnings.stream()
-            .filter(dependencyWarning -> dependencyWarning.matches(compileDependency))
-            .findFirst();
-    if (warning.isPresent()) {
-      warning.get().addUsage(usageName);
+    String dependency = compileDependency.split("!")[0];
+    DependencyWarning warning = dependencyWarningsByDependency.get(dependency);
+    if (warning != null) {
+      warning.addUsage(usageName);
     } else {
-      dependencyWarnings.add(new DependencyWarning(compileDependency, usageName));
+      dependencyWarningsByDependency.put(dependency, new DependencyWarning(compileDependency, usageName));
     }
+  }
 
+  /**
+   * Record the given paths of used class path sources, like <code>lib.jar!pkg/Used.as</code> or
+   * <code>/lib/pkg/Used.as</code>, as usages of the compile path entries they belong to.
+   */
+  public void updateUsedCompileDependencies(Collection<String> usedPaths) {
+    for (String usedPath : usedPaths) {
+      Set<String> usages = usagesByCompileDependency.get(getCompileDependency(usedPath.split("!")[0]));
+      if (usages != null) {
+        usages.add(usedPath);
+      }
+    }
   }
 
-  public void updateUsedCompileDependencies(List<String> usedCompileDependencies) {
-    for (String usedCompileDependency : usedCompileDependencies) {
-      if (compileDependencies.containsKey(usedCompileDependency)) {
-        compileDependencies.put(usedCompileDependency, true);
-      } else if (compileDependencies.keySet().stream().anyMatch(usedCompileDependency::contains)) {
-        compileDependencies.keySet().stream()
-                .filter(usedCompileDependency::contains)
-                .findFirst()
-                .ifPresent(dependency -> compileDependencies.put(dependency, true));
-      } else {
-        compileDependencies.put(usedCompileDependency, true);
+  private String getCompileDependency(String usedPath) {
+    String compileDependency = compileDependencyByPath.get(usedPath);
+    if (compileDependency == null) {
+      compileDependency = usedPath;
+      if (!usagesByCompileDependency.containsKey(usedPath)) {
+        // a file inside a class path directory:
+        for (String dependency : usagesByCompileDependency.keySet()) {
+          if (usedPath.contains(dependency)) {
+            compileDependency = dependency;
+            break;
+          }
+        }
       }
+      compileDependencyByPath.put(usedPath, compileDependency);
     }
+    return compileDependency;
   }
 
   public List<String> getUnusedDeclaredDependencies() {
-    return compileDependencies.entrySet().stream()
-            .filter(entry -> !entry.getValue())
+    return usagesByCompileDependency.entrySet().stream()
+            .filter(entry -> entry.getValue().isEmpty())
             .map(Map.Entry::getKey)
             .collect(Collectors.toList());
   }
@@ -100,10 +123,6 @@ public class DependencyWarningsManager {
       return usages;
     }
 
-    public boolean matches(String dependency) {
-      return this.dependency.equals(dependency.split("!")[0]);
-    }
-
     public void addUsage(String usage) {
       this.usages.add(usage);
     }
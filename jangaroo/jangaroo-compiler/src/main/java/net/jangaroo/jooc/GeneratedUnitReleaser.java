@@ -0,0 +1,113 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.ast.CompilationUnit;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Releases the method bodies of compilation units as soon as no unit needs them any longer, so that the heap
+ * needed for code generation does not grow with the number of compiled units.
+ * A unit whose output is generated is released once its output has been generated. Any other unit, from the
+ * class path or a source path unit that is not recompiled, is released right away. In both cases, the unit is
+ * kept as long as some other unit depends on it that has not been released itself, respectively has not been
+ * generated yet. Units imported after this releaser has been created are not tracked and never released.
+ * Output may be generated by several threads, which notify this releaser concurrently.
+ */
+class GeneratedUnitReleaser {
+
+  private final Map<String, CompilationUnit> unitsByQName = new HashMap<>();
+  private final Map<CompilationUnit, Integer> pendingDependentCounts = new HashMap<>();
+  private final Set<CompilationUnit> generatedUnits = new HashSet<>();
+  private final Set<CompilationUnit> pendingUnits = new HashSet<>();
+  private final Set<CompilationUnit> releasedUnits = new HashSet<>();
+
+  /**
+   * @param unitsToGenerate all units output will be generated for; null entries are ignored
+   * @param otherUnits all other units known to the compiler, which may depend on generated units or vice versa
+   */
+  GeneratedUnitReleaser(Collection<CompilationUnit> unitsToGenerate, Collection<CompilationUnit> otherUnits) {
+    for (CompilationUnit unit : unitsToGenerate) {
+      if (unit != null) {
+        generatedUnits.add(unit);
+        pendingUnits.add(unit);
+        addUnit(unit);
+      }
+    }
+    for (CompilationUnit unit : otherUnits) {
+      addUnit(unit);
+    }
+    for (CompilationUnit unit : pendingDependentCounts.keySet()) {
+      for (CompilationUnit dependency : getDependencies(unit)) {
+        pendingDependentCounts.merge(dependency, 1, Integer::sum);
+      }
+    }
+    releaseUnused(unitsByQName.values());
+  }
+
+  private void addUnit(CompilationUnit unit) {
+    if (pendingDependentCounts.putIfAbsent(unit, 0) == null) {
+      unitsByQName.put(unit.getQualifiedNameStr(), unit);
+    }
+  }
+
+  /**
+   * Notify that all output of the given unit has been generated.
+   */
+  synchronized void unitGenerated(CompilationUnit unit) {
+    if (pendingUnits.remove(unit)) {
+      // the generated unit no longer needs the method bodies of its dependencies:
+      releaseUnused(Collections.singleton(unit));
+    }
+  }
+
+  synchronized boolean isReleased(CompilationUnit unit) {
+    return releasedUnits.contains(unit);
+  }
+
+  /**
+   * Release the given units if unused, and all units that become unused as a result.
+   */
+  private void releaseUnused(Collection<CompilationUnit> candidates) {
+    Deque<CompilationUnit> doneUnits = new ArrayDeque<>();
+    for (CompilationUnit candidate : candidates) {
+      if (generatedUnits.contains(candidate) && !pendingUnits.contains(candidate)) {
+        doneUnits.add(candidate);
+      }
+      release(candidate, doneUnits);
+    }
+    while (!doneUnits.isEmpty()) {
+      for (CompilationUnit dependency : getDependencies(doneUnits.remove())) {
+        pendingDependentCounts.merge(dependency, -1, Integer::sum);
+        release(dependency, doneUnits);
+      }
+    }
+  }
+
+  private void release(CompilationUnit unit, Deque<CompilationUnit> doneUnits) {
+    if (!pendingUnits.contains(unit) && pendingDependentCounts.get(unit) == 0 && releasedUnits.add(unit)) {
+      unit.releaseMethodBodies();
+      if (!generatedUnits.contains(unit)) {
+        // a unit without output holds its dependencies until it is released:
+        doneUnits.add(unit);
+      }
+    }
+  }
+
+  private Set<CompilationUnit> getDependencies(CompilationUnit unit) {
+    Set<CompilationUnit> dependencies = new HashSet<>();
+    for (String dependencyQName : unit.getCompileDependencies()) {
+      CompilationUnit dependency = unitsByQName.get(dependencyQName);
+      if (dependency != null && dependency != unit) {
+        dependencies.add(dependency);
+      }
+    }
+    return dependencies;
+  }
+}
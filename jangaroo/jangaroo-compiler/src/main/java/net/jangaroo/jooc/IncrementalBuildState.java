@@ -0,0 +1,221 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.ast.CompilationUnit;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The compile dependencies, super types and API fingerprints of all compilation units of a module, persisted across
+ * builds. When a unit is recompiled and its API fingerprint differs from the one recorded by the previous build,
+ * all units that depend on it or on one of its subtypes have to be recompiled, too, even if their own sources have
+ * not changed.
+ */
+public class IncrementalBuildState {
+
+  private static final String HEADER = "# jooc incremental build state, format version 2";
+  private static final String SEPARATOR = "\t";
+  private static final String DEPENDENCY_SEPARATOR = ",";
+
+  private final File stateFile;
+  private final Map<String, UnitState> unitStatesByQName = new TreeMap<>();
+
+  public IncrementalBuildState(File stateFile) throws IOException {
+    this.stateFile = stateFile;
+    if (stateFile.exists()) {
+      read();
+    }
+  }
+
+  /**
+   * Compute a fingerprint of the API of the given analyzed compilation unit, i.e. of its non-private
+   * declarations without implementation and ASDoc. Package-internal declarations are included, because
+   * other units of the same package may use them.
+   *
+   * @param unit the compilation unit
+   * @return the API fingerprint, or null if the API could not be determined, which makes the API count as changed
+   */
+  public static String computeApiFingerprint(CompilationUnit unit) {
+    String apiStub;
+    try {
+      apiStub = ApiStubCache.generateApiStub(unit, true);
+    } catch (RuntimeException e) {
+      return null;
+    }
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(apiStub.getBytes(StandardCharsets.UTF_8));
+      StringBuilder fingerprint = new StringBuilder(2 * digest.length);
+      for (byte b : digest) {
+        fingerprint.append(String.format("%02x", b));
+      }
+      return fingerprint.toString();
+    } catch (NoSuchAlgorithmException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Whether the API of the given unit differs from the API recorded by the previous build.
+   * Units unknown to the previous build and units without fingerprint are considered to be changed.
+   */
+  public boolean hasApiChanged(String qName, String apiFingerprint) {
+    UnitState unitState = unitStatesByQName.get(qName);
+    return apiFingerprint == null || unitState == null || !apiFingerprint.equals(unitState.apiFingerprint);
+  }
+
+  /**
+   * Return the source files of all recorded units that depend on the given unit or on one of its recorded
+   * (transitive) subtypes, because subtypes inherit the API of the given unit.
+   */
+  public Set<File> getDependentSourceFiles(String qName) {
+    Set<String> affectedQNames = new LinkedHashSet<>();
+    affectedQNames.add(qName);
+    Deque<String> superTypesToVisit = new ArrayDeque<>(affectedQNames);
+    while (!superTypesToVisit.isEmpty()) {
+      String superType = superTypesToVisit.remove();
+      for (UnitState unitState : unitStatesByQName.values()) {
+        if (unitState.superTypes.contains(superType) && affectedQNames.add(unitState.qName)) {
+          superTypesToVisit.add(unitState.qName);
+        }
+      }
+    }
+    Set<File> result = new LinkedHashSet<>();
+    for (UnitState unitState : unitStatesByQName.values()) {
+      if (!Collections.disjoint(unitState.dependencies, affectedQNames)) {
+        result.add(unitState.sourceFile);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Return the union of the compile dependencies of all recorded units.
+   */
+  public Set<String> getAllDependencies() {
+    Set<String> result = new TreeSet<>();
+    for (UnitState unitState : unitStatesByQName.values()) {
+      result.addAll(unitState.dependencies);
+    }
+    return result;
+  }
+
+  /**
+   * Return the compile dependencies of all recorded units by the source file of the unit.
+   */
+  public Map<File, Set<String>> getDependenciesBySourceFile() {
+    Map<File, Set<String>> result = new LinkedHashMap<>();
+    for (UnitState unitState : unitStatesByQName.values()) {
+      result.put(unitState.sourceFile, unitState.dependencies);
+    }
+    return result;
+  }
+
+  /**
+   * Whether the source file of any recorded unit has been deleted since the previous build. Then, the dependents
+   * of the deleted units have to be recompiled, even if no source file is stale.
+   */
+  public boolean hasDeletedSources() {
+    return unitStatesByQName.values().stream().anyMatch(unitState -> !unitState.sourceFile.exists());
+  }
+
+  /**
+   * Forget about all units whose source files have been deleted since the previous build and return
+   * their qualified names, so that their dependents can be recompiled.
+   */
+  public List<String> removeDeletedUnits() {
+    List<String> result = new ArrayList<>();
+    unitStatesByQName.values().removeIf(unitState -> {
+      if (!unitState.sourceFile.exists()) {
+        result.add(unitState.qName);
+        return true;
+      }
+      return false;
+    });
+    return result;
+  }
+
+  public void update(String qName, File sourceFile, String apiFingerprint, Collection<String> dependencies,
+                     Collection<String> superTypes) {
+    unitStatesByQName.put(qName, new UnitState(qName, sourceFile.getAbsoluteFile(), apiFingerprint,
+            new TreeSet<>(dependencies), new TreeSet<>(superTypes)));
+  }
+
+  public void write() throws IOException {
+    File parentDir = stateFile.getAbsoluteFile().getParentFile();
+    if (!parentDir.exists() && !parentDir.mkdirs()) {
+      throw new IOException("cannot create directory " + parentDir.getAbsolutePath());
+    }
+    try (BufferedWriter writer = Files.newBufferedWriter(stateFile.toPath(), StandardCharsets.UTF_8)) {
+      writer.write(HEADER);
+      writer.newLine();
+      for (UnitState unitState : unitStatesByQName.values()) {
+        writer.write(unitState.qName);
+        writer.write(SEPARATOR);
+        writer.write(unitState.sourceFile.getPath());
+        writer.write(SEPARATOR);
+        writer.write(unitState.apiFingerprint == null ? "" : unitState.apiFingerprint);
+        writer.write(SEPARATOR);
+        writer.write(String.join(DEPENDENCY_SEPARATOR, unitState.dependencies));
+        writer.write(SEPARATOR);
+        writer.write(String.join(DEPENDENCY_SEPARATOR, unitState.superTypes));
+        writer.newLine();
+      }
+    }
+  }
+
+  private void read() throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(stateFile.toPath(), StandardCharsets.UTF_8)) {
+      if (!HEADER.equals(reader.readLine())) {
+        // unknown format: behave like a clean build
+        return;
+      }
+      for (String line; (line = reader.readLine()) != null; ) {
+        String[] parts = line.split(SEPARATOR, -1);
+        if (parts.length == 5) {
+          unitStatesByQName.put(parts[0], new UnitState(parts[0], new File(parts[1]),
+                  parts[2].isEmpty() ? null : parts[2], readQNames(parts[3]), readQNames(parts[4])));
+        }
+      }
+    }
+  }
+
+  private static Set<String> readQNames(String qNames) {
+    return qNames.isEmpty() ? Collections.<String>emptySet()
+            : new TreeSet<>(Arrays.asList(qNames.split(DEPENDENCY_SEPARATOR)));
+  }
+
+  private static class UnitState {
+    private final String qName;
+    private final File sourceFile;
+    private final String apiFingerprint;
+    private final Set<String> dependencies;
+    private final Set<String> superTypes;
+
+    UnitState(String qName, File sourceFile, String apiFingerprint, Set<String> dependencies, Set<String> superTypes) {
+      this.qName = qName;
+      this.sourceFile = sourceFile;
+      this.apiFingerprint = apiFingerprint;
+      this.dependencies = dependencies;
+      this.superTypes = superTypes;
+    }
+  }
+}
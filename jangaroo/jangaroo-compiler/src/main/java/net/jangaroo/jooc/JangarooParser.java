@@ -1,5 +1,7 @@
 package net.jangaroo.jooc;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import java_cup.runtime.Symbol;
 import net.jangaroo.jooc.api.CompileLog;
 import net.jangaroo.jooc.api.FilePosition;
@@ -16,27 +18,35 @@ import net.jangaroo.jooc.ast.VariableDeclaration;
 import net.jangaroo.jooc.config.ParserOptions;
 import net.jangaroo.jooc.config.SemicolonInsertionMode;
 import net.jangaroo.jooc.input.InputSource;
+import net.jangaroo.jooc.model.CompilationUnitModel;
 import net.jangaroo.jooc.mxml.MxmlComponentRegistry;
 import net.jangaroo.properties.Propc;
+import net.jangaroo.properties.model.PropertiesClass;
 import net.jangaroo.utils.AS3Type;
 import net.jangaroo.utils.BOMStripperInputStream;
 import net.jangaroo.utils.CompilerUtils;
 
 import javax.annotation.Nonnull;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.io.Reader;
-import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 public class JangarooParser implements CompilationUnitResolver, CompilationUnitRegistry {
   public static final String JOO_API_IN_SWC_DIRECTORY_PREFIX = "META-INF/joo-api/";
@@ -49,11 +59,23 @@ public class JangarooParser implements CompilationUnitResolver, CompilationUnitR
   private InputSource sourcePathInputSource;
   private InputSource classPathInputSource;
   private ParserOptions config;
-  private Map<InputSource, CompilationUnit> compilationUnitsByInputSource = new HashMap<>();
-  private Map<CompilationUnit, InputSource> inputSourceByCompilationUnit = new HashMap<>();
-  private Map<String, CompilationUnit> compilationUnitsByQName = new LinkedHashMap<String, CompilationUnit>();
+  private final Object scopeLock = new Object();
+  // all registered units, including those currently being scoped; guarded by scopeLock:
+  private final Map<InputSource, CompilationUnit> compilationUnitsByInputSource = new HashMap<>();
+  private final Map<String, CompilationUnit> compilationUnitsByQName = new LinkedHashMap<>();
+  // completely scoped units, readable without locking:
+  private final ConcurrentMap<InputSource, CompilationUnit> scopedCompilationUnitsByInputSource = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, CompilationUnit> scopedCompilationUnitsByQName = new ConcurrentHashMap<>();
+  private final ConcurrentMap<CompilationUnit, InputSource> inputSourceByCompilationUnit = new ConcurrentHashMap<>();
+  private final ConcurrentMap<InputSource, FutureTask<CompilationUnit>> parseTasksByInputSource = new ConcurrentHashMap<>();
+  private ApiStubCache apiStubCache;
   private MxmlComponentRegistry mxmlComponentRegistry = new MxmlComponentRegistry();
   private List<String> compilableSuffixes = Arrays.asList(Jooc.PROPERTIES_SUFFIX, Jooc.AS_SUFFIX, Jooc.MXML_SUFFIX);
+  private CompilePerformanceReport performanceReport = new CompilePerformanceReport(false);
+  private final TypeHierarchyIndex typeHierarchyIndex = new TypeHierarchyIndex();
+  // identifiers and short white-space are shared by the symbols of all units of this compilation, see ScannerBase;
+  // weak, so that a long-running compiler process does not keep the texts of units that have been removed:
+  private final Interner<String> sharedSymbolTexts = Interners.newWeakInterner();
 
   private final Scope globalScope = new DeclarationScope(null, null, this);
   private final TypeDeclaration voidType = declareType(globalScope, AS3Type.VOID.toString(), false);
@@ -136,6 +158,19 @@ public class JangarooParser implements CompilationUnitResolver, CompilationUnitR
     this.log = log;
   }
 
+  public ApiStubCache getApiStubCache() {
+    return apiStubCache;
+  }
+
+  /**
+   * Set the cache to read compact API stubs of class path units from, or null to always parse the original sources.
+   *
+   * @param apiStubCache the API stub cache to use
+   */
+  public void setApiStubCache(ApiStubCache apiStubCache) {
+    this.apiStubCache = apiStubCache;
+  }
+
   public List<String> getCompilableSuffixes() {
     return compilableSuffixes;
   }
@@ -144,25 +179,60 @@ public class JangarooParser implements CompilationUnitResolver, CompilationUnitR
     this.compilableSuffixes = compilableSuffixes;
   }
 
+  public CompilePerformanceReport getPerformanceReport() {
+    return performanceReport;
+  }
+
+  public void setPerformanceReport(CompilePerformanceReport performanceReport) {
+    this.performanceReport = performanceReport;
+  }
+
   public CompilationUnit doParse(InputSource in, CompileLog log, SemicolonInsertionMode semicolonInsertionMode) {
     if (config.isVerbose()) {
       System.out.println("Parsing " + in.getPath() + " (" + (in.isInSourcePath() ? "source" : "class") + "path)"); // NOSONAR this is a cmd line tool
     }
     String inputSourceName = in.getName();
     boolean parseMxml = inputSourceName.endsWith(Jooc.MXML_SUFFIX);
+    if (apiStubCache != null) {
+      try {
+        CompilationUnitModel cachedApiModel = apiStubCache.getApiModel(in);
+        if (cachedApiModel != null) {
+          // the class path unit's API is cached, so neither read nor lex nor parse its source:
+          return new ApiStubAstBuilder(in, log).build(cachedApiModel);
+        }
+      } catch (IOException e) {
+        log.warning(new FilePositionImpl(in.getPath(), -1, -1), "Ignoring corrupt API stub cache entry: " + e.getMessage());
+      }
+    }
+    if (inputSourceName.endsWith(Jooc.PROPERTIES_SUFFIX)) {
+      return buildPropertiesClass(in, log);
+    }
+    if (!in.isInSourcePath() && inputSourceName.endsWith(Jooc.AS_SUFFIX)) {
+      // class path units are only needed for their declarations, so do not parse and scope any function bodies:
+      BufferedCompileLog bufferedLog = new BufferedCompileLog();
+      CompilationUnit unit = parse(in, bufferedLog, semicolonInsertionMode, false, true);
+      if (unit != null && !bufferedLog.hasErrors()) {
+        bufferedLog.flushTo(log);
+        return unit;
+      }
+      // some slash in a function body may have been taken for the wrong token, so parse all code:
+    }
+    return parse(in, log, semicolonInsertionMode, parseMxml, false);
+  }
+
+  private CompilationUnit parse(InputSource in, CompileLog log, SemicolonInsertionMode semicolonInsertionMode,
+                                boolean parseMxml, boolean skipFunctionBodies) {
     Reader reader;
     try {
-      if (inputSourceName.endsWith(Jooc.PROPERTIES_SUFFIX)) {
-        reader = createPropertiesClassReader(in);
-      } else {
-        reader = new InputStreamReader(new BOMStripperInputStream(in.getInputStream()), UTF_8);
-      }
+      reader = new InputStreamReader(new BOMStripperInputStream(performanceReport.countBytesRead(in.getInputStream())), UTF_8);
     } catch (IOException e) {
       throw new CompilerError("Cannot read input file: " + in.getPath(), e);
     }
     Scanner s = new Scanner(reader);
     s.yybegin(parseMxml ? Scanner.MXML : Scanner.YYINITIAL);
     s.setInputSource(in);
+    s.setSharedTexts(sharedSymbolTexts);
+    s.setSkipFunctionBodies(skipFunctionBodies);
     JooParser p = new JooParser(s);
     p.setCompileLog(log);
     p.setSemicolonInsertionMode(semicolonInsertionMode);
@@ -180,16 +250,24 @@ public class JangarooParser implements CompilationUnitResolver, CompilationUnitR
     }
   }
 
-  public Reader createPropertiesClassReader(InputSource in) throws IOException {
-    Propc propertyClassGenerator = new Propc();
-    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-    propertyClassGenerator.generateApi(
-            CompilerUtils.qNameFromRelativePath(in.getRelativePath()),
-            in.getInputStream(),
-            new OutputStreamWriter(outputStream, UTF_8));
-    // From the properties file, we generate AS code, then parse a CompilationUnit again.
-    String output = outputStream.toString(UTF_8);
-    return new StringReader(output);
+  private CompilationUnit buildPropertiesClass(InputSource in, CompileLog log) {
+    // From the properties file, we build the AST of the generated AS code directly, without rendering and parsing it.
+    PropertiesClass propertiesClass;
+    try {
+      propertiesClass = new Propc().parse(CompilerUtils.qNameFromRelativePath(in.getRelativePath()),
+              performanceReport.countBytesRead(in.getInputStream()));
+    } catch (IOException e) {
+      throw new CompilerError("Cannot read input file: " + in.getPath(), e);
+    }
+    try {
+      return new PropertiesClassAstBuilder(in, log).build(propertiesClass);
+    } catch (Scanner.ScanError se) {
+      log.error(se.getSym(), se.getMessage());
+      return null;
+    } catch (JooParser.FatalSyntaxError e) {
+      // message already logged in parser
+      return null;
+    }
   }
 
   private static TypeDeclaration declareType(Scope scope, String identifier, boolean dynamic) {
@@ -216,6 +294,7 @@ public class JangarooParser implements CompilationUnitResolver, CompilationUnitR
       }
     }
     // scan classpath
+    performanceReport.countClassPathLookup();
     for (String suffix : compilableSuffixes) {
       result = findInputSource(qname, classPathInputSource, suffix);
       if (result != null) {
@@ -235,26 +314,118 @@ public class JangarooParser implements CompilationUnitResolver, CompilationUnitR
   }
 
   public CompilationUnit importSource(InputSource source) {
-    CompilationUnit unit = compilationUnitsByInputSource.get(source);
+    CompilationUnit unit = scopedCompilationUnitsByInputSource.get(source);
     if (unit != null) {
       return unit;
     }
+    return importSource(source, parse(source));
+  }
 
-    String fileName = source.getName();
-    if (!hasCompilableSuffix(fileName)) {
-      throw error("Input file must end with one of '" + getCompilableSuffixes() + "': " + fileName);
+  /**
+   * Parse the given source without registering or scoping the resulting compilation unit.
+   * Concurrent requests for a source that is currently being parsed wait for that parse to complete and
+   * receive the same compilation unit. The parse task is forgotten as soon as its unit has been
+   * {@link #importSource(InputSource, CompilationUnit) imported}, so that it does not keep the unit reachable.
+   * Parsing does not touch any shared compiler state, so this method may be called from worker threads.
+   *
+   * @param source the source to parse
+   * @return the parsed compilation unit, or null if a syntax error occurred
+   */
+  protected CompilationUnit parse(final InputSource source) {
+    FutureTask<CompilationUnit> parseTask = new FutureTask<>(() -> {
+      String fileName = source.getName();
+      if (!hasCompilableSuffix(fileName)) {
+        throw error("Input file must end with one of '" + getCompilableSuffixes() + "': " + fileName);
+      }
+      try (CompilePerformanceReport.Measurement ignored = performanceReport.measure(CompilePerformanceReport.Activity.PARSE, source)) {
+        return doParse(source, log, config.getSemicolonInsertionMode());
+      }
+    });
+    FutureTask<CompilationUnit> inFlightParseTask = parseTasksByInputSource.putIfAbsent(source, parseTask);
+    if (inFlightParseTask == null) {
+      parseTask.run();
+    } else {
+      parseTask = inFlightParseTask;
     }
-    unit = doParse(source, log, config.getSemicolonInsertionMode());
-    if (unit == null) {
-      return null;
+    return awaitResult(parseTask);
+  }
+
+  /**
+   * Register and scope a compilation unit that has been parsed from the given source.
+   * If the source has already been imported in the meantime, the existing compilation unit wins.
+   * Scoping resolves imports and thus may recursively import other units, which happens under a single lock,
+   * so a unit is only visible to other threads after it has been scoped completely. A lock per unit would
+   * deadlock on cyclic imports scoped by different threads, and scoping is cheap compared to parsing,
+   * which runs without the lock.
+   *
+   * @param source the source the compilation unit has been parsed from
+   * @param unit the parsed compilation unit, or null if parsing failed
+   * @return the compilation unit registered for the given source
+   */
+  protected CompilationUnit importSource(InputSource source, CompilationUnit unit) {
+    synchronized (scopeLock) {
+      CompilationUnit existingUnit = compilationUnitsByInputSource.get(source);
+      if (existingUnit != null) {
+        parseTasksByInputSource.remove(source);
+        return existingUnit;
+      }
+      if (unit == null) {
+        return null;
+      }
+
+      String qname = unit.getQualifiedNameStr();
+      compilationUnitsByQName.put(qname, unit);
+      compilationUnitsByInputSource.put(source, unit);
+      inputSourceByCompilationUnit.put(unit, source);
+      try (CompilePerformanceReport.Measurement ignored = performanceReport.measure(CompilePerformanceReport.Activity.SCOPE, source)) {
+        unit.scope(globalScope);
+      }
+      if (apiStubCache != null) {
+        try {
+          apiStubCache.update(source, unit);
+        } catch (IOException | RuntimeException e) {
+          log.warning(unit.getSymbol(), "Could not cache API stub of " + qname + ": " + e);
+        }
+      }
+      scopedCompilationUnitsByQName.put(qname, unit);
+      scopedCompilationUnitsByInputSource.put(source, unit);
+      // from now on, the unit is found in the registry:
+      parseTasksByInputSource.remove(source);
+      return unit;
     }
+  }
 
-    String qname = unit.getQualifiedNameStr();
-    compilationUnitsByQName.put(qname, unit);
-    compilationUnitsByInputSource.put(source, unit);
-    inputSourceByCompilationUnit.put(unit, source);
-    unit.scope(globalScope);
-    return unit;
+  /**
+   * Wait for the given task to complete and return its result, rethrowing any runtime exception
+   * the task has thrown.
+   *
+   * @param future the task to wait for
+   * @return the result of the task
+   */
+  protected static <T> T awaitResult(Future<T> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CompilerError("Compilation has been interrupted.", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new CompilerError(cause.getClass().getName() + ": " + cause.getMessage(), cause);
+    }
+  }
+
+  private CompilationUnit getRegisteredCompilationUnit(String qname) {
+    CompilationUnit compilationUnit = scopedCompilationUnitsByQName.get(qname);
+    if (compilationUnit == null) {
+      // this thread may hold the lock and currently be scoping the requested unit (cyclic imports):
+      synchronized (scopeLock) {
+        compilationUnit = compilationUnitsByQName.get(qname);
+      }
+    }
+    return compilationUnit;
   }
 
   private boolean hasCompilableSuffix(String fileName) {
@@ -278,11 +449,13 @@ public class JangarooParser implements CompilationUnitResolver, CompilationUnitR
   }
 
   public Collection<CompilationUnit> getCompilationUnits() {
-    return compilationUnitsByQName.values();
+    synchronized (scopeLock) {
+      return new ArrayList<>(compilationUnitsByQName.values());
+    }
   }
 
   public CompilationUnit getCompilationUnit(String qname) {
-    CompilationUnit compilationUnit = compilationUnitsByQName.get(qname);
+    CompilationUnit compilationUnit = getRegisteredCompilationUnit(qname);
     if (compilationUnit == null) {
       // The compilation unit has not yet been parsed.
       InputSource source = findSource(qname);
@@ -305,7 +478,7 @@ public class JangarooParser implements CompilationUnitResolver, CompilationUnitR
     }
 
     // fast path for MXML, so they don't get scoped too early:
-    CompilationUnit compilationUnit = compilationUnitsByQName.get(name);
+    CompilationUnit compilationUnit = getRegisteredCompilationUnit(name);
     if (compilationUnit == null) {
       // The compilation unit has not yet been parsed.
       InputSource source = findSource(name);
@@ -330,6 +503,10 @@ public class JangarooParser implements CompilationUnitResolver, CompilationUnitR
     return compilationUnit;
   }
 
+  public TypeHierarchyIndex getTypeHierarchyIndex() {
+    return typeHierarchyIndex;
+  }
+
   public MxmlComponentRegistry getMxmlComponentRegistry() {
     return mxmlComponentRegistry;
   }
@@ -363,6 +540,84 @@ public class JangarooParser implements CompilationUnitResolver, CompilationUnitR
     defaultLog.remove();
   }
 
+  public InputSource getSourcePathInputSource() {
+    return sourcePathInputSource;
+  }
+
+  public InputSource getClassPathInputSource() {
+    return classPathInputSource;
+  }
+
+  /**
+   * Forget all compilation units read from the source path, so that the next compilation parses them again,
+   * while units imported from the class path stay registered and scoped.
+   * Class path units that (transitively) depend on a source path unit are forgotten, too, because their
+   * resolved declarations, memoized type hierarchies and memoized names may refer to the discarded units.
+   */
+  protected void removeSourcePathUnits() {
+    synchronized (scopeLock) {
+      Set<InputSource> removedSources = new HashSet<>();
+      Set<String> removedQNames = new HashSet<>();
+      for (Map.Entry<InputSource, CompilationUnit> entry : compilationUnitsByInputSource.entrySet()) {
+        if (entry.getKey().isInSourcePath()) {
+          removedSources.add(entry.getKey());
+          removedQNames.add(entry.getValue().getPrimaryDeclaration().getQualifiedNameStr());
+        }
+      }
+      boolean changed = !removedSources.isEmpty();
+      while (changed) {
+        changed = false;
+        for (Map.Entry<InputSource, CompilationUnit> entry : compilationUnitsByInputSource.entrySet()) {
+          if (!removedSources.contains(entry.getKey())
+                  && !Collections.disjoint(entry.getValue().getCompileDependencies(), removedQNames)) {
+            removedSources.add(entry.getKey());
+            removedQNames.add(entry.getValue().getPrimaryDeclaration().getQualifiedNameStr());
+            changed = true;
+          }
+        }
+      }
+      Set<CompilationUnit> removedUnits = new HashSet<>();
+      for (InputSource removedSource : removedSources) {
+        removedUnits.add(compilationUnitsByInputSource.remove(removedSource));
+        scopedCompilationUnitsByInputSource.remove(removedSource);
+      }
+      parseTasksByInputSource.keySet().removeIf(InputSource::isInSourcePath);
+      compilationUnitsByQName.values().removeAll(removedUnits);
+      scopedCompilationUnitsByQName.values().removeAll(removedUnits);
+      inputSourceByCompilationUnit.keySet().removeAll(removedUnits);
+    }
+  }
+
+  /**
+   * Wrap the given task so that it runs with this parser's log as the default log of the executing thread.
+   * Use this for tasks handed to worker threads, so that static warnings still reach the right log.
+   *
+   * @param task the task to wrap
+   * @return a task that sets up and tears down the default log around the given task
+   */
+  protected <T> Callable<T> withDefaultLog(final Callable<T> task) {
+    return () -> {
+      defaultLog.set(log);
+      try {
+        return task.call();
+      } finally {
+        defaultLog.remove();
+      }
+    };
+  }
+
+  /**
+   * Run the given action while holding the lock under which compilation units are imported and scoped,
+   * so that it may import further units without risking a deadlock with concurrent imports.
+   *
+   * @param action the action to run
+   */
+  public void withScopeLock(Runnable action) {
+    synchronized (scopeLock) {
+      action.run();
+    }
+  }
+
   public InputSource getInputSource(final CompilationUnit compilationUnit) {
     return inputSourceByCompilationUnit.get(compilationUnit);
   }
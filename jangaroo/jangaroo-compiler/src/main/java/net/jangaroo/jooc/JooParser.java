@@ -180,10 +180,22 @@ public class JooParser extends parser {
     //if that fails, unrecovered_syntax_error() will be called and report the error
   }
 
+  /**
+   * Parse a fragment of code, like an MXML attribute value or script block, without wrapping it into a complete
+   * compilation unit. The scanner of this parser is reset onto the fragment and reused.
+   *
+   * @param fragmentSym the kind of fragment to parse, one of the <code>sym.*_FRAGMENT</code> tokens
+   * @param leadingWhitespace the white-space the first token of the fragment is preceded by
+   * @param code the code of the fragment
+   * @param line the 0-based line of the start of the fragment in its input source
+   * @param column the 0-based column of the start of the fragment in its input source
+   * @return the result symbol, whose value is the AST of the fragment
+   */
   @Nonnull
-  public Symbol parseEmbedded(String string, int line, int column) {
-    Reader reader = new StringReader(string);
-    scanner.prepareEmbedded(reader, line, column);
+  public Symbol parseFragment(int fragmentSym, String leadingWhitespace, String code, int line, int column) {
+    Reader reader = new StringReader(code);
+    scanner.prepareFragment(reader, line, column, fragmentSym, leadingWhitespace);
+    eofSeen = false;
     try {
       return parse();
     } catch (RuntimeException e) {
@@ -17,6 +17,7 @@ package net.jangaroo.jooc;
 
 import net.jangaroo.jooc.api.CompilationResult;
 import net.jangaroo.jooc.api.CompileLog;
+import net.jangaroo.jooc.ast.ClassDeclaration;
 import net.jangaroo.jooc.ast.CompilationUnit;
 import net.jangaroo.jooc.ast.IdeDeclaration;
 import net.jangaroo.jooc.ast.TransitiveAstVisitor;
@@ -54,11 +55,17 @@ import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 /**
@@ -123,13 +130,16 @@ public class Jooc extends JangarooParser implements net.jangaroo.jooc.api.Jooc {
   public static final String TS_SUFFIX = ".ts";
   public static final String D_TS_SUFFIX = ".d" + TS_SUFFIX;
 
-  private final DependencyWarningsManager dependencyWarningsManager;
+  private DependencyWarningsManager dependencyWarningsManager;
 
   public static String getOutputSuffix(boolean isMigrateToTypeScript) {
     return isMigrateToTypeScript ? TS_SUFFIX : OUTPUT_FILE_SUFFIX;
   }
 
   private final List<FileInputSource> compileQueue = new ArrayList<>();
+  // the absolute files of all queued sources, to check quickly whether a dependent is already queued:
+  private final Set<File> queuedSourceFiles = new HashSet<>();
+  private boolean keepClassPathWarm;
 
   public Jooc() {
     this(new JoocConfiguration());
@@ -144,6 +154,19 @@ public class Jooc extends JangarooParser implements net.jangaroo.jooc.api.Jooc {
     dependencyWarningsManager = new DependencyWarningsManager();
   }
 
+  public boolean isKeepClassPathWarm() {
+    return keepClassPathWarm;
+  }
+
+  /**
+   * If set, subsequent runs of this compiler reuse the class path, all compilation units imported from it and
+   * the MXML components declared by its catalogs, and only re-read units from the source path.
+   * Only use this when the class path does not change between runs, like {@link JoocDaemon} does.
+   */
+  public void setKeepClassPathWarm(boolean keepClassPathWarm) {
+    this.keepClassPathWarm = keepClassPathWarm;
+  }
+
   @Override
   public JoocConfiguration getConfig() {
     return (JoocConfiguration) super.getConfig();
@@ -188,12 +211,12 @@ public class Jooc extends JangarooParser implements net.jangaroo.jooc.api.Jooc {
     }
   }
 
-  private void findUnusedDependencies(CompilationUnit compilationUnit, InputSource classPathInputSource) {
+  private void findUnusedDependencies(Collection<String> compileDependencies, InputSource classPathInputSource) {
     dependencyWarningsManager.loadInputSource(classPathInputSource);
-    dependencyWarningsManager.updateUsedCompileDependencies(compilationUnit.getCompileDependencies().stream()
+    dependencyWarningsManager.updateUsedCompileDependencies(compileDependencies.stream()
             .map(this::findSource)
+            .filter(Objects::nonNull)
             .map(InputSource::getPath)
-            .map(path -> path.split("!")[0])
             .distinct()
             .collect(Collectors.toList()));
   }
@@ -215,10 +238,11 @@ public class Jooc extends JangarooParser implements net.jangaroo.jooc.api.Jooc {
           "XML.as"
   );
 
-  private void checkUndeclaredDependencies(CompilationUnit compilationUnit) {
+  private void checkUndeclaredDependencies(Collection<String> compileDependencies, String usageName) {
 
-    List<String> usedUndeclaredDependencies = compilationUnit.getCompileDependencies().stream()
+    List<String> usedUndeclaredDependencies = compileDependencies.stream()
             .map(this::findSource)
+            .filter(Objects::nonNull)
             .filter(inputSource -> !IGNORE_DEPENDENCIES.contains(inputSource.getName()))
             .filter(inputSource -> !(inputSource.isInSourcePath() || inputSource.isInCompilePath()))
             .map(InputSource::getPath)
@@ -228,118 +252,216 @@ public class Jooc extends JangarooParser implements net.jangaroo.jooc.api.Jooc {
             .collect(Collectors.toList());
 
     usedUndeclaredDependencies.forEach(dependency ->
-            dependencyWarningsManager.addDependencyWarning(dependency, compilationUnit.getInputSource().getName())
+            dependencyWarningsManager.addDependencyWarning(dependency, usageName)
     );
   }
 
   private CompilationResult run1() {
+    String performanceReportOutputFile = getConfig().getPerformanceReportOutputFile();
+    CompilePerformanceReport performanceReport = new CompilePerformanceReport(performanceReportOutputFile != null);
+    setPerformanceReport(performanceReport);
+    // code generation threads add their output files concurrently:
+    Set<File> generatedFiles = ConcurrentHashMap.newKeySet();
+    try {
+      return compile(performanceReport, generatedFiles);
+    } finally {
+      // also report the phases completed so far when compilation failed:
+      if (performanceReportOutputFile != null) {
+        performanceReport.countBytesWritten(generatedFiles);
+        try {
+          performanceReport.write(new File(performanceReportOutputFile));
+        } catch (IOException e) {
+          log.warning("Could not write performance report to " + performanceReportOutputFile + ": " + e.getMessage());
+        }
+      }
+    }
+  }
+
+  private CompilationResult compile(CompilePerformanceReport performanceReport, Set<File> generatedFiles) {
     InputSource sourcePathInputSource;
     InputSource classPathInputSource;
-    try {
+    boolean reuseClassPath = keepClassPathWarm && getClassPathInputSource() != null;
+    try (CompilePerformanceReport.Measurement phase = performanceReport.measurePhase("classPathIndexing")) {
       String extNamespace = getConfig().getExtNamespace();
       sourcePathInputSource = PathInputSource.fromFiles(getConfig().getSourcePath(), new String[]{""}, true, extNamespace);
-      classPathInputSource = PathInputSource.createCompilePathAwareClassPath(getConfig().getClassPath(), new String[]{"", JOO_API_IN_SWC_DIRECTORY_PREFIX}, extNamespace, getConfig().getCompilePath());
+      classPathInputSource = reuseClassPath ? getClassPathInputSource()
+              : PathInputSource.createCompilePathAwareClassPath(getConfig().getClassPath(), new String[]{"", JOO_API_IN_SWC_DIRECTORY_PREFIX}, extNamespace, getConfig().getCompilePath());
     } catch (IOException e) {
       throw new CompilerError("IO Exception occurred", e);
     }
 
-    setUp(sourcePathInputSource, classPathInputSource);
-
     HashMap<File, File> outputFileMap = new HashMap<>();
+    ExecutorService executor = null;
     try {
-      setUpMxmlComponentRegistry(sourcePathInputSource, classPathInputSource);
-      for (File sourceFile : getConfig().getSourceFiles()) {
-        processSource(sourceFile);
+      File apiCacheDirectory = getConfig().getApiCacheDirectory();
+      try (CompilePerformanceReport.Measurement phase = performanceReport.measurePhase("setUp")) {
+        if (reuseClassPath) {
+          removeSourcePathUnits();
+          dependencyWarningsManager = new DependencyWarningsManager();
+        }
+
+        setUp(sourcePathInputSource, classPathInputSource);
+        // API stubs drop ASDoc, which TypeScript migration still needs for class path units:
+        setApiStubCache(apiCacheDirectory != null && !getConfig().isMigrateToTypeScript()
+                ? new ApiStubCache(apiCacheDirectory) : null);
+        executor = createExecutor();
+        setUpMxmlComponentRegistry(sourcePathInputSource, classPathInputSource, !reuseClassPath);
       }
 
-      CompilationUnitSinkFactory codeSinkFactory = createSinkFactory(getConfig(), null);
-      CompilationUnitSinkFactory dTsSinkFactory = createSinkFactory(getConfig(), D_TS_SUFFIX);
-      CompilationUnitSinkFactory apiSinkFactory = createSinkFactory(getConfig(), AS_SUFFIX);
-      ImplementedMembersAnalyzer implementedMembersAnalyzer = new ImplementedMembersAnalyzer(this);
-      for (InputSource inputSource : compileQueue) {
-        CompilationUnit unit = importSource(inputSource);
-        if (unit != null) {
-          checkValidFileName(unit);
-          unit.analyze(null);
-          if (getConfig().isFindUnusedDependencies()) {
-            findUnusedDependencies(unit, classPathInputSource);
+      IncrementalBuildState buildState;
+      CompilationUnitSinkFactory codeSinkFactory;
+      CompilationUnitSinkFactory dTsSinkFactory;
+      CompilationUnitSinkFactory apiSinkFactory;
+      ImplementedMembersAnalyzer implementedMembersAnalyzer;
+      try (CompilePerformanceReport.Measurement phase = performanceReport.measurePhase("parseSources")) {
+        if (executor == null) {
+          for (File sourceFile : getConfig().getSourceFiles()) {
+            processSource(sourceFile);
           }
-          checkUndeclaredDependencies(unit);
-          if (getConfig().getPublicApiViolationsMode() != PublicApiViolationsMode.ALLOW) {
-            reportPublicApiViolations(unit);
+        } else {
+          processSources(getConfig().getSourceFiles(), executor);
+        }
+        buildState = createIncrementalBuildState();
+        if (buildState != null) {
+          for (String deletedQName : buildState.removeDeletedUnits()) {
+            queueDependentSources(buildState, deletedQName);
           }
-
-          implementedMembersAnalyzer.analyzeImplementedMembers(unit);
-
-          TypeChecker typeChecker = new TypeChecker(log);
-          unit.visit(new TransitiveAstVisitor(typeChecker));
         }
-      }
 
-      if (!dependencyWarningsManager.getDependencyWarnings().isEmpty()) {
-        List<String> lines = new ArrayList<>();
-        dependencyWarningsManager.getDependencyWarnings()
-                .forEach(dependencyWarning -> {
-                  lines.add(String.format("Undeclared dependency %s was used by:", Paths.get(dependencyWarning.getDependency()).getFileName()));
-                  dependencyWarning.getUsages().forEach(s -> lines.add("    " + s));
-                });
-        getLog().warning(String.join("\n", lines));
+        codeSinkFactory = createSinkFactory(getConfig(), null);
+        dTsSinkFactory = createSinkFactory(getConfig(), D_TS_SUFFIX);
+        apiSinkFactory = createSinkFactory(getConfig(), AS_SUFFIX);
+        implementedMembersAnalyzer = new ImplementedMembersAnalyzer(this);
       }
 
-      for (InputSource source : compileQueue) {
-        File sourceFile = ((FileInputSource) source).getFile();
-        File outputFile = null;
-        try {
-          String sourceName = source.getName();
-          boolean isPropertiesSource = sourceName.endsWith(PROPERTIES_SUFFIX);
-          CompilationUnit unit = importSource(source);
+      // class path units are parsed and scoped on demand, so most of that happens during analysis:
+      try (CompilePerformanceReport.Measurement phase = performanceReport.measurePhase("analysis")) {
+        // compile queue may grow while iterating, when dependents of units with a changed API are added:
+        for (int i = 0; i < compileQueue.size(); i++) {
+          FileInputSource inputSource = compileQueue.get(i);
+          CompilationUnit unit = importSource(inputSource);
           if (unit != null) {
-            final IdeDeclaration primaryDeclaration = unit.getPrimaryDeclaration();
-            CompilationUnitSinkFactory currentCodeSinkFactory = codeSinkFactory;
-            boolean generatesCode;
-            if (!getConfig().isMigrateToTypeScript()) {
-              generatesCode = JsCodeGenerator.generatesCode(primaryDeclaration);
-            } else {
-              generatesCode = TypeScriptCodeGenerator.generatesCode(primaryDeclaration);
-              if (generatesCode && TypeScriptModuleResolver.getNonRequireNativeName(primaryDeclaration) != null) {
-                currentCodeSinkFactory = dTsSinkFactory;
-              }
+            checkValidFileName(unit);
+            try (CompilePerformanceReport.Measurement ignored = performanceReport.measure(CompilePerformanceReport.Activity.ANALYZE, inputSource)) {
+              unit.analyze(null);
+            }
+            if (getConfig().isFindUnusedDependencies() && buildState == null) {
+              findUnusedDependencies(unit.getCompileDependencies(), classPathInputSource);
             }
-            if (generatesCode) {
-              outputFile = writeOutput(sourceFile, unit, currentCodeSinkFactory, getConfig().isVerbose());
+            if (buildState == null) {
+              checkUndeclaredDependencies(unit.getCompileDependencies(), unit.getInputSource().getName());
             }
-            if (getConfig().isGenerateApi()) {
-              writeOutput(sourceFile, unit, apiSinkFactory, getConfig().isVerbose());
-              if (isPropertiesSource && isDefaultLocale(sourceName)) {
-                // copy default locale properties to joo-api so Idea can find them
-                File apiOutputDirectory = getConfig().getApiOutputDirectory();
-                String relativeSourcePath = source.getRelativePath();
-                File apiFile = new File(apiOutputDirectory, relativeSourcePath);
-                Files.copy(sourceFile.toPath(), apiFile.toPath(),
-                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
-              }
+            if (getConfig().getPublicApiViolationsMode() != PublicApiViolationsMode.ALLOW) {
+              reportPublicApiViolations(unit);
+            }
+
+            try (CompilePerformanceReport.Measurement ignored = performanceReport.measure(CompilePerformanceReport.Activity.IMPLEMENTED_MEMBERS, inputSource)) {
+              implementedMembersAnalyzer.analyzeImplementedMembers(unit);
+            }
+
+            try (CompilePerformanceReport.Measurement ignored = performanceReport.measure(CompilePerformanceReport.Activity.TYPE_CHECK, inputSource)) {
+              TypeChecker typeChecker = new TypeChecker(log);
+              unit.visit(new TransitiveAstVisitor(typeChecker));
+            }
+
+            if (buildState != null) {
+              updateIncrementalBuildState(buildState, inputSource, unit);
             }
           }
-        } catch (IOException e) {
-          getLog().error(fileToSymbol(sourceFile), e.getClass().getName() + ": " + e.getMessage());
         }
-        outputFileMap.put(sourceFile, outputFile); // always map source file, even if output file is null!
+
+        if (getConfig().isFindUnusedDependencies() && buildState != null) {
+          // take into account the dependencies of all units, not only of those recompiled by this build:
+          findUnusedDependencies(buildState.getAllDependencies(), classPathInputSource);
+        }
+        if (buildState != null) {
+          // report the undeclared dependencies of all units, too, so that the report of the previous build is kept:
+          buildState.getDependenciesBySourceFile().forEach((sourceFile, dependencies) ->
+                  checkUndeclaredDependencies(dependencies, sourceFile.getName()));
+        }
+
+        if (!dependencyWarningsManager.getDependencyWarnings().isEmpty()) {
+          List<String> lines = new ArrayList<>();
+          dependencyWarningsManager.getDependencyWarnings()
+                  .forEach(dependencyWarning -> {
+                    lines.add(String.format("Undeclared dependency %s was used by:", Paths.get(dependencyWarning.getDependency()).getFileName()));
+                    dependencyWarning.getUsages().forEach(s -> lines.add("    " + s));
+                  });
+          getLog().warning(String.join("\n", lines));
+        }
       }
 
+      try (CompilePerformanceReport.Measurement phase = performanceReport.measurePhase("codeGeneration")) {
+        try {
+          List<CompilationUnit> units = new ArrayList<>(compileQueue.size());
+          for (FileInputSource source : compileQueue) {
+            CompilationUnit unit = importSource(source);
+            if (unit != null && executor != null) {
+              importCompileDependencies(unit);
+            }
+            units.add(unit);
+          }
+          GeneratedUnitReleaser unitReleaser = getConfig().isReleaseGeneratedAsts()
+                  ? new GeneratedUnitReleaser(units, getCompilationUnits()) : null;
+          List<Future<File>> outputFiles = new ArrayList<>(compileQueue.size());
+          for (int i = 0; i < compileQueue.size(); i++) {
+            FileInputSource source = compileQueue.get(i);
+            CompilationUnit unit = units.get(i);
+            CompilationUnitSinkFactory currentCodeSinkFactory = unit == null ? null
+                    : getCodeSinkFactory(unit, codeSinkFactory, dTsSinkFactory);
+            if (executor == null || currentCodeSinkFactory instanceof MergedOutputCompilationUnitSinkFactory) {
+              // merged output is appended in compile queue order, so it is always written by this thread:
+              outputFiles.add(CompletableFuture.completedFuture(
+                      generateOutput(source, unit, currentCodeSinkFactory, apiSinkFactory, unitReleaser, generatedFiles)));
+            } else {
+              outputFiles.add(executor.submit(withDefaultLog(
+                      () -> generateOutput(source, unit, currentCodeSinkFactory, apiSinkFactory, unitReleaser, generatedFiles))));
+            }
+          }
+          for (int i = 0; i < compileQueue.size(); i++) {
+            // always map source file, even if output file is null!
+            outputFileMap.put(compileQueue.get(i).getFile(), awaitResult(outputFiles.get(i)));
+          }
+        } finally {
+          // flush and release merged output files, even if code generation failed:
+          closeSinkFactories(codeSinkFactory, dTsSinkFactory, apiSinkFactory);
+        }
+      }
       compileQueue.clear();
+      queuedSourceFiles.clear();
 
-      copySassFiles();
+      try (CompilePerformanceReport.Measurement phase = performanceReport.measurePhase("sassCopy")) {
+        copySassFiles();
+      }
 
-      if (getConfig().getDependencyReportOutputFile() != null) {
-        File dependencyWarningsFile = new File(getConfig().getDependencyReportOutputFile());
-        if (!dependencyWarningsFile.getParentFile().exists()) {
-          dependencyWarningsFile.getParentFile().mkdirs();
+      try (CompilePerformanceReport.Measurement phase = performanceReport.measurePhase("finish")) {
+        if (getApiStubCache() != null) {
+          try {
+            getApiStubCache().flush();
+          } catch (IOException e) {
+            getLog().warning("Could not update API stub cache in " + apiCacheDirectory + ": " + e.getMessage());
+          }
         }
-        if (!dependencyWarningsFile.exists()) {
-          dependencyWarningsFile.createNewFile();
+
+        if (buildState != null && !log.hasErrors()) {
+          try {
+            buildState.write();
+          } catch (IOException e) {
+            getLog().warning("Could not write incremental build state to " + getConfig().getIncrementalBuildStateFile() + ": " + e.getMessage());
+          }
         }
-        try (FileWriter fileWriter = new FileWriter(dependencyWarningsFile)) {
-          fileWriter.write(dependencyWarningsManager.createFileString());
+
+        if (getConfig().getDependencyReportOutputFile() != null) {
+          File dependencyWarningsFile = new File(getConfig().getDependencyReportOutputFile());
+          if (!dependencyWarningsFile.getParentFile().exists()) {
+            dependencyWarningsFile.getParentFile().mkdirs();
+          }
+          if (!dependencyWarningsFile.exists()) {
+            dependencyWarningsFile.createNewFile();
+          }
+          try (FileWriter fileWriter = new FileWriter(dependencyWarningsFile)) {
+            fileWriter.write(dependencyWarningsManager.createFileString());
+          }
         }
       }
 
@@ -348,10 +470,99 @@ public class Jooc extends JangarooParser implements net.jangaroo.jooc.api.Jooc {
     } catch (IOException e) {
       throw new CompilerError(e.getClass().getName() + ": " + e.getMessage(), e);
     } finally {
+      if (executor != null) {
+        executor.shutdownNow();
+      }
       tearDown();
     }
   }
 
+  /**
+   * Import all compile dependencies of the given unit. Code generators look up the declarations of these units,
+   * which imports them on demand. Doing so before code is generated concurrently keeps the order in which units
+   * are imported, and thus the generated output, independent of thread scheduling.
+   * Anything code generators compute lazily after that is either memoized in immutable, safely published form
+   * (qualified names, type hierarchies, annotation indexes) or computed under the scope lock (signatures of class
+   * path functions), and code generators only modify the AST of the unit they generate.
+   */
+  private void importCompileDependencies(CompilationUnit unit) {
+    for (String dependency : unit.getCompileDependencies()) {
+      getCompilationUnit(dependency);
+    }
+  }
+
+  private ExecutorService createExecutor() {
+    int threads = getConfig().getThreads();
+    if (threads <= 0) {
+      threads = Runtime.getRuntime().availableProcessors();
+    }
+    return threads == 1 ? null : Executors.newFixedThreadPool(threads);
+  }
+
+  private static void closeSinkFactories(CompilationUnitSinkFactory... sinkFactories) throws IOException {
+    for (CompilationUnitSinkFactory sinkFactory : sinkFactories) {
+      if (sinkFactory != null) {
+        sinkFactory.close();
+      }
+    }
+  }
+
+  private CompilationUnitSinkFactory getCodeSinkFactory(CompilationUnit unit,
+                                                        CompilationUnitSinkFactory codeSinkFactory,
+                                                        CompilationUnitSinkFactory dTsSinkFactory) {
+    IdeDeclaration primaryDeclaration = unit.getPrimaryDeclaration();
+    if (!getConfig().isMigrateToTypeScript()) {
+      return JsCodeGenerator.generatesCode(primaryDeclaration) ? codeSinkFactory : null;
+    }
+    if (!TypeScriptCodeGenerator.generatesCode(primaryDeclaration)) {
+      return null;
+    }
+    return TypeScriptModuleResolver.getNonRequireNativeName(primaryDeclaration) != null ? dTsSinkFactory : codeSinkFactory;
+  }
+
+  private File generateOutput(FileInputSource source, CompilationUnit unit,
+                              CompilationUnitSinkFactory codeSinkFactory, CompilationUnitSinkFactory apiSinkFactory,
+                              GeneratedUnitReleaser unitReleaser, Set<File> generatedFiles) {
+    File sourceFile = source.getFile();
+    File outputFile = null;
+    try {
+      String sourceName = source.getName();
+      boolean isPropertiesSource = sourceName.endsWith(PROPERTIES_SUFFIX);
+      if (unit != null) {
+        if (codeSinkFactory != null) {
+          try (CompilePerformanceReport.Measurement ignored = getPerformanceReport().measure(CompilePerformanceReport.Activity.CODE_GENERATION, source)) {
+            outputFile = writeOutput(sourceFile, unit, codeSinkFactory, getConfig().isVerbose());
+          }
+          if (outputFile != null) {
+            generatedFiles.add(outputFile);
+          }
+        }
+        if (getConfig().isGenerateApi()) {
+          try (CompilePerformanceReport.Measurement ignored = getPerformanceReport().measure(CompilePerformanceReport.Activity.API_GENERATION, source)) {
+            File apiOutputFile = writeOutput(sourceFile, unit, apiSinkFactory, getConfig().isVerbose());
+            if (apiOutputFile != null) {
+              generatedFiles.add(apiOutputFile);
+            }
+          }
+          if (isPropertiesSource && isDefaultLocale(sourceName)) {
+            // copy default locale properties to joo-api so Idea can find them
+            File apiOutputDirectory = getConfig().getApiOutputDirectory();
+            String relativeSourcePath = source.getRelativePath();
+            File apiFile = new File(apiOutputDirectory, relativeSourcePath);
+            Files.copy(sourceFile.toPath(), apiFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+          }
+        }
+        if (unitReleaser != null) {
+          unitReleaser.unitGenerated(unit);
+        }
+      }
+    } catch (IOException e) {
+      getLog().error(fileToSymbol(sourceFile), e.getClass().getName() + ": " + e.getMessage());
+    }
+    return outputFile;
+  }
+
   private boolean isDefaultLocale(String sourceName) {
     return sourceName.indexOf('_') < 0;
   }
@@ -378,14 +589,16 @@ public class Jooc extends JangarooParser implements net.jangaroo.jooc.api.Jooc {
     }
   }
 
-  private void setUpMxmlComponentRegistry(InputSource sourcePathInputSource, InputSource classPathInputSource)
-          throws IOException {
-    // scan classpath for catalog.xml-s:
-    List<InputSource> children = classPathInputSource.getChildren("catalog.xml");
-    CatalogComponentsParser catalogParser =
-            new CatalogComponentsParser(getMxmlComponentRegistry());
-    for (InputSource child : children) {
-      catalogParser.parse(child.getInputStream());
+  private void setUpMxmlComponentRegistry(InputSource sourcePathInputSource, InputSource classPathInputSource,
+                                          boolean scanClassPath) throws IOException {
+    if (scanClassPath) {
+      // scan classpath for catalog.xml-s:
+      List<InputSource> children = classPathInputSource.getChildren("catalog.xml");
+      CatalogComponentsParser catalogParser =
+              new CatalogComponentsParser(getMxmlComponentRegistry());
+      for (InputSource child : children) {
+        catalogParser.parse(child.getInputStream());
+      }
     }
 
     // find manifest.xml for this module's component definitions:
@@ -501,9 +714,70 @@ public class Jooc extends JangarooParser implements net.jangaroo.jooc.api.Jooc {
 //    }
     FileInputSource inputSource = new FileInputSource(sourceDir, file, true, getConfig().getExtNamespace());
     compileQueue.add(inputSource);
+    queuedSourceFiles.add(file.getAbsoluteFile());
     importSource(inputSource);
   }
 
+  private void processSources(List<File> files, ExecutorService executor) throws IOException {
+    List<Future<CompilationUnit>> parsedUnits = new ArrayList<>(files.size());
+    for (File file : files) {
+      if (file.isDirectory()) {
+        throw error("Input file is a directory.", file);
+      }
+      FileInputSource inputSource = new FileInputSource(getConfig().findSourceDir(file), file, true, getConfig().getExtNamespace());
+      compileQueue.add(inputSource);
+      queuedSourceFiles.add(file.getAbsoluteFile());
+      parsedUnits.add(executor.submit(withDefaultLog(() -> parse(inputSource))));
+    }
+    // register and scope in source file order, so that the result does not depend on thread scheduling:
+    for (int i = 0; i < compileQueue.size(); i++) {
+      importSource(compileQueue.get(i), awaitResult(parsedUnits.get(i)));
+    }
+  }
+
+  private IncrementalBuildState createIncrementalBuildState() {
+    File buildStateFile = getConfig().getIncrementalBuildStateFile();
+    if (buildStateFile == null) {
+      return null;
+    }
+    try {
+      return new IncrementalBuildState(buildStateFile);
+    } catch (IOException e) {
+      getLog().warning("Could not read incremental build state from " + buildStateFile + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  private void updateIncrementalBuildState(IncrementalBuildState buildState, FileInputSource inputSource,
+                                           CompilationUnit unit) throws IOException {
+    String qName = unit.getQualifiedNameStr();
+    String apiFingerprint = IncrementalBuildState.computeApiFingerprint(unit);
+    if (buildState.hasApiChanged(qName, apiFingerprint)) {
+      queueDependentSources(buildState, qName);
+    }
+    List<String> superTypes = new ArrayList<>();
+    if (unit.getPrimaryDeclaration() instanceof ClassDeclaration) {
+      for (ClassDeclaration superTypeDeclaration : ((ClassDeclaration) unit.getPrimaryDeclaration()).getSuperTypeDeclarations()) {
+        if (superTypeDeclaration != null) {
+          superTypes.add(superTypeDeclaration.getQualifiedNameStr());
+        }
+      }
+    }
+    buildState.update(qName, inputSource.getFile(), apiFingerprint, unit.getCompileDependencies(), superTypes);
+  }
+
+  /**
+   * Add all source files that depended on the given unit in the previous build to the compile queue,
+   * unless they are already queued.
+   */
+  private void queueDependentSources(IncrementalBuildState buildState, String qName) throws IOException {
+    for (File dependentSourceFile : buildState.getDependentSourceFiles(qName)) {
+      if (!queuedSourceFiles.contains(dependentSourceFile) && dependentSourceFile.isFile()) {
+        processSource(dependentSourceFile);
+      }
+    }
+  }
+
   protected void copySassFiles() throws IOException {
     String extSassNamespace = getConfig().getExtSassNamespace();
     for (String sassSourceSubFolderName : getConfig().getSassSourceFilesByType().keySet()) {
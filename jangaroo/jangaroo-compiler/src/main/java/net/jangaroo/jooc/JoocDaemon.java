@@ -0,0 +1,471 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.api.CompilationResult;
+import net.jangaroo.jooc.api.CompileLog;
+import net.jangaroo.jooc.cli.CommandLineParseException;
+import net.jangaroo.jooc.cli.JoocCommandLineParser;
+import net.jangaroo.jooc.config.JoocConfiguration;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * A resident Jangaroo compiler that keeps class path compilation units warm between compilations.
+ * <p>Compilations with the same source path, class path and parser options share one {@link Jooc} instance,
+ * so that class path archives are opened and their compilation units are parsed and scoped only once.
+ * As soon as a class path archive or directory changes, the warm compiler for that class path is discarded.
+ * Compilations with different class paths run concurrently.</p>
+ * <p>Use {@link #compile(JoocConfiguration, CompileLog)} in-process, or run {@link #main(String[])} to accept
+ * compile requests from {@link JoocDaemonClient} on a loopback port. The daemon writes its port and a random
+ * token to a daemon file only readable by the current user, see {@link #serve(File, int)}.
+ * A request consists of the token, the number of jooc command line arguments and the arguments, one per line.
+ * The daemon answers with one line per log message, prefixed by {@link #ERROR_PREFIX} or {@link #WARNING_PREFIX},
+ * followed by a line starting with {@link #RESULT_PREFIX} and the result code. Line breaks inside arguments and
+ * messages are escaped as <code>\n</code>. File names given as relative paths are resolved against the daemon's
+ * working directory.</p>
+ */
+public class JoocDaemon {
+
+  public static final int DEFAULT_MAX_WARM_COMPILERS = 4;
+  public static final File DEFAULT_DAEMON_FILE = new File(System.getProperty("user.home"), ".jangaroo/jooc-daemon");
+  static final String ERROR_PREFIX = "E ";
+  static final String WARNING_PREFIX = "W ";
+  static final String RESULT_PREFIX = "R ";
+  private static final int TOKEN_BYTES = 32;
+  private static final int REQUEST_TIMEOUT_MILLIS = 60000;
+
+  private static JoocDaemon sharedInstance;
+
+  private final Map<List<Object>, WarmCompiler> warmCompilers;
+  private volatile ServerSocket serverSocket;
+
+  public JoocDaemon() {
+    this(DEFAULT_MAX_WARM_COMPILERS);
+  }
+
+  /**
+   * @param maxWarmCompilers how many compilers with different class paths to keep;
+   *                         when exceeded, the least recently used one is discarded
+   */
+  public JoocDaemon(final int maxWarmCompilers) {
+    warmCompilers = new LinkedHashMap<List<Object>, WarmCompiler>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<List<Object>, WarmCompiler> eldest) {
+        if (size() > maxWarmCompilers) {
+          eldest.getValue().discard();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * The daemon shared by all in-process clients of this class loader, like the Maven compiler mojos.
+   */
+  public static synchronized JoocDaemon getSharedInstance() {
+    if (sharedInstance == null) {
+      sharedInstance = new JoocDaemon();
+    }
+    return sharedInstance;
+  }
+
+  /**
+   * Compile the source files of the given configuration, reusing a warm compiler for the same class path
+   * if available. Compilations that share a warm compiler run one after the other, all others concurrently.
+   *
+   * @param config the compiler configuration
+   * @param log the log for this compilation
+   * @return the compilation result
+   */
+  public CompilationResult compile(JoocConfiguration config, CompileLog log) {
+    List<Object> key = getCompilerKey(config);
+    WarmCompiler warmCompiler;
+    synchronized (warmCompilers) {
+      warmCompiler = warmCompilers.get(key);
+      if (warmCompiler == null || warmCompiler.classPathWatcher.hasChanged()) {
+        if (warmCompiler != null) {
+          warmCompiler.discard();
+        }
+        Jooc jooc = new Jooc(config, log);
+        jooc.setKeepClassPathWarm(true);
+        warmCompiler = new WarmCompiler(jooc, new ClassPathWatcher(config.getClassPath()));
+        warmCompilers.put(key, warmCompiler);
+      }
+      warmCompiler.acquire();
+    }
+    try {
+      CompilationResult result = warmCompiler.run(config, log);
+      if (result.getResultCode() == CompilationResult.RESULT_CODE_INTERNAL_COMPILER_ERROR) {
+        // do not trust the state of a compiler that crashed:
+        synchronized (warmCompilers) {
+          warmCompilers.remove(key, warmCompiler);
+        }
+        warmCompiler.discard();
+      }
+      return result;
+    } finally {
+      warmCompiler.release();
+    }
+  }
+
+  /**
+   * Discard all warm compilers and release the class path archives they keep open.
+   */
+  public void discardWarmCompilers() {
+    synchronized (warmCompilers) {
+      for (WarmCompiler warmCompiler : warmCompilers.values()) {
+        warmCompiler.discard();
+      }
+      warmCompilers.clear();
+    }
+  }
+
+  /**
+   * All options that influence which units are found on the class path and how they are parsed and scoped.
+   */
+  private static List<Object> getCompilerKey(JoocConfiguration config) {
+    return Arrays.asList(
+            config.getSourcePath(),
+            config.getClassPath(),
+            config.getCompilePath(),
+            config.getExtNamespace(),
+            config.getSemicolonInsertionMode(),
+            config.isMigrateToTypeScript(),
+            config.getApiCacheDirectory()
+    );
+  }
+
+  /**
+   * Serve compile requests on the given loopback port until {@link #stop()} is called or the process is terminated.
+   * Before accepting requests, the port and a random token are written to the given daemon file, which only the
+   * current user may read. Clients have to send that token with every request, see {@link JoocDaemonClient}.
+   *
+   * @param daemonFile the file to write the port and the token to
+   * @param port the port to listen on, or 0 to use any free port
+   */
+  public void serve(File daemonFile, int port) throws IOException {
+    String token = createToken();
+    ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "jooc-daemon-request");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try (ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+      this.serverSocket = serverSocket;
+      writeDaemonFile(daemonFile, serverSocket.getLocalPort(), token);
+      System.out.println("jooc daemon listening on port " + serverSocket.getLocalPort()); // NOSONAR this is a cmd line tool
+      while (!serverSocket.isClosed()) {
+        Socket socket;
+        try {
+          socket = serverSocket.accept();
+        } catch (SocketException e) {
+          // closed by stop()
+          break;
+        }
+        executor.execute(() -> {
+          try (Socket requestSocket = socket) {
+            handleRequest(requestSocket, token);
+          } catch (IOException e) {
+            System.err.println("jooc daemon: could not handle request: " + e.getMessage()); // NOSONAR this is a cmd line tool
+          }
+        });
+      }
+    } finally {
+      this.serverSocket = null;
+      executor.shutdown();
+      Files.deleteIfExists(daemonFile.toPath());
+      discardWarmCompilers();
+    }
+  }
+
+  /**
+   * Stop serving requests, see {@link #serve(File, int)}. Requests already accepted are still answered.
+   */
+  public void stop() throws IOException {
+    ServerSocket currentServerSocket = serverSocket;
+    if (currentServerSocket != null) {
+      currentServerSocket.close();
+    }
+  }
+
+  private static String createToken() {
+    byte[] tokenBytes = new byte[TOKEN_BYTES];
+    new SecureRandom().nextBytes(tokenBytes);
+    StringBuilder token = new StringBuilder(2 * TOKEN_BYTES);
+    for (byte b : tokenBytes) {
+      token.append(String.format("%02x", b));
+    }
+    return token.toString();
+  }
+
+  private static void writeDaemonFile(File daemonFile, int port, String token) throws IOException {
+    Path daemonPath = daemonFile.getAbsoluteFile().toPath();
+    Files.createDirectories(daemonPath.getParent());
+    // write to a file only the current user can access, then move it into place:
+    Path tempPath = daemonPath.resolveSibling(daemonPath.getFileName() + ".tmp");
+    Files.deleteIfExists(tempPath);
+    if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+      Files.createFile(tempPath, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+    } else {
+      File tempFile = Files.createFile(tempPath).toFile();
+      if (!(tempFile.setReadable(false, false) && tempFile.setReadable(true, true)
+              && tempFile.setWritable(false, false) && tempFile.setWritable(true, true))) {
+        Files.delete(tempPath);
+        throw new IOException("cannot restrict access to daemon file " + tempPath);
+      }
+    }
+    Files.write(tempPath, Arrays.asList(String.valueOf(port), token), StandardCharsets.UTF_8);
+    Files.move(tempPath, daemonPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void handleRequest(Socket socket, String token) throws IOException {
+    socket.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+    BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    final PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)));
+    String requestToken = in.readLine();
+    if (requestToken == null || !MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+            requestToken.getBytes(StandardCharsets.UTF_8))) {
+      // do not tell unauthorized clients anything:
+      return;
+    }
+    List<String> args = readArguments(in);
+    socket.setSoTimeout(0);
+    CompileLog log = new AbstractCompileLog() {
+      @Override
+      protected void doLogError(String msg) {
+        out.println(ERROR_PREFIX + escape(msg));
+      }
+
+      @Override
+      public void warning(String msg) {
+        out.println(WARNING_PREFIX + escape(msg));
+      }
+    };
+    int resultCode;
+    try {
+      JoocConfiguration config = new JoocCommandLineParser().parse(args.toArray(new String[0]));
+      resultCode = config == null ? CompilationResult.RESULT_CODE_OK : compile(config, log).getResultCode();
+    } catch (CommandLineParseException e) {
+      log.error(e.getMessage());
+      resultCode = e.getExitCode();
+    } catch (IllegalArgumentException e) {
+      log.error(e.getMessage());
+      resultCode = CompilationResult.RESULT_CODE_ILLEGAL_OPTION_VALUE;
+    }
+    out.println(RESULT_PREFIX + resultCode);
+    out.flush();
+  }
+
+  private static List<String> readArguments(BufferedReader in) throws IOException {
+    String argumentCountLine = in.readLine();
+    int argumentCount;
+    try {
+      argumentCount = argumentCountLine == null ? -1 : Integer.parseInt(argumentCountLine);
+    } catch (NumberFormatException e) {
+      argumentCount = -1;
+    }
+    if (argumentCount < 0) {
+      throw new IOException("malformed request: expected number of arguments, found " + argumentCountLine);
+    }
+    List<String> args = new ArrayList<>(argumentCount);
+    for (int i = 0; i < argumentCount; i++) {
+      String line = in.readLine();
+      if (line == null) {
+        throw new IOException("malformed request: expected " + argumentCount + " arguments, found " + i);
+      }
+      args.add(unescape(line));
+    }
+    return args;
+  }
+
+  static String escape(String msg) {
+    return msg.replace("\\", "\\\\").replace("\r", "").replace("\n", "\\n");
+  }
+
+  static String unescape(String msg) {
+    StringBuilder result = new StringBuilder(msg.length());
+    for (int i = 0; i < msg.length(); i++) {
+      char c = msg.charAt(i);
+      if (c == '\\' && i + 1 < msg.length()) {
+        c = msg.charAt(++i);
+        result.append(c == 'n' ? '\n' : c);
+      } else {
+        result.append(c);
+      }
+    }
+    return result.toString();
+  }
+
+  /**
+   * Usage: <code>JoocDaemon [daemon file [port]]</code>
+   */
+  public static void main(String[] argv) throws IOException {
+    File daemonFile = argv.length > 0 ? new File(argv[0]) : DEFAULT_DAEMON_FILE;
+    int port = argv.length > 1 ? Integer.parseInt(argv[1]) : 0;
+    new JoocDaemon().serve(daemonFile, port);
+  }
+
+  /**
+   * A compiler that keeps its class path warm, used by one compilation at a time. When discarded, its class path
+   * archives are closed as soon as no compilation uses it anymore.
+   */
+  private static class WarmCompiler {
+    private final Jooc jooc;
+    private final ClassPathWatcher classPathWatcher;
+    // guarded by this:
+    private int users;
+    private boolean discarded;
+
+    WarmCompiler(Jooc jooc, ClassPathWatcher classPathWatcher) {
+      this.jooc = jooc;
+      this.classPathWatcher = classPathWatcher;
+    }
+
+    CompilationResult run(JoocConfiguration config, CompileLog log) {
+      synchronized (jooc) {
+        jooc.setConfig(config);
+        jooc.setLog(log);
+        return jooc.run();
+      }
+    }
+
+    synchronized void acquire() {
+      users++;
+    }
+
+    synchronized void release() {
+      users--;
+      if (users == 0 && discarded) {
+        close();
+      }
+    }
+
+    synchronized void discard() {
+      discarded = true;
+      if (users == 0) {
+        close();
+      }
+    }
+
+    private void close() {
+      classPathWatcher.close();
+      if (jooc.getClassPathInputSource() != null) {
+        try {
+          jooc.getClassPathInputSource().close();
+        } catch (IOException e) {
+          // the archives are closed when garbage-collected, anyway
+        }
+      }
+    }
+  }
+
+  /**
+   * Detects changes of class path entries: archives by their size and modification time, directories by
+   * file system notifications, so that directory trees do not have to be walked for every compilation.
+   */
+  private static class ClassPathWatcher {
+    private final List<File> classPath;
+    private final List<Long> archiveTimestamps;
+    private final WatchService watchService;
+    private boolean unwatchable;
+    private boolean changed;
+
+    ClassPathWatcher(List<File> classPath) {
+      this.classPath = new ArrayList<>(classPath);
+      archiveTimestamps = getArchiveTimestamps(classPath);
+      WatchService newWatchService = null;
+      try {
+        for (File classPathEntry : classPath) {
+          if (classPathEntry.isDirectory()) {
+            if (newWatchService == null) {
+              newWatchService = FileSystems.getDefault().newWatchService();
+            }
+            watchDirectoryTree(newWatchService, classPathEntry.toPath());
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        // cannot tell whether the directories change, so never reuse this class path:
+        unwatchable = true;
+      }
+      watchService = newWatchService;
+    }
+
+    private static List<Long> getArchiveTimestamps(List<File> classPath) {
+      List<Long> result = new ArrayList<>();
+      for (File classPathEntry : classPath) {
+        if (!classPathEntry.isDirectory()) {
+          result.add(classPathEntry.length());
+          result.add(classPathEntry.lastModified());
+        }
+      }
+      return result;
+    }
+
+    private static void watchDirectoryTree(WatchService watchService, Path directory) throws IOException {
+      try (Stream<Path> paths = Files.walk(directory)) {
+        for (Path path : (Iterable<Path>) paths.filter(Files::isDirectory)::iterator) {
+          path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                  StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+      }
+    }
+
+    synchronized boolean hasChanged() {
+      if (!changed) {
+        changed = unwatchable || !archiveTimestamps.equals(getArchiveTimestamps(classPath)) || pollDirectoryChanges();
+      }
+      return changed;
+    }
+
+    private boolean pollDirectoryChanges() {
+      if (watchService == null) {
+        return false;
+      }
+      boolean result = false;
+      for (WatchKey key = watchService.poll(); key != null; key = watchService.poll()) {
+        result |= !key.pollEvents().isEmpty() || !key.isValid();
+        key.reset();
+      }
+      return result;
+    }
+
+    synchronized void close() {
+      if (watchService != null) {
+        try {
+          watchService.close();
+        } catch (IOException e) {
+          // ignore, nothing is watched anymore
+        }
+      }
+    }
+  }
+}
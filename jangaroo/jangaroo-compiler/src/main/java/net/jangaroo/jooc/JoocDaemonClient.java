@@ -0,0 +1,84 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.api.CompilationResult;
+import net.jangaroo.jooc.api.CompileLog;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sends a compile request to a {@link JoocDaemon} running on the local machine and reports its log messages.
+ */
+public class JoocDaemonClient {
+
+  private final File daemonFile;
+
+  /**
+   * @param daemonFile the file the daemon has written its port and token to, see {@link JoocDaemon#serve(File, int)}
+   */
+  public JoocDaemonClient(File daemonFile) {
+    this.daemonFile = daemonFile;
+  }
+
+  /**
+   * Let the daemon compile with the given jooc command line arguments.
+   *
+   * @param args the jooc command line arguments
+   * @param log the log to report the daemon's errors and warnings to
+   * @return the compilation result code
+   * @throws IOException if no daemon is running or the connection fails
+   */
+  public int compile(List<String> args, CompileLog log) throws IOException {
+    List<String> daemonFileLines = Files.readAllLines(daemonFile.toPath(), StandardCharsets.UTF_8);
+    if (daemonFileLines.size() < 2) {
+      throw new IOException("malformed jooc daemon file " + daemonFile);
+    }
+    int port = Integer.parseInt(daemonFileLines.get(0));
+    String token = daemonFileLines.get(1);
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+      PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)));
+      out.println(token);
+      out.println(args.size());
+      for (String arg : args) {
+        out.println(JoocDaemon.escape(arg));
+      }
+      out.flush();
+      BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+      for (String line = in.readLine(); line != null; line = in.readLine()) {
+        if (line.startsWith(JoocDaemon.RESULT_PREFIX)) {
+          return Integer.parseInt(line.substring(JoocDaemon.RESULT_PREFIX.length()));
+        } else if (line.startsWith(JoocDaemon.ERROR_PREFIX)) {
+          log.error(JoocDaemon.unescape(line.substring(JoocDaemon.ERROR_PREFIX.length())));
+        } else if (line.startsWith(JoocDaemon.WARNING_PREFIX)) {
+          log.warning(JoocDaemon.unescape(line.substring(JoocDaemon.WARNING_PREFIX.length())));
+        }
+      }
+      throw new IOException("jooc daemon on port " + port + " closed the connection without result");
+    }
+  }
+
+  /**
+   * Usage: <code>JoocDaemonClient daemon-file [jooc options...] source files...</code>
+   */
+  public static void main(String[] argv) throws IOException {
+    if (argv.length == 0) {
+      System.out.println("usage: JoocDaemonClient daemon-file [jooc options...] source files..."); // NOSONAR this is a cmd line tool
+      System.exit(CompilationResult.RESULT_CODE_MISSING_OPTION_ARGUMENT);
+    }
+    int result = new JoocDaemonClient(new File(argv[0])).compile(Arrays.asList(argv).subList(1, argv.length), new StdOutCompileLog());
+    if (result != 0) {
+      System.exit(result);
+    }
+  }
+}
@@ -23,6 +23,10 @@ import java.io.Writer;
  */
 public class JsStringLiteralWriter extends SubstitutingWriter {
 
+  // replacements of all ASCII characters that have to be escaped, indexed by character:
+  private static final String[] ESCAPES = createEscapes(false);
+  private static final String[] SCRIPT_TAG_ESCAPES = createEscapes(true);
+
   protected boolean insideScriptTag;
 
   public JsStringLiteralWriter(Writer out, boolean insideScriptTag) {
@@ -30,28 +34,23 @@ public class JsStringLiteralWriter extends SubstitutingWriter {
     this.insideScriptTag = insideScriptTag;
   }
 
-  protected String substitute(char ch) {
-    if (ch == '"') {
-      return "\\\"";
-    }
-    if (ch == '\n') {
-      return "\\n";
-    }
-    if (ch == '/' && insideScriptTag)
-    // this prevents literals containing </script> from terminating the script tag
-    {
-      return "\\/";
-    }
-    if (ch == '\\') {
-      return "\\\\";
+  private static String[] createEscapes(boolean insideScriptTag) {
+    String[] escapes = new String[128];
+    for (char ch = 0; ch < 32; ch++) {
+      escapes[ch] = (ch < 16 ? "\\x0" : "\\x") + Integer.toHexString(ch);
     }
-    if ((int) ch < 16) {
-      return "\\x0" + Integer.toHexString((int) ch);
+    escapes['\n'] = "\\n";
+    escapes['"'] = "\\\"";
+    escapes['\\'] = "\\\\";
+    if (insideScriptTag) {
+      // this prevents literals containing </script> from terminating the script tag
+      escapes['/'] = "\\/";
     }
-    if ((int) ch < 32) {
-      return "\\x" + Integer.toHexString((int) ch);
-    }
-    return null;
+    return escapes;
+  }
+
+  protected String substitute(char ch) {
+    return ch < 128 ? (insideScriptTag ? SCRIPT_TAG_ESCAPES : ESCAPES)[ch] : null;
   }
 
   public void beginString() throws java.io.IOException {
@@ -21,13 +21,12 @@ import net.jangaroo.jooc.config.JoocOptions;
 import net.jangaroo.jooc.util.FilePosition;
 import net.jangaroo.jooc.util.PositionTrackingWriter;
 import net.jangaroo.jooc.util.PrettyPrintFilePosition;
+import net.jangaroo.jooc.util.SourceMapEncoder;
 
 import java.io.FilterWriter;
 import java.io.IOException;
 import java.io.Writer;
-import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
@@ -40,6 +39,7 @@ import java.util.regex.Pattern;
 public final class JsWriter extends FilterWriter {
 
   private static final String TOKEN_SEPARATOR_CHARS = "=><!&|+-*/&|^%";
+  private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s*");
   private JsStringLiteralWriter stringLiteralWriter;
   private JoocOptions options;
   private boolean commentStartWritten = false;
@@ -49,7 +49,7 @@ public final class JsWriter extends FilterWriter {
   private boolean writingWhitespace = false;
   private int nOpenStrings = 0;
   private boolean suppressWhitespace = false;
-  private List<SymbolToOutputFilePosition> sourceMappings = new ArrayList<SymbolToOutputFilePosition>();
+  private SourceMapEncoder sourceMapEncoder;
   private Set<JooSymbol> isWhitespaceWritten = new HashSet<JooSymbol>();
 
   public JsWriter(Writer target) {
@@ -65,12 +65,19 @@ public final class JsWriter extends FilterWriter {
     return options;
   }
 
+  /**
+   * Set the source map encoder to which the output positions of all symbols written from now on are added.
+   */
+  public void setSourceMapEncoder(SourceMapEncoder sourceMapEncoder) {
+    this.sourceMapEncoder = sourceMapEncoder;
+  }
+
   public boolean getKeepSource() {
-    return options.getDebugMode() != null && DebugMode.SOURCE.equals(options.getDebugMode());
+    return options.getDebugMode() == DebugMode.SOURCE;
   }
 
   public boolean getKeepLines() {
-    return options.getDebugMode() != null && DebugMode.LINES.equals(options.getDebugMode());
+    return options.getDebugMode() == DebugMode.LINES;
   }
 
   public void writeInt(int value) throws IOException {
@@ -258,7 +265,7 @@ public final class JsWriter extends FilterWriter {
         if (initialWhitespace == null) {
           initialWhitespace = whitespace;
         }
-        if (!Pattern.matches("\\s*", whitespace)) {
+        if (!WHITESPACE_PATTERN.matcher(whitespace).matches()) {
           allWhitespace.append(whitespace);
           initialWhitespace = "";
         }
@@ -324,20 +331,32 @@ public final class JsWriter extends FilterWriter {
 
   public FilePosition writeToken(String token) throws IOException {
     FilePosition tokenStartPosition = null;
-    if (shouldWrite()) {
-      char firstSymbolChar = token.charAt(0);
-      if ((isIdeChar(lastChar) && isIdeChar(firstSymbolChar)) ||
-              (lastChar == firstSymbolChar && TOKEN_SEPARATOR_CHARS.indexOf(lastChar) != -1) ||
-              (firstSymbolChar == '=' && TOKEN_SEPARATOR_CHARS.indexOf(lastChar) != -1)) {
-        write(' ');
-      }
-      checkOpenString();
+    if (beginToken(token)) {
       tokenStartPosition = getCurrentOutputFilePosition();
       write(token);
     }
     return tokenStartPosition;
   }
 
+  /**
+   * If the next token is to be written, write what is needed to separate it from the previous token.
+   *
+   * @return whether the token is to be written
+   */
+  private boolean beginToken(String token) throws IOException {
+    if (!shouldWrite()) {
+      return false;
+    }
+    char firstSymbolChar = token.charAt(0);
+    if ((isIdeChar(lastChar) && isIdeChar(firstSymbolChar)) ||
+            (lastChar == firstSymbolChar && TOKEN_SEPARATOR_CHARS.indexOf(lastChar) != -1) ||
+            (firstSymbolChar == '=' && TOKEN_SEPARATOR_CHARS.indexOf(lastChar) != -1)) {
+      write(' ');
+    }
+    checkOpenString();
+    return true;
+  }
+
   private boolean isIdeChar(final char ch) {
     return ch == '$' || ch == '#' || ch == '_' || Character.isLetterOrDigit(ch);
   }
@@ -365,14 +384,18 @@ public final class JsWriter extends FilterWriter {
   }
 
   public void writeTokenForSymbol(String token, JooSymbol symbol) throws IOException {
-    FilePosition outputFileStartPosition = writeToken(token);
-    if (outputFileStartPosition != null && !isWritingComment() && !inString
-            && symbol.getLine() > 0 && symbol.getColumn() > 0) {
-      FilePosition outputFileEndPosition = getCurrentOutputFilePosition();
-      SymbolToOutputFilePosition symbolToOutputFilePosition =
-              new SymbolToOutputFilePosition(symbol, outputFileStartPosition, outputFileEndPosition);
-      sourceMappings.add(symbolToOutputFilePosition);
-      //System.out.println("*#*#*# map source: " + symbolToOutputFilePosition);
+    if (beginToken(token)) {
+      PositionTrackingWriter positionTrackingWriter = (PositionTrackingWriter) out;
+      int startLine = positionTrackingWriter.getLine();
+      int startColumn = positionTrackingWriter.getColumn();
+      write(token);
+      if (sourceMapEncoder != null && !isWritingComment() && !inString
+              && symbol.getLine() > 0 && symbol.getColumn() > 0) {
+        sourceMapEncoder.addMapping(symbol.getFileName(), symbol.getText(),
+                symbol.getLine() - 1, symbol.getColumn() - 1,
+                startLine - 1, startColumn - 1,
+                positionTrackingWriter.getLine() - 1, positionTrackingWriter.getColumn() - 1);
+      }
     }
   }
 
@@ -389,11 +412,8 @@ public final class JsWriter extends FilterWriter {
   public void write(char cbuf[], int off, int len) throws IOException {
     if (len > 0) {
       if (shouldWrite()) {
-        if (commentStartWritten) {
-          for (int i = 0; i < len; i++) {
-            char c = cbuf[off + i];
-            write(c);
-          }
+        if (commentStartWritten && !options.isSuppressCommentedActionScriptCode()) {
+          writeInsideComment(cbuf, off, len);
         } else {
           super.write(cbuf, off, len);
         }
@@ -413,11 +433,8 @@ public final class JsWriter extends FilterWriter {
   public void write(String str, int off, int len) throws IOException {
     if (len > 0) {
       if (shouldWrite()) {
-        if (commentStartWritten) {
-          for (int i = 0; i < len; i++) {
-            char c = str.charAt(off + i);
-            write(c);
-          }
+        if (commentStartWritten && !options.isSuppressCommentedActionScriptCode()) {
+          writeInsideComment(str, off, len);
         } else {
           super.write(str, off, len);
         }
@@ -428,6 +445,40 @@ public final class JsWriter extends FilterWriter {
     }
   }
 
+  /**
+   * Copy the given characters into the current comment, separating every '*' directly followed by '/' by a space,
+   * so that the comment is not terminated prematurely. Runs without such a sequence are copied in bulk.
+   */
+  private void writeInsideComment(char[] cbuf, int off, int len) throws IOException {
+    int runStart = off;
+    char previous = lastChar;
+    for (int i = off; i < off + len; i++) {
+      char c = cbuf[i];
+      if (c == '/' && previous == '*') {
+        out.write(cbuf, runStart, i - runStart);
+        out.write(' ');
+        runStart = i;
+      }
+      previous = c;
+    }
+    out.write(cbuf, runStart, off + len - runStart);
+  }
+
+  private void writeInsideComment(String str, int off, int len) throws IOException {
+    int runStart = off;
+    char previous = lastChar;
+    for (int i = off; i < off + len; i++) {
+      char c = str.charAt(i);
+      if (c == '/' && previous == '*') {
+        out.write(str, runStart, i - runStart);
+        out.write(' ');
+        runStart = i;
+      }
+      previous = c;
+    }
+    out.write(str, runStart, off + len - runStart);
+  }
+
   private static String qualifiedNameToIde(String[] qn) {
     StringBuilder result = new StringBuilder(20);
     for (int i = 0; i < qn.length; i++) {
@@ -455,44 +506,7 @@ public final class JsWriter extends FilterWriter {
     Debug.assertTrue(nOpenBeginComments == 0, "" + nOpenBeginComments + " endComment() missing");
   }
 
-  public List<SymbolToOutputFilePosition> getSourceMappings() {
-    return Collections.unmodifiableList(sourceMappings);
-  }
-
   public boolean isWritingComment() {
     return nOpenBeginComments > 0;
   }
-
-  public static class SymbolToOutputFilePosition {
-    private JooSymbol symbol;
-    private FilePosition outputFileStartPosition;
-    private FilePosition outputFileEndPosition;
-
-    SymbolToOutputFilePosition(JooSymbol symbol, FilePosition outputFileStartPosition, FilePosition outputFileEndPosition) {
-      this.symbol = symbol;
-      this.outputFileStartPosition = outputFileStartPosition;
-      this.outputFileEndPosition = outputFileEndPosition;
-    }
-
-    public JooSymbol getSymbol() {
-      return symbol;
-    }
-
-    public FilePosition getSourceFilePosition() {
-      return new PrettyPrintFilePosition(symbol.getLine() - 1, symbol.getColumn() - 1);
-    }
-
-    public FilePosition getOutputFileStartPosition() {
-      return outputFileStartPosition;
-    }
-
-    public FilePosition getOutputFileEndPosition() {
-      return outputFileEndPosition;
-    }
-
-    @Override
-    public String toString() {
-      return symbol.getFileName() + ":" + getSourceFilePosition() + " to " + outputFileStartPosition + " -> " + outputFileEndPosition;
-    }
-  }
 }
@@ -1,6 +1,7 @@
 package net.jangaroo.jooc;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
 import net.jangaroo.jooc.api.Compressor;
 import net.jangaroo.jooc.api.Packager;
 import net.jangaroo.jooc.api.Packager2;
@@ -8,20 +9,73 @@ import net.jangaroo.jooc.json.JsonArray;
 import net.jangaroo.utils.CompilerUtils;
 import org.apache.commons.lang3.StringUtils;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Packs the generated JavaScript files of a Sencha package into one bundle for the package sources,
+ * one for the package overrides and one for the overrides of each non-default locale.
+ * The bundles are packed concurrently. A bundle is only re-packed if its inputs have changed, which is
+ * detected by file time stamps or, if an {@link #setInputHashesDirectory(File) input hashes directory} is set,
+ * by the contents of the input files.
+ */
 public class PackagerImpl implements Packager, Packager2 {
 
   private static final String DEFAULT_LOCALE = "en";
-  private final Compressor compressor = new CompressorImpl();
+  private static final String INPUT_HASHES_SUFFIX = ".inputs";
+  private static final String INPUT_HASHES_HEADER = "# packager input hashes, format version 1";
+  private static final String SEPARATOR = "\t";
+
+  private Compressor compressor = new CompressorImpl();
+  private File inputHashesDirectory;
+  private boolean verbose;
+
+  /**
+   * Report how long packing each bundle took.
+   */
+  public void setVerbose(boolean verbose) {
+    this.verbose = verbose;
+  }
+
+  /**
+   * Detect changed bundle inputs by the contents of the input files instead of their time stamps.
+   * The content hashes of the inputs of each bundle are stored in the given directory, which should not be
+   * part of the packaged output. Set to null (the default) to compare time stamps.
+   */
+  public void setInputHashesDirectory(File inputHashesDirectory) {
+    this.inputHashesDirectory = inputHashesDirectory;
+  }
+
+  /**
+   * Cache the compressed code of each input file in the given directory, so that only changed input files
+   * have to be compressed again. Set to null (the default) to compress all inputs of a bundle in one go.
+   */
+  public void setCompressionCacheDirectory(File compressionCacheDirectory) {
+    this.compressor = new CompressorImpl(compressionCacheDirectory);
+  }
 
   @Override
   public void doPackage(File sourceDirectory, File overridesDirectory, File localizedOverridesDirectory,
@@ -36,12 +90,14 @@ public class PackagerImpl implements Packager, Packager2 {
                          File sourceDirectory, File overridesDirectory, File localizedOverridesDirectory,
                          File outputDirectory, String outputFilePrefix) throws IOException {
 
+    List<Bundle> bundles = new ArrayList<>();
+
     // package locale-independent sources, plus the sources for the default locale 'en'
-    pack(extNamespace, true, outputDirectory, packageJsFileName(outputFilePrefix),
-            sourceDirectory, new File(localizedOverridesDirectory, DEFAULT_LOCALE));
+    bundles.add(() -> pack(extNamespace, true, outputDirectory, packageJsFileName(outputFilePrefix),
+            sourceDirectory, new File(localizedOverridesDirectory, DEFAULT_LOCALE)));
 
     // package locale-independent overrides
-    pack(extNamespace, false, outputDirectory, overridesJsFilename(outputFilePrefix), overridesDirectory);
+    bundles.add(() -> pack(extNamespace, false, outputDirectory, overridesJsFilename(outputFilePrefix), overridesDirectory));
 
     // package locale-specific sources, one file for each non-default locale
     // at this time, the Jangaroo compiler has already written any locale-specific JavaScript into ${package.dir}/locale
@@ -52,21 +108,73 @@ public class PackagerImpl implements Packager, Packager2 {
         // the default locale source directory locale/en does not contain any overrides,
         // it contains just classes that have been included in the package js file above
         if (child.isDirectory() && !DEFAULT_LOCALE.equals(locale)) {
-          pack(extNamespace, false, outputDirectory, overridesJsFilename(outputFilePrefix, locale), child);
+          bundles.add(() -> pack(extNamespace, false, outputDirectory, overridesJsFilename(outputFilePrefix, locale), child));
+        }
+      }
+    }
+
+    packConcurrently(bundles);
+  }
+
+  private interface Bundle {
+    void pack() throws IOException;
+  }
+
+  private static void packConcurrently(List<Bundle> bundles) throws IOException {
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for (Bundle bundle : bundles) {
+      tasks.add(() -> {
+        bundle.pack();
+        return null;
+      });
+    }
+    ExecutorService executorService = Executors.newFixedThreadPool(
+            Math.min(tasks.size(), Runtime.getRuntime().availableProcessors()));
+    try {
+      for (Future<Void> future : executorService.invokeAll(tasks)) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof IOException) {
+            throw (IOException) cause;
+          }
+          if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          }
+          if (cause instanceof Error) {
+            throw (Error) cause;
+          }
+          throw new IOException(cause);
         }
       }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while packaging JavaScript sources");
+    } finally {
+      executorService.shutdownNow();
     }
   }
 
   private void pack(String extNamespace, boolean isSourceBundle,
                     File outputDirectory, String outputFileName, File... sourceDirectories) throws IOException {
+    long startTime = System.nanoTime();
     File outputFile = new File(outputDirectory, outputFileName);
     ArrayList<File> sources = new ArrayList<>();
     ArrayList<String> sourceClasses = new ArrayList<>();
     long timestamp = outputFile.lastModified();
     boolean somethingChanged = false;
     for (File dir : sourceDirectories) {
-      somethingChanged |= scanSources(extNamespace, dir, dir, timestamp, sources, sourceClasses);
+      somethingChanged |= scanSources(extNamespace, dir, timestamp, sources, sourceClasses);
+    }
+
+    File inputHashesFile = inputHashesDirectory == null ? null
+            : new File(inputHashesDirectory, outputFileName + INPUT_HASHES_SUFFIX);
+    Map<String, InputHash> inputHashes = null;
+    if (inputHashesFile != null) {
+      Map<String, InputHash> previousInputHashes = readInputHashes(inputHashesFile);
+      inputHashes = computeInputHashes(sources, previousInputHashes);
+      somethingChanged = !outputFile.exists() || !inputHashes.equals(previousInputHashes);
     }
 
     final String outputFilePath = outputFile.getAbsolutePath();
@@ -87,6 +195,12 @@ public class PackagerImpl implements Packager, Packager2 {
       printWriter.println(new JsonArray(sourceClasses.toArray()).toString());
       printWriter.close();
 
+      if (inputHashesFile != null) {
+        writeInputHashes(inputHashesFile, inputHashes);
+      }
+      if (verbose) {
+        System.out.printf("Packed %s in %d ms%n", outputFilePath, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+      }
     } else if (sources.isEmpty()) {
       if (outputFile.exists()) {
         // sources have been deleted since the previous build
@@ -97,28 +211,95 @@ public class PackagerImpl implements Packager, Packager2 {
       } else {
         System.out.printf("No js files found, skipping generation of %s%n", outputFile.getAbsolutePath());
       }
+      if (inputHashesFile != null && inputHashesFile.exists() && !inputHashesFile.delete()) {
+        throw new IOException(String.format("failed to delete %s", inputHashesFile.getAbsolutePath()));
+      }
     } else {
+      if (inputHashesFile != null) {
+        // contents are unchanged, but remember new time stamps to avoid re-hashing the same files next time
+        writeInputHashes(inputHashesFile, inputHashes);
+      }
       System.out.printf("Nothing changed, keeping %s%n", outputFilePath);
     }
   }
 
-  private boolean scanSources(String extNamespace,
-                              File baseDir, File dir, long timestamp, ArrayList<File> sources, ArrayList<String> sourceClasses) {
-    // some js file might have been deleted, check directory timestamps as well
-    boolean somethingChanged = dir.lastModified() > timestamp;
-    File[] children = dir.listFiles();
-    if (children != null) {
-      for (File child : children) {
-        if (child.isDirectory()) {
-          somethingChanged |= scanSources(extNamespace, baseDir, child, timestamp, sources, sourceClasses);
-        } else if (child.getName().endsWith(Jooc.OUTPUT_FILE_SUFFIX)) {
-          sources.add(child);
-          sourceClasses.add(CompilerUtils.qName(extNamespace, CompilerUtils.qNameFromFile(baseDir, child)));
-          somethingChanged |= child.lastModified() > timestamp;
+  private static boolean scanSources(String extNamespace, File baseDir, long timestamp,
+                                     List<File> sources, List<String> sourceClasses) throws IOException {
+    if (!baseDir.isDirectory()) {
+      return false;
+    }
+    boolean[] somethingChanged = { false };
+    Files.walkFileTree(baseDir.toPath(), new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        // some js file might have been deleted, check directory timestamps as well
+        somethingChanged[0] |= attrs.lastModifiedTime().toMillis() > timestamp;
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        if (attrs.isRegularFile() && file.getFileName().toString().endsWith(Jooc.OUTPUT_FILE_SUFFIX)) {
+          File source = file.toFile();
+          sources.add(source);
+          sourceClasses.add(CompilerUtils.qName(extNamespace, CompilerUtils.qNameFromFile(baseDir, source)));
+          somethingChanged[0] |= attrs.lastModifiedTime().toMillis() > timestamp;
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return somethingChanged[0];
+  }
+
+  private static Map<String, InputHash> computeInputHashes(List<File> sources,
+                                                           Map<String, InputHash> previousInputHashes) throws IOException {
+    Map<String, InputHash> inputHashes = new TreeMap<>();
+    for (File source : sources) {
+      String path = source.getAbsolutePath();
+      long size = source.length();
+      long lastModified = source.lastModified();
+      InputHash previousInputHash = previousInputHashes.get(path);
+      // only read files that have been touched since their hash was computed:
+      String hash = previousInputHash != null && previousInputHash.size == size && previousInputHash.lastModified == lastModified
+              ? previousInputHash.hash
+              : com.google.common.io.Files.asByteSource(source).hash(Hashing.sha256()).toString();
+      inputHashes.put(path, new InputHash(size, lastModified, hash));
+    }
+    return inputHashes;
+  }
+
+  private static Map<String, InputHash> readInputHashes(File inputHashesFile) throws IOException {
+    Map<String, InputHash> inputHashes = new TreeMap<>();
+    if (inputHashesFile.exists()) {
+      try (BufferedReader reader = Files.newBufferedReader(inputHashesFile.toPath(), StandardCharsets.UTF_8)) {
+        if (INPUT_HASHES_HEADER.equals(reader.readLine())) {
+          for (String line; (line = reader.readLine()) != null; ) {
+            String[] parts = line.split(SEPARATOR, -1);
+            if (parts.length == 4) {
+              inputHashes.put(parts[0], new InputHash(Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[3]));
+            }
+          }
         }
       }
     }
-    return somethingChanged;
+    return inputHashes;
+  }
+
+  private static void writeInputHashes(File inputHashesFile, Map<String, InputHash> inputHashes) throws IOException {
+    File parentDir = inputHashesFile.getAbsoluteFile().getParentFile();
+    if (!parentDir.exists() && !parentDir.mkdirs()) {
+      throw new IOException("cannot create directory " + parentDir.getAbsolutePath());
+    }
+    try (BufferedWriter writer = Files.newBufferedWriter(inputHashesFile.toPath(), StandardCharsets.UTF_8)) {
+      writer.write(INPUT_HASHES_HEADER);
+      writer.newLine();
+      for (Map.Entry<String, InputHash> entry : inputHashes.entrySet()) {
+        InputHash inputHash = entry.getValue();
+        writer.write(String.join(SEPARATOR, entry.getKey(),
+                String.valueOf(inputHash.size), String.valueOf(inputHash.lastModified), inputHash.hash));
+        writer.newLine();
+      }
+    }
   }
 
   private void pack(Collection<File> inputFiles, File output) throws IOException {
@@ -150,4 +331,29 @@ public class PackagerImpl implements Packager, Packager2 {
     }
     return autoLoadFile;
   }
+
+  private static class InputHash {
+    private final long size;
+    private final long lastModified;
+    private final String hash;
+
+    InputHash(long size, long lastModified, String hash) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.hash = hash;
+    }
+
+    /**
+     * Only the content hash is relevant for deciding whether a bundle has to be re-packed.
+     */
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof InputHash && hash.equals(((InputHash) o).hash);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash.hashCode();
+    }
+  }
 }
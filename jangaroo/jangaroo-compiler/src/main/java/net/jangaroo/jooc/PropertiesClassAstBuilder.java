@@ -0,0 +1,355 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.api.CompileLog;
+import net.jangaroo.jooc.ast.Annotation;
+import net.jangaroo.jooc.ast.AnnotationsAndModifiers;
+import net.jangaroo.jooc.ast.ApplyExpr;
+import net.jangaroo.jooc.ast.ArrayIndexExpr;
+import net.jangaroo.jooc.ast.AssignmentOpExpr;
+import net.jangaroo.jooc.ast.BlockStatement;
+import net.jangaroo.jooc.ast.ClassBody;
+import net.jangaroo.jooc.ast.ClassDeclaration;
+import net.jangaroo.jooc.ast.CompilationUnit;
+import net.jangaroo.jooc.ast.Directive;
+import net.jangaroo.jooc.ast.Expr;
+import net.jangaroo.jooc.ast.Extends;
+import net.jangaroo.jooc.ast.FunctionDeclaration;
+import net.jangaroo.jooc.ast.Ide;
+import net.jangaroo.jooc.ast.IdeExpr;
+import net.jangaroo.jooc.ast.ImportDirective;
+import net.jangaroo.jooc.ast.Initializer;
+import net.jangaroo.jooc.ast.LiteralExpr;
+import net.jangaroo.jooc.ast.NewExpr;
+import net.jangaroo.jooc.ast.PackageDeclaration;
+import net.jangaroo.jooc.ast.QualifiedIde;
+import net.jangaroo.jooc.ast.SemicolonTerminatedStatement;
+import net.jangaroo.jooc.ast.SuperConstructorCallStatement;
+import net.jangaroo.jooc.ast.Type;
+import net.jangaroo.jooc.ast.TypeRelation;
+import net.jangaroo.jooc.ast.VariableDeclaration;
+import net.jangaroo.jooc.input.InputSource;
+import net.jangaroo.properties.Propc;
+import net.jangaroo.properties.model.PropertiesClass;
+import net.jangaroo.properties.model.Property;
+import net.jangaroo.properties.model.ResourceBundleClass;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Builds the AST of a properties class directly from its {@link PropertiesClass} model.
+ * The resulting AST is the one the parser would produce for the ActionScript code that {@link Propc} renders for
+ * the same model, down to the white-space, comments and positions of every symbol, so that generated code and
+ * source maps do not change. Only the free-form parts, namely annotations and resource references, are handed to
+ * the parser as code fragments.
+ */
+class PropertiesClassAstBuilder {
+
+  private final InputSource inputSource;
+  private final CompileLog log;
+  private final String fileName;
+  private final StringBuilder whitespace = new StringBuilder();
+  private int line = 1;
+  private int column = 1;
+  private JooParser fragmentParser;
+
+  PropertiesClassAstBuilder(InputSource inputSource, CompileLog log) {
+    this.inputSource = inputSource;
+    this.log = log;
+    this.fileName = inputSource.getPath();
+  }
+
+  CompilationUnit build(PropertiesClass propertiesClass) {
+    ResourceBundleClass resourceBundle = propertiesClass.getResourceBundle();
+    String className = resourceBundle.getClassName();
+    String bundleName = resourceBundle.getBundleName();
+    Locale locale = propertiesClass.getLocale();
+
+    JooSymbol symPackage = symbol(sym.PACKAGE, "package");
+    whitespace(" ");
+    String packageName = resourceBundle.getPackageName();
+    Ide packageIde = packageName.isEmpty() ? null : createQualifiedIde(packageName);
+    whitespace(" ");
+    JooSymbol lbrace = symbol(sym.LBRACE, "{");
+    whitespace("\n");
+    List<Directive> directives = new ArrayList<>();
+    for (String anImport : propertiesClass.getImports()) {
+      JooSymbol symImport = symbol(sym.IMPORT, "import");
+      whitespace(" ");
+      directives.add(new ImportDirective(symImport, createQualifiedIde(anImport), symbol(sym.SEMICOLON, ";")));
+      whitespace("\n");
+    }
+    List<Annotation> annotations = null;
+    String annotationsCode = propertiesClass.getAnnotations();
+    if (annotationsCode != null) {
+      //noinspection unchecked
+      annotations = (List<Annotation>) parseFragment(sym.ANNOTATIONS_FRAGMENT, annotationsCode);
+      whitespace("\n");
+    }
+    whitespace("/**\n");
+    String as3Comment = propertiesClass.getAs3Comment();
+    if (as3Comment != null) {
+      whitespace(as3Comment + "\n");
+    } else if (locale == null) {
+      whitespace(" * Interface values for ResourceBundle \"" + bundleName + "\".\n");
+    } else {
+      whitespace(" * Overrides of ResourceBundle \"" + bundleName + "\" for Locale \"" + locale + "\".\n");
+    }
+    whitespace(" * @see " + className + "#INSTANCE\n");
+    whitespace(" */\n");
+
+    ClassDeclaration classDeclaration = locale == null
+            ? createClass(annotations, className, bundleName, propertiesClass.getProps())
+            : createSubclass(annotations, className, bundleName + "_" + locale + "_properties", propertiesClass.getProps());
+    whitespace("\n");
+    JooSymbol rbrace = symbol(sym.RBRACE, "}");
+    return new CompilationUnit(new PackageDeclaration(symPackage, packageIde), lbrace, directives, classDeclaration,
+            rbrace, new ArrayList<>());
+  }
+
+  private ClassDeclaration createClass(List<Annotation> annotations, String className, String bundleName, List<Property> props) {
+    AnnotationsAndModifiers annotationsAndModifiers = new AnnotationsAndModifiers(annotations, modifiers(sym.PUBLIC, "public"));
+    whitespace(" ");
+    JooSymbol symClass = symbol(sym.CLASS, "class");
+    whitespace(" ");
+    Ide classIde = new Ide(ide(className));
+    whitespace(" ");
+    JooSymbol lbrace = symbol(sym.LBRACE, "{");
+    whitespace("\n\n");
+    List<Directive> members = new ArrayList<>();
+
+    whitespace("/**\n");
+    whitespace(" * Singleton for the current user Locale's instance of ResourceBundle \"" + bundleName + "\".\n");
+    whitespace(" * @see " + className + "\n");
+    whitespace(" */\n");
+    List<JooSymbol> instanceModifiers = modifiers(sym.PUBLIC, "public");
+    whitespace(" ");
+    instanceModifiers.add(ide("static"));
+    whitespace(" ");
+    JooSymbol symConst = symbol(sym.CONST, "const");
+    whitespace(" ");
+    Ide instanceIde = new Ide(ide("INSTANCE"));
+    TypeRelation instanceType = createTypeRelation(className);
+    whitespace(" ");
+    JooSymbol eq = symbol(sym.EQ, "=");
+    whitespace(" ");
+    JooSymbol symNew = symbol(sym.NEW, "new");
+    whitespace(" ");
+    NewExpr newExpr = new NewExpr(symNew, new IdeExpr(new Ide(ide(className))));
+    ApplyExpr constructorCall = new ApplyExpr(newExpr, symbol(sym.LPAREN, "("), null, symbol(sym.RPAREN, ")"));
+    members.add(new VariableDeclaration(new AnnotationsAndModifiers(null, instanceModifiers), symConst, instanceIde,
+            instanceType, new Initializer(eq, constructorCall), null, symbol(sym.SEMICOLON, ";")));
+    whitespace("\n\n");
+
+    for (Property property : props) {
+      if (property.getKeyIsIdentifier()) {
+        if (property.getComment() != null) {
+          whitespace("/**\n" + property.getComment() + "\n */\n");
+        }
+        AnnotationsAndModifiers varModifiers = new AnnotationsAndModifiers(null, modifiers(sym.PUBLIC, "public"));
+        whitespace(" ");
+        JooSymbol symVar = symbol(sym.VAR, "var");
+        whitespace(" ");
+        Ide propertyIde = new Ide(ide(property.getKey()));
+        members.add(new VariableDeclaration(varModifiers, symVar, propertyIde, createTypeRelation("String"),
+                null, null, symbol(sym.SEMICOLON, ";")));
+        whitespace("\n");
+      }
+    }
+
+    whitespace("\n");
+    members.add(createConstructor(className, statements -> {
+      for (Property property : props) {
+        Expr lhs;
+        if (property.getKeyIsIdentifier()) {
+          whitespace("  ");
+          lhs = new IdeExpr(new Ide(ide(property.getKey())));
+        } else {
+          if (property.getComment() != null) {
+            whitespace("\n/*\n" + property.getComment() + "\n */\n");
+          }
+          whitespace("  ");
+          lhs = createThisIndexExpr(property.getKey());
+        }
+        statements.add(createAssignment(lhs, property));
+      }
+    }));
+    return new ClassDeclaration(annotationsAndModifiers, symClass, classIde, null, null, createClassBody(lbrace, members));
+  }
+
+  private ClassDeclaration createSubclass(List<Annotation> annotations, String className, String subclassName, List<Property> props) {
+    List<JooSymbol> modifiers = modifiers(sym.PUBLIC, "public");
+    whitespace(" ");
+    modifiers.add(ide("dynamic"));
+    whitespace(" ");
+    JooSymbol symClass = symbol(sym.CLASS, "class");
+    whitespace(" ");
+    Ide classIde = new Ide(ide(subclassName));
+    whitespace(" ");
+    JooSymbol symExtends = symbol(sym.EXTENDS, "extends");
+    whitespace(" ");
+    Extends optExtends = new Extends(symExtends, createQualifiedIde(className));
+    whitespace(" ");
+    JooSymbol lbrace = symbol(sym.LBRACE, "{");
+    whitespace("\n\n");
+
+    List<Directive> members = new ArrayList<>();
+    members.add(createConstructor(subclassName, statements -> {
+      whitespace("  ");
+      JooSymbol symSuper = symbol(sym.SUPER, "super");
+      JooSymbol lparen = symbol(sym.LPAREN, "(");
+      JooSymbol rparen = symbol(sym.RPAREN, ")");
+      statements.add(new SuperConstructorCallStatement(symSuper, lparen, null, rparen, symbol(sym.SEMICOLON, ";")));
+      whitespace("\n");
+      for (Property property : props) {
+        whitespace(" ");
+        Expr lhs;
+        if (property.getKeyIsIdentifier()) {
+          JooSymbol symThis = symbol(sym.THIS, "this");
+          JooSymbol dot = symbol(sym.DOT, ".");
+          lhs = IdeExpr.fromPrefix(symThis, dot, new Ide(ide(property.getKey())));
+        } else {
+          lhs = createThisIndexExpr(property.getKey());
+        }
+        statements.add(createAssignment(lhs, property));
+      }
+    }));
+    return new ClassDeclaration(new AnnotationsAndModifiers(annotations, modifiers), symClass, classIde, optExtends, null,
+            createClassBody(lbrace, members));
+  }
+
+  /**
+   * Create the public constructor of the given class, letting the given callback add the body statements.
+   */
+  private FunctionDeclaration createConstructor(String className, Consumer<List<Directive>> statementsBuilder) {
+    AnnotationsAndModifiers annotationsAndModifiers = new AnnotationsAndModifiers(null, modifiers(sym.PUBLIC, "public"));
+    whitespace(" ");
+    JooSymbol symFunction = symbol(sym.FUNCTION, "function");
+    whitespace(" ");
+    Ide constructorIde = new Ide(ide(className));
+    JooSymbol lparen = symbol(sym.LPAREN, "(");
+    JooSymbol rparen = symbol(sym.RPAREN, ")");
+    whitespace(" ");
+    JooSymbol lbrace = symbol(sym.LBRACE, "{");
+    whitespace("\n");
+    List<Directive> statements = new ArrayList<>();
+    statementsBuilder.accept(statements);
+    BlockStatement body = new BlockStatement(lbrace, statements, symbol(sym.RBRACE, "}"));
+    return new FunctionDeclaration(annotationsAndModifiers, symFunction, null, constructorIde, lparen, null, rparen, null,
+            body, null);
+  }
+
+  private ClassBody createClassBody(JooSymbol lbrace, List<Directive> members) {
+    whitespace("\n\n");
+    return new ClassBody(lbrace, members, symbol(sym.RBRACE, "}"));
+  }
+
+  private ArrayIndexExpr createThisIndexExpr(String key) {
+    IdeExpr thisExpr = new IdeExpr(symbol(sym.THIS, "this"));
+    JooSymbol lbrack = symbol(sym.LBRACK, "[");
+    LiteralExpr keyLiteral = new LiteralExpr(symbol(sym.STRING_LITERAL, Propc.getStringLiteral(key), key));
+    return new ArrayIndexExpr(thisExpr, lbrack, keyLiteral, symbol(sym.RBRACK, "]"));
+  }
+
+  private SemicolonTerminatedStatement createAssignment(Expr lhs, Property property) {
+    whitespace(" ");
+    JooSymbol eq = symbol(sym.EQ, "=");
+    whitespace(" ");
+    Expr value = property.isValueIsReference()
+            ? (Expr) parseFragment(sym.EXPRESSION_FRAGMENT, property.getValue())
+            : new LiteralExpr(symbol(sym.STRING_LITERAL, Propc.getStringLiteral(property.getValue()), property.getValue()));
+    SemicolonTerminatedStatement statement = new SemicolonTerminatedStatement(new AssignmentOpExpr(lhs, eq, value),
+            symbol(sym.SEMICOLON, ";"));
+    whitespace("\n");
+    return statement;
+  }
+
+  private TypeRelation createTypeRelation(String typeName) {
+    JooSymbol colon = symbol(sym.COLON, ":");
+    whitespace(" ");
+    return new TypeRelation(colon, new Type(createQualifiedIde(typeName)));
+  }
+
+  private Ide createQualifiedIde(String qName) {
+    List<String> parts = Arrays.asList(qName.split("\\."));
+    Ide ide = new Ide(ide(parts.get(0)));
+    for (String part : parts.subList(1, parts.size())) {
+      JooSymbol dot = symbol(sym.DOT, ".");
+      ide = new QualifiedIde(ide, dot, ide(part));
+    }
+    return ide;
+  }
+
+  private List<JooSymbol> modifiers(int sym, String text) {
+    List<JooSymbol> modifiers = new ArrayList<>();
+    modifiers.add(symbol(sym, text));
+    return modifiers;
+  }
+
+  private Object parseFragment(int fragmentSym, String code) {
+    if (fragmentParser == null) {
+      Scanner scanner = new Scanner(new StringReader(""));
+      scanner.setInputSource(inputSource);
+      fragmentParser = new JooParser(scanner);
+      fragmentParser.setCompileLog(log);
+    }
+    // the scanner expects the zero-based position of the fragment:
+    Object result = fragmentParser.parseFragment(fragmentSym, popWhitespace(), code, line - 1, column - 1).value;
+    advance(code);
+    return result;
+  }
+
+  private JooSymbol ide(String text) {
+    return symbol(sym.IDE, text, text);
+  }
+
+  private JooSymbol symbol(int sym, String text) {
+    return symbol(sym, text, null);
+  }
+
+  /**
+   * Create the symbol the scanner would create for the given text at the current position, carrying all
+   * white-space and comments since the previous symbol.
+   */
+  private JooSymbol symbol(int sym, String text, Object jooValue) {
+    JooSymbol symbol = new JooSymbol(sym, fileName, line, column, popWhitespace(), text, jooValue);
+    advance(text);
+    return symbol;
+  }
+
+  private void whitespace(String text) {
+    // like the scanner, only keep white-space of source path units:
+    if (inputSource.isInSourcePath()) {
+      whitespace.append(text);
+    }
+    advance(text);
+  }
+
+  private String popWhitespace() {
+    String result = whitespace.toString();
+    whitespace.setLength(0);
+    return result;
+  }
+
+  /**
+   * Advance the current position over the given text, counting lines like the scanner does.
+   */
+  private void advance(String text) {
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+        continue;
+      }
+      if (c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029' || c == '\u000B' || c == '\u000C' || c == '\u0085') {
+        ++line;
+        column = 1;
+      } else {
+        ++column;
+      }
+    }
+  }
+}
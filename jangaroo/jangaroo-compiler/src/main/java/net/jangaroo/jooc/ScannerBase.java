@@ -1,5 +1,6 @@
 package net.jangaroo.jooc;
 
+import com.google.common.collect.Interner;
 import java_cup.runtime.Symbol;
 import net.jangaroo.jooc.input.InputSource;
 import net.jangaroo.jooc.util.IncludeEvaluator;
@@ -12,6 +13,8 @@ import java.util.Map;
 
 public abstract class ScannerBase implements sym {
 
+  private static final int MAX_SHARED_WHITESPACE_LENGTH = 32;
+
   private StringBuilder whitespace = new StringBuilder();
   private StringBuilder multiStateText = new StringBuilder();
   private int multiStateSymbolStartLine;
@@ -21,9 +24,19 @@ public abstract class ScannerBase implements sym {
   private int vectorNestingLevel = 0;
 
   protected InputSource inputSource;
+  private Interner<String> sharedTexts;
 
   private JooSymbol pushedBackToken;
 
+  // skipping function bodies, see setSkipFunctionBodies():
+  private static final int NO_FUNCTION_HEAD = 0;
+  private static final int FUNCTION_NAME = 1;
+  private static final int FUNCTION_RESULT_TYPE = 2;
+  private boolean skipFunctionBodies;
+  private int functionHeadState = NO_FUNCTION_HEAD;
+  private int functionHeadParenDepth;
+  private boolean inSkippedFunctionBody;
+
   // error reporting:
   private final static Map<Integer, String> symbolMap = new HashMap<Integer, String>(50);
 
@@ -38,7 +51,114 @@ public abstract class ScannerBase implements sym {
       pushedBackToken = null;
       return result;
     }
-    return scan();
+    Symbol token = inSkippedFunctionBody ? skipFunctionBody() : scan();
+    if (skipFunctionBodies) {
+      detectFunctionBody(token.sym);
+    }
+    return token;
+  }
+
+  /**
+   * Let the parser see all function bodies as empty blocks. The tokens of a body are still scanned to find its
+   * closing brace, but they are neither parsed nor kept. This is meant for units that are only needed for their
+   * declarations.
+   * As the scanner alone cannot always tell a regular expression literal from a division, a slash is taken as
+   * a division after a token that ends an operand. If this guess is wrong for some body, scanning or parsing
+   * fails, so that the caller can parse the unit again without skipping function bodies.
+   *
+   * @param skipFunctionBodies whether to skip the statements of function bodies
+   */
+  public void setSkipFunctionBodies(boolean skipFunctionBodies) {
+    this.skipFunctionBodies = skipFunctionBodies;
+  }
+
+  /**
+   * Whether the scanner is inside a skipped function body, see {@link #setSkipFunctionBodies(boolean)}.
+   * The tokens of such a body are dropped, so there is no need to build their values or share their texts.
+   */
+  protected boolean isInSkippedFunctionBody() {
+    return inSkippedFunctionBody;
+  }
+
+  private void detectFunctionBody(int sym) {
+    switch (functionHeadState) {
+      case FUNCTION_NAME:
+        if (sym == LPAREN) {
+          ++functionHeadParenDepth;
+        } else if (sym == RPAREN) {
+          if (--functionHeadParenDepth == 0) {
+            functionHeadState = FUNCTION_RESULT_TYPE;
+          }
+        } else if (functionHeadParenDepth == 0 && sym != IDE) {
+          // not a function head after all, e.g. a syntax error:
+          functionHeadState = NO_FUNCTION_HEAD;
+        }
+        break;
+      case FUNCTION_RESULT_TYPE:
+        if (sym == LBRACE) {
+          functionHeadState = NO_FUNCTION_HEAD;
+          inSkippedFunctionBody = true;
+        } else if (!isResultTypeSymbol(sym)) {
+          // a function without body, like an interface method:
+          functionHeadState = NO_FUNCTION_HEAD;
+        }
+        break;
+      default:
+        break;
+    }
+    if (functionHeadState == NO_FUNCTION_HEAD && sym == FUNCTION) {
+      functionHeadState = FUNCTION_NAME;
+      functionHeadParenDepth = 0;
+    }
+  }
+
+  private static boolean isResultTypeSymbol(int sym) {
+    return sym == COLON || sym == IDE || sym == DOT || sym == MUL || sym == VOID || sym == DOTLT || sym == GT;
+  }
+
+  private Symbol skipFunctionBody() throws IOException {
+    int braceDepth = 1;
+    int lastSym = LBRACE;
+    while (true) {
+      Symbol token = scan();
+      if (token.sym == EOF || (token.sym == RBRACE && --braceDepth == 0)) {
+        inSkippedFunctionBody = false;
+        return token;
+      }
+      if (token.sym == LBRACE) {
+        ++braceDepth;
+      } else if ((token.sym == DIV || token.sym == DIVEQ) && !isDivisionAfter(lastSym)) {
+        startRegexp((JooSymbol) token);
+        token = scan();
+      }
+      lastSym = token.sym;
+    }
+  }
+
+  /**
+   * Whether a slash after the given token is a division operator rather than the start of a regular expression
+   * literal. This holds after tokens that end an operand. A slash after '<' is taken as part of a closing XML tag.
+   */
+  private static boolean isDivisionAfter(int sym) {
+    switch (sym) {
+      case IDE:
+      case INT_LITERAL:
+      case FLOAT_LITERAL:
+      case STRING_LITERAL:
+      case BOOL_LITERAL:
+      case NULL_LITERAL:
+      case REGEXP_LITERAL:
+      case THIS:
+      case SUPER:
+      case RPAREN:
+      case RBRACK:
+      case PLUSPLUS:
+      case MINUSMINUS:
+      case LT:
+        return true;
+      default:
+        return false;
+    }
   }
 
   /**
@@ -60,6 +180,21 @@ public abstract class ScannerBase implements sym {
     this.fileName = in.getPath();
   }
 
+  /**
+   * Symbols are retained in the AST for the whole compilation, so identifiers and short white-space
+   * (indentation, line breaks) can be shared by all symbols of all units of a compilation instead of being
+   * copied per token. Without such a table, every symbol keeps its own strings.
+   *
+   * @param sharedTexts the table of texts shared by all units of the compilation
+   */
+  public void setSharedTexts(Interner<String> sharedTexts) {
+    this.sharedTexts = sharedTexts;
+  }
+
+  private String share(String text) {
+    return sharedTexts == null ? text : sharedTexts.intern(text);
+  }
+
   public Reader createIncludeReader(String include) throws IOException {
     return IncludeEvaluator.createReader(include, getInputSource());
   }
@@ -84,6 +219,19 @@ public abstract class ScannerBase implements sym {
     yypushback(1); // the "="
   }
 
+  /**
+   * Start scanning a code fragment from the beginning of the input: the first token is the given virtual
+   * token that selects the grammar of the fragment, and the first real token is preceded by the given white-space.
+   */
+  protected void startFragment(int fragmentSym, String leadingWhitespace) {
+    whitespace.setLength(0);
+    vectorNestingLevel = 0;
+    functionHeadState = NO_FUNCTION_HEAD;
+    inSkippedFunctionBody = false;
+    pushWhitespace(leadingWhitespace);
+    pushedBackToken = new JooSymbol(fragmentSym, fileName, getLine(), getColumn(), "", "").virtual();
+  }
+
   protected void pushWhitespace(String whitespace) {
     if (inputSource.isInSourcePath()) {
       this.whitespace.append(whitespace);
@@ -91,9 +239,12 @@ public abstract class ScannerBase implements sym {
   }
 
   protected String popWhitespace() {
+    if (whitespace.length() == 0) {
+      return "";
+    }
     String result = whitespace.toString();
     whitespace.setLength(0);
-    return result;
+    return result.length() <= MAX_SHARED_WHITESPACE_LENGTH && !inSkippedFunctionBody ? share(result) : result;
   }
 
   protected void pushString(String string) {
@@ -138,13 +289,43 @@ public abstract class ScannerBase implements sym {
   protected abstract int getLine();
   protected abstract int getColumn();
   protected abstract String yytext();
+  protected abstract int yylength();
+  protected abstract char yycharat(int pos);
 
   protected JooSymbol symbol(int sym) {
-    return new JooSymbol(sym, fileName, getLine(), getColumn(), popWhitespace(), yytext());
+    return new JooSymbol(sym, fileName, getLine(), getColumn(), popWhitespace(), getSymbolText(sym));
   }
 
   protected JooSymbol symbol(int sym, Object value) {
-    return new JooSymbol(sym, fileName, getLine(), getColumn(), popWhitespace(), yytext(), value);
+    String text = getSymbolText(sym);
+    // identifiers use their text as value, so let both refer to the same string:
+    return new JooSymbol(sym, fileName, getLine(), getColumn(), popWhitespace(), text,
+            inSkippedFunctionBody ? null : text.equals(value) ? text : value);
+  }
+
+  /**
+   * The text of the current token. Keywords and punctuators reuse the text from the static symbol table,
+   * identifiers are shared, see {@link #setSharedTexts(Interner)}, unless they are dropped anyway.
+   */
+  private String getSymbolText(int sym) {
+    String fixedText = symbolMap.get(sym);
+    if (fixedText != null && isCurrentText(fixedText)) {
+      return fixedText;
+    }
+    String text = yytext();
+    return sym == IDE && !inSkippedFunctionBody ? share(text) : text;
+  }
+
+  private boolean isCurrentText(String text) {
+    if (yylength() != text.length()) {
+      return false;
+    }
+    for (int i = 0; i < text.length(); i++) {
+      if (yycharat(i) != text.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
   }
 
   protected JooSymbol multiStateSymbol(int sym, Object value) {
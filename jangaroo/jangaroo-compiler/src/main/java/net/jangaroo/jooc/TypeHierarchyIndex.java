@@ -0,0 +1,26 @@
+package net.jangaroo.jooc;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Assigns stable integer IDs to the classes and interfaces of a compilation, so that each class can represent
+ * the set of types it is assignable to as a bit set, see
+ * {@link net.jangaroo.jooc.ast.ClassDeclaration#isAssignableTo(net.jangaroo.jooc.ast.ClassDeclaration)}.
+ * IDs are assigned by qualified name, so a class that is parsed again keeps its ID.
+ */
+public class TypeHierarchyIndex {
+
+  private final ConcurrentMap<String, Integer> typeIdsByQName = new ConcurrentHashMap<>();
+  private final AtomicInteger nextTypeId = new AtomicInteger();
+
+  /**
+   * @param qName the qualified name of a class or interface
+   * @return the ID of the type, a small non-negative integer
+   */
+  public int getTypeId(String qName) {
+    Integer typeId = typeIdsByQName.get(qName);
+    return typeId != null ? typeId : typeIdsByQName.computeIfAbsent(qName, key -> nextTypeId.getAndIncrement());
+  }
+}
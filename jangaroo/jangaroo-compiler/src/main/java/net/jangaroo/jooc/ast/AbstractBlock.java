@@ -5,6 +5,7 @@ import net.jangaroo.jooc.JooSymbol;
 import net.jangaroo.jooc.Scope;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public abstract class AbstractBlock extends Statement {
@@ -46,6 +47,13 @@ public abstract class AbstractBlock extends Statement {
     return directives;
   }
 
+  /**
+   * Drop all directives of this block, so that they can be garbage collected once code has been generated.
+   */
+  public void releaseDirectives() {
+    directives = Collections.emptyList();
+  }
+
   public JooSymbol getRBrace() {
     return rBrace;
   }
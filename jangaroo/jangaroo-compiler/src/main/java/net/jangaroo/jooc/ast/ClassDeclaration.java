@@ -35,14 +35,17 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author Andreas Gawecki
@@ -65,7 +68,12 @@ public class ClassDeclaration extends TypeDeclaration {
   private List<IdeDeclaration> secondaryDeclarations = Collections.emptyList();
   private String qualifiedNameHash;
 
-  private List<ClassDeclaration> assignableClasses;
+  private volatile List<ClassDeclaration> assignableClasses;
+  private int typeId = -1;
+  // set when all members have been registered; the memoized type hierarchies rely on no members being added later:
+  private volatile boolean scoped;
+  // set as soon as this class and all its super types have been scoped:
+  private volatile TypeHierarchy typeHierarchy;
 
   private Implements optImplements;
   private Scope scope;
@@ -174,6 +182,10 @@ public class ClassDeclaration extends TypeDeclaration {
 
   @Override
   public void scope(final Scope scope) {
+    // scoping again registers all members again, so forget everything computed from them:
+    scoped = false;
+    typeHierarchy = null;
+    assignableClasses = null;
     this.scope = scope;
     // this declares this class's ide:
     super.scope(scope);
@@ -215,6 +227,7 @@ public class ClassDeclaration extends TypeDeclaration {
         }
       }
     });
+    scoped = true;
   }
 
   private boolean hasAssociatedScssFile() {
@@ -299,7 +312,15 @@ public class ClassDeclaration extends TypeDeclaration {
     }
   }
 
+  /**
+   * Register a member of this class. Members can only be registered until this class has been scoped, because
+   * afterwards, inherited member lookups and assignability checks are memoized.
+   */
   public void registerMember(TypedIdeDeclaration memberDeclaration) {
+    if (scoped) {
+      throw new IllegalStateException("Cannot register member " + memberDeclaration.getName() + " of class "
+              + getQualifiedNameStr() + " after the class has been scoped.");
+    }
     String name = memberDeclaration.getName();
     if (name.length() != 0) {
       Map<String, TypedIdeDeclaration> targetMembers = memberDeclaration.isStatic() ? staticMembers : members;
@@ -461,9 +482,19 @@ public class ClassDeclaration extends TypeDeclaration {
   }
 
   public IdeDeclaration resolvePropertyDeclaration(String ide, boolean isStatic) {
+    TypeHierarchy hierarchy = getTypeHierarchy();
+    if (hierarchy == null) {
+      // members may still be added, so do not memoize:
+      return lookupPropertyDeclaration(getAssignableClasses(), ide, isStatic);
+    }
+    return (isStatic ? hierarchy.staticMemberDeclarations : hierarchy.memberDeclarations)
+            .computeIfAbsent(ide, name -> Optional.ofNullable(lookupPropertyDeclaration(hierarchy.assignableClasses, name, isStatic)))
+            .orElse(null);
+  }
+
+  private static IdeDeclaration lookupPropertyDeclaration(List<ClassDeclaration> assignableClasses, String ide, boolean isStatic) {
     IdeDeclaration declaration = null;
     FunctionDeclaration getterOrSetter = null;
-    ensureAssignableClasses();
     for (ClassDeclaration classDecl: assignableClasses) {
       declaration = isStatic ? classDecl.getStaticMemberDeclaration(ide) : classDecl.getMemberDeclaration(ide);
       if (getterOrSetter == null) {
@@ -533,22 +564,74 @@ public class ClassDeclaration extends TypeDeclaration {
   }
 
   public boolean isAssignableTo(ClassDeclaration classToCheck) {
-    ensureAssignableClasses();
+    TypeHierarchy hierarchy = getTypeHierarchy();
+    if (hierarchy != null && classToCheck.scope != null) {
+      return hierarchy.assignableTypeIds.get(classToCheck.getTypeId());
+    }
+    String qualifiedNameToCheck = classToCheck.getQualifiedNameStr();
+    if (getQualifiedNameStr().equals(qualifiedNameToCheck)) {
+      return true;
+    }
+    for (ClassDeclaration assignableClass : getAssignableClasses()) {
+      if (assignableClass.getQualifiedNameStr().equals(qualifiedNameToCheck)) {
+        return true;
+      }
+    }
+    return false;
+  }
 
-    // TODO should use "|| assignableClasses.contains(classToCheck)" and not iterate over the list
-    boolean result = getQualifiedNameStr().equals(classToCheck.getQualifiedNameStr());
+  private List<ClassDeclaration> getAssignableClasses() {
+    List<ClassDeclaration> result = assignableClasses;
+    if (result == null) {
+      result = new ArrayList<>();
+      resolveAssignablesDeclaration1(this, result, new LinkedList<ClassDeclaration>());
+      assignableClasses = result;
+    }
+    return result;
+  }
 
-    Iterator<ClassDeclaration> iterator = assignableClasses.iterator();
-    while(!result && iterator.hasNext()) {
-      result = iterator.next().getQualifiedNameStr().equals(classToCheck.getQualifiedNameStr());
+  private int getTypeId() {
+    if (typeId < 0) {
+      typeId = scope.getCompiler().getTypeHierarchyIndex().getTypeId(getQualifiedNameStr());
+    }
+    return typeId;
+  }
+
+  /**
+   * Returns the type hierarchy of this class, or null as long as this class or one of its super types
+   * has not been scoped completely, because until then, members may still be added.
+   */
+  private TypeHierarchy getTypeHierarchy() {
+    TypeHierarchy result = typeHierarchy;
+    if (result == null) {
+      List<ClassDeclaration> assignableClasses = getAssignableClasses();
+      for (ClassDeclaration assignableClass : assignableClasses) {
+        if (!assignableClass.scoped) {
+          return null;
+        }
+      }
+      result = new TypeHierarchy(assignableClasses);
+      typeHierarchy = result;
     }
     return result;
   }
 
-  private void ensureAssignableClasses() {
-    if (assignableClasses == null) {
-      assignableClasses = new ArrayList<>();
-      resolveAssignablesDeclaration1(this, assignableClasses, new LinkedList<ClassDeclaration>());
+  /**
+   * The classes and interfaces a class is assignable to, as a bit set of their type IDs, and the memoized results
+   * of looking up inherited members. Belongs to the class declaration, so it is discarded together with the AST
+   * when a compilation unit is parsed again.
+   */
+  private static class TypeHierarchy {
+    private final List<ClassDeclaration> assignableClasses;
+    private final BitSet assignableTypeIds = new BitSet();
+    private final ConcurrentMap<String, Optional<IdeDeclaration>> memberDeclarations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Optional<IdeDeclaration>> staticMemberDeclarations = new ConcurrentHashMap<>();
+
+    TypeHierarchy(List<ClassDeclaration> assignableClasses) {
+      this.assignableClasses = assignableClasses;
+      for (ClassDeclaration assignableClass : assignableClasses) {
+        assignableTypeIds.set(assignableClass.getTypeId());
+      }
     }
   }
 
@@ -164,6 +164,52 @@ public class CompilationUnit extends NodeImplBase {
     return compileDependencies;
   }
 
+  /**
+   * Discard the statements of all method bodies of this compilation unit to free memory.
+   * This covers the methods of the primary and all secondary classes, top-level functions, functions assigned
+   * to fields or variables, and static initializer blocks.
+   * Declarations, signatures and everything determined by analysis are kept, so that other compilation units
+   * can still be resolved and generated against this one.
+   * Only call this method after all output for this compilation unit has been generated.
+   */
+  public void releaseMethodBodies() {
+    releaseBodies(primaryDeclaration);
+    if (primaryDeclaration instanceof ClassDeclaration) {
+      List<IdeDeclaration> secondaryDeclarations = ((ClassDeclaration) primaryDeclaration).getSecondaryDeclarations();
+      if (secondaryDeclarations != null) {
+        for (IdeDeclaration secondaryDeclaration : secondaryDeclarations) {
+          releaseBodies(secondaryDeclaration);
+        }
+      }
+    }
+  }
+
+  private static void releaseBodies(AstNode node) {
+    if (node instanceof ClassDeclaration) {
+      for (Directive directive : ((ClassDeclaration) node).getBody().getDirectives()) {
+        releaseBodies(directive);
+      }
+    } else if (node instanceof FunctionDeclaration) {
+      releaseBody(((FunctionDeclaration) node).getFun());
+    } else if (node instanceof VariableDeclaration) {
+      for (VariableDeclaration declaration = (VariableDeclaration) node; declaration != null;
+           declaration = declaration.getOptNextVariableDeclaration()) {
+        Initializer initializer = declaration.getOptInitializer();
+        if (initializer != null && initializer.getValue() instanceof FunctionExpr) {
+          releaseBody((FunctionExpr) initializer.getValue());
+        }
+      }
+    } else if (node instanceof BlockStatement) {
+      ((BlockStatement) node).releaseDirectives();
+    }
+  }
+
+  private static void releaseBody(FunctionExpr function) {
+    if (function.getBody() != null) {
+      function.getBody().releaseDirectives();
+    }
+  }
+
   public InputSource getInputSource() {
     return scope.getCompiler().getInputSource(this);
   }
@@ -22,7 +22,9 @@ import net.jangaroo.jooc.SyntacticKeywords;
 import net.jangaroo.jooc.sym;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Declarations are statements used to define entities such as variables, functions, classes,
@@ -50,6 +52,8 @@ public abstract class Declaration extends Statement {
           MODIFIER_PRIVATE | MODIFIER_PROTECTED | MODIFIER_PUBLIC | MODIFIER_INTERNAL | MODIFIER_NAMESPACE;
 
   private List<Annotation> annotations;
+  // annotations by meta name, built on the first lookup after this declaration has been scoped:
+  private volatile Map<String, List<Annotation>> annotationsByName;
 
   private JooSymbol[] symModifiers;
   private JooSymbol[] symInheritedModifiers = new JooSymbol[0];
@@ -87,6 +91,10 @@ public abstract class Declaration extends Statement {
   }
 
   public Annotation getAnnotation(String name) {
+    if (isScoped()) {
+      List<Annotation> annotationsWithName = getAnnotationsByName().get(name);
+      return annotationsWithName == null ? null : annotationsWithName.get(0);
+    }
     for (Annotation annotation : getAnnotations()) {
       if (name.equals(annotation.getMetaName())) {
         return annotation;
@@ -96,6 +104,10 @@ public abstract class Declaration extends Statement {
   }
 
   public List<Annotation> getAnnotations(String name) {
+    if (isScoped()) {
+      List<Annotation> annotationsWithName = getAnnotationsByName().get(name);
+      return annotationsWithName == null ? new ArrayList<>() : new ArrayList<>(annotationsWithName);
+    }
     List<Annotation> annotations = new ArrayList<>();
     for (Annotation annotation : getAnnotations()) {
       if (name.equals(annotation.getMetaName())) {
@@ -105,6 +117,29 @@ public abstract class Declaration extends Statement {
     return annotations;
   }
 
+  /**
+   * Annotations may still be added until a declaration is scoped, so they are only indexed afterwards.
+   */
+  private Map<String, List<Annotation>> getAnnotationsByName() {
+    Map<String, List<Annotation>> result = annotationsByName;
+    if (result == null) {
+      result = new HashMap<>();
+      for (Annotation annotation : getAnnotations()) {
+        result.computeIfAbsent(annotation.getMetaName(), name -> new ArrayList<>(1)).add(annotation);
+      }
+      annotationsByName = result;
+    }
+    return result;
+  }
+
+  /**
+   * Whether this declaration has been scoped, so that values computed from its name, parent declaration
+   * and annotations may be memoized.
+   */
+  protected boolean isScoped() {
+    return compilationUnit != null;
+  }
+
   @Override
   public List<? extends AstNode> getChildren() {
     return makeChildren(super.getChildren(), getAnnotations());
@@ -238,6 +273,7 @@ public abstract class Declaration extends Statement {
     setParentDeclaration(scope.getDefiningNode());
     setClassDeclaration(scope.getClassDeclaration());
     compilationUnit = scope.getCompilationUnit();
+    annotationsByName = null;
     scope(getAnnotations(), scope);
   }
 
@@ -19,6 +19,8 @@ import net.jangaroo.jooc.JooSymbol;
 import net.jangaroo.jooc.Jooc;
 import net.jangaroo.jooc.Scope;
 import net.jangaroo.jooc.sym;
+import net.jangaroo.jooc.types.ExpressionType;
+import net.jangaroo.jooc.types.FunctionSignature;
 import net.jangaroo.utils.AS3Type;
 
 import java.io.IOException;
@@ -60,6 +62,8 @@ public class FunctionExpr extends Expr {
   private Scope bodyScope;
   private boolean thisAliased;
   private Collection<FunctionExpr> functionExprs = new HashSet<>();
+  // for class path units, the signature is only computed when first needed, see getType():
+  private volatile Scope lazySignatureScope;
 
   public FunctionExpr(FunctionDeclaration functionDeclaration, JooSymbol symFunction, Ide ide, JooSymbol lParen,
                       Parameters params, JooSymbol rParen, TypeRelation optTypeRelation, BlockStatement optBody) {
@@ -175,8 +179,41 @@ public class FunctionExpr extends Expr {
         });
       }
     });
-    setType(scope.getFunctionSignature(functionDeclaration != null ? functionDeclaration.getMethodType() : null,
-            params, scope.getExpressionType(optTypeRelation)));
+    CompilationUnit compilationUnit = scope.getCompilationUnit();
+    if (compilationUnit == null || compilationUnit.isInSourcePath()) {
+      setType(createSignature(scope));
+    } else {
+      // resolving parameter and return types would import all these types, even if this function is never used:
+      lazySignatureScope = scope;
+    }
+  }
+
+  private FunctionSignature createSignature(Scope scope) {
+    return scope.getFunctionSignature(functionDeclaration != null ? functionDeclaration.getMethodType() : null,
+            params, scope.getExpressionType(optTypeRelation));
+  }
+
+  @Override
+  public ExpressionType getType() {
+    final Scope scope = lazySignatureScope;
+    if (scope != null) {
+      scope.getCompiler().withScopeLock(new Runnable() {
+        @Override
+        public void run() {
+          if (lazySignatureScope != null) {
+            setType(createSignature(scope));
+            lazySignatureScope = null;
+          }
+        }
+      });
+    }
+    return super.getType();
+  }
+
+  @Override
+  public boolean isOfAS3Type(AS3Type as3Type) {
+    getType();
+    return super.isOfAS3Type(as3Type);
   }
 
   public void analyze(AstNode parentNode) {
@@ -39,6 +39,12 @@ public abstract class IdeDeclaration extends Declaration {
   private Ide ide;
   private ExpressionType type;
   private Set<IdeExpr> usages = new HashSet<>();
+  // names computed from ide, parent declaration and annotations, memoized once this declaration has been scoped
+  // and reset whenever the ide or the parent declaration changes:
+  private String qualifiedNameStr;
+  private String targetQualifiedNameStr;
+  private String targetQualifiedNameStrWithoutRename;
+  private String extNamespaceRelativeTargetQualifiedNameStr;
 
   protected IdeDeclaration(AnnotationsAndModifiers am, Ide ide) {
     super(am.getAnnotations(), toSymbolArray(am.getModifiers()));
@@ -92,6 +98,17 @@ public abstract class IdeDeclaration extends Declaration {
   }
 
   public String getTargetQualifiedNameStr() {
+    String result = targetQualifiedNameStr;
+    if (result == null) {
+      result = computeTargetQualifiedNameStr();
+      if (isScoped()) {
+        targetQualifiedNameStr = result;
+      }
+    }
+    return result;
+  }
+
+  private String computeTargetQualifiedNameStr() {
     Annotation renameAnnotation = getAnnotation(Jooc.RENAME_ANNOTATION_NAME);
     return renameAnnotation != null
             ? (String) renameAnnotation.getPropertiesByName().get(null)
@@ -99,6 +116,17 @@ public abstract class IdeDeclaration extends Declaration {
   }
 
   public String getTargetQualifiedNameStrWithoutRename() {
+    String result = targetQualifiedNameStrWithoutRename;
+    if (result == null) {
+      result = computeTargetQualifiedNameStrWithoutRename();
+      if (isScoped()) {
+        targetQualifiedNameStrWithoutRename = result;
+      }
+    }
+    return result;
+  }
+
+  private String computeTargetQualifiedNameStrWithoutRename() {
     Annotation nativeAnnotation = getAnnotation(Jooc.NATIVE_ANNOTATION_NAME);
     String targetName = null;
     if (nativeAnnotation != null) {
@@ -111,11 +139,31 @@ public abstract class IdeDeclaration extends Declaration {
   }
 
   public String getExtNamespaceRelativeTargetQualifiedNameStr() {
-    return getCompilationUnit().cutOffExtNamespace(getTargetQualifiedNameStr());
+    String result = extNamespaceRelativeTargetQualifiedNameStr;
+    if (result == null) {
+      // the compilation unit is only known after scoping, so there is nothing to compute before:
+      result = getCompilationUnit().cutOffExtNamespace(getTargetQualifiedNameStr());
+      extNamespaceRelativeTargetQualifiedNameStr = result;
+    }
+    return result;
   }
 
   public String getQualifiedNameStr() {
-    return QualifiedIde.constructQualifiedNameStr(getQualifiedName(), ".");
+    String result = qualifiedNameStr;
+    if (result == null) {
+      result = QualifiedIde.constructQualifiedNameStr(getQualifiedName(), ".");
+      if (isScoped()) {
+        qualifiedNameStr = result;
+      }
+    }
+    return result;
+  }
+
+  private void resetComputedNames() {
+    qualifiedNameStr = null;
+    targetQualifiedNameStr = null;
+    targetQualifiedNameStrWithoutRename = null;
+    extNamespaceRelativeTargetQualifiedNameStr = null;
   }
 
   public ExpressionType getType() {
@@ -207,6 +255,13 @@ public abstract class IdeDeclaration extends Declaration {
 
   public void setIde(Ide ide) {
     this.ide = ide;
+    resetComputedNames();
+  }
+
+  @Override
+  public void setParentDeclaration(AstNode parentDeclaration) {
+    super.setParentDeclaration(parentDeclaration);
+    resetComputedNames();
   }
 
   public PackageDeclaration getPackageDeclaration() {
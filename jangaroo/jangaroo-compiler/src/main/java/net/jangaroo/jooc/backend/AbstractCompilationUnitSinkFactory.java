@@ -6,6 +6,7 @@ import net.jangaroo.jooc.ast.PackageDeclaration;
 import net.jangaroo.jooc.config.JoocOptions;
 
 import java.io.File;
+import java.io.IOException;
 
 /**
  * Abstract base class for merged and single file compilation unit sink factories.
@@ -37,4 +38,9 @@ public abstract class AbstractCompilationUnitSinkFactory implements CompilationU
   public abstract CompilationUnitSink createSink(PackageDeclaration packageDeclaration,
                                                  IdeDeclaration primaryDeclaration, File sourceFile,
                                                  boolean verbose);
+
+  @Override
+  public void close() throws IOException {
+    // nothing to do, every sink writes its own file
+  }
 }
@@ -109,6 +109,7 @@ import java.util.TreeSet;
 public class ApiModelGenerator {
 
   private boolean excludeClassByDefault = false;
+  private boolean includeInternalMembers = false;
 
   public ApiModelGenerator(boolean excludeClassByDefault) {
     this.excludeClassByDefault = excludeClassByDefault;
@@ -118,6 +119,18 @@ public class ApiModelGenerator {
     return excludeClassByDefault;
   }
 
+  public boolean isIncludeInternalMembers() {
+    return includeInternalMembers;
+  }
+
+  /**
+   * Whether to also generate models of package-internal class members, which are not part of the public API,
+   * but are visible to all other compilation units of the same package.
+   */
+  public void setIncludeInternalMembers(boolean includeInternalMembers) {
+    this.includeInternalMembers = includeInternalMembers;
+  }
+
   public CompilationUnitModel generateModel(CompilationUnit compilationUnit) throws IOException {
     CompilationUnitModel compilationUnitModel = new CompilationUnitModel("");
     generateModel(compilationUnit, compilationUnitModel);
@@ -498,7 +511,7 @@ public class ApiModelGenerator {
     if (namespacedModel instanceof MemberModel) {
       ((MemberModel)namespacedModel).setStatic(declaration.isStatic());
     }
-    // Public API only, thus either "protected", "public", or custom namespace:
+    // Public API only, thus either "protected", "public", or custom namespace, unless internal members are included:
     if (declaration instanceof TypedIdeDeclaration) {
       Ide namespace = ((TypedIdeDeclaration)declaration).getNamespace();
       if (namespace != null) {
@@ -506,7 +519,13 @@ public class ApiModelGenerator {
         return;
       }
     }
-    namespacedModel.setNamespace(declaration.isProtected() ? NamespacedModel.PROTECTED : NamespacedModel.PUBLIC);
+    namespacedModel.setNamespace(declaration.isProtected() ? NamespacedModel.PROTECTED
+            : includeInternalMembers && !declaration.isPublic() ? NamespacedModel.INTERNAL
+            : NamespacedModel.PUBLIC);
+  }
+
+  private boolean isIncluded(Declaration declaration) {
+    return declaration.isPublicApi() || includeInternalMembers && !declaration.isPrivate();
   }
 
   private void generateStaticFlag(Declaration declaration) {
@@ -523,7 +542,7 @@ public class ApiModelGenerator {
   public void visitVariableDeclaration(VariableDeclaration variableDeclaration) throws IOException {
     visitAnnotations(variableDeclaration);
     boolean isTopLevelDeclaration = modelStack.peek() instanceof CompilationUnitModel;
-    if (variableDeclaration.isPublicApi() || isTopLevelDeclaration) {
+    if (isIncluded(variableDeclaration) || isTopLevelDeclaration) {
       FieldModel fieldModel = new FieldModel();
       modelStack.push(fieldModel);
       consumeRecordedAnnotations();
@@ -557,7 +576,7 @@ public class ApiModelGenerator {
   public void visitFunctionDeclaration(FunctionDeclaration functionDeclaration) throws IOException {
     visitAnnotations(functionDeclaration);
     boolean isTopLevelDeclaration = modelStack.peek() instanceof CompilationUnitModel;
-    if (functionDeclaration.isPublicApi() || isTopLevelDeclaration) {
+    if (isIncluded(functionDeclaration) || isTopLevelDeclaration) {
       MethodModel methodModel = new MethodModel();
       modelStack.push(methodModel);
       consumeRecordedAnnotations();
@@ -4,6 +4,7 @@ import net.jangaroo.jooc.ast.IdeDeclaration;
 import net.jangaroo.jooc.ast.PackageDeclaration;
 
 import java.io.File;
+import java.io.IOException;
 
 /**
  * Interface for {@link CompilationUnitSink} factories.
@@ -12,4 +13,12 @@ public interface CompilationUnitSinkFactory {
   CompilationUnitSink createSink(PackageDeclaration packageDeclaration,
                                  IdeDeclaration primaryDeclaration, File sourceFile,
                                  boolean verbose);
+
+  /**
+   * Finish writing all output of this factory, e.g. flush and close a file shared by all sinks.
+   * Called once after all compilation units have been written.
+   *
+   * @throws IOException if pending output cannot be written
+   */
+  void close() throws IOException;
 }
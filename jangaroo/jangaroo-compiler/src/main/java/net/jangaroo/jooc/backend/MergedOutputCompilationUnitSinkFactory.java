@@ -9,19 +9,35 @@ import net.jangaroo.jooc.ast.CompilationUnit;
 import net.jangaroo.jooc.ast.IdeDeclaration;
 import net.jangaroo.jooc.ast.PackageDeclaration;
 import net.jangaroo.jooc.config.JoocOptions;
+import net.jangaroo.jooc.util.PositionTrackingWriter;
+import net.jangaroo.jooc.util.SourceMapEncoder;
+import net.jangaroo.utils.CompilerUtils;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FilterWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 /**
  * Compilation unit sink factory writing all generated classes to one file.
+ * <p>The output file is opened once, when the first compilation unit is written, and kept open until
+ * {@link #close()} is called. If source maps are enabled, the mappings of all compilation units are
+ * collected into one source map for the merged file, which is written on {@link #close()}.</p>
+ * <p>If writing a compilation unit fails, the merged file is deleted and all further compilation units are
+ * rejected, because the merged file would lack the units written before.</p>
  */
 public class MergedOutputCompilationUnitSinkFactory extends AbstractCompilationUnitSinkFactory {
 
-  private File outputFile;
-  private CompilationUnitSink sink;
+  private final File outputFile;
+  private final CompilationUnitSink sink;
+  private PositionTrackingWriter writer;
+  private SourceMapEncoder sourceMapEncoder;
+  private boolean aborted;
 
   public MergedOutputCompilationUnitSinkFactory(JoocOptions options, final File outputFile, final CompilationUnitResolver compilationUnitModelResolver, final CompilationUnitRegistry compilationUnitRegistry) {
     super(options, outputFile.getAbsoluteFile().getParentFile());
@@ -35,33 +51,47 @@ public class MergedOutputCompilationUnitSinkFactory extends AbstractCompilationU
       }
     }
 
-    sink = new CompilationUnitSink() {
-
-      public File writeOutput(CompilationUnit compilationUnit) {
+    final boolean typeScript = outputFile.getName().endsWith(Jooc.TS_SUFFIX);
+    final TypeScriptModuleResolver typeScriptModuleResolver = typeScript ? new TypeScriptModuleResolver(compilationUnitModelResolver) : null;
+    if (options.isGenerateSourceMaps() && !typeScript) {
+      sourceMapEncoder = new SourceMapEncoder(fileName ->
+              CompilerUtils.getRelativePath(getOutputDir(), new File(fileName), false).replace(File.separatorChar, '/'));
+    }
 
+    sink = compilationUnit -> {
+      synchronized (this) {
+        if (aborted) {
+          throw JangarooParser.error("cannot write to file '" + outputFile.getAbsolutePath()
+                  + "' after an earlier write error", outputFile);
+        }
+        PositionTrackingWriter target = getWriter();
         try {
-          JsWriter out = new JsWriter(new OutputStreamWriter(new FileOutputStream(outputFile, true), "UTF-8"));
+          JsWriter out = new JsWriter(new FilterWriter(target) {
+            @Override
+            public void close() {
+              // keep the merged output file open for the next compilation unit
+            }
+          });
           try {
-            try {
-              out.setOptions(getOptions());
-
-              compilationUnit.visit(outputFile.getName().endsWith(Jooc.TS_SUFFIX)
-                      ? new TypeScriptCodeGenerator(new TypeScriptModuleResolver(compilationUnitModelResolver), out, compilationUnitModelResolver)
-                      : new JsCodeGenerator(out, compilationUnitModelResolver, new JsModuleResolver(compilationUnitModelResolver)));
-            } finally {
-              out.close();
+            out.setOptions(getOptions());
+            if (sourceMapEncoder != null) {
+              // position of this unit's code in the merged file, 0-based like the source mappings:
+              sourceMapEncoder.setOutputOffset(target.getLine() - 1, target.getColumn() - 1);
+              out.setSourceMapEncoder(sourceMapEncoder);
             }
-          } catch (IOException e) {
-            //noinspection ResultOfMethodCallIgnored
-            outputFile.delete(); // NOSONAR
-            throw JangarooParser.error("error writing file: '" + outputFile.getAbsolutePath() + "'", outputFile, e);
+
+            compilationUnit.visit(typeScript
+                    ? new TypeScriptCodeGenerator(typeScriptModuleResolver, out, compilationUnitModelResolver)
+                    : new JsCodeGenerator(out, compilationUnitModelResolver, new JsModuleResolver(compilationUnitModelResolver)));
+          } finally {
+            out.close();
           }
         } catch (IOException e) {
-          throw JangarooParser.error("cannot open output file for writing: '" + outputFile.getAbsolutePath() + "'", outputFile, e);
+          abort();
+          throw JangarooParser.error("error writing file: '" + outputFile.getAbsolutePath() + "'", outputFile, e);
         }
-
-        return outputFile;
       }
+      return outputFile;
     };
   }
 
@@ -74,4 +104,49 @@ public class MergedOutputCompilationUnitSinkFactory extends AbstractCompilationU
 
     return sink;
   }
-}
\ No newline at end of file
+
+  private PositionTrackingWriter getWriter() {
+    if (writer == null) {
+      try {
+        writer = new PositionTrackingWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile), StandardCharsets.UTF_8)));
+      } catch (IOException e) {
+        throw JangarooParser.error("cannot open output file for writing: '" + outputFile.getAbsolutePath() + "'", outputFile, e);
+      }
+    }
+    return writer;
+  }
+
+  private void abort() {
+    aborted = true;
+    try {
+      writer.close();
+    } catch (IOException e) {
+      // ignore, the output file is deleted anyway
+    }
+    writer = null;
+    //noinspection ResultOfMethodCallIgnored
+    outputFile.delete(); // NOSONAR
+  }
+
+  /**
+   * Write the source map of the merged file, if enabled, and close the merged file.
+   * Calling this method more than once has no effect.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (writer == null) {
+      return;
+    }
+    try {
+      if (sourceMapEncoder != null) {
+        try (Writer sourceMapWriter = Files.newBufferedWriter(new File(outputFile.getAbsolutePath() + ".map").toPath(), StandardCharsets.UTF_8)) {
+          sourceMapEncoder.appendTo(sourceMapWriter, outputFile.getName());
+        }
+        writer.write("//# sourceMappingURL=" + outputFile.getName() + ".map");
+      }
+    } finally {
+      writer.close();
+      writer = null;
+    }
+  }
+}
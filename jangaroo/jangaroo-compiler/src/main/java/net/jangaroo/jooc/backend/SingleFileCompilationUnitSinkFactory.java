@@ -1,8 +1,5 @@
 package net.jangaroo.jooc.backend;
 
-import com.google.debugging.sourcemap.SourceMapFormat;
-import com.google.debugging.sourcemap.SourceMapGenerator;
-import com.google.debugging.sourcemap.SourceMapGeneratorFactory;
 import net.jangaroo.jooc.CompilationUnitRegistry;
 import net.jangaroo.jooc.CompilationUnitResolver;
 import net.jangaroo.jooc.JangarooParser;
@@ -13,16 +10,17 @@ import net.jangaroo.jooc.ast.PackageDeclaration;
 import net.jangaroo.jooc.ast.TransitiveAstVisitor;
 import net.jangaroo.jooc.config.JoocConfiguration;
 import net.jangaroo.jooc.config.JoocOptions;
-import net.jangaroo.jooc.util.FilePosition;
+import net.jangaroo.jooc.util.SourceMapEncoder;
 import net.jangaroo.properties.PropcHelper;
 import net.jangaroo.utils.CompilerUtils;
 import org.apache.tools.ant.util.FileUtils;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.util.Locale;
 
@@ -38,6 +36,7 @@ public class SingleFileCompilationUnitSinkFactory extends AbstractCompilationUni
   private final String nativeSuffix;
   private final boolean generateApi;
   private final CompilationUnitResolver compilationUnitModelResolver;
+  private final TypeScriptModuleResolver typeScriptModuleResolver;
 
   public SingleFileCompilationUnitSinkFactory(JoocOptions options, File destinationDir, boolean generateApi, String suffix, String nativeSuffix, CompilationUnitResolver compilationUnitModelResolver, CompilationUnitRegistry compilationUnitRegistry) {
     super(options, destinationDir);
@@ -45,6 +44,7 @@ public class SingleFileCompilationUnitSinkFactory extends AbstractCompilationUni
     this.nativeSuffix = nativeSuffix;
     this.generateApi = generateApi;
     this.compilationUnitModelResolver = compilationUnitModelResolver;
+    this.typeScriptModuleResolver = new TypeScriptModuleResolver(compilationUnitModelResolver);
     this.compilationUnitRegistry = compilationUnitRegistry;
   }
 
@@ -85,7 +85,7 @@ public class SingleFileCompilationUnitSinkFactory extends AbstractCompilationUni
       }
 
       try {
-        OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(outFile), StandardCharsets.UTF_8);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outFile), StandardCharsets.UTF_8));
         try {
           if (generateApi) {
             ApiModelGenerator apiModelGenerator = new ApiModelGenerator(isExcludeClassByDefault(getOptions()));
@@ -96,9 +96,14 @@ public class SingleFileCompilationUnitSinkFactory extends AbstractCompilationUni
             //noinspection TryFinallyCanBeTryWithResources
             try {
               out.setOptions(getOptions());
-              compilationUnit.visit(Jooc.OUTPUT_FILE_SUFFIX.equals(suffix) ? new JsCodeGenerator(out, compilationUnitModelResolver, new JsModuleResolver(compilationUnitModelResolver)) : new TypeScriptCodeGenerator(new TypeScriptModuleResolver(compilationUnitModelResolver), out, compilationUnitModelResolver));
+              SourceMapEncoder sourceMapEncoder = null;
               if (options.isGenerateSourceMaps()) {
-                codeSuffix = generateSourceMap(out, outFile);
+                sourceMapEncoder = new SourceMapEncoder(fileName -> fileName.substring(fileName.lastIndexOf(File.separatorChar) + 1));
+                out.setSourceMapEncoder(sourceMapEncoder);
+              }
+              compilationUnit.visit(Jooc.OUTPUT_FILE_SUFFIX.equals(suffix) ? new JsCodeGenerator(out, compilationUnitModelResolver, new JsModuleResolver(compilationUnitModelResolver)) : new TypeScriptCodeGenerator(typeScriptModuleResolver, out, compilationUnitModelResolver));
+              if (sourceMapEncoder != null) {
+                codeSuffix = writeSourceMap(sourceMapEncoder, outFile);
               }
             } finally {
               out.close(codeSuffix);
@@ -120,35 +125,14 @@ public class SingleFileCompilationUnitSinkFactory extends AbstractCompilationUni
     };
   }
 
-  private String generateSourceMap(JsWriter out, File outFile) throws IOException {
-    SourceMapGenerator sourceMapGenerator = SourceMapGeneratorFactory.getInstance(SourceMapFormat.V3);
-    sourceMapGenerator.validate(true);
-    for (JsWriter.SymbolToOutputFilePosition entry : out.getSourceMappings()) {
-      String sourceFilename = entry.getSymbol().getFileName();
-      sourceFilename = sourceFilename.substring(sourceFilename.lastIndexOf(File.separatorChar) + 1);
-      // for debugging:
-//                  System.err.println("*** Created mapping " +
-//                    entry.getSymbol().getFileName() + ":" + entry.getSourceFilePosition() +
-//                    " ->\n   " + outFile.getAbsolutePath() + ":" + entry.getOutputFileStartPosition());
-      sourceMapGenerator.addMapping(
-              sourceFilename,
-              entry.getSymbol().getText(),
-              googleFilePosition(entry.getSourceFilePosition()),
-              googleFilePosition(entry.getOutputFileStartPosition()),
-              googleFilePosition(entry.getOutputFileEndPosition()));
-    }
+  private String writeSourceMap(SourceMapEncoder sourceMapEncoder, File outFile) throws IOException {
     String sourceMapFilename = outFile.getAbsolutePath() + ".map";
-//                System.out.println("*** Creating source map file " + sourceMapFilename);
-    try (FileWriter sourceMapWriter = new FileWriter(sourceMapFilename)) {
-      sourceMapGenerator.appendTo(sourceMapWriter, outFile.getName());
+    try (Writer sourceMapWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(sourceMapFilename), StandardCharsets.UTF_8))) {
+      sourceMapEncoder.appendTo(sourceMapWriter, outFile.getName());
     }
     return "//# sourceMappingURL=" + outFile.getName() + ".map";
   }
 
-  private com.google.debugging.sourcemap.FilePosition googleFilePosition(FilePosition position) {
-    return new com.google.debugging.sourcemap.FilePosition(position.getLine(), position.getColumn());
-  }
-
   private static boolean isExcludeClassByDefault(JoocOptions options) {
     try {
       return options.isExcludeClassByDefault();
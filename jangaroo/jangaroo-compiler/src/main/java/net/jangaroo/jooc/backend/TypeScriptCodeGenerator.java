@@ -109,6 +109,13 @@ public class TypeScriptCodeGenerator extends CodeGeneratorBase {
   private static final String GET_INSTANCE_METHOD_NAME = "getInstance";
   private static final String REST_RESOURCE_ANNOTATION_NAME = "RestResource";
   private static final String REST_RESOURCE_URI_TEMPLATE_PARAMETER_NAME = "uriTemplate";
+  private static final Pattern END_OF_ASDOC_PATTERN = Pattern.compile("\n? *\\*/");
+  private static final Pattern PARENT_OR_CURRENT_DIR_PATTERN = Pattern.compile("[.][.]?/");
+  private static final Pattern LEADING_PARENT_DIRS_PATTERN = Pattern.compile("^([.][.]/)*");
+  private static final Pattern NON_IDENTIFIER_CHARS_PATTERN = Pattern.compile("[^a-zA-Z0-9$_]");
+  private static final Pattern END_OF_EVENT_ASDOC_PATTERN = Pattern.compile("(\\s*[*]/)");
+  private static final Pattern EVENT_TYPE_LINE_PATTERN = Pattern.compile("\n[*\\s]*@eventType .*\n");
+  private static final Pattern WHITESPACE_ONLY_PATTERN = Pattern.compile("[\\s]+");
   private static final Map<String, Function<Annotation, String>> ANNOTATION_NAME_TO_TSDOC_TAG_RENDERER = new HashMap<String, Function<Annotation, String>>() {{
     put(Jooc.PUBLIC_API_INCLUSION_ANNOTATION_NAME, annotation -> "\n * @public");
     put(Jooc.DEPRECATED_ANNOTATION_NAME, annotation -> "\n * @deprecated" + renderDeprecatedParameters(annotation));
@@ -194,7 +201,7 @@ public class TypeScriptCodeGenerator extends CodeGeneratorBase {
         newWhitespace = "/**" + tsDoc + "\n */\n";
       } else {
         String whitespace = lastSymbolWithASDoc.getWhitespace();
-        Matcher matcher = Pattern.compile("\n? *\\*/").matcher(whitespace);
+        Matcher matcher = END_OF_ASDOC_PATTERN.matcher(whitespace);
         if (!matcher.find()) {
           throw new CompilerError(declaration.getSymbol(), "Internal error: End of ASDoc not found.");
         }
@@ -369,7 +376,11 @@ public class TypeScriptCodeGenerator extends CodeGeneratorBase {
           dependentCompilationUnitModel = compilationUnitToRequire;
         }
         String localName = typeScriptModuleResolver.getDefaultImportName(dependentCompilationUnitModel.getPrimaryDeclaration());
-        localName = localName.split("\\.")[0]; // may be a native fully qualified name which "occupies" its first namespace!
+        // may be a native fully qualified name which "occupies" its first namespace!
+        int dotPos = localName.indexOf('.');
+        if (dotPos != -1) {
+          localName = localName.substring(0, dotPos);
+        }
         if (!localNames.add(localName)) {
           localNameClashes.add(localName);
         }
@@ -432,7 +443,7 @@ public class TypeScriptCodeGenerator extends CodeGeneratorBase {
     for (String resourceDependency : compilationUnit.getResourceDependencies()) {
       String localName = getLocalNameOfResourceDependency(resourceDependency);
       if (localNameClashes.contains(localName)) {
-        localName = toIdentifier(resourceDependency.replaceAll("[.][.]?/", ""));
+        localName = toIdentifier(PARENT_OR_CURRENT_DIR_PATTERN.matcher(resourceDependency).replaceAll(""));
       }
       imports.put("!" + resourceDependency, localName);
       moduleNameToLocalName.put(transformEmbedPath(compilationUnit, resourceDependency), localName);
@@ -463,14 +474,14 @@ public class TypeScriptCodeGenerator extends CodeGeneratorBase {
     if (CompilerUtils.getRelativePath(resourceInputSource.getSourceDir(), resourceFile, true) == null) {
       // embedded resource file is not below source directory: assume it is copied over, so strip all "../":
       resourceFile = new File(resourceInputSource.getSourceDir(),
-              resourceDependency.replaceFirst("^([.][.]/)*", ""));
+              LEADING_PARENT_DIRS_PATTERN.matcher(resourceDependency).replaceFirst(""));
     }
     // adjust to cut-off extNamespace in target directory:
     resourceDependency = CompilerUtils.getRelativePath(
             CompilerUtils.fileFromQName(compilationUnit.getPrimaryDeclaration()
                     .getExtNamespaceRelativeTargetQualifiedNameStr(), resourceInputSource.getSourceDir(), "").getParentFile(),
             resourceFile,
-            false).replaceAll("\\\\", "/");
+            false).replace('\\', '/');
 
     // always start with ./ or ../ :
     if (!(resourceDependency.startsWith("./") || resourceDependency.startsWith(".//"))) {
@@ -486,7 +497,7 @@ public class TypeScriptCodeGenerator extends CodeGeneratorBase {
   }
 
   private static String toIdentifier(String string) {
-    return string.replaceAll("[^a-zA-Z0-9$_]", "_");
+    return NON_IDENTIFIER_CHARS_PATTERN.matcher(string).replaceAll("_");
   }
 
   private CompilationUnit getCompilationUnitToRequire(CompilationUnit compilationUnit) {
@@ -749,7 +760,7 @@ public class TypeScriptCodeGenerator extends CodeGeneratorBase {
         }
 
         // insert parameter ASDoc:
-        Matcher matcher = Pattern.compile("(\\s*[*]/)").matcher(eventASDoc);
+        Matcher matcher = END_OF_EVENT_ASDOC_PATTERN.matcher(eventASDoc);
         if (matcher.find()) {
           eventASDoc = matcher.replaceFirst(eventParametersASDoc + "$1");
         } else {
@@ -757,7 +768,7 @@ public class TypeScriptCodeGenerator extends CodeGeneratorBase {
         }
 
         // remove all @eventType lines:
-        eventASDoc = eventASDoc.replaceAll("\n[*\\s]*@eventType .*\n", "\n");
+        eventASDoc = EVENT_TYPE_LINE_PATTERN.matcher(eventASDoc).replaceAll("\n");
       }
       out.write(reIndentASDocToMemberLevel(eventASDoc));
       if (!eventASDoc.endsWith("\n")) {
@@ -1096,7 +1107,7 @@ public class TypeScriptCodeGenerator extends CodeGeneratorBase {
   protected void visitObjectFieldValue(ObjectField objectField) throws IOException {
     Expr fieldValue = objectField.getValue();
     JooSymbol symbol = fieldValue.getSymbol();
-    if (Pattern.matches("[\\s]+", symbol.getWhitespace())) {
+    if (WHITESPACE_ONLY_PATTERN.matcher(symbol.getWhitespace()).matches()) {
       out.suppressWhitespace(symbol);
       out.write(" ");
     }
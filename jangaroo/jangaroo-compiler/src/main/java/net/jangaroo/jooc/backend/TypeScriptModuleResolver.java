@@ -12,9 +12,19 @@ import net.jangaroo.jooc.input.ZipFileInputSource;
 import net.jangaroo.utils.CompilerUtils;
 
 import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class TypeScriptModuleResolver extends ModuleResolverBase {
 
+  /**
+   * The relative module paths by target directory and imported module file. Many compilation units of a package
+   * import the same modules, and the resolver is shared by all units generated by a compiler run. With more than
+   * one thread, units are generated concurrently, so the caches must be concurrent maps.
+   */
+  private final ConcurrentMap<File, ConcurrentMap<File, String>> relativeModulePathsByDir = new ConcurrentHashMap<>();
+  private final ConcurrentMap<File, Boolean> existingFiles = new ConcurrentHashMap<>();
+
   public TypeScriptModuleResolver(CompilationUnitResolver compilationUnitModelResolver) {
     super(compilationUnitModelResolver);
   }
@@ -60,7 +70,7 @@ public class TypeScriptModuleResolver extends ModuleResolverBase {
       if (isModule && importedSourceDir.equals(currentSourceDir)
               || !isModule && !isGeneratedSource(importedSourceDir) && !isTestSource(importedSourceDir)
               // incomplete, special treatment for properties api generated from .properties (enough for our use cases)
-              || isModule && new File(currentSourceDir, importedInputSource.getRelativePath().replace(CompilerUtils.PROPERTIES_CLASS_SUFFIX + ".as", CompilerUtils.PROPERTIES_SUFFIX)).exists()) {
+              || isModule && exists(new File(currentSourceDir, importedInputSource.getRelativePath().replace(CompilerUtils.PROPERTIES_CLASS_SUFFIX + ".as", CompilerUtils.PROPERTIES_SUFFIX)))) {
         prefix = "";
       } else {
         // otherwise a prefix is required based on the source root of the imported source
@@ -100,7 +110,16 @@ public class TypeScriptModuleResolver extends ModuleResolverBase {
     return npmPackageName + (moduleName.isEmpty() ? "" : "/" + moduleName);
   }
 
+  private boolean exists(File file) {
+    return existingFiles.computeIfAbsent(file, File::exists);
+  }
+
   private String computeRelativeModulePath(File currentDir, File importedFile) {
+    return relativeModulePathsByDir.computeIfAbsent(currentDir, dir -> new ConcurrentHashMap<>())
+            .computeIfAbsent(importedFile, file -> relativizeModulePath(currentDir, file));
+  }
+
+  private static String relativizeModulePath(File currentDir, File importedFile) {
     String relativeModulePath = currentDir.toPath().relativize(importedFile.toPath()).toString();
     relativeModulePath = relativeModulePath.replace(File.separatorChar, '/');
     if (!relativeModulePath.startsWith(".")) {
@@ -1,7 +1,6 @@
 package net.jangaroo.jooc.input;
 
 import net.jangaroo.utils.BOMStripperInputStream;
-import net.jangaroo.utils.CompilerUtils;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -10,13 +9,19 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class FileInputSource extends DirectoryInputSource {
 
   private final File sourceDir;
   private final File file;
-  private List<InputSource> children;
+  // snapshot of the directory contents, taken on first access, so that repeated lookups do not hit the file system:
+  private volatile List<InputSource> children;
+  private Map<String, FileInputSource> childrenByName;
+  private volatile String relativePath;
+  private volatile Boolean directory;
 
   public FileInputSource(final File sourceDir, final File file, boolean inSourcePath, boolean inCompilePath, String extNamespace) {
     super(inSourcePath, inCompilePath);
@@ -25,6 +30,14 @@ public class FileInputSource extends DirectoryInputSource {
     this.file = file;
   }
 
+  private FileInputSource(final FileInputSource parent, final File file) {
+    this(parent.sourceDir, file, parent.isInSourcePath(), parent.isInCompilePath(), parent.getExtNamespace());
+    String parentRelativePath = parent.getRelativePath();
+    if (parentRelativePath != null && sourceDir != null) {
+      relativePath = parentRelativePath.isEmpty() ? file.getName() : parentRelativePath + File.separatorChar + file.getName();
+    }
+  }
+
   public FileInputSource(final File file, boolean inSourcePath, boolean inCompilePath) {
     this(file, file, inSourcePath, inCompilePath, null);
   }
@@ -54,13 +67,16 @@ public class FileInputSource extends DirectoryInputSource {
 
   @Override
   public String getRelativePath() {
-    try {
-      return sourceDir == null ? file.getCanonicalPath() :
-              sourceDir.equals(file) ? "" :
-                      file.getCanonicalPath().substring(sourceDir.getCanonicalPath().length() + 1);
-    } catch (IOException e) {
-      return null;
+    if (relativePath == null) {
+      try {
+        relativePath = sourceDir == null ? file.getCanonicalPath() :
+                sourceDir.equals(file) ? "" :
+                        file.getCanonicalPath().substring(sourceDir.getCanonicalPath().length() + 1);
+      } catch (IOException e) {
+        return null;
+      }
     }
+    return relativePath;
   }
 
   @Override
@@ -87,7 +103,10 @@ public class FileInputSource extends DirectoryInputSource {
 
   @Override
   public boolean isDirectory() {
-    return file.isDirectory();
+    if (directory == null) {
+      directory = file.isDirectory();
+    }
+    return directory;
   }
 
   @Override
@@ -95,16 +114,34 @@ public class FileInputSource extends DirectoryInputSource {
     if (!isDirectory()) {
       throw new UnsupportedOperationException("list() not supported for non-directory input sources");
     }
+    takeSnapshot();
+    return children;
+  }
+
+  private void takeSnapshot() {
     if (children == null) {
-      children = new ArrayList<InputSource>();
-      File[] childFiles = file.listFiles();
-      assert childFiles != null; // since we made sure it is a directory!
-      Arrays.sort(childFiles);   // create a predictable order!
-      for (File childFile : childFiles) {
-        children.add(new FileInputSource(sourceDir, childFile, isInSourcePath(), getExtNamespace()));
+      synchronized (this) {
+        if (children == null) {
+          readChildren();
+        }
       }
     }
-    return children;
+  }
+
+  private void readChildren() {
+    File[] childFiles = file.listFiles();
+    if (childFiles == null) {
+      childFiles = new File[0];
+    }
+    Arrays.sort(childFiles);   // create a predictable order!
+    List<InputSource> snapshot = new ArrayList<InputSource>(childFiles.length);
+    childrenByName = new HashMap<String, FileInputSource>(childFiles.length * 2);
+    for (File childFile : childFiles) {
+      FileInputSource child = new FileInputSource(this, childFile);
+      snapshot.add(child);
+      childrenByName.put(childFile.getName(), child);
+    }
+    children = Collections.unmodifiableList(snapshot);
   }
 
   @Override
@@ -112,18 +149,29 @@ public class FileInputSource extends DirectoryInputSource {
     if (path.length() == 0) {
       return this;
     }
-    File sourceFile = new File(file, path);
-    if (sourceFile.exists()) {
-      String realPath = file == null ? sourceFile.getPath() : CompilerUtils.getRelativePath(file, sourceFile, false);
-      if (File.separatorChar != '/') {
-        path = path.replace(File.separatorChar, '/');
-        realPath = realPath.replace(File.separatorChar, '/');
+    // walk the directory snapshots; comparing exact names also rejects case-insensitive file system matches:
+    FileInputSource current = this;
+    int start = 0;
+    while (current != null && start < path.length()) {
+      int end = indexOfSeparator(path, start);
+      if (!current.isDirectory()) {
+        return null;
       }
-      if (path.equals(realPath)) {
-        return new FileInputSource(sourceDir, sourceFile, isInSourcePath(), isInCompilePath(), getExtNamespace());
+      current.takeSnapshot();
+      current = current.childrenByName.get(path.substring(start, end));
+      start = end + 1;
+    }
+    return current;
+  }
+
+  private static int indexOfSeparator(String path, int start) {
+    for (int i = start; i < path.length(); i++) {
+      char c = path.charAt(i);
+      if (c == '/' || c == File.separatorChar) {
+        return i;
       }
     }
-    return null;
+    return path.length();
   }
 
   @Override
@@ -4,11 +4,16 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class PathInputSource extends DirectoryInputSource {
 
   private final String name;
   private final List<InputSource> entries;
+  // optional memo of the results of getChild(), filled on first lookup of each path, see createCompilePathAwareClassPath():
+  private final ConcurrentMap<String, Optional<InputSource>> childrenByPath;
 
   public static PathInputSource fromFiles(List<File> files, String[] rootDirs, boolean inSourcePath) throws IOException {
     return fromFiles(files, rootDirs, inSourcePath, null);
@@ -31,7 +36,7 @@ public class PathInputSource extends DirectoryInputSource {
       }
       name.append(file.getAbsolutePath());
     }
-    return new PathInputSource(name.toString(), entries, false, inCompilePath);
+    return new PathInputSource(name.toString(), entries, false, inCompilePath, new ConcurrentHashMap<String, Optional<InputSource>>());
   }
 
   public static PathInputSource fromFiles(List<File> files, String[] rootDirs, boolean inSourcePath, String extNamespace) throws IOException {
@@ -52,9 +57,15 @@ public class PathInputSource extends DirectoryInputSource {
   }
 
   public PathInputSource(final String name, final List<InputSource> entries, boolean inSourcePath, boolean inCompilePath) {
+    this(name, entries, inSourcePath, inCompilePath, null);
+  }
+
+  private PathInputSource(final String name, final List<InputSource> entries, boolean inSourcePath, boolean inCompilePath,
+                          ConcurrentMap<String, Optional<InputSource>> childrenByPath) {
     super(inSourcePath, inCompilePath);
     this.name = name;
     this.entries = entries;
+    this.childrenByPath = childrenByPath;
   }
 
   public PathInputSource(final String name, final List<InputSource> entries, boolean inSourcePath) {
@@ -87,6 +98,18 @@ public class PathInputSource extends DirectoryInputSource {
 
   @Override
   public InputSource getChild(final String path) {
+    if (childrenByPath == null) {
+      return findChild(path);
+    }
+    Optional<InputSource> child = childrenByPath.get(path);
+    if (child == null) {
+      child = Optional.ofNullable(findChild(path));
+      childrenByPath.putIfAbsent(path, child);
+    }
+    return child.orElse(null);
+  }
+
+  private InputSource findChild(final String path) {
     List<InputSource> result = null;
     for (InputSource entry : entries) {
       final InputSource child = entry.getChild(path);
@@ -113,6 +136,25 @@ public class PathInputSource extends DirectoryInputSource {
     return result;
   }
 
+  /**
+   * Close all entries of this path, i.e. release all archives opened to read class path units.
+   * Archives are opened again on demand.
+   */
+  @Override
+  public void close() throws IOException {
+    IOException closeException = null;
+    for (InputSource entry : entries) {
+      try {
+        entry.close();
+      } catch (IOException e) {
+        closeException = e;
+      }
+    }
+    if (closeException != null) {
+      throw closeException;
+    }
+  }
+
   @Override
   public char getFileSeparatorChar() {
     return '/';
@@ -5,20 +5,27 @@ import java.io.InputStream;
 import java.util.Collections;
 import java.util.List;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 public class ZipEntryInputSource implements InputSource {
 
   private final ZipFileInputSource zipFileInputSource;
-  private final ZipEntry zipEntry;
+  private final String entryName;
+  private final boolean directory;
   private final String name;
   private final String relativePath;
 
   public ZipEntryInputSource(final ZipFileInputSource zipFileInputSource, final ZipEntry zipEntry, final String relativePath) {
+    this(zipFileInputSource, zipEntry.getName(), zipEntry.isDirectory(), relativePath);
+  }
+
+  ZipEntryInputSource(final ZipFileInputSource zipFileInputSource, final String entryName, boolean directory, final String relativePath) {
     this.zipFileInputSource = zipFileInputSource;
-    this.zipEntry = zipEntry;
+    this.entryName = entryName;
+    this.directory = directory;
     this.relativePath = relativePath;
 
-    String[] parts = zipEntry.getName().split("/");
+    String[] parts = entryName.split("/");
     name = parts[parts.length - 1];
   }
 
@@ -48,7 +55,7 @@ public class ZipEntryInputSource implements InputSource {
 
   @Override
   public String getPath() {
-    return zipFileInputSource.getPath() + "!" + zipEntry.getName();
+    return zipFileInputSource.getPath() + "!" + entryName;
   }
 
   @Override
@@ -64,12 +71,13 @@ public class ZipEntryInputSource implements InputSource {
 
   @Override
   public InputStream getInputStream() throws IOException {
-    return zipFileInputSource.getZipFile().getInputStream(zipEntry);
+    ZipFile zipFile = zipFileInputSource.getZipFile();
+    return zipFile.getInputStream(zipFile.getEntry(entryName));
   }
 
   @Override
   public boolean isDirectory() {
-    return zipEntry.isDirectory();
+    return directory;
   }
 
   @Override
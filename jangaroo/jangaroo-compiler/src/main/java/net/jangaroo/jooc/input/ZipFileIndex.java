@@ -0,0 +1,160 @@
+package net.jangaroo.jooc.input;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Multimap;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+
+/**
+ * The immutable index of a zip or jar file as seen through a set of root directories: the names of all entries
+ * by relative path and some package metadata.
+ * Indexes are shared by all {@link ZipFileInputSource}s of the same JVM and re-read only when the archive changes,
+ * so that the central directory of each archive is scanned at most once per build.
+ * At most {@link #MAX_CACHED_INDEXES} indexes are kept, and only as long as memory permits, so that a long-running
+ * JVM that compiles against many different archives does not accumulate them forever.
+ */
+final class ZipFileIndex {
+
+  static final int MAX_CACHED_INDEXES = 1024;
+  private static final Cache<String, ZipFileIndex> INDEXES = CacheBuilder.newBuilder()
+          .maximumSize(MAX_CACHED_INDEXES)
+          .softValues()
+          .build();
+  private static final Pattern JSON_PROPERTY_STRING_VALUE_PATTERN = Pattern.compile("\"([a-z]+)\"\\s*:\\s*\"(.*)\"");
+
+  private final long size;
+  private final long lastModified;
+  // entry name and directory flag by relative path, in archive order:
+  private final Map<String, String> entryNamesByRelativePath = new LinkedHashMap<>();
+  private final Map<String, Boolean> directoryFlagsByRelativePath = new LinkedHashMap<>();
+  private final Multimap<String, String> relativePathsByParent = LinkedHashMultimap.create();
+  private String npmPackageName;
+  private String senchaPackageName;
+  private String extNamespace;
+
+  private ZipFileIndex(File file, String[] rootDirs) throws IOException {
+    this.size = file.length();
+    this.lastModified = file.lastModified();
+    try (JarFile jarFile = new JarFile(file)) {
+      Enumeration<? extends ZipEntry> zipEntryEnum = jarFile.entries();
+      while (zipEntryEnum.hasMoreElements()) {
+        ZipEntry entry = zipEntryEnum.nextElement();
+        String relativePath = getRelativePath(rootDirs, entry.getName());
+        if (relativePath != null && !entryNamesByRelativePath.containsKey(relativePath)) {
+          entryNamesByRelativePath.put(relativePath, entry.getName());
+          directoryFlagsByRelativePath.put(relativePath, entry.isDirectory());
+          int slashPos = relativePath.lastIndexOf('/');
+          String parent = relativePath.substring(0, slashPos + 1);
+          relativePathsByParent.put(removeTrailingSlash(parent), relativePath);
+        }
+      }
+      readArchiveManifest(jarFile);
+      readSenchaPackageJson(jarFile);
+    }
+  }
+
+  /**
+   * Return the index of the given archive, reading it only if it has not been read before or has changed since.
+   */
+  static ZipFileIndex get(File file, String[] rootDirs) throws IOException {
+    String key = file.getAbsolutePath() + Arrays.toString(rootDirs);
+    ZipFileIndex index = INDEXES.getIfPresent(key);
+    if (index == null || index.size != file.length() || index.lastModified != file.lastModified()) {
+      index = new ZipFileIndex(file, rootDirs);
+      INDEXES.put(key, index);
+    }
+    return index;
+  }
+
+  private static String getRelativePath(String[] rootDirs, final String name) {
+    // find the root dir with maximal length
+    String foundRoot = null;
+    for (String rootDir : rootDirs) {
+      if (name.startsWith(rootDir) && (foundRoot == null || foundRoot.length() < rootDir.length())) {
+        foundRoot = rootDir;
+      }
+    }
+    if (foundRoot == null) {
+      return null;
+    }
+    String strippedName = name.substring(foundRoot.length());
+    return removeTrailingSlash(strippedName);
+  }
+
+  static String removeTrailingSlash(String strippedName) {
+    return strippedName.endsWith("/") ? strippedName.substring(0, strippedName.length() - 1) : strippedName;
+  }
+
+  private void readArchiveManifest(JarFile jarFile) throws IOException {
+    Manifest manifest = jarFile.getManifest();
+    if (manifest == null) {
+      return;
+    }
+    npmPackageName = manifest.getMainAttributes().getValue("Joo-Npm-Package-Name");
+  }
+
+  private void readSenchaPackageJson(JarFile jarFile) throws IOException {
+    String packageJsonEntryName = entryNamesByRelativePath.get("META-INF/pkg/package.json");
+    if (packageJsonEntryName == null) {
+      return;
+    }
+    ZipEntry packageJsonEntry = jarFile.getEntry(packageJsonEntryName);
+    try (BufferedReader br = new BufferedReader(new InputStreamReader(jarFile.getInputStream(packageJsonEntry), StandardCharsets.UTF_8))) {
+      for (String line; (line = br.readLine()) != null; ) {
+        Matcher matcher = JSON_PROPERTY_STRING_VALUE_PATTERN.matcher(line);
+        if (matcher.find()) {
+          String propertyName = matcher.group(1);
+          if (senchaPackageName == null && "name".equals(propertyName)) {
+            senchaPackageName = matcher.group(2);
+          }
+          if (extNamespace == null && "namespace".equals(propertyName)) {
+            extNamespace = matcher.group(2);
+          }
+          if (senchaPackageName != null && extNamespace != null) {
+            break;
+          }
+        }
+      }
+    }
+  }
+
+  String getEntryName(String relativePath) {
+    return entryNamesByRelativePath.get(relativePath);
+  }
+
+  boolean isDirectory(String relativePath) {
+    return Boolean.TRUE.equals(directoryFlagsByRelativePath.get(relativePath));
+  }
+
+  Collection<String> getChildPaths(String parentPath) {
+    return relativePathsByParent.get(removeTrailingSlash(parentPath));
+  }
+
+  String getNpmPackageName() {
+    return npmPackageName;
+  }
+
+  String getSenchaPackageName() {
+    return senchaPackageName;
+  }
+
+  String getExtNamespace() {
+    return extNamespace;
+  }
+}
@@ -1,37 +1,25 @@
 package net.jangaroo.jooc.input;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
-
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Enumeration;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.jar.JarFile;
-import java.util.jar.Manifest;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 public class ZipFileInputSource extends DirectoryInputSource {
 
   private final File file;
-  private final JarFile jarFile;
   private final String[] rootDirs;
-  private final Map<String, ZipEntryInputSource> entries = new LinkedHashMap<String, ZipEntryInputSource>();
-  private final Multimap<String, ZipEntryInputSource> entriesByParent = HashMultimap.create();
-  private String senchaPackageName;
-  private String npmPackageName;
+  private final ZipFileIndex index;
+  // entries are only materialized when looked up:
+  private final ConcurrentMap<String, ZipEntryInputSource> entries = new ConcurrentHashMap<String, ZipEntryInputSource>();
+  private volatile JarFile jarFile;
 
   /**
    * Create an InputSource directory from the given zip or jar file, providing a "union view" over the zip file
@@ -48,7 +36,8 @@ public class ZipFileInputSource extends DirectoryInputSource {
 
   /**
    * Create an InputSource directory from the given zip or jar file, providing a "union view" over the zip file
-   * with all entries with paths relative to the given root directories
+   * with all entries with paths relative to the given root directories.
+   * The archive itself is only opened when the contents of an entry are read.
    *
    * @param file     a zip or jar file
    * @param rootDirs a list of directories to accept as roots (e.g. ["", "META-INF/joo-api"], in lookup order
@@ -59,84 +48,21 @@ public class ZipFileInputSource extends DirectoryInputSource {
   public ZipFileInputSource(final File file, String[] rootDirs, boolean inSourcePath, boolean inCompilePath) throws IOException {
     super(inSourcePath, inCompilePath);
     this.file = file;
-    this.jarFile = new JarFile(file);
     this.rootDirs = rootDirs.clone();
-    final Enumeration<? extends ZipEntry> zipEntryEnum = jarFile.entries();
-    while (zipEntryEnum.hasMoreElements()) {
-      ZipEntry entry = zipEntryEnum.nextElement();
-      final String relativePath = getRelativePath(entry.getName());
-      if (relativePath != null && !entries.containsKey(relativePath)) {
-        ZipEntryInputSource zipEntryInputSource = new ZipEntryInputSource(this, entry, relativePath);
-        this.entries.put(relativePath, zipEntryInputSource);
-
-        int slashPos = relativePath.lastIndexOf('/');
-        String parent = relativePath.substring(0, slashPos + 1);
-        entriesByParent.put(removeTrailingSlash(parent), zipEntryInputSource);
-      }
-    }
-    readArchiveManifest();
-    readSenchaPackageJson();
+    this.index = ZipFileIndex.get(file, this.rootDirs);
+    this.extNamespace = index.getExtNamespace();
   }
 
-  private void readArchiveManifest() throws IOException {
-    Manifest manifest = jarFile.getManifest();
-    if (manifest == null) {
-      return;
-    }
-    npmPackageName = manifest.getMainAttributes().getValue("Joo-Npm-Package-Name");
-  }
-
-  private static final Pattern JSON_PROPERTY_STRING_VALUE_PATTERN = Pattern.compile("\"([a-z]+)\"\\s*:\\s*\"(.*)\"");
-
-  private void readSenchaPackageJson() throws IOException {
-    InputSource packageJsonInputSource = getChild("META-INF/pkg/package.json");
-    if (packageJsonInputSource == null) {
-      return;
-    }
-    try (BufferedReader br = new BufferedReader(new InputStreamReader(packageJsonInputSource.getInputStream(), StandardCharsets.UTF_8))) {
-      for (String line; (line = br.readLine()) != null; ) {
-        Matcher matcher = JSON_PROPERTY_STRING_VALUE_PATTERN.matcher(line);
-        if (matcher.find()) {
-          String propertyName = matcher.group(1);
-          if (senchaPackageName == null && "name".equals(propertyName)) {
-            senchaPackageName = matcher.group(2);
-          }
-          if (extNamespace == null && "namespace".equals(propertyName)) {
-            extNamespace = matcher.group(2);
-          }
-          if (senchaPackageName != null && extNamespace != null) {
-            break;
-          }
-        }
-      }
-    }
+  public File getFile() {
+    return file;
   }
 
   public String getNpmPackageName() {
-    return npmPackageName;
+    return index.getNpmPackageName();
   }
 
   public String getSenchaPackageName() {
-    return senchaPackageName;
-  }
-
-  private String getRelativePath(final String name) {
-    // find the root dir with maximal length
-    String foundRoot = null;
-    for (String rootDir : rootDirs) {
-      if (name.startsWith(rootDir) && (foundRoot == null || foundRoot.length() < rootDir.length())) {
-        foundRoot = rootDir;
-      }
-    }
-    if (foundRoot == null) {
-      return null;
-    }
-    String strippedName = name.substring(foundRoot.length());
-    return removeTrailingSlash(strippedName);
-  }
-
-  private String removeTrailingSlash(String strippedName) {
-    return strippedName.endsWith("/") ? strippedName.substring(0, strippedName.length() - 1) : strippedName;
+    return index.getSenchaPackageName();
   }
 
   @Override
@@ -160,8 +86,11 @@ public class ZipFileInputSource extends DirectoryInputSource {
   }
 
   @Override
-  public void close() throws IOException {
-    jarFile.close();
+  public synchronized void close() throws IOException {
+    if (jarFile != null) {
+      jarFile.close();
+      jarFile = null;
+    }
   }
 
   @Override
@@ -169,13 +98,34 @@ public class ZipFileInputSource extends DirectoryInputSource {
     return '/';
   }
 
-  public ZipFile getZipFile() {
-    return jarFile;
+  public ZipFile getZipFile() throws IOException {
+    JarFile result = jarFile;
+    if (result == null) {
+      synchronized (this) {
+        if (jarFile == null) {
+          jarFile = new JarFile(file);
+        }
+        result = jarFile;
+      }
+    }
+    return result;
   }
 
   @Override
   public InputSource getChild(final String path) {
-    return entries.get(path);
+    ZipEntryInputSource entry = entries.get(path);
+    if (entry == null) {
+      String entryName = index.getEntryName(path);
+      if (entryName == null) {
+        return null;
+      }
+      entry = new ZipEntryInputSource(this, entryName, index.isDirectory(path), path);
+      ZipEntryInputSource existingEntry = entries.putIfAbsent(path, entry);
+      if (existingEntry != null) {
+        entry = existingEntry;
+      }
+    }
+    return entry;
   }
 
   @Override
@@ -192,13 +142,17 @@ public class ZipFileInputSource extends DirectoryInputSource {
   }
 
   private List<InputSource> list(final String relativePath) {
-    Collection<ZipEntryInputSource> zipEntryInputSources = entriesByParent.get(removeTrailingSlash(relativePath));
-    return zipEntryInputSources == null ? Collections.<InputSource>emptyList() : new ArrayList<InputSource>(zipEntryInputSources);
+    Collection<String> childPaths = index.getChildPaths(relativePath);
+    List<InputSource> result = new ArrayList<InputSource>(childPaths.size());
+    for (String childPath : childPaths) {
+      result.add(getChild(childPath));
+    }
+    return result;
   }
 
   @Override
   public String toString() {
-    return jarFile.getName();
+    return file.getPath();
   }
 
   @Override
@@ -112,7 +112,7 @@ public class JsonObject implements Json {
     } else if (value instanceof JsonObject) {
       return ((JsonObject)value).toString(indentFactor, indent, alwaysQuoteKeys);
     } else if (value instanceof JsonArray) {
-      return ((JsonArray) value).toString(indentFactor, indent);
+      return ((JsonArray) value).toString(indentFactor, indent, alwaysQuoteKeys);
     } else if (value instanceof Code) {
       return ((Code)value).getCode().replaceAll("\n", LINE_SEPARATOR);
     }
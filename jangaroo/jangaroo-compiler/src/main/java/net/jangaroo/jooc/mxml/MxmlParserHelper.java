@@ -1,26 +1,20 @@
 package net.jangaroo.jooc.mxml;
 
-import com.google.common.collect.Iterables;
 import java_cup.runtime.Symbol;
 import net.jangaroo.jooc.JangarooParser;
 import net.jangaroo.jooc.JooParser;
 import net.jangaroo.jooc.JooSymbol;
+import net.jangaroo.jooc.sym;
 import net.jangaroo.jooc.ast.Annotation;
-import net.jangaroo.jooc.ast.AssignmentOpExpr;
-import net.jangaroo.jooc.ast.AstNode;
-import net.jangaroo.jooc.ast.ClassBody;
-import net.jangaroo.jooc.ast.ClassDeclaration;
 import net.jangaroo.jooc.ast.CompilationUnit;
 import net.jangaroo.jooc.ast.Directive;
 import net.jangaroo.jooc.ast.Expr;
 import net.jangaroo.jooc.ast.Extends;
-import net.jangaroo.jooc.ast.FunctionDeclaration;
 import net.jangaroo.jooc.ast.Ide;
 import net.jangaroo.jooc.ast.Implements;
 import net.jangaroo.jooc.ast.ImportDirective;
 import net.jangaroo.jooc.ast.PackageDeclaration;
-import net.jangaroo.jooc.ast.SemicolonTerminatedStatement;
-import net.jangaroo.jooc.ast.TypedIdeDeclaration;
+import net.jangaroo.jooc.ast.Type;
 import net.jangaroo.jooc.input.InputSource;
 import net.jangaroo.jooc.mxml.ast.MxmlCompilationUnit;
 import net.jangaroo.jooc.mxml.ast.XmlAttribute;
@@ -31,20 +25,19 @@ import net.jangaroo.utils.CompilerUtils;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.util.Collections;
 import java.util.List;
 
 public class MxmlParserHelper {
 
-  private static final String TPL_CLASS_BODY = "package{class ___${\n%s\n}}";
-  private static final String TPL_CONSTRUCTOR_BODY = "package{class ___${function ___$(){\n%s\n}}}";
-  private static final String TPL_EXPRESSION = "package{class ___${x= %s}}";
-  private static final String TPL_IMPLEMENTS = "package{class ___$ implements %s\n{}}";
-  private static final String TPL_IMPORT = "package{\nimport %s;\nclass ___$ {}}";
-  private static final String TPL_IDE = "package{var ___$:%s;}";
-  private static final String TPL_METADATA = "package{\n%s\nclass ___$ {}}";
-  private static final String TPL_EXTENDS = "package{class ___$ extends %s {}}";
-  private static final String TPL_PACKAGE = "package %s {class ___$ {}}";
+  private static final String PACKAGE_KEYWORD = "package ";
+  private static final String IMPORT_KEYWORD = "import ";
+  private static final String EXTENDS_KEYWORD = "extends ";
+  private static final String IMPLEMENTS_KEYWORD = "implements ";
+  // Fragments not read from an MXML symbol keep the position they had in the synthetic compilation units
+  // they used to be parsed as, e.g. "package{\nimport %s;...", so that their symbols stay the same:
+  private static final int IMPORT_LINE = 1;
+  private static final int CONSTRUCTOR_BODY_LINE = 1;
+  private static final int IDE_COLUMN = "package{var ___$:".length();
 
   private final JooParser parser;
   private InputSource inputSource;
@@ -79,40 +72,27 @@ public class MxmlParserHelper {
   @Nonnull
   public PackageDeclaration parsePackageDeclaration(String classQName) {
     String text = CompilerUtils.packageName(classQName);
-    CompilationUnit unit = (CompilationUnit) parser.parseEmbedded(String.format(TPL_PACKAGE, text), 0, 0).value;
-    return unit.getPackageDeclaration();
+    return (PackageDeclaration) parser.parseFragment(sym.PACKAGE_FRAGMENT, "", PACKAGE_KEYWORD + text, 0, 0).value;
   }
 
+  @SuppressWarnings("unchecked")
   @Nonnull
-  public ClassBody parseClassBody(@Nonnull JooSymbol symbol) {
+  public List<Directive> parseClassBody(@Nonnull JooSymbol symbol) {
     String text = (String) symbol.getJooValue();
-    String template = TPL_CLASS_BODY;
-    int[] position = position(symbol, template);
-    CompilationUnit unit = (CompilationUnit) parser.parseEmbedded(String.format(template, text), position[0], position[1]).value;
-    return ((ClassDeclaration)unit.getPrimaryDeclaration()).getBody();
+    return (List<Directive>) parser.parseFragment(sym.CLASS_BODY_FRAGMENT, "\n", text, symbol.getLine() - 1, 0).value;
   }
 
+  @SuppressWarnings("unchecked")
   @Nonnull
   public List<Directive> parseConstructorBody(@Nonnull String text) {
-    Symbol parsed = parser.parseEmbedded(String.format(TPL_CONSTRUCTOR_BODY, text), 0, 0);
-    CompilationUnit unit = (CompilationUnit) parsed.value;
-    List<Directive> directives = ((ClassDeclaration) unit.getPrimaryDeclaration()).getBody().getDirectives();
-    if(null != directives) {
-      Directive first = Iterables.getFirst(directives, null);
-      if(first instanceof FunctionDeclaration) {
-        return ((FunctionDeclaration)first).getBody().getDirectives();
-      }
-    }
-    return Collections.emptyList();
+    return (List<Directive>) parser.parseFragment(sym.STATEMENTS_FRAGMENT, "\n", text, CONSTRUCTOR_BODY_LINE, 0).value;
   }
 
   @Nullable
   public Implements parseImplements(@Nonnull JooSymbol symbol) {
     String text = (String) symbol.getJooValue();
-    String template = TPL_IMPLEMENTS;
-    int[] position = position(symbol, template);
-    CompilationUnit unit = (CompilationUnit) parser.parseEmbedded(String.format(template, text), position[0], position[1]).value;
-    return ((ClassDeclaration)unit.getPrimaryDeclaration()).getOptImplements();
+    return (Implements) parser.parseFragment(sym.IMPLEMENTS_FRAGMENT, " ", IMPLEMENTS_KEYWORD + text,
+            symbol.getLine() - 1, symbol.getColumn() - IMPLEMENTS_KEYWORD.length()).value;
   }
 
   @Nonnull
@@ -123,35 +103,29 @@ public class MxmlParserHelper {
       throw JangarooParser.error(rootNodeSymbol, "Cyclic inheritance error: Super class and this component are the same.");
     }
 
-    String template = TPL_EXTENDS;
-    int[] position = position(rootNodeSymbol, template);
-    CompilationUnit unit = (CompilationUnit) this.parser.parseEmbedded(String.format(template, superClassName), position[0], position[1]).value;
-    return ((ClassDeclaration)unit.getPrimaryDeclaration()).getOptExtends();
+    return (Extends) this.parser.parseFragment(sym.EXTENDS_FRAGMENT, " ", EXTENDS_KEYWORD + superClassName,
+            rootNodeSymbol.getLine() - 1, rootNodeSymbol.getColumn() - EXTENDS_KEYWORD.length()).value;
   }
 
   @Nullable
   public ImportDirective parseImport(@Nonnull JooSymbol symbol) {
     String text = (String) symbol.getJooValue();
-    String template = TPL_IMPORT;
-    int[] position = position(symbol, template);
     try {
-      Symbol parsed = parser.silent().parseEmbedded(String.format(template, text), position[0], position[1]);
-      CompilationUnit unit = (CompilationUnit) parsed.value;
-      return (ImportDirective) Iterables.getFirst(unit.getDirectives(), null);
+      Symbol parsed = parser.silent().parseFragment(sym.DIRECTIVE_FRAGMENT, "\n", IMPORT_KEYWORD + text + ";",
+              symbol.getLine() - 1, 0);
+      return (ImportDirective) parsed.value;
     } catch (Exception ignored) {
     }
     return null;
   }
 
+  @SuppressWarnings("unchecked")
   @Nullable
   public List<Annotation> parseMetadata(@Nonnull JooSymbol symbol) {
     String text = (String) symbol.getJooValue();
-    String template = TPL_METADATA;
-    int[] position = position(symbol, template);
     try {
-      Symbol parsed = parser.silent().parseEmbedded(String.format(template, text), position[0], position[1]);
-      CompilationUnit unit = (CompilationUnit) parsed.value;
-      return unit.getAnnotations();
+      Symbol parsed = parser.silent().parseFragment(sym.ANNOTATIONS_FRAGMENT, "\n", text, symbol.getLine() - 1, 0);
+      return (List<Annotation>) parsed.value;
     } catch (Exception ignored) {
     }
     return null;
@@ -159,31 +133,13 @@ public class MxmlParserHelper {
 
   @Nullable
   public ImportDirective parseImport(@Nonnull String text) {
-    String template = TPL_IMPORT;
-    Symbol parsed = parser.parseEmbedded(String.format(template, text), 0, 0);
-    CompilationUnit unit = (CompilationUnit) parsed.value;
-    return (ImportDirective) Iterables.getFirst(unit.getDirectives(), null);
+    Symbol parsed = parser.parseFragment(sym.DIRECTIVE_FRAGMENT, "\n", IMPORT_KEYWORD + text + ";", IMPORT_LINE, 0);
+    return (ImportDirective) parsed.value;
   }
 
   public Ide parseIde(@Nonnull String text) {
-    String template = TPL_IDE;
-    Symbol parsed = parser.parseEmbedded(String.format(template, text), 0, 0);
-    CompilationUnit unit = (CompilationUnit) parsed.value;
-    return ((TypedIdeDeclaration)unit.getPrimaryDeclaration()).getOptTypeRelation().getType().getIde();
-  }
-
-    @Nonnull
-  static int[] position(@Nonnull JooSymbol symbol, @Nonnull String template) {
-    String[] lines = template.split("\\n");
-    int lineCount = 0;
-    for(String line : lines) {
-      lineCount ++;
-      int index = line.indexOf("%s");
-      if(-1 != index) {
-        return new int[] {symbol.getLine() - lineCount, symbol.getColumn() - index};
-      }
-    }
-    throw new IllegalStateException("cannot find %s in template string '" + template + "'");
+    Symbol parsed = parser.parseFragment(sym.TYPE_FRAGMENT, "", text, 0, IDE_COLUMN);
+    return ((Type) parsed.value).getIde();
   }
 
   @Nonnull
@@ -222,20 +178,6 @@ public class MxmlParserHelper {
   @Nonnull
   public Expr parseExpression(@Nonnull JooSymbol symbol) {
     String text = symbol.getText();
-    String template = TPL_EXPRESSION;
-    int[] position = position(symbol, template);
-    String input = String.format(template, text);
-    CompilationUnit unit = (CompilationUnit) parser.parseEmbedded(input, position[0], position[1]).value;
-    List<Directive> classBodyDirectives = ((ClassDeclaration) unit.getPrimaryDeclaration()).getBody().getDirectives();
-    if(null != classBodyDirectives) {
-      Directive directive = Iterables.getFirst(classBodyDirectives, null);
-      if(directive instanceof SemicolonTerminatedStatement) {
-        AstNode astNode = ((SemicolonTerminatedStatement) directive).getOptStatement();
-        if(astNode instanceof AssignmentOpExpr) {
-          return ((AssignmentOpExpr) astNode).getArg2();
-        }
-      }
-    }
-    throw new IllegalStateException("Unexpected AST obtained when parsing '" + input + "'");
+    return (Expr) parser.parseFragment(sym.EXPRESSION_FRAGMENT, " ", text, symbol.getLine() - 1, symbol.getColumn()).value;
   }
 }
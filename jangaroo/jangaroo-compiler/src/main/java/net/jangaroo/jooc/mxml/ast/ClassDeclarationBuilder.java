@@ -2,7 +2,6 @@ package net.jangaroo.jooc.mxml.ast;
 
 import net.jangaroo.jooc.JangarooParser;
 import net.jangaroo.jooc.JooSymbol;
-import net.jangaroo.jooc.ast.ClassBody;
 import net.jangaroo.jooc.ast.ClassDeclaration;
 import net.jangaroo.jooc.ast.Directive;
 import net.jangaroo.jooc.ast.Extends;
@@ -56,8 +55,7 @@ class ClassDeclarationBuilder {
 
   private void handleScripts(@Nonnull List<JooSymbol> scripts) {
     for (JooSymbol jooSymbol : scripts) {
-      ClassBody classBody = mxmlParserHelper.parseClassBody(jooSymbol);
-      List<Directive> parsedClassBodyDirectives = classBody.getDirectives();
+      List<Directive> parsedClassBodyDirectives = mxmlParserHelper.parseClassBody(jooSymbol);
       if (null != parsedClassBodyDirectives) {
         classBodyDirectives.addAll(parsedClassBodyDirectives);
       } else {
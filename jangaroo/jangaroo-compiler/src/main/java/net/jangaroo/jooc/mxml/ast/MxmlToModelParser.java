@@ -443,7 +443,7 @@ final class MxmlToModelParser {
                 '[' + (isJavaScriptObject() ? Jooc.EXT_CONFIG_ANNOTATION_NAME : Jooc.BINDABLE_ANNOTATION_NAME) + ']' +
                 (i < 0 ? "\n" : asDoc.substring(i)) +
                 "public var " + id + ':' + className + ';';
-        Collection<Directive> directives = mxmlParserHelper.parseClassBody(new JooSymbol(additionalDeclaration)).getDirectives();
+        Collection<Directive> directives = mxmlParserHelper.parseClassBody(new JooSymbol(additionalDeclaration));
         Iterator<Directive> directiveIterator = directives.iterator();
         if (!directiveIterator.hasNext()) {
           throw new IllegalStateException("MXML: parsing generated field declaration with name '"+ id + "' failed.");
@@ -629,7 +629,7 @@ final class MxmlToModelParser {
             " (" + "event" + ':' + eventTypeIde.getQualifiedNameStr() + ") :void {\n" +
             "      " + value.getJooValue() +
             "\n    }";
-    classBodyDirectives.addAll(mxmlParserHelper.parseClassBody(new JooSymbol(classBodyCode)).getDirectives());
+    classBodyDirectives.addAll(mxmlParserHelper.parseClassBody(new JooSymbol(classBodyCode)));
 
     return MxmlAstUtils.createObjectField(eventName,
             MxmlAstUtils.createApplyExpr(
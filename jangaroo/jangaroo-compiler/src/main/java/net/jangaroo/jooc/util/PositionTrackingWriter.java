@@ -24,17 +24,35 @@ public class PositionTrackingWriter extends Writer {
     return column;
   }
 
+  @Override
+  public void write(int c) throws IOException {
+    delegate.write(c);
+    track((char) c);
+  }
+
   @Override
   public void write(char[] cbuf, int off, int len) throws IOException {
     delegate.write(cbuf, off, len);
     for (int i = off; i < off + len; i++) {
-      char c = cbuf[i];
-      if (c == '\n') {
-        ++line;
-        column = 1;
-      } else {
-        ++column;
-      }
+      track(cbuf[i]);
+    }
+  }
+
+  @Override
+  public void write(String str, int off, int len) throws IOException {
+    // pass strings on without copying them into a char array first:
+    delegate.write(str, off, len);
+    for (int i = off; i < off + len; i++) {
+      track(str.charAt(i));
+    }
+  }
+
+  private void track(char c) {
+    if (c == '\n') {
+      ++line;
+      column = 1;
+    } else {
+      ++column;
     }
   }
 
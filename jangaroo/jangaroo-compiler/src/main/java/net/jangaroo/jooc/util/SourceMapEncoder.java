@@ -0,0 +1,209 @@
+package net.jangaroo.jooc.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Creates a source map in the
+ * <a href="https://sourcemaps.info/spec.html">Source Map Revision 3</a> format while the generated code is written.
+ * Each mapping is Base64 VLQ encoded as soon as it is added, so that no per-mapping objects are kept in memory.
+ * Mappings have to be added in the order of their output positions, which is the order in which
+ * generated code is written anyway. All line and column numbers are 0-based.
+ */
+public class SourceMapEncoder {
+
+  private static final String BASE64_DIGITS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+  private static final int VLQ_BASE_SHIFT = 5;
+  private static final int VLQ_BASE = 1 << VLQ_BASE_SHIFT;
+  private static final int VLQ_BASE_MASK = VLQ_BASE - 1;
+  private static final int VLQ_CONTINUATION_BIT = VLQ_BASE;
+
+  private final Function<String, String> sourceNameResolver;
+  private final StringBuilder mappings = new StringBuilder();
+  private final Map<String, Integer> sourceIndexesByFileName = new HashMap<>();
+  private final List<String> sources = new ArrayList<>();
+  private final Map<String, Integer> nameIndexes = new HashMap<>();
+  private final List<String> names = new ArrayList<>();
+
+  // offset of subsequently added output positions, see setOutputOffset():
+  private int outputLineOffset;
+  private int outputColumnOffset;
+
+  // output position of the last segment and the values all relative fields are encoded against:
+  private int line;
+  private int column;
+  private int previousSourceIndex;
+  private int previousSourceLine;
+  private int previousSourceColumn;
+  private int previousNameIndex;
+  private boolean segmentOnLine;
+
+  // end of the last mapping that has not been followed by an unmapped segment yet, or -1:
+  private int pendingEndLine = -1;
+  private int pendingEndColumn;
+
+  /**
+   * @param sourceNameResolver computes the name under which a source file appears in the source map
+   *                           from the file name of a symbol
+   */
+  public SourceMapEncoder(Function<String, String> sourceNameResolver) {
+    this.sourceNameResolver = sourceNameResolver;
+  }
+
+  /**
+   * Shift all output positions of subsequently added mappings by the given number of lines, and those
+   * on their first line also by the given number of columns. Use this when code written with its own
+   * line and column count is appended to an output file that already contains other code.
+   */
+  public void setOutputOffset(int lineOffset, int columnOffset) {
+    this.outputLineOffset = lineOffset;
+    this.outputColumnOffset = columnOffset;
+  }
+
+  /**
+   * Map the given output range to the given source position. Mappings that start before the end
+   * of a previously added mapping are ignored.
+   *
+   * @param sourceFileName the file name of the source
+   * @param name the original name of the symbol, or null
+   * @param sourceLine the line of the source position
+   * @param sourceColumn the column of the source position
+   * @param startLine the line where the output range starts
+   * @param startColumn the column where the output range starts
+   * @param endLine the line where the output range ends
+   * @param endColumn the column where the output range ends, exclusive
+   */
+  public void addMapping(String sourceFileName, String name, int sourceLine, int sourceColumn,
+                         int startLine, int startColumn, int endLine, int endColumn) {
+    int outputStartLine = outputLineOffset + startLine;
+    int outputStartColumn = startLine == 0 ? outputColumnOffset + startColumn : startColumn;
+    if (isBefore(outputStartLine, outputStartColumn, line, column)
+            || pendingEndLine >= 0 && isBefore(outputStartLine, outputStartColumn, pendingEndLine, pendingEndColumn)) {
+      return;
+    }
+    if (pendingEndLine >= 0 && (pendingEndLine != outputStartLine || pendingEndColumn != outputStartColumn)) {
+      // the previous mapping ends before this one starts: the code in between is not mapped
+      startSegment(pendingEndLine, pendingEndColumn);
+    }
+    startSegment(outputStartLine, outputStartColumn);
+    int sourceIndex = getSourceIndex(sourceFileName);
+    encodeVlq(sourceIndex - previousSourceIndex);
+    encodeVlq(sourceLine - previousSourceLine);
+    encodeVlq(sourceColumn - previousSourceColumn);
+    previousSourceIndex = sourceIndex;
+    previousSourceLine = sourceLine;
+    previousSourceColumn = sourceColumn;
+    if (name != null) {
+      int nameIndex = getNameIndex(name);
+      encodeVlq(nameIndex - previousNameIndex);
+      previousNameIndex = nameIndex;
+    }
+    pendingEndLine = outputLineOffset + endLine;
+    pendingEndColumn = endLine == 0 ? outputColumnOffset + endColumn : endColumn;
+  }
+
+  private static boolean isBefore(int line1, int column1, int line2, int column2) {
+    return line1 < line2 || line1 == line2 && column1 < column2;
+  }
+
+  private void startSegment(int segmentLine, int segmentColumn) {
+    if (segmentLine > line) {
+      for (; line < segmentLine; line++) {
+        mappings.append(';');
+      }
+      column = 0;
+      segmentOnLine = false;
+    }
+    if (segmentOnLine) {
+      mappings.append(',');
+    }
+    encodeVlq(segmentColumn - column);
+    column = segmentColumn;
+    segmentOnLine = true;
+  }
+
+  private int getSourceIndex(String sourceFileName) {
+    Integer sourceIndex = sourceIndexesByFileName.get(sourceFileName);
+    if (sourceIndex == null) {
+      sourceIndex = sources.size();
+      sources.add(sourceNameResolver.apply(sourceFileName));
+      sourceIndexesByFileName.put(sourceFileName, sourceIndex);
+    }
+    return sourceIndex;
+  }
+
+  private int getNameIndex(String name) {
+    Integer nameIndex = nameIndexes.get(name);
+    if (nameIndex == null) {
+      nameIndex = names.size();
+      names.add(name);
+      nameIndexes.put(name, nameIndex);
+    }
+    return nameIndex;
+  }
+
+  private void encodeVlq(int value) {
+    int vlq = value < 0 ? (-value << 1) + 1 : value << 1;
+    do {
+      int digit = vlq & VLQ_BASE_MASK;
+      vlq >>>= VLQ_BASE_SHIFT;
+      if (vlq > 0) {
+        digit |= VLQ_CONTINUATION_BIT;
+      }
+      mappings.append(BASE64_DIGITS.charAt(digit));
+    } while (vlq > 0);
+  }
+
+  /**
+   * Write the source map as JSON.
+   *
+   * @param out the target to write to
+   * @param fileName the name of the generated file the source map belongs to
+   * @throws IOException if writing fails
+   */
+  public void appendTo(Appendable out, String fileName) throws IOException {
+    if (pendingEndLine >= 0) {
+      startSegment(pendingEndLine, pendingEndColumn);
+      pendingEndLine = -1;
+    }
+    out.append("{\n\"version\":3,\n\"file\":");
+    appendJsonString(out, fileName);
+    out.append(",\n\"lineCount\":").append(String.valueOf(line + 1));
+    out.append(",\n\"mappings\":\"").append(mappings).append('"');
+    out.append(",\n\"sources\":");
+    appendJsonArray(out, sources);
+    out.append(",\n\"names\":");
+    appendJsonArray(out, names);
+    out.append("\n}\n");
+  }
+
+  private static void appendJsonArray(Appendable out, List<String> values) throws IOException {
+    out.append('[');
+    for (int i = 0; i < values.size(); i++) {
+      if (i > 0) {
+        out.append(',');
+      }
+      appendJsonString(out, values.get(i));
+    }
+    out.append(']');
+  }
+
+  private static void appendJsonString(Appendable out, String value) throws IOException {
+    out.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        out.append('\\').append(c);
+      } else if (c < 0x20) {
+        out.append(String.format("\\u%04x", (int) c));
+      } else {
+        out.append(c);
+      }
+    }
+    out.append('"');
+  }
+}
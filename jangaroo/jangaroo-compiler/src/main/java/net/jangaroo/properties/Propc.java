@@ -3,12 +3,9 @@
  */
 package net.jangaroo.properties;
 
-import freemarker.core.Environment;
-import freemarker.template.Configuration;
-import freemarker.template.DefaultObjectWrapper;
-import freemarker.template.Template;
-import freemarker.template.TemplateException;
+import freemarker.template.utility.StringUtil;
 import net.jangaroo.properties.model.PropertiesClass;
+import net.jangaroo.properties.model.Property;
 import net.jangaroo.properties.model.ResourceBundleClass;
 import net.jangaroo.utils.CompilerUtils;
 import org.apache.commons.configuration.ConfigurationException;
@@ -25,51 +22,124 @@ import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
 import java.util.List;
+import java.util.Locale;
 
 public class Propc {
-  public static final String PROPERTIES_CLASS_FTL = "properties_class.ftl";
-  public static final String PROPERTIES_SUBCLASS_FTL = "properties_subclass.ftl";
-
-  @SuppressWarnings("deprecation")
-  private static Configuration cfg = new Configuration();
 
   private static final String OUTPUT_CHARSET = "UTF-8";
 
-  static {
-    /* Create and adjust freemarker configuration */
-    cfg.setClassForTemplateLoading(Propc.class, "/net/jangaroo/properties/templates");
-    //noinspection deprecation
-    cfg.setObjectWrapper(new DefaultObjectWrapper());
-    cfg.setOutputEncoding("UTF-8");
-  }
-
   public Propc() {
   }
 
   public void generateApi(String propertiesClassName, InputStream sourceInputStream, OutputStreamWriter writer) throws IOException {
-    PropertiesClass propertiesClass = parse(propertiesClassName, sourceInputStream);
-    generatePropertiesClass(propertiesClass, writer, propertiesClass.getLocale() == null ? PROPERTIES_CLASS_FTL : PROPERTIES_SUBCLASS_FTL);
+    generatePropertiesClass(parse(propertiesClassName, sourceInputStream), writer);
+    writer.flush();
   }
 
-  private void generatePropertiesClass(PropertiesClass propertiesClass, Writer out, String templateFile) throws IOException {
-    Template template = cfg.getTemplate(templateFile);
-    try {
-      Environment env = template.createProcessingEnvironment(propertiesClass, out);
-      env.setOutputEncoding(OUTPUT_CHARSET);
-      env.process();
-    } catch (TemplateException e) {
-      throw new IOException("Internal error in property FreeMarker template.", e);
+  /**
+   * Generate the ActionScript API of the given properties file in memory, ready to be parsed by the compiler.
+   */
+  public String generateApi(String propertiesClassName, InputStream sourceInputStream) throws IOException {
+    StringBuilder code = new StringBuilder();
+    generatePropertiesClass(parse(propertiesClassName, sourceInputStream), code);
+    return code.toString();
+  }
+
+  /**
+   * Render the ActionScript code of the given properties class: a class declaring all properties for a
+   * default properties file, or a dynamic subclass overriding property values for a localized properties file.
+   */
+  private static void generatePropertiesClass(PropertiesClass propertiesClass, Appendable out) throws IOException {
+    ResourceBundleClass resourceBundle = propertiesClass.getResourceBundle();
+    String className = resourceBundle.getClassName();
+    String bundleName = resourceBundle.getBundleName();
+    Locale locale = propertiesClass.getLocale();
+    List<Property> props = propertiesClass.getProps();
+
+    out.append("package ").append(resourceBundle.getPackageName()).append(" {\n");
+    for (String anImport : propertiesClass.getImports()) {
+      out.append("import ").append(anImport).append(";\n");
+    }
+    String annotations = propertiesClass.getAnnotations();
+    if (annotations != null) {
+      out.append(annotations).append("\n");
     }
+    out.append("/**\n");
+    String as3Comment = propertiesClass.getAs3Comment();
+    if (as3Comment != null) {
+      out.append(as3Comment).append("\n");
+    } else if (locale == null) {
+      out.append(" * Interface values for ResourceBundle \"").append(bundleName).append("\".\n");
+    } else {
+      out.append(" * Overrides of ResourceBundle \"").append(bundleName).append("\" for Locale \"").append(locale.toString()).append("\".\n");
+    }
+    out.append(" * @see ").append(className).append("#INSTANCE\n");
+    out.append(" */\n");
+
+    if (locale == null) {
+      out.append("public class ").append(className).append(" {\n\n");
+      out.append("/**\n");
+      out.append(" * Singleton for the current user Locale's instance of ResourceBundle \"").append(bundleName).append("\".\n");
+      out.append(" * @see ").append(className).append("\n");
+      out.append(" */\n");
+      out.append("public static const INSTANCE: ").append(className).append(" = new ").append(className).append("();\n\n");
+      for (Property property : props) {
+        if (property.getKeyIsIdentifier()) {
+          if (property.getComment() != null) {
+            out.append("/**\n").append(property.getComment()).append("\n */\n");
+          }
+          out.append("public var ").append(property.getKey()).append(": String;\n");
+        }
+      }
+      out.append("\npublic function ").append(className).append("() {\n");
+      for (Property property : props) {
+        if (property.getKeyIsIdentifier()) {
+          out.append("  ").append(property.getKey());
+        } else {
+          if (property.getComment() != null) {
+            out.append("\n/*\n").append(property.getComment()).append("\n */\n");
+          }
+          out.append("  this[").append(getStringLiteral(property.getKey())).append("]");
+        }
+        out.append(" = ").append(getValueCode(property)).append(";\n");
+      }
+    } else {
+      String subclassName = bundleName + "_" + locale + "_properties";
+      out.append("public dynamic class ").append(subclassName).append(" extends ").append(className).append(" {\n\n");
+      out.append("public function ").append(subclassName).append("() {\n");
+      out.append("  super();\n");
+      for (Property property : props) {
+        out.append(" this");
+        if (property.getKeyIsIdentifier()) {
+          out.append(".").append(property.getKey());
+        } else {
+          out.append("[").append(getStringLiteral(property.getKey())).append("]");
+        }
+        out.append(" = ").append(getValueCode(property)).append(";\n");
+      }
+    }
+    out.append("}\n\n}\n}");
+  }
+
+  private static String getValueCode(Property property) {
+    return property.isValueIsReference() ? property.getValue() : getStringLiteral(property.getValue());
   }
 
-  private File generateCode(PropertiesClass pl, File outputFile, String templateFile) {
+  /**
+   * The ActionScript string literal code for the given property key or value.
+   */
+  public static String getStringLiteral(String value) {
+    return "\"" + StringUtil.jsonStringEnc(value) + "\"";
+  }
+
+  private File generateCode(PropertiesClass pl, File outputFile) {
     //noinspection ResultOfMethodCallIgnored
     outputFile.getParentFile().mkdirs(); // NOSONAR
 
     Writer writer = null;
     try {
       writer = new OutputStreamWriter(new FileOutputStream(outputFile), OUTPUT_CHARSET);
-      generatePropertiesClass(pl, writer, templateFile);
+      generatePropertiesClass(pl, writer);
       return outputFile;
     } catch (Exception e) {
       throw new PropcException(e);
@@ -86,7 +156,7 @@ public class Propc {
 
   private File generateApi(PropertiesClass pl, File outputDirectory) {
     File apiOutputFile = PropcHelper.computeGeneratedPropertiesAS3File(outputDirectory, pl.getResourceBundle().getFullClassName(), pl.getLocale());
-    return generateCode(pl, apiOutputFile, PROPERTIES_CLASS_FTL);
+    return generateCode(pl, apiOutputFile);
   }
 
   /**
@@ -102,7 +172,10 @@ public class Propc {
     }
   }
 
-  private PropertiesClass parse(String propertiesClassName, InputStream in) throws IOException {
+  /**
+   * Read the given properties file into the model of the properties class of the given name.
+   */
+  public PropertiesClass parse(String propertiesClassName, InputStream in) throws IOException {
     PropertiesConfiguration p = new PropertiesConfiguration();
     p.setDelimiterParsingDisabled(true);
     Reader r = null;
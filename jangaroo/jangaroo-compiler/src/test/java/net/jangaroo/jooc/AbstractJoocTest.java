@@ -6,6 +6,7 @@ import net.jangaroo.jooc.config.DebugMode;
 import net.jangaroo.jooc.config.JoocConfiguration;
 import net.jangaroo.jooc.input.FileInputSource;
 import net.jangaroo.jooc.input.InputSource;
+import net.jangaroo.jooc.input.PathInputSource;
 import net.jangaroo.jooc.mxml.CatalogGenerator;
 import net.jangaroo.jooc.mxml.ComponentPackageManifestParser;
 import net.jangaroo.jooc.mxml.ComponentPackageModel;
@@ -20,6 +21,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -208,6 +210,27 @@ public class AbstractJoocTest {
     jooc.run();
   }
 
+  /**
+   * Set up the given compiler to import units from the configured source path and the given class path,
+   * without compiling anything.
+   */
+  void setUpClassPath(Jooc jooc, List<File> classPath) throws IOException {
+    jooc.setUp(PathInputSource.fromFiles(config.getSourcePath(), new String[]{""}, true, config.getExtNamespace()),
+            PathInputSource.fromFiles(classPath, new String[]{""}, false, config.getExtNamespace()));
+  }
+
+  /**
+   * Write a compilation unit with the given top level declaration to its package directory below the given
+   * directory.
+   */
+  static File writeUnit(File directory, String qName, String declaration) throws IOException {
+    int lastDot = qName.lastIndexOf('.');
+    File file = new File(directory, qName.replace('.', File.separatorChar) + Jooc.AS_SUFFIX);
+    FileUtils.writeStringToFile(file, "package " + qName.substring(0, lastDot) + " {\n" + declaration + "\n}\n",
+            StandardCharsets.UTF_8);
+    return file.getAbsoluteFile();
+  }
+
   private static final String LINE_SEPARATOR = System.getProperty("line.separator");
 
   static String readFileToString(File file) throws IOException {
@@ -0,0 +1,278 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.ast.CompilationUnit;
+import net.jangaroo.jooc.input.InputSource;
+import net.jangaroo.jooc.input.ZipFileInputSource;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+public class ApiStubCacheTest extends AbstractJoocTest {
+
+  private static final Map<String, String> CACHED_SOURCES = new LinkedHashMap<>();
+
+  static {
+    CACHED_SOURCES.put("cached/CachedInterface.as", "package cached {\n" +
+            "import package1.SuperInterface;\n" +
+            "public interface CachedInterface extends SuperInterface {\n" +
+            "  function get name():String;\n" +
+            "  function doIt(count:int = 0, ...rest):void;\n" +
+            "}\n" +
+            "}\n");
+    CACHED_SOURCES.put("cached/CachedClass.as", "package cached {\n" +
+            "import package1.SuperInterface;\n" +
+            "\n" +
+            "/**\n" +
+            " * ASDoc is not cached.\n" +
+            " */\n" +
+            "[Event(name=\"changed\", type=\"String\")]\n" +
+            "[ExtConfig(target=\"cached.CachedClass\")]\n" +
+            "public dynamic class CachedClass implements CachedInterface {\n" +
+            "  public static const MAX:int = 10;\n" +
+            "  public static const MIN:Number = -1.5;\n" +
+            "  public static const HEX:uint = 0xFF;\n" +
+            "  public static const SCALE:Number = 2.5e3;\n" +
+            "  public static const QUOTED:String = \"say \\\"hi\\\"\";\n" +
+            "  public static const PLAIN:String = 'plain';\n" +
+            "  public static const REF:int = MAX;\n" +
+            "  public static const NOTHING:Object = null;\n" +
+            "  public var items:Vector.<String>;\n" +
+            "  protected var untyped:*;\n" +
+            "  private var hidden:String;\n" +
+            "\n" +
+            "  public function CachedClass(config:Object = null) {\n" +
+            "    super();\n" +
+            "  }\n" +
+            "\n" +
+            "  [Bindable]\n" +
+            "  public function get name():String {\n" +
+            "    return hidden;\n" +
+            "  }\n" +
+            "\n" +
+            "  public function set name(value:String):void {\n" +
+            "    hidden = value;\n" +
+            "  }\n" +
+            "\n" +
+            "  public function doIt(count:int = 0, ...rest):void {\n" +
+            "    trace(count / 2, rest);\n" +
+            "  }\n" +
+            "\n" +
+            "  [Deprecated(replacement=\"create2\", since=\"1.0\")]\n" +
+            "  public static function create(flag:Boolean = true, label:String = \"a\"):CachedClass {\n" +
+            "    return new CachedClass({ flag: flag, label: label });\n" +
+            "  }\n" +
+            "\n" +
+            "  protected final function compute(a:Number, b:Number = NaN):Number {\n" +
+            "    return a / b;\n" +
+            "  }\n" +
+            "\n" +
+            "  public function getSuperInterface():SuperInterface {\n" +
+            "    return null;\n" +
+            "  }\n" +
+            "}\n" +
+            "}\n");
+    CACHED_SOURCES.put("cached/cachedFunction.as", "package cached {\n" +
+            "public function cachedFunction(value:String, ...rest):Boolean {\n" +
+            "  return value !== null;\n" +
+            "}\n" +
+            "}\n");
+    CACHED_SOURCES.put("cached/CACHED_CONST.as", "package cached {\n" +
+            "public const CACHED_CONST:String = \"c\";\n" +
+            "}\n");
+    CACHED_SOURCES.put("cached/cached_namespace.as", "package cached {\n" +
+            "public namespace cached_namespace = \"http://jangaroo.net/cached\";\n" +
+            "}\n");
+    // longer than the 64 KB DataOutput#writeUTF() could handle:
+    CACHED_SOURCES.put("cached/LONG_CONST.as", "package cached {\n" +
+            "public const LONG_CONST:String = \"" + new String(new char[70000]).replace('\0', '\u00e4') + "\";\n" +
+            "}\n");
+  }
+
+  private static final List<String> CACHED_QUALIFIED_NAMES = Arrays.asList(
+          "cached.CachedInterface",
+          "cached.CachedClass",
+          "cached.cachedFunction",
+          "cached.CACHED_CONST",
+          "cached.cached_namespace",
+          "cached.LONG_CONST"
+  );
+
+  private File archive;
+  private File cacheDirectory;
+
+  @Before
+  public void createArchive() throws IOException {
+    archive = new File(tmpFolder.getRoot(), "cached.jar");
+    writeArchive(archive, CACHED_SOURCES);
+    cacheDirectory = tmpFolder.newFolder("api-cache");
+  }
+
+  @Test
+  public void testCacheMissAndHit() throws Exception {
+    ApiStubCache apiStubCache = new ApiStubCache(cacheDirectory);
+    InputSource cachedClassSource = getArchiveEntry("cached/CachedClass.as");
+    assertNull("nothing must be cached before the first import", apiStubCache.getApiModel(cachedClassSource));
+
+    Map<String, String> apiStubsFromSource = importAll(apiStubCache);
+    assertTrue("the archive entry must be cached after the import", apiStubCache.getApiModel(cachedClassSource) != null);
+    File cacheFile = apiStubCache.getCacheFile(archive);
+    assertFalse(cacheFile.exists());
+    apiStubCache.flush();
+    assertTrue("the cache file must have been written", cacheFile.exists());
+
+    ApiStubCache reloadedApiStubCache = new ApiStubCache(cacheDirectory);
+    for (String relativePath : CACHED_SOURCES.keySet()) {
+      assertNotNull("cache hit expected for " + relativePath, reloadedApiStubCache.getApiModel(getArchiveEntry(relativePath)));
+    }
+    jooc = new Jooc(config, testLog);
+    Map<String, String> apiStubsFromCache = importAll(reloadedApiStubCache);
+    // the AST built from the cached model must have exactly the same API as the one parsed from source:
+    assertEquals(apiStubsFromSource, apiStubsFromCache);
+    assertFalse(testLog.hasErrors());
+  }
+
+  @Test
+  public void testApiModelRoundTrip() throws Exception {
+    ApiStubCache apiStubCache = new ApiStubCache(cacheDirectory);
+    importAll(apiStubCache);
+    for (String relativePath : CACHED_SOURCES.keySet()) {
+      ByteArrayOutputStream serializedModel = new ByteArrayOutputStream();
+      try (DataOutputStream out = new DataOutputStream(serializedModel)) {
+        ApiStubCache.writeModel(out, apiStubCache.getApiModel(getArchiveEntry(relativePath)));
+      }
+      ByteArrayOutputStream reserializedModel = new ByteArrayOutputStream();
+      try (DataOutputStream out = new DataOutputStream(reserializedModel)) {
+        ApiStubCache.writeModel(out, ApiStubCache.readModel(new DataInputStream(
+                new ByteArrayInputStream(serializedModel.toByteArray()))));
+      }
+      assertTrue("model of " + relativePath + " must survive a round trip",
+              Arrays.equals(serializedModel.toByteArray(), reserializedModel.toByteArray()));
+    }
+  }
+
+  @Test
+  public void testInvalidationOnModification() throws Exception {
+    populateCache();
+    assertTrue(archive.setLastModified(archive.lastModified() + 10000));
+    assertNull("a modified archive must invalidate the cache",
+            new ApiStubCache(cacheDirectory).getApiModel(getArchiveEntry("cached/CachedClass.as")));
+  }
+
+  @Test
+  public void testInvalidationOnSize() throws Exception {
+    populateCache();
+    long lastModified = archive.lastModified();
+    Map<String, String> changedSources = new LinkedHashMap<>(CACHED_SOURCES);
+    changedSources.put("cached/Added.as", "package cached {\npublic class Added {\n}\n}\n");
+    writeArchive(archive, changedSources);
+    assertTrue(archive.setLastModified(lastModified));
+    assertNull("an archive of different size must invalidate the cache",
+            new ApiStubCache(cacheDirectory).getApiModel(getArchiveEntry("cached/CachedClass.as")));
+  }
+
+  @Test
+  public void testInvalidationOnCompilerVersion() throws Exception {
+    ApiStubCache apiStubCache = populateCache();
+    File cacheFile = apiStubCache.getCacheFile(archive);
+    rewriteCompilerVersion(cacheFile, JoocProperties.getVersion() + "-other");
+    assertNull("a cache file written by another compiler version must be ignored",
+            new ApiStubCache(cacheDirectory).getApiModel(getArchiveEntry("cached/CachedClass.as")));
+    rewriteCompilerVersion(cacheFile, JoocProperties.getVersion());
+    assertNotNull(new ApiStubCache(cacheDirectory).getApiModel(getArchiveEntry("cached/CachedClass.as")));
+  }
+
+  @Test
+  public void testCorruptCacheFileIsIgnored() throws Exception {
+    ApiStubCache apiStubCache = populateCache();
+    try (FileOutputStream out = new FileOutputStream(apiStubCache.getCacheFile(archive))) {
+      out.write("corrupt".getBytes(StandardCharsets.UTF_8));
+    }
+    assertNull(new ApiStubCache(cacheDirectory).getApiModel(getArchiveEntry("cached/CachedClass.as")));
+  }
+
+  private ApiStubCache populateCache() throws Exception {
+    ApiStubCache apiStubCache = new ApiStubCache(cacheDirectory);
+    importAll(apiStubCache);
+    apiStubCache.flush();
+    assertNotNull(new ApiStubCache(cacheDirectory).getApiModel(getArchiveEntry("cached/CachedClass.as")));
+    return apiStubCache;
+  }
+
+  private Map<String, String> importAll(ApiStubCache apiStubCache) throws Exception {
+    setUpClassPath(jooc, Collections.singletonList(archive));
+    jooc.setApiStubCache(apiStubCache);
+    try {
+      return jooc.withDefaultLog(() -> {
+        Map<String, String> apiStubs = new LinkedHashMap<>();
+        for (String qName : CACHED_QUALIFIED_NAMES) {
+          CompilationUnit unit = jooc.getCompilationUnit(qName);
+          assertNotNull("unit " + qName + " not found", unit);
+          apiStubs.put(qName, ApiStubCache.generateApiStub(unit));
+        }
+        return apiStubs;
+      }).call();
+    } finally {
+      jooc.tearDown();
+    }
+  }
+
+  private InputSource getArchiveEntry(String relativePath) throws IOException {
+    return new ZipFileInputSource(archive, new String[]{""}, false).getChild(relativePath);
+  }
+
+  private static void writeArchive(File archive, Map<String, String> sources) throws IOException {
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(archive))) {
+      // like real archives, list the package directory, which is needed to look up classes of the same package:
+      out.putNextEntry(new ZipEntry("cached/"));
+      out.closeEntry();
+      for (Map.Entry<String, String> source : sources.entrySet()) {
+        out.putNextEntry(new ZipEntry(source.getKey()));
+        out.write(source.getValue().getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+      }
+    }
+  }
+
+  private static void rewriteCompilerVersion(File cacheFile, String version) throws IOException {
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(cacheFile))));
+         DataOutputStream out = new DataOutputStream(content)) {
+      out.writeInt(in.readInt());
+      ApiStubCache.readString(in);
+      ApiStubCache.writeString(out, version);
+      byte[] buffer = new byte[4096];
+      for (int count; (count = in.read(buffer)) != -1; ) {
+        out.write(buffer, 0, count);
+      }
+    }
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(cacheFile))))) {
+      out.write(content.toByteArray());
+    }
+  }
+}
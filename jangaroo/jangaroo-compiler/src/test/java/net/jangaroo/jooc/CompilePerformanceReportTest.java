@@ -0,0 +1,148 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.input.FileInputSource;
+import net.jangaroo.jooc.input.InputSource;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+public class CompilePerformanceReportTest extends AbstractJoocTest {
+
+  private static final Pattern TIMING_PATTERN =
+          Pattern.compile("\"name\": \"(\\w+)\",\\s*\"count\": (\\d+),\\s*\"wallMillis\": ([0-9.E-]+)");
+  private static final List<String> COMPILER_PHASES = Arrays.asList(
+          "classPathIndexing", "setUp", "parseSources", "analysis", "codeGeneration", "sassCopy", "finish");
+
+  @Test
+  public void testPhasesAddUpInOrderOfFirstMeasurement() throws Exception {
+    CompilePerformanceReport report = new CompilePerformanceReport(true);
+    try (CompilePerformanceReport.Measurement ignored = report.measurePhase("second")) {
+      Thread.sleep(10);
+    }
+    try (CompilePerformanceReport.Measurement ignored = report.measurePhase("first")) {
+      Thread.sleep(10);
+    }
+    try (CompilePerformanceReport.Measurement ignored = report.measurePhase("second")) {
+      Thread.sleep(10);
+    }
+    String json = writeReport(report);
+    assertEquals(Arrays.asList("second", "first"), getTimingNames(json, "phases"));
+    assertEquals(2, getCount(json, "second"));
+    assertEquals(1, getCount(json, "first"));
+    assertTrue(getWallMillis(json, "second") >= 20);
+  }
+
+  @Test
+  public void testNestedActivityTimesAreExcluded() throws Exception {
+    CompilePerformanceReport report = new CompilePerformanceReport(true);
+    InputSource sourcePathUnit = new FileInputSource(tmpFolder.newFile("Unit.as"), true);
+    InputSource classPathUnit = new FileInputSource(tmpFolder.newFile("Imported.as"), false);
+    try (CompilePerformanceReport.Measurement ignored = report.measure(CompilePerformanceReport.Activity.SCOPE, sourcePathUnit)) {
+      try (CompilePerformanceReport.Measurement ignored2 = report.measure(CompilePerformanceReport.Activity.PARSE, classPathUnit)) {
+        Thread.sleep(100);
+      }
+    }
+    String json = writeReport(report);
+    assertEquals(Arrays.asList("parse", "scope"), getTimingNames(json, "activities"));
+    assertTrue(getWallMillis(json, "parse") >= 100);
+    assertTrue("scoping must not include the nested parse time", getWallMillis(json, "scope") < 100);
+    // only the source path unit is reported per unit:
+    assertTrue(json.contains("Unit.as"));
+    assertFalse(json.contains("Imported.as"));
+    assertFalse(json.contains("parseWallMillis"));
+    assertTrue(json.contains("scopeWallMillis"));
+  }
+
+  @Test
+  public void testDisabledReportMeasuresNothing() throws Exception {
+    CompilePerformanceReport report = new CompilePerformanceReport(false);
+    assertFalse(report.isEnabled());
+    try (CompilePerformanceReport.Measurement ignored = report.measurePhase("phase")) {
+      InputStream inputStream = new ByteArrayInputStream(new byte[]{1, 2, 3});
+      assertSame(inputStream, report.countBytesRead(inputStream));
+      report.countClassPathLookup();
+    }
+    String json = writeReport(report);
+    assertTrue(getTimingNames(json, "phases").isEmpty());
+    assertTrue(json.contains("\"classPathLookups\": 0"));
+  }
+
+  @Test
+  public void testCompilerWritesReport() throws Exception {
+    File reportFile = new File(tmpFolder.getRoot(), "reports/compilePerformance.json");
+    config.setPerformanceReportOutputFile(reportFile.getPath());
+    compile(".as", "package1/ConfigClass");
+    assertFalse(testLog.hasErrors());
+    String json = FileUtils.readFileToString(reportFile, StandardCharsets.UTF_8);
+    assertEquals(COMPILER_PHASES, getTimingNames(json, "phases"));
+    assertFalse(json.contains("\"bytesWritten\": 0,"));
+    assertTrue(json.contains("ConfigClass.as"));
+  }
+
+  @Test
+  public void testReportIsWrittenWhenCompilationFails() throws Exception {
+    File reportFile = new File(tmpFolder.getRoot(), "compilePerformance.json");
+    config.setPerformanceReportOutputFile(reportFile.getPath());
+    // writing the dependency report below a plain file fails in the last phase:
+    config.setDependencyReportOutputFile(new File(tmpFolder.newFile("notADirectory"), "dependencyWarnings.txt").getPath());
+    compile(".as", "package1/ConfigClass");
+    assertTrue(testLog.hasErrors());
+    String json = FileUtils.readFileToString(reportFile, StandardCharsets.UTF_8);
+    assertEquals(COMPILER_PHASES, getTimingNames(json, "phases"));
+    assertFalse("bytes written before the failure must be counted", json.contains("\"bytesWritten\": 0,"));
+  }
+
+  private String writeReport(CompilePerformanceReport report) throws IOException {
+    File reportFile = tmpFolder.newFile("report.json");
+    report.write(reportFile);
+    return FileUtils.readFileToString(reportFile, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * The names of the timings listed under the given key, in order.
+   */
+  private static List<String> getTimingNames(String json, String key) {
+    int start = json.indexOf("\"" + key + "\": [");
+    assertTrue("missing " + key, start >= 0);
+    String timings = json.substring(start, json.indexOf("]", start));
+    List<String> names = new ArrayList<>();
+    Matcher matcher = TIMING_PATTERN.matcher(timings);
+    while (matcher.find()) {
+      names.add(matcher.group(1));
+    }
+    return names;
+  }
+
+  private static int getCount(String json, String name) {
+    return Integer.parseInt(findTiming(json, name).group(2));
+  }
+
+  private static double getWallMillis(String json, String name) {
+    return Double.parseDouble(findTiming(json, name).group(3));
+  }
+
+  private static Matcher findTiming(String json, String name) {
+    Matcher matcher = TIMING_PATTERN.matcher(json);
+    while (matcher.find()) {
+      if (matcher.group(1).equals(name)) {
+        return matcher;
+      }
+    }
+    throw new AssertionError("no timing for " + name);
+  }
+}
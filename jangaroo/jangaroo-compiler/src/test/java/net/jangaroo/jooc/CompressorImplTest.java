@@ -0,0 +1,139 @@
+package net.jangaroo.jooc;
+
+import com.google.debugging.sourcemap.SourceMapConsumerV3;
+import com.google.debugging.sourcemap.proto.Mapping.OriginalMapping;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertTrue;
+
+public class CompressorImplTest {
+
+  private static final List<String> CLASS_NAMES = Arrays.asList("First", "Second", "Third");
+  private static final int STATEMENTS_PER_CLASS = 3;
+
+  @Rule
+  public final TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private File outputDirectory;
+  private File output;
+  private File cacheDirectory;
+  private List<File> sources;
+
+  @Before
+  public void setUp() throws Exception {
+    outputDirectory = tmpFolder.newFolder("package");
+    output = new File(outputDirectory, "bundle.js");
+    cacheDirectory = tmpFolder.newFolder("compressed");
+    sources = new ArrayList<>();
+    for (String className : CLASS_NAMES) {
+      StringBuilder code = new StringBuilder();
+      for (int i = 1; i <= STATEMENTS_PER_CLASS; i++) {
+        code.append("window.").append(className).append(i).append(" = function(a) {\n")
+                .append("  return a + ").append(i).append(";\n")
+                .append("};\n");
+      }
+      File source = new File(outputDirectory, "src/pkg/" + className + ".js");
+      FileUtils.writeStringToFile(source, code.toString(), StandardCharsets.UTF_8);
+      sources.add(source);
+    }
+  }
+
+  @Test
+  public void testCachedCompressionMatchesOneShotCompression() throws Exception {
+    new CompressorImpl().compress(sources, output);
+    String oneShotCode = readCode();
+    assertSourceMapping(oneShotCode, readSourceMap());
+
+    new CompressorImpl(cacheDirectory).compress(sources, output);
+    String cachedCode = readCode();
+    String cachedSourceMap = readSourceMap();
+    // snippets are concatenated line by line, so only line breaks may differ:
+    assertEquals(oneShotCode.replaceAll("\\s", ""), cachedCode.replaceAll("\\s", ""));
+    assertSourceMapping(cachedCode, cachedSourceMap);
+
+    // the same result when taken from the cache:
+    new CompressorImpl(cacheDirectory).compress(sources, output);
+    assertEquals(cachedCode, readCode());
+    assertEquals(cachedSourceMap, readSourceMap());
+  }
+
+  @Test
+  public void testOutputsOfTheSameNameDoNotShareCacheEntries() throws Exception {
+    File otherOutput = new File(tmpFolder.newFolder("other"), output.getName());
+    new CompressorImpl(cacheDirectory).compress(sources, output);
+    new CompressorImpl(cacheDirectory).compress(sources.subList(0, 1), otherOutput);
+    File[] outputCacheDirectories = cacheDirectory.listFiles();
+    assertNotNull(outputCacheDirectories);
+    assertEquals(2, outputCacheDirectories.length);
+    for (File outputCacheDirectory : outputCacheDirectories) {
+      String[] cacheFiles = outputCacheDirectory.list();
+      assertNotNull(cacheFiles);
+      // code and source map per source file:
+      assertTrue(cacheFiles.length == 2 || cacheFiles.length == 2 * sources.size());
+    }
+  }
+
+  @Test
+  public void testCorruptCacheEntriesAreRecomputed() throws Exception {
+    new CompressorImpl(cacheDirectory).compress(sources, output);
+    String cachedCode = readCode();
+    String cachedSourceMap = readSourceMap();
+    File[] outputCacheDirectories = cacheDirectory.listFiles();
+    assertNotNull(outputCacheDirectories);
+    File[] cacheFiles = outputCacheDirectories[0].listFiles();
+    assertNotNull(cacheFiles);
+    for (File cacheFile : cacheFiles) {
+      if (cacheFile.getName().endsWith(".map")) {
+        FileUtils.writeStringToFile(cacheFile, "{\"version\":3,", StandardCharsets.UTF_8);
+      }
+    }
+
+    new CompressorImpl(cacheDirectory).compress(sources, output);
+    assertEquals(cachedCode, readCode());
+    assertEquals(cachedSourceMap, readSourceMap());
+  }
+
+  /**
+   * Every statement of the generated code must be mapped to its source file and line.
+   */
+  private static void assertSourceMapping(String code, String sourceMap) throws Exception {
+    SourceMapConsumerV3 sourceMapConsumer = new SourceMapConsumerV3();
+    sourceMapConsumer.parse(sourceMap);
+    String[] lines = code.split("\n", -1);
+    for (String className : CLASS_NAMES) {
+      for (int i = 1; i <= STATEMENTS_PER_CLASS; i++) {
+        String statement = "window." + className + i;
+        int line = 0;
+        while (line < lines.length && !lines[line].contains(statement)) {
+          ++line;
+        }
+        assertTrue("missing " + statement, line < lines.length);
+        OriginalMapping mapping = sourceMapConsumer.getMappingForLine(line + 1, lines[line].indexOf(statement) + 1);
+        assertNotNull("no mapping for " + statement, mapping);
+        assertTrue(mapping.getOriginalFile(), mapping.getOriginalFile().endsWith("pkg/" + className + ".js"));
+        assertEquals(statement, 3 * (i - 1) + 1, mapping.getLineNumber());
+      }
+    }
+  }
+
+  private String readCode() throws IOException {
+    return FileUtils.readFileToString(output, StandardCharsets.UTF_8);
+  }
+
+  private String readSourceMap() throws IOException {
+    return FileUtils.readFileToString(new File(output.getPath() + ".map"), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,86 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.api.CompilationResult;
+import net.jangaroo.jooc.json.JsonArray;
+import net.jangaroo.jooc.json.JsonObject;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+
+public class DependencyWarningsManagerTest extends AbstractJoocTest {
+
+  private File declaredDirectory;
+  private File undeclaredDirectory;
+  private File unusedDirectory;
+  private File usesUndeclaredFile;
+  private File usesDeclaredFile;
+  private File dependencyReportFile;
+
+  @Before
+  public void createSources() throws Exception {
+    declaredDirectory = tmpFolder.newFolder("declared");
+    writeUnit(declaredDirectory, "declared.Declared", "public class Declared {\n}");
+    undeclaredDirectory = tmpFolder.newFolder("undeclared");
+    writeUnit(undeclaredDirectory, "undeclared.Undeclared", "public class Undeclared {\n}");
+    unusedDirectory = tmpFolder.newFolder("unused");
+    writeUnit(unusedDirectory, "unused.Unused", "public class Unused {\n}");
+
+    File sourceDirectory = tmpFolder.newFolder("dependency-src");
+    usesUndeclaredFile = writeUnit(sourceDirectory, "app.UsesUndeclared", "import undeclared.Undeclared;\n" +
+            "public class UsesUndeclared {\n" +
+            "  public var undeclared:Undeclared;\n" +
+            "}");
+    usesDeclaredFile = writeUnit(sourceDirectory, "app.UsesDeclared", "import declared.Declared;\n" +
+            "public class UsesDeclared {\n" +
+            "  public var declared:Declared;\n" +
+            "}");
+
+    List<File> sourcePath = new ArrayList<>(config.getSourcePath());
+    sourcePath.add(sourceDirectory);
+    config.setSourcePath(sourcePath);
+    config.setClassPath(Arrays.asList(declaredDirectory, undeclaredDirectory, unusedDirectory));
+    config.setCompilePath(Arrays.asList(declaredDirectory, unusedDirectory));
+    config.setFindUnusedDependencies(true);
+    dependencyReportFile = new File(tmpFolder.getRoot(), "dependency-report.json");
+    config.setDependencyReportOutputFile(dependencyReportFile.getPath());
+  }
+
+  @Test
+  public void testDependencyReport() throws Exception {
+    run(usesUndeclaredFile, usesDeclaredFile);
+    assertReport();
+  }
+
+  @Test
+  public void testIncrementalDependencyReportKeepsUnchangedUnits() throws Exception {
+    config.setIncrementalBuildStateFile(new File(tmpFolder.getRoot(), "jooc-build-state.txt"));
+    run(usesUndeclaredFile, usesDeclaredFile);
+    assertReport();
+
+    // recompiling only the unit that uses declared dependencies must still report the other unit's usage:
+    run(usesDeclaredFile);
+    assertReport();
+  }
+
+  private void assertReport() throws IOException {
+    String report = FileUtils.readFileToString(dependencyReportFile, StandardCharsets.UTF_8);
+    assertEquals(new JsonObject(
+            "undeclaredDependencies", new JsonArray(new File(undeclaredDirectory, "undeclared/Undeclared.as").getPath()),
+            "unusedDependencies", new JsonArray(unusedDirectory.getPath())).toString(2, 0, true), report);
+  }
+
+  private void run(File... sourceFiles) {
+    jooc = new Jooc(config, new TestLog());
+    config.setSourceFiles(Arrays.asList(sourceFiles));
+    assertEquals(CompilationResult.RESULT_CODE_OK, jooc.run().getResultCode());
+  }
+}
@@ -0,0 +1,93 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.ast.ClassDeclaration;
+import net.jangaroo.jooc.ast.CompilationUnit;
+import net.jangaroo.jooc.ast.Directive;
+import net.jangaroo.jooc.ast.FunctionDeclaration;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class GeneratedUnitReleaserTest extends AbstractJoocTest {
+
+  @Test
+  public void testOutputIsUnchanged() throws Exception {
+    compile(".as", "package1/ConfigClass", "package1/ConfigSubclass", "package1/TestMethodCall");
+    assertFalse(testLog.hasErrors());
+    Map<String, String> expectedOutput = readOutput(outputFolder);
+
+    File releasedOutputFolder = tmpFolder.newFolder("joo-classes-released");
+    config.setOutputDirectory(releasedOutputFolder);
+    config.setReleaseGeneratedAsts(true);
+    new Jooc(config, testLog).run();
+    assertFalse(testLog.hasErrors());
+    assertEquals(expectedOutput, readOutput(releasedOutputFolder));
+  }
+
+  @Test
+  public void testUnitsAreReleasedWhenUnused() throws Exception {
+    setUpClassPath(jooc, Collections.emptyList());
+    try {
+      jooc.withDefaultLog(() -> {
+        CompilationUnit superclass = jooc.getCompilationUnit("package1.ConfigClass");
+        CompilationUnit subclass = jooc.getCompilationUnit("package1.ConfigSubclass");
+        CompilationUnit usedOtherUnit = jooc.getCompilationUnit("package1.TestMethodCall");
+        CompilationUnit unusedOtherUnit = jooc.getCompilationUnit("package1.WithStaticReference");
+        subclass.getCompileDependencies().add(superclass.getQualifiedNameStr());
+        subclass.getCompileDependencies().add(usedOtherUnit.getQualifiedNameStr());
+        assertTrue(hasMethodBodies(superclass));
+        assertTrue(hasMethodBodies(usedOtherUnit));
+        assertTrue(hasMethodBodies(unusedOtherUnit));
+
+        GeneratedUnitReleaser releaser = new GeneratedUnitReleaser(Arrays.asList(superclass, subclass),
+                jooc.getCompilationUnits());
+        assertTrue("a unit that is not generated and not used must be released right away",
+                releaser.isReleased(unusedOtherUnit));
+        assertFalse(hasMethodBodies(unusedOtherUnit));
+        assertFalse(releaser.isReleased(usedOtherUnit));
+
+        releaser.unitGenerated(superclass);
+        assertFalse("a unit must be kept while a unit to generate depends on it", releaser.isReleased(superclass));
+        assertTrue(hasMethodBodies(superclass));
+
+        releaser.unitGenerated(subclass);
+        for (CompilationUnit unit : Arrays.asList(subclass, superclass, usedOtherUnit)) {
+          assertTrue(unit.getQualifiedNameStr() + " must have been released", releaser.isReleased(unit));
+          assertFalse(hasMethodBodies(unit));
+        }
+        return null;
+      }).call();
+    } finally {
+      jooc.tearDown();
+    }
+  }
+
+  private static boolean hasMethodBodies(CompilationUnit unit) {
+    for (Directive directive : ((ClassDeclaration) unit.getPrimaryDeclaration()).getBody().getDirectives()) {
+      if (directive instanceof FunctionDeclaration && ((FunctionDeclaration) directive).getBody() != null
+              && !((FunctionDeclaration) directive).getBody().getDirectives().isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Map<String, String> readOutput(File directory) throws Exception {
+    Map<String, String> output = new TreeMap<>();
+    Collection<File> files = FileUtils.listFiles(directory, new String[]{"js"}, true);
+    for (File file : files) {
+      output.put(directory.toPath().relativize(file.toPath()).toString(), readFileToString(file));
+    }
+    return output;
+  }
+}
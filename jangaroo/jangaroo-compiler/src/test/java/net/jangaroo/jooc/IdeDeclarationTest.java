@@ -0,0 +1,146 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.ast.Annotation;
+import net.jangaroo.jooc.ast.ClassDeclaration;
+import net.jangaroo.jooc.ast.Ide;
+import net.jangaroo.jooc.ast.IdeDeclaration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+public class IdeDeclarationTest extends AbstractJoocTest {
+
+  private ClassDeclaration nativeClass;
+  private ClassDeclaration renamedClass;
+  private IdeDeclaration nativeGlobal;
+
+  @Before
+  public void createClassPath() throws Exception {
+    File classPathDirectory = tmpFolder.newFolder("names-classpath");
+    writeUnit(classPathDirectory, "names.NativeClass", "[Native(\"ext.NativeTarget\")]\n" +
+            "public class NativeClass {\n" +
+            "  [Native(\"nativeName\")]\n" +
+            "  public native function nativeMethod():void;\n" +
+            "  public function plainMethod():void {}\n" +
+            "}");
+    writeUnit(classPathDirectory, "names.RenamedClass", "[Rename(\"names.NewName\")]\n" +
+            "[Native(\"ext.OldName\")]\n" +
+            "public class RenamedClass {\n" +
+            "}");
+    writeUnit(classPathDirectory, "names.nativeGlobal", "[Native(\"ext.global\")]\n" +
+            "public var nativeGlobal:String;");
+    setUpClassPath(jooc, Collections.singletonList(classPathDirectory));
+    jooc.withDefaultLog(() -> {
+      nativeClass = (ClassDeclaration) getPrimaryDeclaration("names.NativeClass");
+      renamedClass = (ClassDeclaration) getPrimaryDeclaration("names.RenamedClass");
+      nativeGlobal = getPrimaryDeclaration("names.nativeGlobal");
+      return null;
+    }).call();
+  }
+
+  @After
+  public void tearDownClassPath() {
+    jooc.tearDown();
+  }
+
+  @Test
+  public void testTargetNamesAreMemoized() {
+    String qualifiedName = nativeClass.getQualifiedNameStr();
+    assertEquals("names.NativeClass", qualifiedName);
+    assertSame(qualifiedName, nativeClass.getQualifiedNameStr());
+    assertEquals("ext.NativeTarget", nativeClass.getTargetQualifiedNameStrWithoutRename());
+    assertEquals("ext.NativeTarget", nativeClass.getTargetQualifiedNameStr());
+
+    // [Rename] takes precedence over [Native]:
+    String targetName = renamedClass.getTargetQualifiedNameStr();
+    assertEquals("names.NewName", targetName);
+    assertSame(targetName, renamedClass.getTargetQualifiedNameStr());
+    assertEquals("ext.OldName", renamedClass.getTargetQualifiedNameStrWithoutRename());
+
+    IdeDeclaration nativeMethod = nativeClass.getMemberDeclaration("nativeMethod");
+    assertEquals("nativeName", nativeMethod.getTargetQualifiedNameStr());
+    IdeDeclaration plainMethod = nativeClass.getMemberDeclaration("plainMethod");
+    assertEquals("names.NativeClass.plainMethod", plainMethod.getTargetQualifiedNameStr());
+    assertSame(plainMethod.getQualifiedNameStr(), plainMethod.getQualifiedNameStr());
+  }
+
+  @Test
+  public void testAnnotationsByName() {
+    Annotation renameAnnotation = renamedClass.getAnnotation(Jooc.RENAME_ANNOTATION_NAME);
+    assertNotNull(renameAnnotation);
+    assertTrue(renamedClass.getAnnotations().contains(renameAnnotation));
+    List<Annotation> renameAnnotations = renamedClass.getAnnotations(Jooc.RENAME_ANNOTATION_NAME);
+    assertEquals(Collections.singletonList(renameAnnotation), renameAnnotations);
+    assertEquals(1, renamedClass.getAnnotations(Jooc.NATIVE_ANNOTATION_NAME).size());
+    assertNull(renamedClass.getAnnotation("Missing"));
+    assertTrue(renamedClass.getAnnotations("Missing").isEmpty());
+
+    // callers get a copy of the indexed annotations:
+    renameAnnotations.clear();
+    assertSame(renameAnnotation, renamedClass.getAnnotation(Jooc.RENAME_ANNOTATION_NAME));
+    assertEquals(1, renamedClass.getAnnotations(Jooc.RENAME_ANNOTATION_NAME).size());
+  }
+
+  @Test
+  public void testSetIdeResetsMemoizedNames() {
+    IdeDeclaration plainMethod = nativeClass.getMemberDeclaration("plainMethod");
+    Ide ide = plainMethod.getIde();
+    assertEquals("names.NativeClass.plainMethod", plainMethod.getQualifiedNameStr());
+
+    plainMethod.setIde(new Ide("otherMethod"));
+    assertEquals("names.NativeClass.otherMethod", plainMethod.getQualifiedNameStr());
+    assertEquals("names.NativeClass.otherMethod", plainMethod.getTargetQualifiedNameStr());
+
+    plainMethod.setIde(ide);
+    assertEquals("names.NativeClass.plainMethod", plainMethod.getQualifiedNameStr());
+    assertEquals("names.NativeClass.plainMethod", plainMethod.getTargetQualifiedNameStr());
+  }
+
+  @Test
+  public void testSetParentDeclarationResetsMemoizedNames() {
+    IdeDeclaration plainMethod = nativeClass.getMemberDeclaration("plainMethod");
+    assertEquals("names.NativeClass.plainMethod", plainMethod.getTargetQualifiedNameStr());
+
+    plainMethod.setParentDeclaration(renamedClass);
+    assertEquals("names.RenamedClass.plainMethod", plainMethod.getQualifiedNameStr());
+    assertEquals("names.RenamedClass.plainMethod", plainMethod.getTargetQualifiedNameStr());
+
+    plainMethod.setParentDeclaration(nativeClass);
+    assertEquals("names.NativeClass.plainMethod", plainMethod.getTargetQualifiedNameStr());
+  }
+
+  @Test
+  public void testScopingAgainResetsMemoizedNamesAndAnnotations() throws Exception {
+    assertEquals("ext.global", nativeGlobal.getTargetQualifiedNameStr());
+    assertNull(nativeGlobal.getAnnotation(Jooc.RENAME_ANNOTATION_NAME));
+
+    // annotations added after scoping are only taken into account when scoping again:
+    Annotation renameAnnotation = renamedClass.getAnnotation(Jooc.RENAME_ANNOTATION_NAME);
+    nativeGlobal.getAnnotations().add(renameAnnotation);
+    assertEquals("ext.global", nativeGlobal.getTargetQualifiedNameStr());
+    assertNull(nativeGlobal.getAnnotation(Jooc.RENAME_ANNOTATION_NAME));
+
+    jooc.withDefaultLog(() -> {
+      nativeGlobal.scope(new DeclarationScope(nativeGlobal.getParentDeclaration(), nativeGlobal.getIde().getScope(), jooc));
+      return null;
+    }).call();
+    assertSame(renameAnnotation, nativeGlobal.getAnnotation(Jooc.RENAME_ANNOTATION_NAME));
+    assertEquals("names.NewName", nativeGlobal.getTargetQualifiedNameStr());
+    assertEquals("ext.global", nativeGlobal.getTargetQualifiedNameStrWithoutRename());
+    assertEquals("names.nativeGlobal", nativeGlobal.getQualifiedNameStr());
+  }
+
+  private IdeDeclaration getPrimaryDeclaration(String qName) {
+    return jooc.getCompilationUnit(qName).getPrimaryDeclaration();
+  }
+}
@@ -0,0 +1,151 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.api.CompilationResult;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class IncrementalBuildStateTest extends AbstractJoocTest {
+
+  private static final String BASE_SOURCE = "package incremental {\n" +
+          "public class Base {\n" +
+          "  public function foo():String {\n" +
+          "    return \"foo\";\n" +
+          "  }\n" +
+          "}\n" +
+          "}\n";
+
+  private File sourceDirectory;
+  private File baseFile;
+  private File dependentFile;
+  private File unrelatedFile;
+  private File buildStateFile;
+
+  @Before
+  public void createSources() throws Exception {
+    sourceDirectory = tmpFolder.newFolder("incremental-src");
+    List<File> sourcePath = new ArrayList<>(config.getSourcePath());
+    sourcePath.add(sourceDirectory);
+    config.setSourcePath(sourcePath);
+    buildStateFile = new File(tmpFolder.getRoot(), "jooc-incremental.state");
+    config.setIncrementalBuildStateFile(buildStateFile);
+
+    baseFile = writeSource("Base", BASE_SOURCE);
+    dependentFile = writeSource("Dependent", "package incremental {\n" +
+            "public class Dependent extends Base {\n" +
+            "}\n" +
+            "}\n");
+    unrelatedFile = writeSource("Unrelated", "package incremental {\n" +
+            "public class Unrelated {\n" +
+            "}\n" +
+            "}\n");
+  }
+
+  @Test
+  public void testApiChangeRecompilesDependents() throws Exception {
+    assertEquals(files(baseFile, dependentFile, unrelatedFile), run(baseFile, dependentFile, unrelatedFile));
+    assertTrue("the build state must have been written", buildStateFile.exists());
+
+    writeSource("Base", BASE_SOURCE.replace("return \"foo\";", "return \"bar\";"));
+    assertEquals("an implementation change must not recompile dependents",
+            files(baseFile), run(baseFile));
+
+    writeSource("Base", BASE_SOURCE.replace("public function foo():String", "public function foo(bar:int = 0):String"));
+    assertEquals("an API change must recompile dependents",
+            files(baseFile, dependentFile), run(baseFile));
+
+    assertEquals("the changed API must have been recorded",
+            files(baseFile), run(baseFile));
+  }
+
+  @Test
+  public void testInternalApiChangeRecompilesDependents() throws Exception {
+    String baseSource = BASE_SOURCE.replace("  public function foo", "  private var secret:String;\n" +
+            "\n" +
+            "  internal function bar():int {\n" +
+            "    return 0;\n" +
+            "  }\n" +
+            "\n" +
+            "  public function foo");
+    writeSource("Base", baseSource);
+    assertEquals(files(baseFile, dependentFile, unrelatedFile), run(baseFile, dependentFile, unrelatedFile));
+
+    writeSource("Base", baseSource.replace("private var secret:String;", "private var secret:int;"));
+    assertEquals("a private member change must not recompile dependents",
+            files(baseFile), run(baseFile));
+
+    writeSource("Base", baseSource.replace("internal function bar():int", "internal function bar(flag:Boolean = false):int"));
+    assertEquals("a package-internal API change must recompile dependents",
+            files(baseFile, dependentFile), run(baseFile));
+  }
+
+  @Test
+  public void testApiChangeRecompilesDependentsOfSubtypes() throws Exception {
+    File userFile = writeSource("User", "package incremental {\n" +
+            "public class User {\n" +
+            "  public function describe(dependent:Dependent):String {\n" +
+            "    return dependent.foo();\n" +
+            "  }\n" +
+            "}\n" +
+            "}\n");
+    run(baseFile, dependentFile, unrelatedFile, userFile);
+
+    writeSource("Base", BASE_SOURCE.replace("public function foo():String", "public function foo(bar:int = 0):String"));
+    assertEquals("an API change must recompile dependents of subtypes, which inherit the API",
+            files(baseFile, dependentFile, userFile), run(baseFile));
+  }
+
+  @Test
+  public void testDeletionRecompilesDependents() throws Exception {
+    run(baseFile, dependentFile, unrelatedFile);
+    IncrementalBuildState buildState = new IncrementalBuildState(buildStateFile);
+    assertFalse(buildState.hasDeletedSources());
+    assertEquals(files(dependentFile), files(buildState.getDependentSourceFiles("incremental.Base").toArray(new File[0])));
+
+    assertTrue(baseFile.delete());
+    assertTrue("deleting a source must be detected, even if no source is stale",
+            new IncrementalBuildState(buildStateFile).hasDeletedSources());
+    jooc = new Jooc(config, new TestLog());
+    config.setSourceFiles(Collections.<File>emptyList());
+    CompilationResult result = jooc.run();
+    assertEquals("the dependent of the deleted unit must have been recompiled and fail",
+            CompilationResult.RESULT_CODE_COMPILATION_FAILED, result.getResultCode());
+    assertTrue(jooc.getLog().hasErrors());
+  }
+
+  private Set<File> run(File... sourceFiles) throws IOException {
+    jooc = new Jooc(config, new TestLog());
+    config.setSourceFiles(Arrays.asList(sourceFiles));
+    CompilationResult result = jooc.run();
+    assertEquals(CompilationResult.RESULT_CODE_OK, result.getResultCode());
+    return files(result.getOutputFileMap().keySet().toArray(new File[0]));
+  }
+
+  private File writeSource(String className, String source) throws IOException {
+    File sourceFile = new File(sourceDirectory, "incremental/" + className + Jooc.AS_SUFFIX);
+    FileUtils.writeStringToFile(sourceFile, source, StandardCharsets.UTF_8);
+    return sourceFile.getAbsoluteFile();
+  }
+
+  private static Set<File> files(File... files) throws IOException {
+    Set<File> result = new HashSet<>();
+    for (File file : files) {
+      result.add(file.getCanonicalFile());
+    }
+    return result;
+  }
+}
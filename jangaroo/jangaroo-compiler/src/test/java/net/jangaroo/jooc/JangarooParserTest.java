@@ -0,0 +1,286 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.ast.BlockStatement;
+import net.jangaroo.jooc.ast.ClassDeclaration;
+import net.jangaroo.jooc.ast.CompilationUnit;
+import net.jangaroo.jooc.ast.Directive;
+import net.jangaroo.jooc.ast.FunctionDeclaration;
+import net.jangaroo.jooc.ast.FunctionExpr;
+import net.jangaroo.jooc.input.FileInputSource;
+import net.jangaroo.jooc.types.ExpressionType;
+import net.jangaroo.jooc.types.FunctionSignature;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class JangarooParserTest extends AbstractJoocTest {
+
+  private static final List<String> QUALIFIED_NAMES = Arrays.asList(
+          "package1.ConfigClass",
+          "package1.ConfigSubclass",
+          "package1.ImplementsInterface",
+          "package1.Interface",
+          "package1.StaticAndNonStatic",
+          "package1.TestHelperClasses",
+          "package1.TestMethodCall",
+          "package1.WithStaticReference"
+  );
+
+  private static final int THREADS = 8;
+
+  @Test
+  public void testConcurrentImports() throws Exception {
+    setUpClassPath(jooc, Collections.emptyList());
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    List<Future<List<CompilationUnit>>> results = new ArrayList<>();
+    try {
+      for (int i = 0; i < THREADS; i++) {
+        // every thread requests the units in a different order, so that threads import the same units concurrently:
+        List<String> qNames = new ArrayList<>(QUALIFIED_NAMES);
+        Collections.rotate(qNames, i);
+        results.add(executor.submit(jooc.withDefaultLog(() -> {
+          List<CompilationUnit> units = new ArrayList<>();
+          for (String qName : QUALIFIED_NAMES) {
+            units.add(jooc.getCompilationUnit(qName));
+          }
+          for (String qName : qNames) {
+            assertNotNull(jooc.getCompilationUnit(qName));
+          }
+          return units;
+        })));
+      }
+      List<CompilationUnit> expectedUnits = results.get(0).get();
+      for (Future<List<CompilationUnit>> result : results) {
+        List<CompilationUnit> units = result.get();
+        for (int i = 0; i < QUALIFIED_NAMES.size(); i++) {
+          assertSame("all threads must receive the same unit for " + QUALIFIED_NAMES.get(i),
+                  expectedUnits.get(i), units.get(i));
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+      jooc.tearDown();
+    }
+    assertFalse(testLog.hasErrors());
+
+    for (int i = 0; i < QUALIFIED_NAMES.size(); i++) {
+      CompilationUnit unit = results.get(0).get().get(i);
+      assertEquals(QUALIFIED_NAMES.get(i), unit.getQualifiedNameStr());
+      assertSame(unit, jooc.getCompilationUnit(QUALIFIED_NAMES.get(i)));
+      assertNotNull("unit must have been registered with its input source", jooc.getInputSource(unit));
+    }
+    long registeredUnits = jooc.getCompilationUnits().stream()
+            .filter(unit -> QUALIFIED_NAMES.contains(unit.getQualifiedNameStr()))
+            .count();
+    assertEquals("every unit must be registered exactly once", QUALIFIED_NAMES.size(), registeredUnits);
+  }
+
+  @Test
+  public void testSymbolTextsAreSharedPerCompilation() throws Exception {
+    List<CompilationUnit> units = importUnits(jooc, "package1.ConfigClass", "package1.ConfigSubclass");
+    JooSymbol packageSymbol = getPackageSymbol(units.get(0));
+    assertEquals("package1", packageSymbol.getText());
+    assertSame("units of one compilation must share identifier texts",
+            packageSymbol.getText(), getPackageSymbol(units.get(1)).getText());
+
+    JooSymbol otherPackageSymbol = getPackageSymbol(importUnits(new Jooc(config, testLog), "package1.ConfigClass").get(0));
+    assertEquals(packageSymbol.getText(), otherPackageSymbol.getText());
+    assertNotSame("texts must not be retained beyond their compilation",
+            packageSymbol.getText(), otherPackageSymbol.getText());
+  }
+
+  @Test
+  public void testClassPathSignaturesAreComputedLazily() throws Exception {
+    FunctionExpr fun = importLazyApiFunction();
+    try {
+      assertFalse("parameter and result types must not be imported before the signature is needed",
+              isRegistered("lazy.Parameter") || isRegistered("lazy.Result"));
+      FunctionSignature signature = (FunctionSignature) jooc.withDefaultLog(fun::getType).call();
+      assertEquals("lazy.Parameter", signature.getParameterTypes().get(0).getDeclaration().getQualifiedNameStr());
+      assertEquals("lazy.Result", signature.getTypeParameter().getDeclaration().getQualifiedNameStr());
+      assertTrue(isRegistered("lazy.Parameter") && isRegistered("lazy.Result"));
+      assertSame("the signature must be computed only once", signature, jooc.withDefaultLog(fun::getType).call());
+    } finally {
+      jooc.tearDown();
+    }
+    assertFalse(testLog.hasErrors());
+  }
+
+  @Test
+  public void testLazySignatureUnderScopeLock() throws Exception {
+    FunctionExpr fun = importLazyApiFunction();
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    List<Future<ExpressionType>> results = new ArrayList<>();
+    ExpressionType[] lockHolderSignature = new ExpressionType[1];
+    try {
+      jooc.withScopeLock(() -> {
+        // while this thread holds the lock, other threads must wait for the signature:
+        for (int i = 0; i < THREADS; i++) {
+          results.add(executor.submit(jooc.withDefaultLog(fun::getType)));
+        }
+        // computing the signature while holding the lock, as scoping does, must not deadlock:
+        try {
+          lockHolderSignature[0] = jooc.withDefaultLog(fun::getType).call();
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      assertNotNull(lockHolderSignature[0]);
+      for (Future<ExpressionType> result : results) {
+        assertSame("all threads must receive the same signature", lockHolderSignature[0], result.get(10, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+      jooc.tearDown();
+    }
+    assertFalse(testLog.hasErrors());
+  }
+
+  private FunctionExpr importLazyApiFunction() throws Exception {
+    File classPathDirectory = tmpFolder.newFolder("lazy-classpath");
+    writeUnit(classPathDirectory, "lazy.Api", "public class Api {\n" +
+            "  public function f(p:Parameter):Result { return null; }\n" +
+            "}");
+    writeUnit(classPathDirectory, "lazy.Parameter", "public class Parameter {\n}");
+    writeUnit(classPathDirectory, "lazy.Result", "public class Result {\n}");
+    setUpClassPath(jooc, Collections.singletonList(classPathDirectory));
+    return jooc.withDefaultLog(() -> getFunction(jooc.getCompilationUnit("lazy.Api"), "f").getFun()).call();
+  }
+
+  private boolean isRegistered(String qName) {
+    return jooc.getCompilationUnits().stream().anyMatch(unit -> qName.equals(unit.getQualifiedNameStr()));
+  }
+
+  @Test
+  public void testClassPathFunctionBodiesAreSkipped() throws Exception {
+    CompilationUnit unit = parseClassPathClass(
+            "  public function f(i:int, j:int):int { return i++ / 2 / j-- }\n" +
+            "  public function g(j:int):int { return (j) / 3 / [j][0] /= 4 }\n" +
+            "  public native function n():String;\n" +
+            "  public function h():Vector.<String> { return null }");
+    for (String name : Arrays.asList("f", "g", "h")) {
+      assertTrue("the body of " + name + " must have been skipped", getFunctionBody(unit, name).getDirectives().isEmpty());
+    }
+    assertNull(getFunctionBody(unit, "n"));
+  }
+
+  @Test
+  public void testSkippedFunctionBodiesWithRegExps() throws Exception {
+    CompilationUnit unit = parseClassPathClass(
+            "  public function f(s:String):Boolean { return /}/.test(s) && s.match(/\\/{/g) != null }\n" +
+            "  public function g(s:String):Array { var r:RegExp = /{/; return [/}/, s.split(/[{]/)] }\n" +
+            "  public function h(s:String):String { return s.replace(/=}/, '') }");
+    for (String name : Arrays.asList("f", "g", "h")) {
+      assertTrue(getFunctionBody(unit, name).getDirectives().isEmpty());
+    }
+  }
+
+  @Test
+  public void testSkippedFunctionBodiesWithStringsAndComments() throws Exception {
+    CompilationUnit unit = parseClassPathClass(
+            "  public function f():String { return \"}\" + '{' + \"\\\"}\" }\n" +
+            "  public function g():void { // }\n" +
+            "    /* { */\n" +
+            "  }\n" +
+            "  /** { */\n" +
+            "  public function h():void {}");
+    for (String name : Arrays.asList("f", "g", "h")) {
+      assertTrue(getFunctionBody(unit, name).getDirectives().isEmpty());
+    }
+  }
+
+  @Test
+  public void testSkippedFunctionBodiesWithXmlLiterals() throws Exception {
+    CompilationUnit unit = parseClassPathClass(
+            "  public function f(u:String, t:String):Object { return <a href=\"{u}\">{t}<br/></a> }\n" +
+            "  public function g():void {}");
+    for (String name : Arrays.asList("f", "g")) {
+      assertTrue(getFunctionBody(unit, name).getDirectives().isEmpty());
+    }
+  }
+
+  @Test
+  public void testSkippedFunctionBodiesWithNestedFunctions() throws Exception {
+    CompilationUnit unit = parseClassPathClass(
+            "  public function f(callback:Function = null):Function {\n" +
+            "    function inner(i:int):int { return i / 2 }\n" +
+            "    return function(o:Object):Object { if (o) { return { a: inner(1) } } return {} }\n" +
+            "  }\n" +
+            "  public function g(callback:Function = null):void {}");
+    for (String name : Arrays.asList("f", "g")) {
+      assertTrue(getFunctionBody(unit, name).getDirectives().isEmpty());
+    }
+  }
+
+  @Test
+  public void testFunctionBodiesAreParsedIfSkippingFails() throws Exception {
+    // after ')', a slash is taken for a division, so the closing brace in the regular expression ends the body:
+    CompilationUnit unit = parseClassPathClass(
+            "  public function f(s:String):Boolean { if (s) /}/.test(s); return true }\n" +
+            "  public function g():void {}");
+    assertFalse(testLog.hasErrors());
+    assertEquals(2, getFunctionBody(unit, "f").getDirectives().size());
+    assertTrue(getFunctionBody(unit, "g").getDirectives().isEmpty());
+  }
+
+  private CompilationUnit parseClassPathClass(String members) throws Exception {
+    File file = new File(tmpFolder.newFolder("classpath", "skip"), "Skipped.as");
+    FileUtils.writeStringToFile(file, "package skip {\npublic class Skipped {\n" + members + "\n}\n}\n", StandardCharsets.UTF_8);
+    CompilationUnit unit = jooc.doParse(new FileInputSource(file, false), testLog, config.getSemicolonInsertionMode());
+    assertFalse(testLog.hasErrors());
+    assertNotNull(unit);
+    return unit;
+  }
+
+  private static BlockStatement getFunctionBody(CompilationUnit unit, String name) {
+    return getFunction(unit, name).getBody();
+  }
+
+  private static FunctionDeclaration getFunction(CompilationUnit unit, String name) {
+    for (Directive directive : ((ClassDeclaration) unit.getPrimaryDeclaration()).getBody().getDirectives()) {
+      if (directive instanceof FunctionDeclaration && name.equals(((FunctionDeclaration) directive).getName())) {
+        return (FunctionDeclaration) directive;
+      }
+    }
+    fail("missing function " + name);
+    return null;
+  }
+
+  private List<CompilationUnit> importUnits(Jooc jooc, String... qNames) throws Exception {
+    setUpClassPath(jooc, Collections.emptyList());
+    try {
+      return jooc.withDefaultLog(() -> {
+        List<CompilationUnit> units = new ArrayList<>();
+        for (String qName : qNames) {
+          units.add(jooc.getCompilationUnit(qName));
+        }
+        return units;
+      }).call();
+    } finally {
+      jooc.tearDown();
+    }
+  }
+
+  private static JooSymbol getPackageSymbol(CompilationUnit unit) {
+    return unit.getPackageDeclaration().getIde().getIde();
+  }
+}
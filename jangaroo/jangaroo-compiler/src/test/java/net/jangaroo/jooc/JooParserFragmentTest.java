@@ -0,0 +1,157 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.api.CompileLog;
+import net.jangaroo.jooc.api.FilePosition;
+import net.jangaroo.jooc.ast.Annotation;
+import net.jangaroo.jooc.ast.Directive;
+import net.jangaroo.jooc.ast.Expr;
+import net.jangaroo.jooc.ast.Extends;
+import net.jangaroo.jooc.ast.Ide;
+import net.jangaroo.jooc.ast.Implements;
+import net.jangaroo.jooc.ast.ImportDirective;
+import net.jangaroo.jooc.ast.PackageDeclaration;
+import net.jangaroo.jooc.ast.Type;
+import net.jangaroo.jooc.input.FileInputSource;
+import net.jangaroo.jooc.mxml.MxmlParserHelper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+/**
+ * Test parsing code fragments through the <code>*_FRAGMENT</code> start tokens of the grammar, directly and
+ * as the MXML parser does.
+ */
+public class JooParserFragmentTest {
+
+  @Rule
+  public final TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private final List<FilePosition> errorPositions = new ArrayList<>();
+  private JooParser parser;
+  private MxmlParserHelper mxmlParserHelper;
+
+  @Before
+  public void setUp() throws Exception {
+    Scanner scanner = new Scanner(new StringReader(""));
+    scanner.setInputSource(new FileInputSource(tmpFolder.newFile("Fragment.mxml"), true));
+    parser = new JooParser(scanner);
+    parser.setCompileLog(new CompileLog() {
+      @Override
+      public void error(FilePosition position, String msg) {
+        errorPositions.add(position);
+      }
+
+      @Override
+      public void error(String msg) {
+        errorPositions.add(null);
+      }
+
+      @Override
+      public void warning(FilePosition position, String msg) {
+      }
+
+      @Override
+      public void warning(String msg) {
+      }
+
+      @Override
+      public boolean hasErrors() {
+        return !errorPositions.isEmpty();
+      }
+    });
+    mxmlParserHelper = new MxmlParserHelper(parser);
+  }
+
+  @Test
+  public void testFragments() {
+    assertTrue(parseFragment(sym.EXPRESSION_FRAGMENT, "a + 1") instanceof Expr);
+    assertEquals(2, ((List<?>) parseFragment(sym.CLASS_BODY_FRAGMENT, "var x:int; function f():void {}")).size());
+    assertEquals(2, ((List<?>) parseFragment(sym.STATEMENTS_FRAGMENT, "var y = 1; y++;")).size());
+    assertEquals("foo.Bar", ((ImportDirective) parseFragment(sym.DIRECTIVE_FRAGMENT, "import foo.Bar;")).getQualifiedName());
+    assertTrue(((List<?>) parseFragment(sym.ANNOTATIONS_FRAGMENT, "")).isEmpty());
+    @SuppressWarnings("unchecked")
+    List<Annotation> annotations = (List<Annotation>) parseFragment(sym.ANNOTATIONS_FRAGMENT, "[Event(name=\"click\")]\n[Bindable]");
+    assertEquals(2, annotations.size());
+    assertEquals("Event", annotations.get(0).getMetaName());
+    assertEquals("Bindable", annotations.get(1).getMetaName());
+    assertEquals("foo.Bar", ((Type) parseFragment(sym.TYPE_FRAGMENT, "foo.Bar")).getIde().getQualifiedNameStr());
+    assertEquals("foo.Base", ((Extends) parseFragment(sym.EXTENDS_FRAGMENT, "extends foo.Base")).getSuperClass().getQualifiedNameStr());
+    Implements implemented = (Implements) parseFragment(sym.IMPLEMENTS_FRAGMENT, "implements foo.I, foo.J");
+    assertEquals("foo.I", implemented.getSuperTypes().getHead().getQualifiedNameStr());
+    assertEquals("foo.J", implemented.getSuperTypes().getTail().getHead().getQualifiedNameStr());
+    assertEquals("foo.bar", ((PackageDeclaration) parseFragment(sym.PACKAGE_FRAGMENT, "package foo.bar")).getQualifiedNameStr());
+    assertTrue(errorPositions.isEmpty());
+  }
+
+  @Test
+  public void testExpressionFragmentRejectsCommaExpressions() {
+    try {
+      parseFragment(sym.EXPRESSION_FRAGMENT, "a = 1, b");
+      fail("syntax error expected");
+    } catch (JooParser.FatalSyntaxError e) {
+      // expected
+    }
+    assertEquals(1, errorPositions.size());
+    assertEquals("a = 1".length() + 1, errorPositions.get(0).getColumn());
+  }
+
+  @Test
+  public void testFragmentsWithoutSymbolKeepTheirTemplatePositions() {
+    ImportDirective importDirective = mxmlParserHelper.parseImport("foo.Bar");
+    assertEquals(2, importDirective.getSymbol().getLine());
+    assertEquals(1, importDirective.getSymbol().getColumn());
+
+    Ide ide = mxmlParserHelper.parseIde("Bar");
+    assertEquals(1, ide.getIde().getLine());
+    assertEquals("package{var ___$:".length() + 1, ide.getIde().getColumn());
+
+    List<Directive> constructorBody = mxmlParserHelper.parseConstructorBody("x = 1;");
+    assertEquals(1, constructorBody.size());
+    assertEquals(2, constructorBody.get(0).getSymbol().getLine());
+    assertEquals(1, constructorBody.get(0).getSymbol().getColumn());
+  }
+
+  @Test
+  public void testAttributeExpressionPositions() {
+    Expr expr = mxmlParserHelper.parseExpression(attributeValue("a + b", 3, 12));
+    assertEquals(3, expr.getSymbol().getLine());
+    assertEquals(13, expr.getSymbol().getColumn());
+  }
+
+  @Test
+  public void testAttributeExpressionErrorPosition() {
+    try {
+      mxmlParserHelper.parseExpression(attributeValue("a + * b", 3, 12));
+      fail("syntax error expected");
+    } catch (JooParser.FatalSyntaxError e) {
+      // expected
+    }
+    assertEquals(1, errorPositions.size());
+    assertEquals(3, errorPositions.get(0).getLine());
+    assertEquals(13 + "a + ".length(), errorPositions.get(0).getColumn());
+  }
+
+  @Test
+  public void testParserIsReusedAfterError() {
+    assertNull(mxmlParserHelper.parseImport(attributeValue("foo.", 1, 1)));
+    assertEquals("foo.Bar", mxmlParserHelper.parseImport(attributeValue("foo.Bar", 1, 1)).getQualifiedName());
+  }
+
+  private Object parseFragment(int fragmentSym, String code) {
+    return parser.parseFragment(fragmentSym, "", code, 0, 0).value;
+  }
+
+  private static JooSymbol attributeValue(String text, int line, int column) {
+    return new JooSymbol(sym.STRING_LITERAL, "Fragment.mxml", line, column, "", text, text);
+  }
+}
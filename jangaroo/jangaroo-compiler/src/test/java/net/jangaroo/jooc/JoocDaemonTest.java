@@ -0,0 +1,189 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.api.CompilationResult;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class JoocDaemonTest extends AbstractJoocTest {
+
+  private static final String GREETER_SOURCE = "package daemon {\n" +
+          "import lib.Helper;\n" +
+          "\n" +
+          "public class Greeter {\n" +
+          "  public function greet():String {\n" +
+          "    return Helper.greet(\"hello\");\n" +
+          "  }\n" +
+          "}\n" +
+          "}\n";
+
+  private final JoocDaemon daemon = new JoocDaemon();
+  private ExecutorService executor;
+  private Future<?> serving;
+  private File daemonFile;
+  private File sourceDirectory;
+  private File greeterFile;
+  private File libraryJar;
+
+  @Before
+  public void startDaemon() throws Exception {
+    sourceDirectory = tmpFolder.newFolder("daemon-src");
+    greeterFile = new File(sourceDirectory, "daemon/Greeter.as");
+    FileUtils.writeStringToFile(greeterFile, GREETER_SOURCE, StandardCharsets.UTF_8);
+    libraryJar = new File(tmpFolder.getRoot(), "lib.jar");
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(libraryJar))) {
+      out.putNextEntry(new ZipEntry("lib/Helper.as"));
+      out.write(("package lib {\n" +
+              "public class Helper {\n" +
+              "  public static function greet(name:String):String {\n" +
+              "    return name + \"!\";\n" +
+              "  }\n" +
+              "}\n" +
+              "}\n").getBytes(StandardCharsets.UTF_8));
+      out.closeEntry();
+    }
+
+    daemonFile = new File(tmpFolder.getRoot(), "daemon/jooc-daemon");
+    executor = Executors.newSingleThreadExecutor();
+    serving = executor.submit(() -> {
+      daemon.serve(daemonFile, 0);
+      return null;
+    });
+    for (int i = 0; i < 100 && !daemonFile.exists(); i++) {
+      Thread.sleep(50);
+    }
+    assertTrue("the daemon must have written its daemon file", daemonFile.exists());
+  }
+
+  @After
+  public void stopDaemon() throws Exception {
+    daemon.stop();
+    serving.get();
+    executor.shutdown();
+    assertFalse("the daemon must delete its daemon file when stopped", daemonFile.exists());
+  }
+
+  @Test
+  public void testRoundTripWithChangedSource() throws Exception {
+    JoocDaemonClient client = new JoocDaemonClient(daemonFile);
+    File outputFile = new File(outputFolder, "daemon/Greeter.js");
+
+    assertEquals(CompilationResult.RESULT_CODE_OK, client.compile(getArguments(), testLog));
+    assertFalse(testLog.hasErrors());
+    assertTrue(FileUtils.readFileToString(outputFile, StandardCharsets.UTF_8).contains("\"hello\""));
+
+    // the warm class path is kept, but the changed source unit must be parsed again:
+    FileUtils.writeStringToFile(greeterFile, GREETER_SOURCE.replace("hello", "goodbye"), StandardCharsets.UTF_8);
+    assertEquals(CompilationResult.RESULT_CODE_OK, client.compile(getArguments(), testLog));
+    assertFalse(testLog.hasErrors());
+    String output = FileUtils.readFileToString(outputFile, StandardCharsets.UTF_8);
+    assertTrue(output.contains("\"goodbye\""));
+    assertFalse(output.contains("\"hello\""));
+  }
+
+  @Test
+  public void testChangedSuperClassIsNotResolvedFromStaleHierarchy() throws Exception {
+    File baseFile = new File(sourceDirectory, "daemon/Base.as");
+    File subFile = new File(sourceDirectory, "daemon/Sub.as");
+    File userFile = new File(sourceDirectory, "daemon/User.as");
+    writeBase(baseFile, "greet");
+    FileUtils.writeStringToFile(subFile, "package daemon {\n" +
+            "public class Sub extends Base {\n" +
+            "}\n" +
+            "}\n", StandardCharsets.UTF_8);
+    FileUtils.writeStringToFile(userFile, "package daemon {\n" +
+            "public class User {\n" +
+            "  public function callGreet(sub:Sub):Base {\n" +
+            "    sub.greet();\n" +
+            "    return sub;\n" +
+            "  }\n" +
+            "}\n" +
+            "}\n", StandardCharsets.UTF_8);
+    List<String> arguments = getArguments();
+    arguments.addAll(Arrays.asList(baseFile.getPath(), subFile.getPath(), userFile.getPath()));
+    JoocDaemonClient client = new JoocDaemonClient(daemonFile);
+
+    // the first build memoizes the type hierarchy and member lookups of Sub:
+    assertEquals(CompilationResult.RESULT_CODE_OK, client.compile(arguments, testLog));
+    assertFalse(testLog.hasErrors());
+
+    // Base is parsed again, so the inherited method must no longer be found:
+    writeBase(baseFile, "salute");
+    assertEquals(CompilationResult.RESULT_CODE_COMPILATION_FAILED, client.compile(arguments, testLog));
+
+    writeBase(baseFile, "greet");
+    assertEquals(CompilationResult.RESULT_CODE_OK, client.compile(arguments, testLog));
+  }
+
+  private static void writeBase(File baseFile, String methodName) throws IOException {
+    FileUtils.writeStringToFile(baseFile, "package daemon {\n" +
+            "public class Base {\n" +
+            "  public function " + methodName + "():void {\n" +
+            "  }\n" +
+            "}\n" +
+            "}\n", StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testEmptyArgument() throws Exception {
+    List<String> arguments = getArguments();
+    // an empty option value must not end the request:
+    arguments.addAll(0, Arrays.asList("--extNamespace", ""));
+    assertEquals(CompilationResult.RESULT_CODE_OK, new JoocDaemonClient(daemonFile).compile(arguments, testLog));
+    assertTrue(new File(outputFolder, "daemon/Greeter.js").exists());
+  }
+
+  @Test
+  public void testDaemonFileIsPrivate() throws Exception {
+    if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+      assertEquals(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE),
+              Files.getPosixFilePermissions(daemonFile.toPath()));
+    }
+  }
+
+  @Test
+  public void testRequestWithoutTokenIsRejected() throws Exception {
+    List<String> daemonFileLines = Files.readAllLines(daemonFile.toPath(), StandardCharsets.UTF_8);
+    File forgedDaemonFile = new File(tmpFolder.getRoot(), "forged-daemon");
+    Files.write(forgedDaemonFile.toPath(), Arrays.asList(daemonFileLines.get(0), "not-the-token"), StandardCharsets.UTF_8);
+    try {
+      new JoocDaemonClient(forgedDaemonFile).compile(getArguments(), testLog);
+      fail("a request with a wrong token must not be answered");
+    } catch (IOException e) {
+      // expected
+    }
+    assertFalse(new File(outputFolder, "daemon/Greeter.js").exists());
+  }
+
+  private List<String> getArguments() throws Exception {
+    return new ArrayList<>(Arrays.asList(
+            "-sourcepath", getFile("/").getPath() + File.pathSeparator + sourceDirectory.getPath(),
+            "-classpath", libraryJar.getPath(),
+            "-d", outputFolder.getPath(),
+            greeterFile.getPath()
+    ));
+  }
+}
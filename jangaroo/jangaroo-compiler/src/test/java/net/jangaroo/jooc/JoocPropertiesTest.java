@@ -1,15 +1,48 @@
 package net.jangaroo.jooc;
 
+import freemarker.core.Environment;
+import freemarker.template.Configuration;
+import freemarker.template.DefaultObjectWrapper;
+import freemarker.template.Template;
+import net.jangaroo.jooc.ast.AstNode;
+import net.jangaroo.jooc.ast.CompilationUnit;
+import net.jangaroo.jooc.input.FileInputSource;
+import net.jangaroo.jooc.input.InputSource;
+import net.jangaroo.properties.Propc;
 import net.jangaroo.properties.PropcHelper;
+import net.jangaroo.properties.model.PropertiesClass;
+import net.jangaroo.utils.CompilerUtils;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+
 public class JoocPropertiesTest extends AbstractJoocTest {
 
+  private static final List<String> PROPERTIES_FIXTURES = Arrays.asList(
+          "testPackage/PropertiesTest",
+          "testPackage/PropertiesTest_de",
+          "testPackage/PropertiesTest_es_ES",
+          "testPackage/PropertiesTest_it_VA_WIN",
+          "testPackage/EmptyPropertiesTest",
+          "testPackage/Icons",
+          "testPackage/icons/MoreIcons"
+  );
+
   @Test
   public void testPropertiesCompilation() throws Exception {
     verifyPropertiesCompilation();
@@ -55,6 +88,119 @@ public class JoocPropertiesTest extends AbstractJoocTest {
     verifyApiOutput("testPackage/EmptyPropertiesTest_properties", "/expectedApi");
   }
 
+  /**
+   * Propc renders properties classes by hand; the code must be exactly what the former FreeMarker templates rendered.
+   */
+  @Test
+  public void testRenderedCodeMatchesTemplates() throws Exception {
+    @SuppressWarnings("deprecation")
+    Configuration templateConfiguration = new Configuration();
+    templateConfiguration.setClassForTemplateLoading(getClass(), "/net/jangaroo/properties/templates");
+    //noinspection deprecation
+    templateConfiguration.setObjectWrapper(new DefaultObjectWrapper());
+    for (String fixture : PROPERTIES_FIXTURES) {
+      String className = CompilerUtils.qNameFromRelativePath(fixture + Jooc.PROPERTIES_SUFFIX);
+      PropertiesClass propertiesClass;
+      try (InputStream in = new FileInputStream(getFile("/" + fixture + Jooc.PROPERTIES_SUFFIX))) {
+        propertiesClass = new Propc().parse(className, in);
+      }
+      Template template = templateConfiguration.getTemplate(propertiesClass.getLocale() == null
+              ? "properties_class.ftl" : "properties_subclass.ftl");
+      StringWriter templateCode = new StringWriter();
+      Environment env = template.createProcessingEnvironment(propertiesClass, templateCode);
+      env.setOutputEncoding("UTF-8");
+      env.process();
+
+      String renderedCode;
+      try (InputStream in = new FileInputStream(getFile("/" + fixture + Jooc.PROPERTIES_SUFFIX))) {
+        renderedCode = new Propc().generateApi(className, in);
+      }
+      assertEquals("code rendered for " + fixture, templateCode.toString(), renderedCode);
+    }
+  }
+
+  /**
+   * The compiler builds the AST of properties classes directly; it must be the AST the parser builds from the
+   * rendered code, including white-space, comments and positions of all symbols.
+   */
+  @Test
+  public void testBuiltAstMatchesParsedCode() throws Exception {
+    File sourceDir = getFile("/");
+    for (String fixture : PROPERTIES_FIXTURES) {
+      for (boolean inSourcePath : new boolean[]{true, false}) {
+        File propertiesFile = getFile("/" + fixture + Jooc.PROPERTIES_SUFFIX);
+        InputSource in = new FileInputSource(sourceDir, propertiesFile, inSourcePath, null);
+        String className = CompilerUtils.qNameFromRelativePath(in.getRelativePath());
+        PropertiesClass propertiesClass;
+        String renderedCode;
+        try (InputStream propertiesIn = in.getInputStream()) {
+          propertiesClass = new Propc().parse(className, propertiesIn);
+        }
+        try (InputStream propertiesIn = in.getInputStream()) {
+          renderedCode = new Propc().generateApi(className, propertiesIn);
+        }
+
+        Scanner scanner = new Scanner(new StringReader(renderedCode));
+        scanner.setInputSource(in);
+        JooParser parser = new JooParser(scanner);
+        parser.setCompileLog(testLog);
+        CompilationUnit parsedUnit = (CompilationUnit) parser.parse().value;
+        CompilationUnit builtUnit = new PropertiesClassAstBuilder(in, testLog).build(propertiesClass);
+        assertFalse(testLog.hasErrors());
+        assertNotNull(builtUnit);
+        assertSameAst(fixture + (inSourcePath ? " (source path)" : " (class path)"), parsedUnit, builtUnit);
+      }
+    }
+  }
+
+  private static void assertSameAst(String path, AstNode expected, AstNode actual) throws IllegalAccessException {
+    assertEquals(path, expected.getClass(), actual.getClass());
+    String nodePath = path + "/" + expected.getClass().getSimpleName();
+    // compare all symbols of the node, not only those reachable through getSymbol():
+    for (Class<?> nodeClass = expected.getClass(); nodeClass != Object.class; nodeClass = nodeClass.getSuperclass()) {
+      for (Field field : nodeClass.getDeclaredFields()) {
+        if (!Modifier.isStatic(field.getModifiers())) {
+          field.setAccessible(true);
+          Object expectedValue = field.get(expected);
+          Object actualValue = field.get(actual);
+          if (expectedValue instanceof JooSymbol || actualValue instanceof JooSymbol) {
+            assertSameSymbol(nodePath + "." + field.getName(), (JooSymbol) expectedValue, (JooSymbol) actualValue);
+          } else if (expectedValue instanceof List && actualValue instanceof List) {
+            List<?> expectedList = (List<?>) expectedValue;
+            List<?> actualList = (List<?>) actualValue;
+            assertEquals(nodePath + "." + field.getName(), expectedList.size(), actualList.size());
+            for (int i = 0; i < expectedList.size(); i++) {
+              if (expectedList.get(i) instanceof JooSymbol) {
+                assertSameSymbol(nodePath + "." + field.getName() + "[" + i + "]",
+                        (JooSymbol) expectedList.get(i), (JooSymbol) actualList.get(i));
+              }
+            }
+          }
+        }
+      }
+    }
+    List<? extends AstNode> expectedChildren = expected.getChildren();
+    List<? extends AstNode> actualChildren = actual.getChildren();
+    assertEquals(nodePath + " children", expectedChildren.size(), actualChildren.size());
+    for (int i = 0; i < expectedChildren.size(); i++) {
+      assertSameAst(nodePath + "[" + i + "]", expectedChildren.get(i), actualChildren.get(i));
+    }
+  }
+
+  private static void assertSameSymbol(String path, JooSymbol expected, JooSymbol actual) {
+    if (expected == null || actual == null) {
+      assertEquals(path, expected, actual);
+      return;
+    }
+    assertEquals(path + " sym", expected.sym, actual.sym);
+    assertEquals(path + " text", expected.getText(), actual.getText());
+    assertEquals(path + " white-space", expected.getWhitespace(), actual.getWhitespace());
+    assertEquals(path + " value", expected.getJooValue(), actual.getJooValue());
+    assertEquals(path + " file", expected.getFileName(), actual.getFileName());
+    assertEquals(path + " line", expected.getLine(), actual.getLine());
+    assertEquals(path + " column", expected.getColumn(), actual.getColumn());
+  }
+
   void verifyPropertiesOutput(String relativeClassFileName, Locale locale) throws URISyntaxException, IOException {
     if (jooc.getConfig().isMigrateToTypeScript()) {
       verifyClassOutput(PropcHelper.insertNonDefaultLocale(relativeClassFileName, locale), "/expected");
@@ -9,6 +9,8 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
@@ -822,6 +824,82 @@ public class JoocTest extends AbstractJoocTest {
     checkForReturnErrorMessage("Number", "String", 31, 14);
   }
 
+  @Test
+  public void testConcurrentCompilation() throws Exception {
+    // the expected files are the output of sequential compilation, so output must not depend on thread scheduling:
+    String[] relativeClassFileNames = {
+            "package1/AuxVarConfusion",
+            "package1/ChainedConstants",
+            "package1/ConfigClass",
+            "package1/ConfigSubclass",
+            "package1/ImplementsInterface",
+            "package1/Interface",
+            "package1/StaticAndNonStatic",
+            "package1/TestHelperClasses",
+            "package1/TestMethodCall",
+            "package1/TestResolveMembers",
+            "package1/WithStaticReference"
+    };
+    config.setThreads(4);
+    assertConcurrentCompilationResult(relativeClassFileNames);
+    config.setMigrateToTypeScript(true);
+    try {
+      assertConcurrentCompilationResult(relativeClassFileNames);
+    } finally {
+      config.setMigrateToTypeScript(false);
+    }
+    config.setReleaseGeneratedAsts(true);
+    try {
+      // method bodies of dependencies must not be released while dependents are still generated;
+      // a new compiler parses the sources again, as generating JavaScript modifies the AST:
+      jooc = new Jooc(config, testLog);
+      assertConcurrentCompilationResult(relativeClassFileNames);
+    } finally {
+      config.setReleaseGeneratedAsts(false);
+    }
+  }
+
+  @Test
+  public void testSharedModuleResolverGivesSameImports() throws Exception {
+    // all units of a compiler run share the module path caches of one TypeScriptModuleResolver:
+    String[] relativeClassFileNames = {
+            "package1/ConfigClass",
+            "package1/ConfigSubclass",
+            "package1/ImplementsInterface",
+            "package1/Interface",
+            "package1/TestHelperClasses",
+            "package1/WithStaticReference"
+    };
+    config.setMigrateToTypeScript(true);
+    try {
+      compile(".as", relativeClassFileNames);
+      assertFalse("Compile errors: test marked as failure.", jooc.getLog().hasErrors());
+      List<String> sharedResults = new ArrayList<>();
+      for (String relativeClassFileName : relativeClassFileNames) {
+        sharedResults.add(readFileToString(outputFile(outputFolder, relativeClassFileName, jooc.getOutputSuffix())));
+      }
+      // compiling each unit on its own starts with empty caches:
+      for (int i = 0; i < relativeClassFileNames.length; i++) {
+        config.setSourceFiles(new ArrayList<>());
+        compile(".as", relativeClassFileNames[i]);
+        assertFalse("Compile errors: test marked as failure.", jooc.getLog().hasErrors());
+        assertEquals(relativeClassFileNames[i], sharedResults.get(i),
+                readFileToString(outputFile(outputFolder, relativeClassFileNames[i], jooc.getOutputSuffix())));
+      }
+    } finally {
+      config.setMigrateToTypeScript(false);
+    }
+  }
+
+  private void assertConcurrentCompilationResult(String... relativeClassFileNames) throws URISyntaxException, IOException {
+    config.setSourceFiles(new ArrayList<>());
+    compile(".as", relativeClassFileNames);
+    assertFalse("Compile errors: test marked as failure.", jooc.getLog().hasErrors());
+    for (String relativeClassFileName : relativeClassFileNames) {
+      verifyClassOutput(relativeClassFileName, "/expected");
+    }
+  }
+
   private void checkForErrorMessage(String message, String expectedError, int lineOfError, int columnOfError) {
     assertTrue(message, testLog.hasError(expectedError));
     assertErrorAt(expectedError, lineOfError, columnOfError);
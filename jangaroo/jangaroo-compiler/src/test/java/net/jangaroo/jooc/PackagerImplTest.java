@@ -0,0 +1,82 @@
+package net.jangaroo.jooc;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class PackagerImplTest {
+
+  private static final String PACKAGE_NAME = "test-package";
+  // an old time stamp, to see whether the bundle has been written again:
+  private static final long OLD_TIMESTAMP = 1000000000000L;
+
+  @Rule
+  public final TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private File packageDirectory;
+  private File inputHashesDirectory;
+  private File firstSource;
+  private File secondSource;
+  private File bundle;
+
+  @Before
+  public void setUp() throws Exception {
+    packageDirectory = tmpFolder.newFolder("package");
+    inputHashesDirectory = tmpFolder.newFolder("packager");
+    firstSource = writeSource("First", "first");
+    secondSource = writeSource("Second", "second");
+    bundle = new File(packageDirectory, PACKAGE_NAME + ".js");
+  }
+
+  @Test
+  public void testUnchangedContentIsNotRepacked() throws Exception {
+    doPackage();
+    assertTrue(bundle.exists());
+    assertTrue(new File(inputHashesDirectory, PACKAGE_NAME + ".js.inputs").exists());
+    assertTrue(bundle.setLastModified(OLD_TIMESTAMP));
+
+    // touching an input without changing its content must hit the stored hash:
+    assertTrue(firstSource.setLastModified(System.currentTimeMillis() + 10000));
+    doPackage();
+    assertEquals(OLD_TIMESTAMP, bundle.lastModified());
+  }
+
+  @Test
+  public void testChangedContentIsRepacked() throws Exception {
+    doPackage();
+    assertTrue(bundle.setLastModified(OLD_TIMESTAMP));
+
+    long lastModified = secondSource.lastModified();
+    writeSource("Second", "changed");
+    // keep the time stamp, the changed size alone makes the packager read the file again:
+    assertTrue(secondSource.setLastModified(lastModified));
+    doPackage();
+    assertFalse(OLD_TIMESTAMP == bundle.lastModified());
+    String bundleCode = FileUtils.readFileToString(bundle, StandardCharsets.UTF_8);
+    assertTrue(bundleCode.contains("changed"));
+    assertFalse(bundleCode.contains("\"second\""));
+  }
+
+  private void doPackage() throws IOException {
+    PackagerImpl packager = new PackagerImpl();
+    packager.setInputHashesDirectory(inputHashesDirectory);
+    packager.doPackage2("", new File(packageDirectory, "src"), new File(packageDirectory, "overrides"),
+            new File(packageDirectory, "locale"), packageDirectory, PACKAGE_NAME);
+  }
+
+  private File writeSource(String className, String value) throws IOException {
+    File source = new File(packageDirectory, "src/pkg/" + className + Jooc.OUTPUT_FILE_SUFFIX);
+    FileUtils.writeStringToFile(source, "window." + className + " = \"" + value + "\";\n", StandardCharsets.UTF_8);
+    return source;
+  }
+}
@@ -0,0 +1,145 @@
+package net.jangaroo.jooc;
+
+import net.jangaroo.jooc.ast.ClassDeclaration;
+import net.jangaroo.jooc.ast.IdeDeclaration;
+import net.jangaroo.jooc.ast.PropertyDeclaration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class TypeHierarchyIndexTest extends AbstractJoocTest {
+
+  private static final List<String> TYPES = Arrays.asList(
+          "hierarchy.Named", "hierarchy.Base", "hierarchy.Middle", "hierarchy.Leaf", "hierarchy.Unrelated");
+
+  @Before
+  public void createClassPath() throws Exception {
+    File classPathDirectory = tmpFolder.newFolder("hierarchy-classpath");
+    writeUnit(classPathDirectory, "hierarchy.Named", "public interface Named {\n" +
+            "  function get name():String;\n" +
+            "}");
+    writeUnit(classPathDirectory, "hierarchy.Base", "public class Base implements Named {\n" +
+            "  public function get name():String { return null; }\n" +
+            "  public function set name(value:String):void {}\n" +
+            "  public function greet():String { return null; }\n" +
+            "}");
+    writeUnit(classPathDirectory, "hierarchy.Middle", "public class Middle extends Base {\n" +
+            "  public static const KIND:String = \"middle\";\n" +
+            "  override public function get name():String { return \"middle\"; }\n" +
+            "  override public function greet():String { return null; }\n" +
+            "}");
+    writeUnit(classPathDirectory, "hierarchy.Leaf", "public class Leaf extends Middle {\n" +
+            "}");
+    writeUnit(classPathDirectory, "hierarchy.Unrelated", "public class Unrelated {\n" +
+            "  public function greet():String { return null; }\n" +
+            "}");
+    setUpClassPath(jooc, Collections.singletonList(classPathDirectory));
+  }
+
+  @After
+  public void tearDownClassPath() {
+    jooc.tearDown();
+  }
+
+  @Test
+  public void testAssignability() throws Exception {
+    jooc.withDefaultLog(() -> {
+      boolean[][] expected = {
+              // Named, Base, Middle, Leaf, Unrelated
+              {true, false, false, false, false},   // Named
+              {true, true, false, false, false},    // Base
+              {true, true, true, false, false},     // Middle
+              {true, true, true, true, false},      // Leaf
+              {false, false, false, false, true},   // Unrelated
+      };
+      for (int i = 0; i < TYPES.size(); i++) {
+        ClassDeclaration classDeclaration = getClassDeclaration(TYPES.get(i));
+        for (int j = 0; j < TYPES.size(); j++) {
+          assertEquals(TYPES.get(i) + " assignable to " + TYPES.get(j),
+                  expected[i][j], classDeclaration.isAssignableTo(getClassDeclaration(TYPES.get(j))));
+        }
+      }
+      // every class and interface is assignable to Object, also when Object is looked up last:
+      ClassDeclaration objectDeclaration = getClassDeclaration("Object");
+      for (String type : TYPES) {
+        assertTrue(type, getClassDeclaration(type).isAssignableTo(objectDeclaration));
+      }
+      assertFalse(objectDeclaration.isAssignableTo(getClassDeclaration("hierarchy.Base")));
+      return null;
+    }).call();
+    assertFalse(testLog.hasErrors());
+  }
+
+  @Test
+  public void testTypeIdsAreStable() throws Exception {
+    TypeHierarchyIndex index = jooc.getTypeHierarchyIndex();
+    int leafId = index.getTypeId("hierarchy.Leaf");
+    int baseId = index.getTypeId("hierarchy.Base");
+    assertFalse(leafId == baseId);
+    assertEquals(leafId, index.getTypeId("hierarchy.Leaf"));
+    assertEquals(baseId, index.getTypeId("hierarchy.Base"));
+  }
+
+  @Test
+  public void testInheritedMemberLookup() throws Exception {
+    jooc.withDefaultLog(() -> {
+      ClassDeclaration leaf = getClassDeclaration("hierarchy.Leaf");
+      ClassDeclaration middle = getClassDeclaration("hierarchy.Middle");
+      ClassDeclaration base = getClassDeclaration("hierarchy.Base");
+
+      IdeDeclaration greet = leaf.resolvePropertyDeclaration("greet", false);
+      assertSame("the overriding method must be found first", middle.getMemberDeclaration("greet"), greet);
+      assertSame("a memoized lookup must return the same declaration", greet, leaf.resolvePropertyDeclaration("greet", false));
+      assertSame(base.getMemberDeclaration("greet"), base.resolvePropertyDeclaration("greet", false));
+
+      // the getter overridden in Middle is combined with the setter inherited from Base:
+      IdeDeclaration name = leaf.resolvePropertyDeclaration("name", false);
+      assertTrue(name instanceof PropertyDeclaration);
+      assertSame(middle.getMemberDeclaration("name"), ((PropertyDeclaration) name).getGetter());
+      assertSame(((PropertyDeclaration) base.getMemberDeclaration("name")).getSetter(), ((PropertyDeclaration) name).getSetter());
+      assertSame("the combined property must be memoized", name, leaf.resolvePropertyDeclaration("name", false));
+
+      // static and instance members are memoized separately:
+      assertSame(middle.getStaticMemberDeclaration("KIND"), middle.resolvePropertyDeclaration("KIND", true));
+      assertNull(middle.resolvePropertyDeclaration("KIND", false));
+      assertNull(middle.resolvePropertyDeclaration("greet", true));
+
+      // misses are memoized, too:
+      assertNull(leaf.resolvePropertyDeclaration("missing", false));
+      assertNull(leaf.resolvePropertyDeclaration("missing", false));
+      return null;
+    }).call();
+    assertFalse(testLog.hasErrors());
+  }
+
+  @Test
+  public void testMembersCannotBeRegisteredAfterScoping() throws Exception {
+    jooc.withDefaultLog(() -> {
+      ClassDeclaration leaf = getClassDeclaration("hierarchy.Leaf");
+      assertNull(leaf.resolvePropertyDeclaration("greet", true));
+      try {
+        leaf.registerMember(getClassDeclaration("hierarchy.Middle").getStaticMemberDeclaration("KIND"));
+        fail("registering a member after scoping would invalidate memoized lookups");
+      } catch (IllegalStateException e) {
+        // expected
+      }
+      return null;
+    }).call();
+  }
+
+  private ClassDeclaration getClassDeclaration(String qName) {
+    return (ClassDeclaration) jooc.getCompilationUnit(qName).getPrimaryDeclaration();
+  }
+}
@@ -0,0 +1,91 @@
+package net.jangaroo.jooc.input;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+
+public class FileInputSourceTest {
+
+  @Rule
+  public final TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private File sourceDir;
+  private FileInputSource root;
+
+  @Before
+  public void createSources() throws IOException {
+    sourceDir = tmpFolder.newFolder("src");
+    writeFile("pkg/Foo.as");
+    writeFile("pkg/sub/Bar.as");
+    writeFile("pkg/sub/deeper/Baz.as");
+    root = new FileInputSource(sourceDir, sourceDir, true, null);
+  }
+
+  @Test
+  public void testNestedPathLookup() {
+    FileInputSource bar = root.getChild("pkg/sub/Bar.as");
+    assertNotNull(bar);
+    assertEquals(new File(sourceDir, "pkg/sub/Bar.as"), bar.getFile());
+    assertEquals("pkg" + File.separator + "sub" + File.separator + "Bar.as", bar.getRelativePath());
+    assertEquals(new File(sourceDir, "pkg/sub/deeper/Baz.as"),
+            root.getChild("pkg" + File.separator + "sub" + File.separator + "deeper/Baz.as").getFile());
+    assertEquals(new File(sourceDir, "pkg/sub/deeper/Baz.as"),
+            root.getChild("pkg/sub").getChild("deeper/Baz.as").getFile());
+    assertSame("a lookup from the root must return the same snapshot entry as a stepwise lookup",
+            root.getChild("pkg").getChild("sub"), root.getChild("pkg/sub"));
+    assertSame(root, root.getChild(""));
+  }
+
+  @Test
+  public void testMissingPathLookup() {
+    assertNull(root.getChild("pkg/Missing.as"));
+    assertNull(root.getChild("missing/Foo.as"));
+    assertNull("a file must not be treated like a directory", root.getChild("pkg/Foo.as/Bar.as"));
+  }
+
+  @Test
+  public void testCaseMismatchIsRejected() {
+    assertNull(root.getChild("pkg/foo.as"));
+    assertNull(root.getChild("PKG/Foo.as"));
+    assertNull(root.getChild("pkg/Sub/Bar.as"));
+    assertNotNull(root.getChild("pkg/Foo.as"));
+  }
+
+  @Test
+  public void testListUsesSnapshot() throws IOException {
+    FileInputSource pkg = root.getChild("pkg");
+    assertEquals(Arrays.asList("Foo.as", "sub"), names(pkg.list()));
+    writeFile("pkg/Added.as");
+    assertEquals("the directory contents must have been taken on first access",
+            Arrays.asList("Foo.as", "sub"), names(pkg.list()));
+    assertNull(pkg.getChild("Added.as"));
+    assertEquals(Arrays.asList("Added.as", "Foo.as", "sub"),
+            names(new FileInputSource(sourceDir, sourceDir, true, null).getChild("pkg").list()));
+  }
+
+  private void writeFile(String relativePath) throws IOException {
+    FileUtils.writeStringToFile(new File(sourceDir, relativePath), "// " + relativePath, StandardCharsets.UTF_8);
+  }
+
+  private static List<String> names(List<InputSource> inputSources) {
+    List<String> names = new ArrayList<>();
+    for (InputSource inputSource : inputSources) {
+      names.add(inputSource.getName());
+    }
+    return names;
+  }
+}
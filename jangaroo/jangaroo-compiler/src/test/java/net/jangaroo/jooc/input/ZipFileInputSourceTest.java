@@ -0,0 +1,147 @@
+package net.jangaroo.jooc.input;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+public class ZipFileInputSourceTest {
+
+  private static final String[] ROOT_DIRS = {"", "META-INF/joo-api/"};
+
+  @Rule
+  public final TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private File archive;
+
+  @Before
+  public void createArchive() throws IOException {
+    archive = new File(tmpFolder.getRoot(), "test.jar");
+    writeArchive(archive,
+            "pkg/", "pkg/A.as", "pkg/sub/", "pkg/sub/B.as",
+            "META-INF/", "META-INF/joo-api/", "META-INF/joo-api/pkg/",
+            // shadowed by the entry of the same relative path found first:
+            "META-INF/joo-api/pkg/A.as",
+            "META-INF/joo-api/pkg/C.as",
+            "other/", "other/D.js");
+  }
+
+  @Test
+  public void testSameEntriesAsJarFileEnumeration() throws IOException {
+    ZipFileInputSource zipFileInputSource = new ZipFileInputSource(archive, ROOT_DIRS, false);
+    try (JarFile jarFile = new JarFile(archive)) {
+      Map<String, ZipEntry> expectedEntries = enumerateEntries(jarFile);
+      assertEquals(9, expectedEntries.size());
+      for (Map.Entry<String, ZipEntry> expectedEntry : expectedEntries.entrySet()) {
+        String relativePath = expectedEntry.getKey();
+        InputSource child = zipFileInputSource.getChild(relativePath);
+        assertNotNull("missing entry " + relativePath, child);
+        assertEquals(relativePath, child.getRelativePath());
+        assertEquals(archive.getAbsolutePath() + "!" + expectedEntry.getValue().getName(), child.getPath());
+        assertEquals(expectedEntry.getValue().isDirectory(), child.isDirectory());
+        if (child.isDirectory()) {
+          assertEquals("children of " + relativePath,
+                  expectedChildren(expectedEntries.keySet(), relativePath), relativePaths(child.list()));
+        } else {
+          try (InputStream expectedContent = jarFile.getInputStream(expectedEntry.getValue());
+               InputStream content = child.getInputStream()) {
+            assertTrue("content of " + relativePath, IOUtils.contentEquals(expectedContent, content));
+          }
+        }
+      }
+      assertEquals(expectedChildren(expectedEntries.keySet(), ""), relativePaths(zipFileInputSource.list()));
+    } finally {
+      zipFileInputSource.close();
+    }
+    assertNull(zipFileInputSource.getChild("pkg/Missing.as"));
+    assertEquals("META-INF/joo-api/pkg/C.as", ((ZipEntryInputSource) zipFileInputSource.getChild("pkg")
+            .getChild("C.as")).getPath().split("!")[1]);
+  }
+
+  @Test
+  public void testSharedIndexIsRefreshedWhenArchiveChanges() throws IOException {
+    assertNotNull(new ZipFileInputSource(archive, ROOT_DIRS, false).getChild("pkg/A.as"));
+    long lastModified = archive.lastModified();
+    writeArchive(archive, "pkg/", "pkg/E.as");
+    assertTrue(archive.setLastModified(lastModified + 10000));
+    ZipFileInputSource changedZipFileInputSource = new ZipFileInputSource(archive, ROOT_DIRS, false);
+    assertNull(changedZipFileInputSource.getChild("pkg/A.as"));
+    assertNotNull(changedZipFileInputSource.getChild("pkg/E.as"));
+  }
+
+  /**
+   * Map every entry of the archive to its path relative to the longest matching root directory, the first entry
+   * of the same relative path winning, like a <code>ZipFileInputSource</code> that reads all entries eagerly.
+   */
+  private static Map<String, ZipEntry> enumerateEntries(JarFile jarFile) {
+    Map<String, ZipEntry> entries = new LinkedHashMap<>();
+    Enumeration<JarEntry> enumeration = jarFile.entries();
+    while (enumeration.hasMoreElements()) {
+      ZipEntry entry = enumeration.nextElement();
+      String root = null;
+      for (String rootDir : ROOT_DIRS) {
+        if (entry.getName().startsWith(rootDir) && (root == null || root.length() < rootDir.length())) {
+          root = rootDir;
+        }
+      }
+      if (root != null) {
+        String relativePath = entry.getName().substring(root.length()).replaceFirst("/$", "");
+        entries.putIfAbsent(relativePath, entry);
+      }
+    }
+    return entries;
+  }
+
+  private static Set<String> expectedChildren(Set<String> relativePaths, String parent) {
+    Set<String> children = new HashSet<>();
+    for (String relativePath : relativePaths) {
+      int slashPos = relativePath.lastIndexOf('/');
+      if (parent.equals(slashPos == -1 ? "" : relativePath.substring(0, slashPos))) {
+        children.add(relativePath);
+      }
+    }
+    return children;
+  }
+
+  private static Set<String> relativePaths(List<? extends InputSource> inputSources) {
+    Set<String> relativePaths = new HashSet<>();
+    for (InputSource inputSource : inputSources) {
+      relativePaths.add(inputSource.getRelativePath());
+    }
+    return relativePaths;
+  }
+
+  private static void writeArchive(File archive, String... entryNames) throws IOException {
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(archive))) {
+      for (String entryName : entryNames) {
+        out.putNextEntry(new ZipEntry(entryName));
+        if (!entryName.endsWith("/")) {
+          out.write(("// " + entryName).getBytes(StandardCharsets.UTF_8));
+        }
+        out.closeEntry();
+      }
+    }
+  }
+}
@@ -47,4 +47,15 @@ public class JsonTest {
             "  ]\n" +
             "}", jsonObject.stringify().replaceAll(JsonObject.LINE_SEPARATOR, "\n")); 
   }
+
+  @Test
+  public void testNestedJsonObjectWithQuotedKeys() {
+    JsonObject jsonObject = new JsonObject(
+            "phases", new JsonArray(new JsonObject("name", "analysis", "count", 1))
+    );
+    Assert.assertEquals("{\"phases\": [{\n" +
+            "  \"name\": \"analysis\",\n" +
+            "  \"count\": 1\n" +
+            "}]}", jsonObject.stringify().replaceAll(JsonObject.LINE_SEPARATOR, "\n"));
+  }
 }
@@ -0,0 +1,66 @@
+package net.jangaroo.jooc.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+public class SourceMapEncoderTest {
+
+  @Test
+  public void testEmpty() throws IOException {
+    SourceMapEncoder encoder = new SourceMapEncoder(Function.identity());
+    Assert.assertEquals("{\n\"version\":3,\n\"file\":\"out.js\",\n\"lineCount\":1,\n\"mappings\":\"\",\n" +
+            "\"sources\":[],\n\"names\":[]\n}\n", toString(encoder));
+  }
+
+  @Test
+  public void testAdjacentAndSeparatedMappings() throws IOException {
+    SourceMapEncoder encoder = new SourceMapEncoder(Function.identity());
+    encoder.addMapping("A.as", "foo", 0, 0, 0, 0, 0, 3);
+    encoder.addMapping("A.as", "bar", 0, 4, 0, 3, 0, 6);
+    encoder.addMapping("A.as", "foo", 2, 2, 0, 8, 0, 11);
+    Assert.assertEquals("AAAAA,GAAIC,G,EAEFD,G", getMappings(encoder));
+  }
+
+  @Test
+  public void testMultipleLinesAndSources() throws IOException {
+    SourceMapEncoder encoder = new SourceMapEncoder(fileName -> "src/" + fileName);
+    encoder.addMapping("A.as", null, 0, 0, 1, 2, 1, 5);
+    encoder.addMapping("B.as", null, 16, 1, 3, 0, 3, 1);
+    String sourceMap = toString(encoder);
+    Assert.assertTrue(sourceMap, sourceMap.contains("\"mappings\":\";EAAA,G;;ACgBC,C\""));
+    Assert.assertTrue(sourceMap, sourceMap.contains("\"sources\":[\"src/A.as\",\"src/B.as\"]"));
+    Assert.assertTrue(sourceMap, sourceMap.contains("\"lineCount\":4"));
+  }
+
+  @Test
+  public void testOutputOffset() throws IOException {
+    SourceMapEncoder encoder = new SourceMapEncoder(Function.identity());
+    encoder.setOutputOffset(1, 10);
+    encoder.addMapping("A.as", null, 0, 0, 0, 0, 0, 1);
+    encoder.addMapping("A.as", null, 1, 0, 1, 0, 1, 1);
+    Assert.assertEquals(";UAAA,C;AACA,C", getMappings(encoder));
+  }
+
+  @Test
+  public void testOverlappingMappingIsIgnored() throws IOException {
+    SourceMapEncoder encoder = new SourceMapEncoder(Function.identity());
+    encoder.addMapping("A.as", null, 0, 0, 0, 0, 0, 5);
+    encoder.addMapping("A.as", null, 0, 1, 0, 2, 0, 3);
+    Assert.assertEquals("AAAA,K", getMappings(encoder));
+  }
+
+  private static String getMappings(SourceMapEncoder encoder) throws IOException {
+    String sourceMap = toString(encoder);
+    int start = sourceMap.indexOf("\"mappings\":\"") + "\"mappings\":\"".length();
+    return sourceMap.substring(start, sourceMap.indexOf('"', start));
+  }
+
+  private static String toString(SourceMapEncoder encoder) throws IOException {
+    StringBuilder result = new StringBuilder();
+    encoder.appendTo(result, "out.js");
+    return result.toString();
+  }
+}